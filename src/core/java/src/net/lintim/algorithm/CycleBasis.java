@@ -0,0 +1,488 @@
+package net.lintim.algorithm;
+
+import net.lintim.exception.LinTimException;
+import net.lintim.model.Edge;
+import net.lintim.model.Graph;
+import net.lintim.model.Node;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A strictly fundamental cycle basis of a graph, i.e., the fundamental cycles of a spanning forest. For every edge not
+ * in the forest, there is one cycle consisting of this edge and the forest path between its end nodes.
+ * <p>
+ * The cycles are stored in a compressed sparse format: the edges of cycle c are {@link #getCycleEdge(int)} for
+ * cycleStart(c) &lt;= k &lt; cycleEnd(c), with the orientation {@link #getOrientation(int)}, +1 if the edge is
+ * traversed from its left to its right node and -1 otherwise. The first edge of every cycle is its non forest edge,
+ * traversed forwards. Edges are identified by their index in {@link #getEdges()}.
+ * <p>
+ * For periodic timetabling, {@link #computeModuloBounds(ToDoubleFunction, ToDoubleFunction, int)} computes the
+ * bounds of the cycle periodicity variables of all cycles at once. A basis with small widths of these bounds can be
+ * searched with {@link #computeShortBasis(Graph, ToDoubleFunction, ToDoubleFunction, int, int, int, long)}, which
+ * compares the bases of several spanning forests in parallel.
+ *
+ * @param <N> the node type
+ * @param <E> the edge type
+ */
+public class CycleBasis<N extends Node, E extends Edge<N>> {
+
+    private final IndexedGraph<N, E> graph;
+    private int numberOfCycles;
+    private int[] cycleStart;
+    private int[] cycleEdges;
+    private byte[] orientations;
+
+    private CycleBasis(IndexedGraph<N, E> graph, int[] parentEdge, int[] depth) {
+        this.graph = graph;
+        int numberOfEdges = graph.edges.size();
+        boolean[] isForestEdge = new boolean[numberOfEdges];
+        for (int edge : parentEdge) {
+            if (edge != -1) {
+                isForestEdge[edge] = true;
+            }
+        }
+        cycleStart = new int[numberOfEdges + 1];
+        cycleEdges = new int[Math.max(16, 4 * numberOfEdges)];
+        orientations = new byte[cycleEdges.length];
+        int length = 0;
+        for (int edge = 0; edge < numberOfEdges; edge++) {
+            if (isForestEdge[edge]) {
+                continue;
+            }
+            cycleStart[numberOfCycles] = length;
+            int source = graph.source[edge];
+            int target = graph.target[edge];
+            length = add(length, edge, 1);
+            // Go up from both end nodes to the lowest common ancestor. The path from the target node is traversed
+            // upwards, the path from the source node downwards, therefore it is added reversed.
+            int sourceSide = source;
+            int targetSide = target;
+            while (depth[targetSide] > depth[sourceSide]) {
+                length = addUpwards(length, targetSide, parentEdge[targetSide]);
+                targetSide = graph.otherNode(parentEdge[targetSide], targetSide);
+            }
+            int[] sourceSideEdges = new int[0];
+            int sourceSideCount = 0;
+            while (depth[sourceSide] > depth[targetSide]) {
+                sourceSideEdges = push(sourceSideEdges, sourceSideCount++, parentEdge[sourceSide]);
+                sourceSide = graph.otherNode(parentEdge[sourceSide], sourceSide);
+            }
+            while (sourceSide != targetSide) {
+                length = addUpwards(length, targetSide, parentEdge[targetSide]);
+                targetSide = graph.otherNode(parentEdge[targetSide], targetSide);
+                sourceSideEdges = push(sourceSideEdges, sourceSideCount++, parentEdge[sourceSide]);
+                sourceSide = graph.otherNode(parentEdge[sourceSide], sourceSide);
+            }
+            // The source side is traversed from the common ancestor down to the source node
+            for (int index = sourceSideCount - 1; index >= 0; index--) {
+                int forestEdge = sourceSideEdges[index];
+                int child = depth[graph.source[forestEdge]] > depth[graph.target[forestEdge]] ?
+                    graph.source[forestEdge] : graph.target[forestEdge];
+                length = add(length, forestEdge, graph.target[forestEdge] == child ? 1 : -1);
+            }
+            numberOfCycles++;
+        }
+        cycleStart[numberOfCycles] = length;
+        cycleStart = Arrays.copyOf(cycleStart, numberOfCycles + 1);
+        cycleEdges = Arrays.copyOf(cycleEdges, length);
+        orientations = Arrays.copyOf(orientations, length);
+    }
+
+    private static int[] push(int[] array, int position, int value) {
+        if (position == array.length) {
+            array = Arrays.copyOf(array, Math.max(8, 2 * position));
+        }
+        array[position] = value;
+        return array;
+    }
+
+    private int add(int length, int edge, int orientation) {
+        if (length == cycleEdges.length) {
+            cycleEdges = Arrays.copyOf(cycleEdges, 2 * length);
+            orientations = Arrays.copyOf(orientations, 2 * length);
+        }
+        cycleEdges[length] = edge;
+        orientations[length] = (byte) orientation;
+        return length + 1;
+    }
+
+    /**
+     * Add a forest edge that is traversed from the given node to its parent.
+     */
+    private int addUpwards(int length, int node, int forestEdge) {
+        return add(length, forestEdge, graph.source[forestEdge] == node ? 1 : -1);
+    }
+
+    /**
+     * Compute the fundamental cycle basis of a minimum spanning forest, computed by Kruskal. For periodic
+     * timetabling, using the span of the activities as weight gives cycles with small widths.
+     *
+     * @param graph  the graph
+     * @param weight the weight of the edges
+     * @param <N>    the node type
+     * @param <E>    the edge type
+     * @return the cycle basis
+     */
+    public static <N extends Node, E extends Edge<N>> CycleBasis<N, E> computeMinimumSpanningForestBasis(
+        Graph<N, E> graph, ToDoubleFunction<E> weight) {
+        return new IndexedGraph<>(graph).minimumSpanningForestBasis(weight);
+    }
+
+    /**
+     * Compute the fundamental cycle basis of a breadth first search forest. The first tree is rooted at the given
+     * node. Every other tree is rooted at its first node after the given root in the order of the graph, continuing
+     * with the first node of the graph after the last one.
+     *
+     * @param graph the graph
+     * @param root  the root of the first tree
+     * @param <N>   the node type
+     * @param <E>   the edge type
+     * @return the cycle basis
+     */
+    public static <N extends Node, E extends Edge<N>> CycleBasis<N, E> computeBreadthFirstBasis(Graph<N, E> graph,
+                                                                                             N root) {
+        IndexedGraph<N, E> indexedGraph = new IndexedGraph<>(graph);
+        return indexedGraph.breadthFirstBasis(indexedGraph.nodeIndex.get(root.getId()));
+    }
+
+    /**
+     * Search a cycle basis with small cycle widths. The candidates are the basis of the minimum spanning forest
+     * w.r.t. the span of the edges and the bases of breadth first search forests from distinct random roots. They are
+     * computed in parallel, the one with the smallest sum of the logarithms of the widths is returned, i.e., the one with the
+     * smallest number of possible values of the cycle periodicity variables.
+     *
+     * @param graph              the graph
+     * @param lowerBound         the lower bound of the edges
+     * @param upperBound         the upper bound of the edges
+     * @param periodLength       the period length
+     * @param numberOfCandidates the number of bases to compare, at least 1. At most one basis per node is computed
+     *                           in addition to the minimum spanning forest basis
+     * @param threads            the number of threads to use, values &lt; 1 use all available processors
+     * @param seed               the random seed for choosing the roots
+     * @param <N>                the node type
+     * @param <E>                the edge type
+     * @return the best basis found
+     */
+    public static <N extends Node, E extends Edge<N>> CycleBasis<N, E> computeShortBasis(
+        Graph<N, E> graph, ToDoubleFunction<E> lowerBound, ToDoubleFunction<E> upperBound, int periodLength,
+        int numberOfCandidates, int threads, long seed) {
+        IndexedGraph<N, E> indexedGraph = new IndexedGraph<>(graph);
+        Random random = new Random(seed);
+        ArrayList<Callable<CycleBasis<N, E>>> candidates = new ArrayList<>();
+        candidates.add(() -> indexedGraph.minimumSpanningForestBasis(edge -> upperBound.applyAsDouble(edge) -
+            lowerBound.applyAsDouble(edge)));
+        // Draw the roots without replacement by a partial Fisher-Yates shuffle of the nodes
+        int numberOfRoots = Math.min(numberOfCandidates - 1, indexedGraph.numberOfNodes);
+        int[] nodes = new int[indexedGraph.numberOfNodes];
+        for (int node = 0; node < nodes.length; node++) {
+            nodes[node] = node;
+        }
+        for (int candidate = 0; candidate < numberOfRoots; candidate++) {
+            int swap = candidate + random.nextInt(nodes.length - candidate);
+            int root = nodes[swap];
+            nodes[swap] = nodes[candidate];
+            nodes[candidate] = root;
+            candidates.add(() -> indexedGraph.breadthFirstBasis(root));
+        }
+        int numberOfThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfThreads, candidates.size()));
+        CycleBasis<N, E> best = null;
+        double bestLogWidth = Double.POSITIVE_INFINITY;
+        try {
+            for (Future<CycleBasis<N, E>> future : executor.invokeAll(candidates)) {
+                CycleBasis<N, E> basis = future.get();
+                double logWidth = basis.computeModuloBounds(lowerBound, upperBound, periodLength).getSumOfLogWidths();
+                if (best == null || logWidth < bestLogWidth) {
+                    best = basis;
+                    bestLogWidth = logWidth;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new LinTimException("Parallel cycle basis search failed: " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        return best;
+    }
+
+    /**
+     * Compute the bounds of the cycle periodicity variables of all cycles, i.e., for every cycle c the integers z_c
+     * with
+     * <pre>
+     *     sum_{a in C+} l_a - sum_{a in C-} u_a &lt;= z_c * periodLength &lt;= sum_{a in C+} u_a - sum_{a in C-} l_a,
+     * </pre>
+     * where C+ and C- are the forward and backward edges of the cycle.
+     *
+     * @param lowerBound   the lower bound of the edges
+     * @param upperBound   the upper bound of the edges
+     * @param periodLength the period length
+     * @return the bounds of all cycles
+     */
+    public ModuloBounds computeModuloBounds(ToDoubleFunction<E> lowerBound, ToDoubleFunction<E> upperBound,
+                                            int periodLength) {
+        double[] lower = new double[graph.edges.size()];
+        double[] upper = new double[graph.edges.size()];
+        for (int edge = 0; edge < graph.edges.size(); edge++) {
+            lower[edge] = lowerBound.applyAsDouble(graph.edges.get(edge));
+            upper[edge] = upperBound.applyAsDouble(graph.edges.get(edge));
+        }
+        int[] lowerModulo = new int[numberOfCycles];
+        int[] upperModulo = new int[numberOfCycles];
+        for (int cycle = 0; cycle < numberOfCycles; cycle++) {
+            double minimalLength = 0;
+            double maximalLength = 0;
+            for (int index = cycleStart[cycle]; index < cycleStart[cycle + 1]; index++) {
+                int edge = cycleEdges[index];
+                if (orientations[index] > 0) {
+                    minimalLength += lower[edge];
+                    maximalLength += upper[edge];
+                } else {
+                    minimalLength -= upper[edge];
+                    maximalLength -= lower[edge];
+                }
+            }
+            lowerModulo[cycle] = (int) Math.ceil(minimalLength / periodLength);
+            upperModulo[cycle] = (int) Math.floor(maximalLength / periodLength);
+        }
+        return new ModuloBounds(lowerModulo, upperModulo);
+    }
+
+    public int getNumberOfCycles() {
+        return numberOfCycles;
+    }
+
+    /**
+     * Get the edges of the graph, the edge indices of the cycles refer to this list.
+     *
+     * @return the edges
+     */
+    public List<E> getEdges() {
+        return Collections.unmodifiableList(graph.edges);
+    }
+
+    /**
+     * Get the index of the first edge of the given cycle.
+     *
+     * @param cycle the cycle
+     * @return the index of its first edge
+     */
+    public int cycleStart(int cycle) {
+        return cycleStart[cycle];
+    }
+
+    /**
+     * Get the index after the last edge of the given cycle.
+     *
+     * @param cycle the cycle
+     * @return the index after its last edge
+     */
+    public int cycleEnd(int cycle) {
+        return cycleStart[cycle + 1];
+    }
+
+    /**
+     * Get the edge at the given position of the cycle arrays.
+     *
+     * @param index the position, between cycleStart(c) and cycleEnd(c) for the edges of cycle c
+     * @return the index of the edge
+     */
+    public int getCycleEdge(int index) {
+        return cycleEdges[index];
+    }
+
+    /**
+     * Get the orientation of the edge at the given position of the cycle arrays.
+     *
+     * @param index the position, between cycleStart(c) and cycleEnd(c) for the edges of cycle c
+     * @return +1 if the edge is traversed forwards, -1 otherwise
+     */
+    public int getOrientation(int index) {
+        return orientations[index];
+    }
+
+    /**
+     * Get the non forest edge of the cycle, which is traversed forwards.
+     *
+     * @param cycle the cycle
+     * @return the index of its non forest edge
+     */
+    public int getNonForestEdge(int cycle) {
+        return cycleEdges[cycleStart[cycle]];
+    }
+
+    /**
+     * Get the sum of the number of edges of all cycles.
+     *
+     * @return the total length of the cycles
+     */
+    public int getTotalLength() {
+        return cycleStart[numberOfCycles];
+    }
+
+    /**
+     * The bounds of the cycle periodicity variables of all cycles of a basis.
+     */
+    public static class ModuloBounds {
+        private final int[] lowerBound;
+        private final int[] upperBound;
+
+        private ModuloBounds(int[] lowerBound, int[] upperBound) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        public int getLowerBound(int cycle) {
+            return lowerBound[cycle];
+        }
+
+        public int getUpperBound(int cycle) {
+            return upperBound[cycle];
+        }
+
+        /**
+         * Get the number of feasible values of the cycle periodicity variable, 0 if there is none.
+         *
+         * @param cycle the cycle
+         * @return the width of the cycle
+         */
+        public int getWidth(int cycle) {
+            return Math.max(0, upperBound[cycle] - lowerBound[cycle] + 1);
+        }
+
+        /**
+         * Get the sum of the logarithms of all widths, i.e., the logarithm of the number of combinations of values
+         * of the cycle periodicity variables. Infinite, if there is a cycle without a feasible value.
+         *
+         * @return the sum of the logarithms of the widths
+         */
+        public double getSumOfLogWidths() {
+            double sum = 0;
+            for (int cycle = 0; cycle < lowerBound.length; cycle++) {
+                int width = getWidth(cycle);
+                if (width == 0) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                sum += Math.log(width);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Array representation of a graph, shared by all bases computed for it.
+     */
+    private static class IndexedGraph<N extends Node, E extends Edge<N>> {
+        private final ArrayList<E> edges;
+        private final HashMap<Integer, Integer> nodeIndex = new HashMap<>();
+        private final int numberOfNodes;
+        private final int[] source;
+        private final int[] target;
+        private final int[] incidentStart;
+        private final int[] incident;
+
+        private IndexedGraph(Graph<N, E> graph) {
+            for (N node : graph.getNodes()) {
+                nodeIndex.put(node.getId(), nodeIndex.size());
+            }
+            numberOfNodes = nodeIndex.size();
+            edges = new ArrayList<>(graph.getEdges());
+            source = new int[edges.size()];
+            target = new int[edges.size()];
+            incidentStart = new int[numberOfNodes + 1];
+            for (int edge = 0; edge < edges.size(); edge++) {
+                source[edge] = nodeIndex.get(edges.get(edge).getLeftNode().getId());
+                target[edge] = nodeIndex.get(edges.get(edge).getRightNode().getId());
+                incidentStart[source[edge] + 1]++;
+                incidentStart[target[edge] + 1]++;
+            }
+            for (int node = 0; node < numberOfNodes; node++) {
+                incidentStart[node + 1] += incidentStart[node];
+            }
+            incident = new int[incidentStart[numberOfNodes]];
+            int[] next = Arrays.copyOf(incidentStart, numberOfNodes);
+            for (int edge = 0; edge < edges.size(); edge++) {
+                incident[next[source[edge]]++] = edge;
+                incident[next[target[edge]]++] = edge;
+            }
+        }
+
+        private int otherNode(int edge, int node) {
+            return source[edge] == node ? target[edge] : source[edge];
+        }
+
+        private CycleBasis<N, E> minimumSpanningForestBasis(ToDoubleFunction<E> weight) {
+            double[] edgeWeight = new double[edges.size()];
+            for (int edge = 0; edge < edges.size(); edge++) {
+                edgeWeight[edge] = weight.applyAsDouble(edges.get(edge));
+            }
+            Integer[] sortedEdges = new Integer[edges.size()];
+            for (int edge = 0; edge < edges.size(); edge++) {
+                sortedEdges[edge] = edge;
+            }
+            Arrays.sort(sortedEdges, Comparator.comparingDouble(edge -> edgeWeight[edge]));
+            int[] unionFind = new int[numberOfNodes];
+            for (int node = 0; node < numberOfNodes; node++) {
+                unionFind[node] = node;
+            }
+            boolean[] isForestEdge = new boolean[edges.size()];
+            for (int edge : sortedEdges) {
+                int sourceRoot = find(unionFind, source[edge]);
+                int targetRoot = find(unionFind, target[edge]);
+                if (sourceRoot != targetRoot) {
+                    unionFind[sourceRoot] = targetRoot;
+                    isForestEdge[edge] = true;
+                }
+            }
+            return searchForest(0, isForestEdge);
+        }
+
+        private CycleBasis<N, E> breadthFirstBasis(int root) {
+            return searchForest(root, null);
+        }
+
+        /**
+         * Compute parent edges and depths by breadth first search, starting at the given root. If forest edges are
+         * given, only these are used.
+         */
+        private CycleBasis<N, E> searchForest(int firstRoot, boolean[] isForestEdge) {
+            int[] parentEdge = new int[numberOfNodes];
+            Arrays.fill(parentEdge, -1);
+            int[] depth = new int[numberOfNodes];
+            Arrays.fill(depth, -1);
+            int[] queue = new int[numberOfNodes];
+            for (int offset = 0; offset < numberOfNodes; offset++) {
+                int root = (firstRoot + offset) % numberOfNodes;
+                if (depth[root] != -1) {
+                    continue;
+                }
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = root;
+                depth[root] = 0;
+                while (head < tail) {
+                    int node = queue[head++];
+                    for (int index = incidentStart[node]; index < incidentStart[node + 1]; index++) {
+                        int edge = incident[index];
+                        int neighbour = otherNode(edge, node);
+                        if (depth[neighbour] == -1 && (isForestEdge == null || isForestEdge[edge])) {
+                            depth[neighbour] = depth[node] + 1;
+                            parentEdge[neighbour] = edge;
+                            queue[tail++] = neighbour;
+                        }
+                    }
+                }
+            }
+            return new CycleBasis<>(this, parentEdge, depth);
+        }
+
+        private static int find(int[] unionFind, int element) {
+            while (unionFind[element] != element) {
+                unionFind[element] = unionFind[unionFind[element]];
+                element = unionFind[element];
+            }
+            return element;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package net.lintim.algorithm;
+
+import net.lintim.model.Graph;
+import net.lintim.model.PeriodicActivity;
+import net.lintim.model.PeriodicEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Incremental evaluation of a periodic timetable. The evaluator keeps a copy of the times of the events and maintains
+ * the duration of every activity, the travel time, the weighted slack time and the set of activities violating their
+ * upper bound. Moving a single event only updates its incident activities, i.e., takes O(degree) time. Several events
+ * can be moved at once, then every affected activity is updated only once.
+ * <p>
+ * The duration of an activity is the smallest integer not smaller than its lower bound that is congruent to the
+ * difference of the times of its events modulo the period length, see {@link PeriodicActivity#getDuration(int)}. All
+ * sums are weighted by the number of passengers of the activities. The times of the events in the ean are only changed
+ * by {@link #writeTimes()}.
+ * <p>
+ * The evaluator is not thread safe.
+ */
+public class IncrementalTimetableEvaluator {
+    private final int periodLength;
+    private final ArrayList<PeriodicEvent> events;
+    private final ArrayList<PeriodicActivity> activities;
+    private final HashMap<Integer, Integer> eventIndex = new HashMap<>();
+    private final HashMap<Integer, Integer> activityIndex = new HashMap<>();
+
+    private final int[] source;
+    private final int[] target;
+    private final int[] lowerBound;
+    private final double[] upperBound;
+    private final double[] weight;
+    /**
+     * The activities incident to event i are incident[incidentStart[i]], ..., incident[incidentStart[i+1]-1].
+     */
+    private final int[] incidentStart;
+    private final int[] incident;
+
+    private final int[] time;
+    private final int[] duration;
+    private double travelTime;
+    private double weightedSlackTime;
+
+    /**
+     * The violated activities, position[a] is the index of activity a in violated or -1, if a is not violated.
+     */
+    private final int[] violated;
+    private final int[] violatedPosition;
+    private int numberOfViolatedActivities;
+
+    // Workspace for moves of several events, a moved event has movedStamp[i] == stamp and will get time newTime[i]
+    private final int[] movedStamp;
+    private final int[] newTime;
+    private int stamp;
+
+    /**
+     * Create a new evaluator for the given ean, using the current times of the events.
+     *
+     * @param ean          the ean
+     * @param periodLength the period length
+     */
+    public IncrementalTimetableEvaluator(Graph<PeriodicEvent, PeriodicActivity> ean, int periodLength) {
+        this.periodLength = periodLength;
+        events = new ArrayList<>(ean.getNodes());
+        activities = new ArrayList<>(ean.getEdges());
+        int numberOfEvents = events.size();
+        int numberOfActivities = activities.size();
+        time = new int[numberOfEvents];
+        for (int event = 0; event < numberOfEvents; event++) {
+            eventIndex.put(events.get(event).getId(), event);
+            time[event] = Math.floorMod(events.get(event).getTime(), periodLength);
+        }
+        source = new int[numberOfActivities];
+        target = new int[numberOfActivities];
+        lowerBound = new int[numberOfActivities];
+        upperBound = new double[numberOfActivities];
+        weight = new double[numberOfActivities];
+        incidentStart = new int[numberOfEvents + 1];
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            PeriodicActivity periodicActivity = activities.get(activity);
+            activityIndex.put(periodicActivity.getId(), activity);
+            source[activity] = eventIndex.get(periodicActivity.getLeftNode().getId());
+            target[activity] = eventIndex.get(periodicActivity.getRightNode().getId());
+            lowerBound[activity] = (int) Math.ceil(periodicActivity.getLowerBound());
+            upperBound[activity] = periodicActivity.getUpperBound();
+            weight[activity] = periodicActivity.getNumberOfPassengers();
+            incidentStart[source[activity] + 1]++;
+            if (target[activity] != source[activity]) {
+                incidentStart[target[activity] + 1]++;
+            }
+        }
+        for (int event = 0; event < numberOfEvents; event++) {
+            incidentStart[event + 1] += incidentStart[event];
+        }
+        incident = new int[incidentStart[numberOfEvents]];
+        int[] next = Arrays.copyOf(incidentStart, numberOfEvents);
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            incident[next[source[activity]]++] = activity;
+            if (target[activity] != source[activity]) {
+                incident[next[target[activity]]++] = activity;
+            }
+        }
+
+        duration = new int[numberOfActivities];
+        violated = new int[numberOfActivities];
+        violatedPosition = new int[numberOfActivities];
+        Arrays.fill(violatedPosition, -1);
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            duration[activity] = computeDuration(activity, time[source[activity]], time[target[activity]]);
+            travelTime += weight[activity] * duration[activity];
+            weightedSlackTime += weight[activity] * (duration[activity] - activities.get(activity).getLowerBound());
+            if (duration[activity] > upperBound[activity]) {
+                addViolated(activity);
+            }
+        }
+        movedStamp = new int[numberOfEvents];
+        newTime = new int[numberOfEvents];
+    }
+
+    private int computeDuration(int activity, int sourceTime, int targetTime) {
+        return lowerBound[activity] + Math.floorMod(targetTime - sourceTime - lowerBound[activity], periodLength);
+    }
+
+    /**
+     * Get the current time of an event in the evaluator.
+     *
+     * @param event the event
+     * @return the time of the event, in [0, periodLength)
+     */
+    public int getTime(PeriodicEvent event) {
+        return time[eventIndex.get(event.getId())];
+    }
+
+    /**
+     * Get the current duration of an activity.
+     *
+     * @param activity the activity
+     * @return the duration of the activity
+     */
+    public int getDuration(PeriodicActivity activity) {
+        return duration[activityIndex.get(activity.getId())];
+    }
+
+    /**
+     * Get the sum of duration * passengers over all activities.
+     *
+     * @return the travel time
+     */
+    public double getTravelTime() {
+        return travelTime;
+    }
+
+    /**
+     * Get the sum of (duration - lower bound) * passengers over all activities.
+     *
+     * @return the weighted slack time
+     */
+    public double getWeightedSlackTime() {
+        return weightedSlackTime;
+    }
+
+    /**
+     * Check whether no activity violates its upper bound.
+     *
+     * @return whether the timetable is feasible
+     */
+    public boolean isFeasible() {
+        return numberOfViolatedActivities == 0;
+    }
+
+    public int getNumberOfViolatedActivities() {
+        return numberOfViolatedActivities;
+    }
+
+    /**
+     * Get the activities violating their upper bound.
+     *
+     * @return the violated activities
+     */
+    public List<PeriodicActivity> getViolatedActivities() {
+        ArrayList<PeriodicActivity> result = new ArrayList<>(numberOfViolatedActivities);
+        for (int index = 0; index < numberOfViolatedActivities; index++) {
+            result.add(activities.get(violated[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Compute the change of the weighted slack time if the event was moved to the given time, without moving it.
+     *
+     * @param event   the event to move
+     * @param newTime the new time of the event
+     * @return the change of the weighted slack time, equal to the change of the travel time
+     */
+    public double getWeightedSlackTimeChange(PeriodicEvent event, int newTime) {
+        return getWeightedSlackTimeChange(new PeriodicEvent[]{event}, new int[]{newTime});
+    }
+
+    /**
+     * Compute the change of the number of violated activities if the event was moved to the given time, without
+     * moving it.
+     *
+     * @param event   the event to move
+     * @param newTime the new time of the event
+     * @return the change of the number of violated activities
+     */
+    public int getViolationChange(PeriodicEvent event, int newTime) {
+        return getViolationChange(new PeriodicEvent[]{event}, new int[]{newTime});
+    }
+
+    /**
+     * Compute the change of the weighted slack time if the events were moved to the given times, without moving them.
+     *
+     * @param events   the events to move
+     * @param newTimes the new times of the events
+     * @return the change of the weighted slack time, equal to the change of the travel time
+     */
+    public double getWeightedSlackTimeChange(PeriodicEvent[] events, int[] newTimes) {
+        markMove(events, newTimes);
+        double change = 0;
+        for (PeriodicEvent event : events) {
+            int movedEvent = eventIndex.get(event.getId());
+            for (int index = incidentStart[movedEvent]; index < incidentStart[movedEvent + 1]; index++) {
+                int activity = incident[index];
+                if (isFirstMovedEvent(activity, movedEvent)) {
+                    change += weight[activity] * (movedDuration(activity) - duration[activity]);
+                }
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Compute the change of the number of violated activities if the events were moved to the given times, without
+     * moving them.
+     *
+     * @param events   the events to move
+     * @param newTimes the new times of the events
+     * @return the change of the number of violated activities
+     */
+    public int getViolationChange(PeriodicEvent[] events, int[] newTimes) {
+        markMove(events, newTimes);
+        int change = 0;
+        for (PeriodicEvent event : events) {
+            int movedEvent = eventIndex.get(event.getId());
+            for (int index = incidentStart[movedEvent]; index < incidentStart[movedEvent + 1]; index++) {
+                int activity = incident[index];
+                if (isFirstMovedEvent(activity, movedEvent)) {
+                    boolean wasViolated = violatedPosition[activity] != -1;
+                    boolean isViolated = movedDuration(activity) > upperBound[activity];
+                    change += (isViolated ? 1 : 0) - (wasViolated ? 1 : 0);
+                }
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Move an event to a new time and update all incident activities.
+     *
+     * @param event   the event to move
+     * @param newTime the new time of the event
+     */
+    public void moveEvent(PeriodicEvent event, int newTime) {
+        moveEvents(new PeriodicEvent[]{event}, new int[]{newTime});
+    }
+
+    /**
+     * Move several events at once. Every activity between two moved events is updated once. The events have to be
+     * distinct.
+     *
+     * @param events   the events to move
+     * @param newTimes the new times of the events
+     */
+    public void moveEvents(PeriodicEvent[] events, int[] newTimes) {
+        markMove(events, newTimes);
+        for (PeriodicEvent event : events) {
+            int movedEvent = eventIndex.get(event.getId());
+            for (int index = incidentStart[movedEvent]; index < incidentStart[movedEvent + 1]; index++) {
+                int activity = incident[index];
+                if (!isFirstMovedEvent(activity, movedEvent)) {
+                    continue;
+                }
+                int newDuration = movedDuration(activity);
+                travelTime += weight[activity] * (newDuration - duration[activity]);
+                weightedSlackTime += weight[activity] * (newDuration - duration[activity]);
+                duration[activity] = newDuration;
+                boolean isViolated = newDuration > upperBound[activity];
+                if (isViolated && violatedPosition[activity] == -1) {
+                    addViolated(activity);
+                } else if (!isViolated && violatedPosition[activity] != -1) {
+                    removeViolated(activity);
+                }
+            }
+        }
+        for (PeriodicEvent event : events) {
+            int movedEvent = eventIndex.get(event.getId());
+            time[movedEvent] = newTime[movedEvent];
+        }
+    }
+
+    /**
+     * Shift several events by the same amount of time.
+     *
+     * @param events the events to shift
+     * @param shift  the time to add to every event
+     */
+    public void shiftEvents(PeriodicEvent[] events, int shift) {
+        int[] newTimes = new int[events.length];
+        for (int index = 0; index < events.length; index++) {
+            newTimes[index] = getTime(events[index]) + shift;
+        }
+        moveEvents(events, newTimes);
+    }
+
+    /**
+     * Set the times of the events in the ean to the times of the evaluator.
+     */
+    public void writeTimes() {
+        for (int event = 0; event < events.size(); event++) {
+            events.get(event).setTime(time[event]);
+        }
+    }
+
+    private void markMove(PeriodicEvent[] events, int[] newTimes) {
+        if (events.length != newTimes.length) {
+            throw new IllegalArgumentException("Number of events and times differ");
+        }
+        stamp++;
+        for (int index = 0; index < events.length; index++) {
+            int event = eventIndex.get(events[index].getId());
+            movedStamp[event] = stamp;
+            newTime[event] = Math.floorMod(newTimes[index], periodLength);
+        }
+    }
+
+    /**
+     * Check whether the given moved event is the first moved event of the activity, to handle every activity once.
+     */
+    private boolean isFirstMovedEvent(int activity, int movedEvent) {
+        return source[activity] == movedEvent || movedStamp[source[activity]] != stamp;
+    }
+
+    private int movedDuration(int activity) {
+        int sourceTime = movedStamp[source[activity]] == stamp ? newTime[source[activity]] : time[source[activity]];
+        int targetTime = movedStamp[target[activity]] == stamp ? newTime[target[activity]] : time[target[activity]];
+        return computeDuration(activity, sourceTime, targetTime);
+    }
+
+    private void addViolated(int activity) {
+        violatedPosition[activity] = numberOfViolatedActivities;
+        violated[numberOfViolatedActivities++] = activity;
+    }
+
+    private void removeViolated(int activity) {
+        int position = violatedPosition[activity];
+        int last = violated[--numberOfViolatedActivities];
+        violated[position] = last;
+        violatedPosition[last] = position;
+        violatedPosition[activity] = -1;
+    }
+}
@@ -0,0 +1,232 @@
+package net.lintim.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * A sparse compatibility generator for vehicle scheduling. Trip j is a successor of trip i, if a vehicle can serve j
+ * directly after i, i.e., if
+ * <pre>
+ *     endTime[i] + deadheadTime(endStop[i], startStop[j]) + turnoverTime &lt;= startTime[j].
+ * </pre>
+ * Instead of checking all pairs of trips, the trips are sorted by their start time per start stop once. For every
+ * trip and every start stop, the compatible trips are then found by a binary search and only the trips in the
+ * connection time window are emitted, i.e., the trips with
+ * <pre>
+ *     startTime[j] - endTime[i] &lt;= maxConnectionTime.
+ * </pre>
+ * Additionally, long deadhead connections can be pruned: a vehicle that has to deadhead to another stop anyway will
+ * normally serve one of the first trips departing there, a connection to a later trip at the same stop is dominated
+ * by the connections to these trips. Therefore, only the first maxDeadheadsPerStop successors at every stop other
+ * than the end stop of the trip are kept. Connections without a deadhead are never pruned.
+ * <p>
+ * With an unrestricted connection time window and no pruning, exactly the connections of the dense pairwise
+ * compatibility check are generated. Otherwise the pruning is a heuristic, an optimal vehicle schedule may use a
+ * pruned connection.
+ * <p>
+ * The successors are stored as adjacency lists in arrays, the successors of trip i are
+ * {@link #getSuccessor(int)} for successorStart(i) &lt;= k &lt; successorEnd(i), ordered by their index.
+ * Trips are identified by their index in the given arrays.
+ */
+public class TripCompatibility {
+    /**
+     * The deadhead time between two stops.
+     */
+    @FunctionalInterface
+    public interface DeadheadTime {
+        /**
+         * Get the time needed for an empty trip from one stop to another.
+         *
+         * @param fromStopId the stop to start at
+         * @param toStopId   the stop to end at
+         * @return the deadhead time, a negative value or infinity if the second stop cannot be reached
+         */
+        double get(int fromStopId, int toStopId);
+    }
+
+    /**
+     * The successors of trip i are stored at successors[successorStart[i]], ...,
+     * successors[successorStart[i+1]-1].
+     */
+    private final int[] successorStart;
+    private final int[] successors;
+
+    /**
+     * Compute the compatible successors of all trips.
+     *
+     * @param startStop           the stop id of the first stop of every trip
+     * @param startTime           the departure time at the first stop of every trip
+     * @param endStop             the stop id of the last stop of every trip
+     * @param endTime             the arrival time at the last stop of every trip
+     * @param deadheadTime        the deadhead times between the stops
+     * @param turnoverTime        the minimal time needed between two trips, in addition to the deadhead time
+     * @param maxConnectionTime   the maximal time between the end of a trip and the start of a successor, negative
+     *                            for no restriction
+     * @param maxDeadheadsPerStop the maximal number of successors of a trip at a stop other than its end stop,
+     *                            negative for no restriction
+     */
+    public TripCompatibility(int[] startStop, double[] startTime, int[] endStop, double[] endTime,
+                             DeadheadTime deadheadTime, double turnoverTime, double maxConnectionTime,
+                             int maxDeadheadsPerStop) {
+        int n = startStop.length;
+        if (startTime.length != n || endStop.length != n || endTime.length != n) {
+            throw new IllegalArgumentException("All trip arrays need to have the same length");
+        }
+
+        // sort the trips by start stop and start time
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> startStop[a] != startStop[b] ? Integer.compare(startStop[a], startStop[b])
+            : Double.compare(startTime[a], startTime[b]));
+        int[] order = new int[n];
+        double[] sortedStartTime = new double[n];
+        int stopCount = 0;
+        for (int k = 0; k < n; k++) {
+            order[k] = boxed[k];
+            sortedStartTime[k] = startTime[order[k]];
+            if (k == 0 || startStop[order[k]] != startStop[order[k - 1]]) {
+                stopCount++;
+            }
+        }
+        // the trips starting at stop stopIds[s] are order[stopStart[s]], ..., order[stopStart[s+1]-1]
+        int[] stopIds = new int[stopCount];
+        int[] stopStart = new int[stopCount + 1];
+        int s = 0;
+        for (int k = 0; k < n; k++) {
+            if (k == 0 || startStop[order[k]] != startStop[order[k - 1]]) {
+                stopIds[s] = startStop[order[k]];
+                stopStart[s] = k;
+                s++;
+            }
+        }
+        stopStart[stopCount] = n;
+
+        successorStart = new int[n + 1];
+        int[] found = new int[16];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            successorStart[i] = count;
+            int first = count;
+            for (s = 0; s < stopCount; s++) {
+                double deadhead = deadheadTime.get(endStop[i], stopIds[s]);
+                if (deadhead < 0 || Double.isInfinite(deadhead)) {
+                    continue;
+                }
+                double earliest = endTime[i] + deadhead + turnoverTime;
+                if (maxConnectionTime >= 0 && earliest > endTime[i] + maxConnectionTime) {
+                    continue;
+                }
+                int from = lowerBound(sortedStartTime, stopStart[s], stopStart[s + 1], earliest);
+                int to = stopStart[s + 1];
+                if (maxConnectionTime >= 0) {
+                    to = upperBound(sortedStartTime, from, to, endTime[i] + maxConnectionTime);
+                }
+                if (maxDeadheadsPerStop >= 0 && stopIds[s] != endStop[i]) {
+                    to = Math.min(to, from + maxDeadheadsPerStop);
+                }
+                for (int k = from; k < to; k++) {
+                    if (order[k] == i) {
+                        continue;
+                    }
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, 2 * found.length);
+                    }
+                    found[count++] = order[k];
+                }
+            }
+            Arrays.sort(found, first, count);
+        }
+        successorStart[n] = count;
+        successors = Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Get the number of trips.
+     *
+     * @return the number of trips
+     */
+    public int getNumberOfTrips() {
+        return successorStart.length - 1;
+    }
+
+    /**
+     * Get the number of compatible pairs of trips.
+     *
+     * @return the number of connections
+     */
+    public int getNumberOfConnections() {
+        return successors.length;
+    }
+
+    /**
+     * Get the position of the first successor of the given trip.
+     *
+     * @param trip the index of the trip
+     * @return the position of the first successor, see {@link #getSuccessor(int)}
+     */
+    public int successorStart(int trip) {
+        return successorStart[trip];
+    }
+
+    /**
+     * Get the position after the last successor of the given trip.
+     *
+     * @param trip the index of the trip
+     * @return the position after the last successor, see {@link #getSuccessor(int)}
+     */
+    public int successorEnd(int trip) {
+        return successorStart[trip + 1];
+    }
+
+    /**
+     * Get the successor stored at the given position.
+     *
+     * @param position the position, between successorStart(i) and successorEnd(i) - 1 for the successors of trip i
+     * @return the index of the successor
+     */
+    public int getSuccessor(int position) {
+        return successors[position];
+    }
+
+    /**
+     * Check whether the second trip is a successor of the first one.
+     *
+     * @param trip      the index of the first trip
+     * @param successor the index of the second trip
+     * @return whether the connection from trip to successor was generated
+     */
+    public boolean isCompatible(int trip, int successor) {
+        return Arrays.binarySearch(successors, successorStart[trip], successorStart[trip + 1], successor) >= 0;
+    }
+
+    /**
+     * The first position in [from, to) with a value of at least the given one.
+     */
+    private static int lowerBound(double[] values, int from, int to, double value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (values[middle] < value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * The first position in [from, to) with a value larger than the given one.
+     */
+    private static int upperBound(double[] values, int from, int to, double value) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (values[middle] <= value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,133 @@
+package net.lintim.algorithm;
+
+import net.lintim.model.*;
+import net.lintim.util.TestHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link CycleBasis}. Besides a small example, the bases of random eans are checked to consist of closed
+ * walks, one per non forest edge.
+ */
+public class CycleBasisTest {
+
+    private static final int PERIOD = 60;
+
+    /**
+     * Check that every cycle is a closed walk that starts with its non forest edge and that the non forest edges are
+     * distinct.
+     */
+    private static void assertCyclesAreClosed(CycleBasis<PeriodicEvent, PeriodicActivity> basis) {
+        List<PeriodicActivity> activities = basis.getEdges();
+        boolean[] isNonForestEdge = new boolean[activities.size()];
+        for (int cycle = 0; cycle < basis.getNumberOfCycles(); cycle++) {
+            Assert.assertEquals(1, basis.getOrientation(basis.cycleStart(cycle)));
+            Assert.assertFalse(isNonForestEdge[basis.getNonForestEdge(cycle)]);
+            isNonForestEdge[basis.getNonForestEdge(cycle)] = true;
+            PeriodicActivity first = activities.get(basis.getNonForestEdge(cycle));
+            PeriodicEvent current = first.getLeftNode();
+            for (int index = basis.cycleStart(cycle); index < basis.cycleEnd(cycle); index++) {
+                PeriodicActivity activity = activities.get(basis.getCycleEdge(index));
+                if (basis.getOrientation(index) > 0) {
+                    Assert.assertEquals(current, activity.getLeftNode());
+                    current = activity.getRightNode();
+                } else {
+                    Assert.assertEquals(current, activity.getRightNode());
+                    current = activity.getLeftNode();
+                }
+            }
+            Assert.assertEquals(first.getLeftNode(), current);
+        }
+    }
+
+    @Test
+    public void canComputeTriangleBasis() {
+        PeriodicEvent event1 = TestHelper.periodicEvent(1, 0);
+        PeriodicEvent event2 = TestHelper.periodicEvent(2, 0);
+        PeriodicEvent event3 = TestHelper.periodicEvent(3, 0);
+        Graph<PeriodicEvent, PeriodicActivity> ean = TestHelper.periodicEan(event1, event2, event3,
+            TestHelper.periodicEvent(4, 0));
+        ean.addEdge(new PeriodicActivity(1, ActivityType.DRIVE, event1, event2, 3, 5, 1));
+        ean.addEdge(new PeriodicActivity(2, ActivityType.WAIT, event2, event3, 1, 2, 1));
+        ean.addEdge(new PeriodicActivity(3, ActivityType.CHANGE, event1, event3, 2, 61, 1));
+        CycleBasis<PeriodicEvent, PeriodicActivity> basis = CycleBasis.computeMinimumSpanningForestBasis(ean,
+            activity -> activity.getUpperBound() - activity.getLowerBound());
+        // The change has the largest span, therefore it is the non forest edge
+        Assert.assertEquals(1, basis.getNumberOfCycles());
+        Assert.assertEquals(3, basis.getTotalLength());
+        Assert.assertEquals(3, basis.getEdges().get(basis.getNonForestEdge(0)).getId());
+        assertCyclesAreClosed(basis);
+        // Change forwards, wait and drive backwards: 2 - 2 - 5 <= 60 z <= 61 - 1 - 3
+        CycleBasis.ModuloBounds bounds = basis.computeModuloBounds(PeriodicActivity::getLowerBound,
+            PeriodicActivity::getUpperBound, PERIOD);
+        Assert.assertEquals(0, bounds.getLowerBound(0));
+        Assert.assertEquals(0, bounds.getUpperBound(0));
+        Assert.assertEquals(1, bounds.getWidth(0));
+        Assert.assertEquals(0, bounds.getSumOfLogWidths(), 1e-9);
+    }
+
+    @Test
+    public void basesOfRandomGraphsAreValid() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            // Sparse graphs are usually disconnected
+            int numberOfEvents = 5 + random.nextInt(40);
+            Graph<PeriodicEvent, PeriodicActivity> ean = TestHelper.randomPeriodicEan(random, numberOfEvents,
+                random.nextInt(3 * numberOfEvents), PERIOD);
+            int numberOfComponents = new ConnectedComponents(ean).size();
+            int expectedCycles = ean.getEdges().size() - ean.getNodes().size() + numberOfComponents;
+            ArrayList<CycleBasis<PeriodicEvent, PeriodicActivity>> bases = new ArrayList<>();
+            bases.add(CycleBasis.computeMinimumSpanningForestBasis(ean, PeriodicActivity::getLowerBound));
+            bases.add(CycleBasis.computeBreadthFirstBasis(ean, ean.getNode(1)));
+            bases.add(CycleBasis.computeShortBasis(ean, PeriodicActivity::getLowerBound,
+                PeriodicActivity::getUpperBound, PERIOD, 4, 2, run));
+            for (CycleBasis<PeriodicEvent, PeriodicActivity> basis : bases) {
+                Assert.assertEquals(expectedCycles, basis.getNumberOfCycles());
+                assertCyclesAreClosed(basis);
+            }
+        }
+    }
+
+    /**
+     * Count the connected components of an undirected graph by a simple union find.
+     */
+    private static class ConnectedComponents {
+        private final int size;
+
+        private ConnectedComponents(Graph<PeriodicEvent, PeriodicActivity> graph) {
+            int maxId = 0;
+            for (PeriodicEvent event : graph.getNodes()) {
+                maxId = Math.max(maxId, event.getId());
+            }
+            int[] parent = new int[maxId + 1];
+            for (int id = 0; id <= maxId; id++) {
+                parent[id] = id;
+            }
+            int components = graph.getNodes().size();
+            for (PeriodicActivity activity : graph.getEdges()) {
+                int left = find(parent, activity.getLeftNode().getId());
+                int right = find(parent, activity.getRightNode().getId());
+                if (left != right) {
+                    parent[left] = right;
+                    components--;
+                }
+            }
+            size = components;
+        }
+
+        private static int find(int[] parent, int id) {
+            while (parent[id] != id) {
+                id = parent[id];
+            }
+            return id;
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package net.lintim.algorithm;
+
+import net.lintim.model.*;
+import net.lintim.util.TestHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link IncrementalTimetableEvaluator}. The changes computed incrementally are compared with a
+ * recomputation from the durations of all activities.
+ */
+public class IncrementalTimetableEvaluatorTest {
+
+    private static final double DELTA = 1e-9;
+    private static final int PERIOD = 60;
+
+    @Test
+    public void canEvaluateAndMoveEvents() {
+        PeriodicEvent event1 = TestHelper.periodicEvent(1, 0);
+        PeriodicEvent event2 = TestHelper.periodicEvent(2, 5);
+        PeriodicEvent event3 = TestHelper.periodicEvent(3, 58);
+        Graph<PeriodicEvent, PeriodicActivity> ean = TestHelper.periodicEan(event1, event2, event3);
+        PeriodicActivity drive = new PeriodicActivity(1, ActivityType.DRIVE, event1, event2, 3, 6, 10);
+        PeriodicActivity change = new PeriodicActivity(2, ActivityType.CHANGE, event2, event3, 2, 61, 2);
+        PeriodicActivity wait = new PeriodicActivity(3, ActivityType.WAIT, event3, event1, 1, 3, 1);
+        ean.addEdge(drive);
+        ean.addEdge(change);
+        ean.addEdge(wait);
+        IncrementalTimetableEvaluator evaluator = new IncrementalTimetableEvaluator(ean, PERIOD);
+        Assert.assertEquals(5, evaluator.getDuration(drive));
+        Assert.assertEquals(53, evaluator.getDuration(change));
+        Assert.assertEquals(2, evaluator.getDuration(wait));
+        Assert.assertEquals(50 + 106 + 2, evaluator.getTravelTime(), DELTA);
+        Assert.assertEquals(20 + 102 + 1, evaluator.getWeightedSlackTime(), DELTA);
+        Assert.assertTrue(evaluator.isFeasible());
+
+        // Moving event 2 to time 2 = 62 mod 60: drive takes 62 minutes and becomes violated, change takes 56
+        Assert.assertEquals(10 * 57 + 2 * 3, evaluator.getWeightedSlackTimeChange(event2, 62), DELTA);
+        Assert.assertEquals(1, evaluator.getViolationChange(event2, 62));
+        evaluator.moveEvent(event2, 62);
+        Assert.assertEquals(2, evaluator.getTime(event2));
+        Assert.assertEquals(62, evaluator.getDuration(drive));
+        Assert.assertEquals(56, evaluator.getDuration(change));
+        Assert.assertFalse(evaluator.isFeasible());
+        Assert.assertEquals(1, evaluator.getViolatedActivities().size());
+        Assert.assertEquals(drive, evaluator.getViolatedActivities().get(0));
+
+        // Shifting all events does not change any duration
+        double travelTime = evaluator.getTravelTime();
+        evaluator.shiftEvents(new PeriodicEvent[]{event1, event2, event3}, 17);
+        Assert.assertEquals(travelTime, evaluator.getTravelTime(), DELTA);
+        Assert.assertEquals(17, evaluator.getTime(event1));
+
+        // The event times are only changed when written
+        Assert.assertEquals(5, event2.getTime());
+        evaluator.writeTimes();
+        Assert.assertEquals(19, event2.getTime());
+    }
+
+    @Test
+    public void equalsRecomputation() {
+        Random random = new Random(42);
+        Graph<PeriodicEvent, PeriodicActivity> ean = TestHelper.randomPeriodicEan(random, 50, 300, PERIOD);
+        List<PeriodicEvent> events = new ArrayList<>(ean.getNodes());
+        IncrementalTimetableEvaluator evaluator = new IncrementalTimetableEvaluator(ean, PERIOD);
+        for (int move = 0; move < 200; move++) {
+            int numberOfMovedEvents = 1 + random.nextInt(4);
+            PeriodicEvent[] movedEvents = random.ints(0, events.size()).distinct().limit(numberOfMovedEvents)
+                .mapToObj(events::get).toArray(PeriodicEvent[]::new);
+            int[] newTimes = random.ints(numberOfMovedEvents, -PERIOD, 2 * PERIOD).toArray();
+            double slackTime = evaluator.getWeightedSlackTime();
+            int violatedActivities = evaluator.getNumberOfViolatedActivities();
+            double slackTimeChange = evaluator.getWeightedSlackTimeChange(movedEvents, newTimes);
+            int violationChange = evaluator.getViolationChange(movedEvents, newTimes);
+            evaluator.moveEvents(movedEvents, newTimes);
+            Assert.assertEquals(slackTime + slackTimeChange, evaluator.getWeightedSlackTime(), DELTA);
+            Assert.assertEquals(violatedActivities + violationChange, evaluator.getNumberOfViolatedActivities());
+
+            evaluator.writeTimes();
+            double expectedSlackTime = 0;
+            int expectedViolatedActivities = 0;
+            for (PeriodicActivity activity : ean.getEdges()) {
+                int duration = activity.getDuration(PERIOD);
+                Assert.assertEquals(duration, evaluator.getDuration(activity));
+                expectedSlackTime += (duration - activity.getLowerBound()) * activity.getNumberOfPassengers();
+                if (duration > activity.getUpperBound()) {
+                    expectedViolatedActivities++;
+                }
+            }
+            Assert.assertEquals(expectedSlackTime, evaluator.getWeightedSlackTime(), DELTA);
+            Assert.assertEquals(expectedViolatedActivities, evaluator.getNumberOfViolatedActivities());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.lintim.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link TripCompatibility}. The sparse successor lists are compared with a check of all pairs of trips.
+ */
+public class TripCompatibilityTest {
+
+    /**
+     * Trip 0 ends at stop 1 at time 10, trips 1, 2 and 3 start at stop 2 at times 15, 20 and 40, trip 4 starts at
+     * stop 1 at time 12. Deadheading between stop 1 and 2 takes 4, the turnover time is 1.
+     */
+    private static final int[] START_STOP = {2, 2, 2, 2, 1};
+    private static final double[] START_TIME = {0, 15, 20, 40, 12};
+    private static final int[] END_STOP = {1, 1, 1, 1, 2};
+    private static final double[] END_TIME = {10, 16, 25, 45, 14};
+    private static final TripCompatibility.DeadheadTime DEADHEAD = (from, to) -> from == to ? 0 : 4;
+
+    @Test
+    public void canComputeAllSuccessors() {
+        TripCompatibility compatibility = new TripCompatibility(START_STOP, START_TIME, END_STOP, END_TIME,
+            DEADHEAD, 1, -1, -1);
+        Assert.assertEquals(5, compatibility.getNumberOfTrips());
+        Assert.assertArrayEquals(new int[]{1, 2, 3, 4}, successors(compatibility, 0));
+        Assert.assertArrayEquals(new int[]{3}, successors(compatibility, 1));
+        Assert.assertArrayEquals(new int[]{3}, successors(compatibility, 2));
+        Assert.assertArrayEquals(new int[]{}, successors(compatibility, 3));
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, successors(compatibility, 4));
+        Assert.assertEquals(9, compatibility.getNumberOfConnections());
+        Assert.assertTrue(compatibility.isCompatible(0, 4));
+        Assert.assertFalse(compatibility.isCompatible(1, 2));
+    }
+
+    @Test
+    public void respectsConnectionTimeWindow() {
+        TripCompatibility compatibility = new TripCompatibility(START_STOP, START_TIME, END_STOP, END_TIME,
+            DEADHEAD, 1, 10, -1);
+        Assert.assertArrayEquals(new int[]{1, 2, 4}, successors(compatibility, 0));
+        Assert.assertArrayEquals(new int[]{}, successors(compatibility, 1));
+        Assert.assertArrayEquals(new int[]{1, 2}, successors(compatibility, 4));
+    }
+
+    @Test
+    public void prunesLongDeadheads() {
+        TripCompatibility compatibility = new TripCompatibility(START_STOP, START_TIME, END_STOP, END_TIME,
+            DEADHEAD, 1, -1, 1);
+        // only the first trip at stop 2 is reached by a deadhead, the connection without deadhead is kept
+        Assert.assertArrayEquals(new int[]{1, 4}, successors(compatibility, 0));
+        // trip 4 ends at stop 2, so none of its successors needs a deadhead
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, successors(compatibility, 4));
+    }
+
+    @Test
+    public void equalsDenseCompatibility() {
+        Random random = new Random(42);
+        int n = 200;
+        int[] startStop = new int[n];
+        double[] startTime = new double[n];
+        int[] endStop = new int[n];
+        double[] endTime = new double[n];
+        for (int i = 0; i < n; i++) {
+            startStop[i] = random.nextInt(10);
+            endStop[i] = random.nextInt(10);
+            startTime[i] = random.nextInt(1000);
+            endTime[i] = startTime[i] + 1 + random.nextInt(100);
+        }
+        TripCompatibility.DeadheadTime deadhead = (from, to) -> 3 * Math.abs(from - to);
+        TripCompatibility compatibility = new TripCompatibility(startStop, startTime, endStop, endTime, deadhead,
+            2, -1, -1);
+        int connections = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                boolean compatible = i != j && endTime[i] + deadhead.get(endStop[i], startStop[j]) + 2 <= startTime[j];
+                Assert.assertEquals(compatible, compatibility.isCompatible(i, j));
+                if (compatible) {
+                    connections++;
+                }
+            }
+        }
+        Assert.assertEquals(connections, compatibility.getNumberOfConnections());
+    }
+
+    private static int[] successors(TripCompatibility compatibility, int trip) {
+        int[] result = new int[compatibility.successorEnd(trip) - compatibility.successorStart(trip)];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = compatibility.getSuccessor(compatibility.successorStart(trip) + k);
+        }
+        return result;
+    }
+}
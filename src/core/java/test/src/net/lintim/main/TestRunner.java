@@ -11,6 +11,9 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     net.lintim.algorithm.DijkstraTest.class,
+    net.lintim.algorithm.CycleBasisTest.class,
+    net.lintim.algorithm.IncrementalTimetableEvaluatorTest.class,
+    net.lintim.algorithm.TripCompatibilityTest.class,
     net.lintim.io.IOTest.class,
     net.lintim.model.impl.ArrayListGraphTest.class,
     net.lintim.model.impl.LinkedListPathTest.class,
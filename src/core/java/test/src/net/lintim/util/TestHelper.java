@@ -1,9 +1,15 @@
 package net.lintim.util;
 
+import net.lintim.model.*;
+import net.lintim.model.impl.ArrayListGraph;
+
+import java.util.ArrayList;
+import java.util.Random;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
 
 /**
+ * Helper methods shared by the tests, i.e., disabling the logging and building periodic eans.
  */
 public class TestHelper {
 
@@ -14,4 +20,52 @@ public class TestHelper {
             globalLogger.removeHandler(handler);
         }
     }
+
+    /**
+     * Create a periodic event without passengers in forwards direction.
+     */
+    public static PeriodicEvent periodicEvent(int id, int stopId, EventType type, int lineId, int time) {
+        return new PeriodicEvent(id, stopId, type, lineId, time, 0, LineDirection.FORWARDS, 1);
+    }
+
+    /**
+     * Create a departure event of line 1 at stop 1, for tests that only depend on the times.
+     */
+    public static PeriodicEvent periodicEvent(int id, int time) {
+        return periodicEvent(id, 1, EventType.DEPARTURE, 1, time);
+    }
+
+    /**
+     * Create a periodic ean containing the given events and no activities.
+     */
+    public static Graph<PeriodicEvent, PeriodicActivity> periodicEan(PeriodicEvent... events) {
+        Graph<PeriodicEvent, PeriodicActivity> ean = new ArrayListGraph<>();
+        for (PeriodicEvent event : events) {
+            ean.addNode(event);
+        }
+        return ean;
+    }
+
+    /**
+     * Create a random periodic ean with the events 1 to numberOfEvents at random times and the change activities 1
+     * to numberOfActivities between random events, loops included. The lower bounds are below 10 and the spans below
+     * 70, so for a period of 60 some activities are unrestricted. The passengers are below 20.
+     */
+    public static Graph<PeriodicEvent, PeriodicActivity> randomPeriodicEan(Random random, int numberOfEvents,
+                                                                         int numberOfActivities, int periodLength) {
+        Graph<PeriodicEvent, PeriodicActivity> ean = new ArrayListGraph<>();
+        ArrayList<PeriodicEvent> events = new ArrayList<>();
+        for (int id = 1; id <= numberOfEvents; id++) {
+            PeriodicEvent event = periodicEvent(id, random.nextInt(periodLength));
+            ean.addNode(event);
+            events.add(event);
+        }
+        for (int id = 1; id <= numberOfActivities; id++) {
+            int lowerBound = random.nextInt(10);
+            ean.addEdge(new PeriodicActivity(id, ActivityType.CHANGE, events.get(random.nextInt(events.size())),
+                events.get(random.nextInt(events.size())), lowerBound, lowerBound + random.nextInt(70),
+                random.nextInt(20)));
+        }
+        return ean;
+    }
 }
@@ -10,7 +10,7 @@ public class DelayGenerator
 
 
 	// settings from config file
-	private static String generator;
+	private static DelayGeneratorType generator;
 	private static boolean delayEvents;
 	private static boolean delayActivities;
 	private static boolean absoluteDelays;
@@ -18,6 +18,8 @@ public class DelayGenerator
 	private static boolean appendDelays;
 	private static long seed;
 	private static int numberOfDelays;
+	private static int scenarios;
+	private static int threads;
 	private static int stationForDelays;
 	private static String stationFile;
 	private static String periodicEventsFile;
@@ -29,6 +31,7 @@ public class DelayGenerator
 	private static int maxTime;
 	private static int minDelay;
 	private static int maxDelay;
+	private static RandomDelays randomDelays;
 	private static String eventDelayFile;
 	private static String activityDelayFile;
 	private static boolean CHECK_CONSISTENCY;
@@ -43,39 +46,48 @@ public class DelayGenerator
 
 		NonPeriodicEANetwork Net = IO.readNonPeriodicEANetwork(appendDelays, false);
 
+		if (scenarios > 1)
+		{
+			DelayScenarioGenerator scenarioGenerator =
+				new DelayScenarioGenerator(Net, randomDelays, appendDelays, minTime, maxTime,
+				                           eventDelayFile, activityDelayFile);
+			Net = null;
+			scenarioGenerator.generate(scenarios, seed, threads);
+			return;
+		}
+
 		LinkedList<NonPeriodicEvent> delayedEvents =
 			new LinkedList<NonPeriodicEvent>();
 		LinkedList<NonPeriodicActivity> delayedActivities =
 			new LinkedList<NonPeriodicActivity>();
 
-		if (generator.equals("uniform_distribution"))
-		{
-			if (delayEvents)
-				delayedEvents = generateRandomEventDelays(Net.getEvents());
-			if (delayActivities)
-			{
-				delayedActivities =
-					generateRandomActivityDelays(Net.getDrivingActivities());
-			}
-		}
-		else if(generator.equals("neg_exp")){
-			if (delayActivities)
-			{
-				delayedActivities =
-					generateRandomActivityDelaysExp(Net.getDrivingActivities());
-			}
-		}
-		else if (generator.equals("events_in_station"))
-		{
-			delayedEvents = delayEventsInStation(Net.getEvents());
-		}
-		else if (generator.equals("events_in_station_exp"))
+		switch (generator)
 		{
-			delayedEvents = delayEventsInStationExp(Net.getEvents());
-		}
-		else 
-		{
-			delayedActivities = delayActivitiesOnTrack(Net.getDrivingActivities());
+			case UNIFORM_DISTRIBUTION:
+				if (delayEvents)
+					delayedEvents = generateRandomEventDelays(Net.getEvents());
+				if (delayActivities)
+				{
+					delayedActivities =
+						generateRandomActivityDelays(Net.getDrivingActivities());
+				}
+				break;
+			case NEG_EXP:
+				if (delayActivities)
+				{
+					delayedActivities =
+						generateRandomActivityDelaysExp(Net.getDrivingActivities());
+				}
+				break;
+			case EVENTS_IN_STATION:
+				delayedEvents = delayEventsInStation(Net.getEvents());
+				break;
+			case EVENTS_IN_STATION_EXP:
+				delayedEvents = delayEventsInStationExp(Net.getEvents());
+				break;
+			case ACTIVITIES_ON_TRACK:
+				delayedActivities = delayActivitiesOnTrack(Net.getDrivingActivities());
+				break;
 		}
 
 		outputDelays(delayedEvents, delayedActivities, Net);
@@ -86,64 +98,53 @@ public class DelayGenerator
 	{
 		Config config = new Config(new File("basis/Config.cnf"));
 
-		generator = config.getStringValue("delays_generator");
+		generator = DelayGeneratorType.fromString("DelayGenerator",
+		                                          config.getStringValue("delays_generator"));
 		absoluteDelays = config.getBooleanValue("delays_absolute_numbers");
 		absoluteDelaysCount = config.getBooleanValue("delays_count_is_absolute");
 		appendDelays = config.getBooleanValue("delays_append");
 		numberOfDelays = config.getIntegerValue("delays_count");
-		if ((!absoluteDelaysCount) && numberOfDelays > 100)
-		{
-				throw new Exception(  "DelayGenerator: if delays_count_is_absolute"
-				                    + " is set, delays_count must be <= 100");
-		}
-		if (generator.equals("uniform_distribution"))
-		{
-			delayEvents = config.getBooleanValue("delays_events");
-			delayActivities = config.getBooleanValue("delays_activities");
-			if ((! delayActivities) && (! absoluteDelays))
-			{
-				throw new Exception(  "DelayGenerator: setting both delays_activities"
-				                    + " and delays_absolute_numbers to false does not"
-				                    + " make sense for delay generator uniform_distribution!");
-			}
-		}
-		else if (generator.equals("events_in_station") || generator.equals("events_in_station_exp"))
-		{
-			if (! absoluteDelays)
-			{
-				throw new Exception(  "DelayGenerator: setting delays_absolute_numbers"
-				                    + " to false does not make sense for delay generator"
-				                    + " events_in_station!");
-			}
-			delayEvents = true;
-			delayActivities = false;
-			stationForDelays = config.getIntegerValue("delays_station_id_for_delays");
-			stationFile = config.getStringValue("default_stops_file");
-			periodicEventsFile = config.getStringValue("default_events_periodic_file");
-		}
-		else if (generator.equals("activities_on_track"))
-		{
-			delayEvents = false;
-			delayActivities = true;
-			trackForDelays = config.getIntegerValue("delays_edge_id_for_delays");
-			trackFile = config.getStringValue("default_edges_file");
-			periodicEventsFile = config.getStringValue("default_events_periodic_file");
-		}
-		else if (generator.equals("neg_exp"))
+		scenarios = config.getIntegerValue("delays_scenarios");
+		if (scenarios > 1)
 		{
-			delayEvents = config.getBooleanValue("delays_events");
-			delayActivities = config.getBooleanValue("delays_activities");
-			if ((! delayActivities) && (! absoluteDelays))
+			if (! generator.isRandom())
 			{
-				throw new Exception(  "DelayGenerator: setting both delays_activities"
-				                    + " and delays_absolute_numbers to false does not"
-				                    + " make sense for delay generator uniform_distribution!");
+				throw new Exception(  "DelayGenerator: delays_scenarios > 1 is only"
+				                    + " supported for the delay generators"
+				                    + " uniform_distribution and neg_exp");
 			}
+			threads = config.getIntegerValue("DM_threads");
+			if (threads < 1)
+				threads = Runtime.getRuntime().availableProcessors();
 		}
-		else
+		switch (generator)
 		{
-			throw new Exception(  "DelayGenerator: unsupported delay "
-			                    + "generator: " + generator);
+			case UNIFORM_DISTRIBUTION:
+			case NEG_EXP:
+				delayEvents = config.getBooleanValue("delays_events");
+				delayActivities = config.getBooleanValue("delays_activities");
+				break;
+			case EVENTS_IN_STATION:
+			case EVENTS_IN_STATION_EXP:
+				if (! absoluteDelays)
+				{
+					throw new Exception(  "DelayGenerator: setting delays_absolute_numbers"
+					                    + " to false does not make sense for delay generator"
+					                    + " " + generator + "!");
+				}
+				delayEvents = true;
+				delayActivities = false;
+				stationForDelays = config.getIntegerValue("delays_station_id_for_delays");
+				stationFile = config.getStringValue("default_stops_file");
+				periodicEventsFile = config.getStringValue("default_events_periodic_file");
+				break;
+			case ACTIVITIES_ON_TRACK:
+				delayEvents = false;
+				delayActivities = true;
+				trackForDelays = config.getIntegerValue("delays_edge_id_for_delays");
+				trackFile = config.getStringValue("default_edges_file");
+				periodicEventsFile = config.getStringValue("default_events_periodic_file");
+				break;
 		}
 
 		earliestTime = config.getIntegerValue("DM_earliest_time");
@@ -174,15 +175,14 @@ public class DelayGenerator
 			throw new Exception(  "  DelayGenerator: [delays_min_time,delays_max_time]"
 			                    + " must be contained in [DM_earliest_time,DM_latest_time]");
 		}
-		if (minDelay < 0)
-			throw new Exception("DelayGenerator: delays_min_time must not be negative");
-		if (minDelay > maxDelay)
+		RandomDelays.checkSettings("DelayGenerator", absoluteDelaysCount, numberOfDelays,
+		                           minDelay, maxDelay);
+		if (generator.isRandom())
 		{
-			throw new Exception(  "DelayGenerator: delays_max_delay must not "
-			                    + "be smaller than delays_min_delay");
+			randomDelays = new RandomDelays("DelayGenerator", generator, delayEvents,
+			                                delayActivities, absoluteDelays, absoluteDelaysCount,
+			                                numberOfDelays, minDelay, maxDelay);
 		}
-		if (numberOfDelays < 0)
-			throw new Exception("DelayGenerator: delays_count must not be negative");
 
 		if (DEBUG)
 			VERBOSE = true;
@@ -194,9 +194,16 @@ public class DelayGenerator
 			                   + "," + latestTime + "]");
 			if (! absoluteDelaysCount)
 				System.out.println("  using delays_count as relative value");
+			if (scenarios > 1)
+			{
+				System.out.println(  "  generating " + scenarios + " scenarios on "
+				                   + threads + " threads, scenario s is written to the"
+				                   + " delay output files with \".s\" inserted before"
+				                   + " the extension");
+			}
 			if (delayEvents)
 			{
-				if (generator.equals("uniform_distribution"))
+				if (generator == DelayGeneratorType.UNIFORM_DISTRIBUTION)
 				{
 					System.out.println(  "  generating " + numberOfDelays
 					                   + (absoluteDelaysCount ? "" : "%")
@@ -209,19 +216,19 @@ public class DelayGenerator
 				{
 					System.out.println(  "  delaying " + numberOfDelays + " events in [" + minTime
 					                   + "," + maxTime + "] in station "
-					                   + stationForDelays + (generator.equals("events_in_station_exp")?" with exp distribution and mean":"") + " between " + minDelay
+					                   + stationForDelays + (generator == DelayGeneratorType.EVENTS_IN_STATION_EXP?" with exp distribution and mean":"") + " between " + minDelay
 					                   + " and " + maxDelay + " seconds");
 				}
 				else if(numberOfDelays > 0)
 				{
 					System.out.println(  "  delaying " + numberOfDelays + " events in [" + minTime
 					                   + "," + maxTime + "] in a random station "
-					                   + (generator.equals("events_in_station_exp")?" with exp distribution and mean":"") + "between " + minDelay + " and "
+					                   + (generator == DelayGeneratorType.EVENTS_IN_STATION_EXP?" with exp distribution and mean":"") + "between " + minDelay + " and "
 					                   + maxDelay + " seconds");
 				} else {
 					System.out.println(  "  delaying all events in [" + minTime
 					                   + "," + maxTime + "] in a random station "
-					                   + (generator.equals("events_in_station_exp")?" with exp distribution and mean":"") + "between " + minDelay + " and "
+					                   + (generator == DelayGeneratorType.EVENTS_IN_STATION_EXP?" with exp distribution and mean":"") + "between " + minDelay + " and "
 					                   + maxDelay + " seconds");					
 				}
 				System.out.println(  "  delay output file: "
@@ -229,7 +236,7 @@ public class DelayGenerator
 			}
 			if (delayActivities)
 			{
-				if (generator.equals("uniform_distribution"))
+				if (generator == DelayGeneratorType.UNIFORM_DISTRIBUTION)
 				{
 					if (absoluteDelays)
 					{
@@ -334,24 +341,14 @@ public class DelayGenerator
 				E2.add(e);
 		}
 
-		int count;
-		if (absoluteDelaysCount)
-			count = numberOfDelays;
-		else
-			count = (int) Math.floor((E2.size()*numberOfDelays) / 100);
-
-		if (E2.size() < count)
-		{
-			throw new Exception(  "DelayGenerator: number of events to delay "
-			                    + "is larger than total number of events that "
-			                    + "might be delayed!");
-		}
+		int count = randomDelays.count(E2.size(), "events");
 
 		Random r;
 		if(seed == 0)
 			r = new Random();
 		else
 			r = new Random(seed);
+		RandomDelays.Source source = RandomDelays.source(r);
 			
 		HashSet<Integer> indices = new HashSet<Integer>(count);
 		for (int i=0; i<count; i++)
@@ -363,7 +360,7 @@ public class DelayGenerator
 		for (int i: indices)
 		{
 			NonPeriodicEvent e = E2.get(i);
-			e.setSourceDelay(e.getSourceDelay() + minDelay + r.nextInt(maxDelay - minDelay + 1));
+			e.setSourceDelay(e.getSourceDelay() + randomDelays.eventDelay(source));
 			delayedEvents.add(e);
 		}
 
@@ -380,24 +377,14 @@ public class DelayGenerator
 			if (a.getSource().getTime() >= minTime && a.getTarget().getTime() <= maxTime)
 				A2.add(a);
 
-		int count;
-		if (absoluteDelaysCount)
-			count = numberOfDelays;
-		else
-			count = (int) Math.floor((A2.size()*numberOfDelays) / 100);
-
-		if (A2.size() < count)
-		{
-			throw new Exception(  "DelayGenerator: number of activities to "
-			                    + "delay is larger than total number of drive "
-			                    + "activities that can be delayed!");
-		}
+		int count = randomDelays.count(A2.size(), "drive activities");
 		
 		Random r;
 		if(seed == 0)
 			r = new Random();
 		else
 			r = new Random(seed);
+		RandomDelays.Source source = RandomDelays.source(r);
 
 		HashSet<Integer> indices = new HashSet<Integer>(count);
 		for (int i=0; i<count; i++)
@@ -409,17 +396,13 @@ public class DelayGenerator
 		for (int i: indices)
 		{
 			NonPeriodicActivity a = A2.get(i);
+			// absolute delays are added, relative ones (of the lower bound)
+			// replace existing delays
+			int delay = randomDelays.activityDelay(source, a.getLowerBound());
 			if (absoluteDelays)
-			{
-				a.setSourceDelay((int)a.getSourceDelay() + minDelay + r.nextInt(maxDelay - minDelay + 1));
-			}
+				a.setSourceDelay(a.getSourceDelay() + delay);
 			else
-			{
-				// deprecated: nominal duration: int duration = a.getTarget().getTime() - a.getSource().getTime();
-				int duration = a.getLowerBound();
-				double percent = (minDelay + r.nextDouble() * (maxDelay-minDelay));
-				a.setSourceDelay((int) (duration * percent / 100));
-			}
+				a.setSourceDelay(delay);
 			delayedActivities.add(a);
 		}
 
@@ -434,24 +417,14 @@ public class DelayGenerator
 			if (a.getSource().getTime() >= minTime && a.getTarget().getTime() <= maxTime)
 				A2.add(a);
 
-		int count;
-		if (absoluteDelaysCount)
-			count = numberOfDelays;
-		else
-			count = (int) Math.floor((A2.size()*numberOfDelays) / 100);
-
-		if (A2.size() < count)
-		{
-			throw new Exception(  "DelayGenerator: number of activities to "
-			                    + "delay is larger than total number of drive "
-			                    + "activities that can be delayed!");
-		}
+		int count = randomDelays.count(A2.size(), "drive activities");
 		
 		Random r;
 		if(seed == 0)
 			r = new Random();
 		else
 			r = new Random(seed);
+		RandomDelays.Source source = RandomDelays.source(r);
 
 		HashSet<Integer> indices = new HashSet<Integer>(count);
 		for (int i=0; i<count; i++)
@@ -466,7 +439,7 @@ public class DelayGenerator
 			if (absoluteDelays)
 			{
 				if(!(a.getSourceDelay()>0.0))
-					a.setSourceDelay((int)Math.round(a.getSourceDelay() - 1*(minDelay + r.nextInt(maxDelay - minDelay + 1))*Math.log(r.nextDouble())));
+					a.setSourceDelay(a.getSourceDelay() + randomDelays.activityDelay(source, a.getLowerBound()));
 			}
 			delayedActivities.add(a);
 		}
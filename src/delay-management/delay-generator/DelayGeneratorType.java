@@ -0,0 +1,66 @@
+/**
+ * The delay generators that can be set by delays_generator. The setting is
+ * converted once with {@link #fromString(String, String)} when the config is
+ * read, so DelayGenerator, RandomDelays and MonteCarloDM dispatch on the same
+ * values instead of comparing strings.
+ */
+public enum DelayGeneratorType
+{
+	UNIFORM_DISTRIBUTION("uniform_distribution"),
+	NEG_EXP("neg_exp"),
+	EVENTS_IN_STATION("events_in_station"),
+	EVENTS_IN_STATION_EXP("events_in_station_exp"),
+	ACTIVITIES_ON_TRACK("activities_on_track");
+
+	// the value of delays_generator
+	private final String name;
+
+
+
+	private DelayGeneratorType(String name)
+	{
+		this.name = name;
+	}
+
+
+
+	/**
+	 * @param caller the name of the calling program, used in error messages
+	 */
+	public static DelayGeneratorType fromString(String caller, String generator)
+		throws Exception
+	{
+		switch (generator)
+		{
+			case "uniform_distribution":
+				return UNIFORM_DISTRIBUTION;
+			case "neg_exp":
+				return NEG_EXP;
+			case "events_in_station":
+				return EVENTS_IN_STATION;
+			case "events_in_station_exp":
+				return EVENTS_IN_STATION_EXP;
+			case "activities_on_track":
+				return ACTIVITIES_ON_TRACK;
+			default:
+				throw new Exception(  caller + ": unsupported delay "
+				                    + "generator: " + generator);
+		}
+	}
+
+
+
+	// uniform_distribution and neg_exp draw their delays by RandomDelays
+	// and can generate many scenarios at once
+	public boolean isRandom()
+	{
+		return this == UNIFORM_DISTRIBUTION || this == NEG_EXP;
+	}
+
+
+
+	public String toString()
+	{
+		return name;
+	}
+}
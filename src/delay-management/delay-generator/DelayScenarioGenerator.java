@@ -0,0 +1,301 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Generates the source delays of many scenarios at once for the generators
+ * uniform_distribution and neg_exp, see RandomDelays. The delayable
+ * events and drive activities are determined once and stored in primitive
+ * arrays; every thread keeps its own buffers and reuses them for all its
+ * scenarios, so no objects are created per delay.
+ *
+ * Every scenario gets its own SplittableRandom, split off delays_seed in the
+ * order of the scenarios, so the delays only depend on the seed and not on
+ * the number of threads. Scenario s (starting with 1) is written directly
+ * after it is generated to the delay files with ".s" inserted before the
+ * file extension, i.e., to Delays-Events.s.giv and Delays-Activities.s.giv
+ * as used by the batch evaluation.
+ */
+public class DelayScenarioGenerator
+{
+	// how new delays are combined with existing ones
+	private static final int ADD = 0;
+	private static final int REPLACE = 1;
+	private static final int KEEP = 2;
+
+	private final RandomDelays randomDelays;
+	private final boolean appendDelays;
+	private final String eventDelayFile;
+	private final String activityDelayFile;
+
+	// IDs of all events and activities with a positive source delay before
+	// generating, sorted by ID, and these delays (only if delays are appended)
+	private final int[] eventBaseID;
+	private final int[] eventBaseDelay;
+	private final int[] activityBaseID;
+	private final int[] activityBaseDelay;
+
+	// the delayable events and drive activities, sorted by ID; delays of
+	// activities relative to their lower bound
+	private final int[] eventID;
+	private final int eventCount;
+	private final int[] activityID;
+	private final int[] activityLowerBound;
+	private final int activityCount;
+
+
+
+	public DelayScenarioGenerator(NonPeriodicEANetwork Net, RandomDelays randomDelays,
+	                              boolean appendDelays, int minTime, int maxTime,
+	                              String eventDelayFile, String activityDelayFile)
+		throws Exception
+	{
+		this.randomDelays = randomDelays;
+		this.appendDelays = appendDelays;
+		this.eventDelayFile = eventDelayFile;
+		this.activityDelayFile = activityDelayFile;
+
+		int n = Net.getEvents().size();
+		int[] ids = new int[n];
+		int[] delays = new int[n];
+		int k = 0;
+		int b = 0;
+		for (NonPeriodicEvent e : Net.getEvents())
+		{
+			if (e.getSourceDelay() > 0)
+			{
+				ids[b] = e.getID();
+				delays[b++] = e.getSourceDelay();
+			}
+		}
+		int[] order = sortedByID(ids, b);
+		eventBaseID = permute(ids, order);
+		eventBaseDelay = permute(delays, order);
+
+		if (randomDelays.delaysEvents())
+		{
+			for (NonPeriodicEvent e : Net.getEvents())
+				if (e.getTime() >= minTime && e.getTime() <= maxTime)
+					ids[k++] = e.getID();
+		}
+		eventID = Arrays.copyOf(ids, k);
+		Arrays.sort(eventID);
+		eventCount = randomDelays.delaysEvents() ? randomDelays.count(eventID.length, "events") : 0;
+
+		int m = Net.getActivities().size();
+		ids = new int[m];
+		delays = new int[m];
+		b = 0;
+		for (NonPeriodicActivity a : Net.getActivities())
+		{
+			if (a.getSourceDelay() > 0)
+			{
+				ids[b] = a.getID();
+				delays[b++] = a.getSourceDelay();
+			}
+		}
+		order = sortedByID(ids, b);
+		activityBaseID = permute(ids, order);
+		activityBaseDelay = permute(delays, order);
+
+		k = 0;
+		if (randomDelays.delaysActivities())
+		{
+			for (NonPeriodicActivity a : Net.getDrivingActivities())
+			{
+				if (a.getSource().getTime() >= minTime && a.getTarget().getTime() <= maxTime)
+				{
+					ids[k] = a.getID();
+					delays[k++] = a.getLowerBound();
+				}
+			}
+		}
+		order = sortedByID(ids, k);
+		activityID = permute(ids, order);
+		activityLowerBound = permute(delays, order);
+		activityCount = randomDelays.delaysActivities()
+			? randomDelays.count(activityID.length, "drive activities") : 0;
+	}
+
+
+
+	/**
+	 * Generates and writes the given number of scenarios on the given number
+	 * of threads.
+	 */
+	public void generate(int scenarios, long seed, int threads) throws Exception
+	{
+		SplittableRandom random = seed == 0 ? new SplittableRandom() : new SplittableRandom(seed);
+		SplittableRandom[] streams = new SplittableRandom[scenarios];
+		for (int s = 0; s < scenarios; s++)
+			streams[s] = random.split();
+
+		ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(scenarios);
+			for (int s = 0; s < scenarios; s++)
+			{
+				final int scenario = s;
+				tasks.add(() -> {
+					generateScenario(buffers.get(), streams[scenario], scenario + 1);
+					return null;
+				});
+			}
+			for (Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+
+
+	public static String scenarioFile(String file, int scenario)
+	{
+		int position = file.lastIndexOf('.');
+		if (position <= file.lastIndexOf('/'))
+			return file + "." + scenario;
+		return file.substring(0, position) + "." + scenario + file.substring(position);
+	}
+
+
+
+	// the candidates and delays of one thread, reused for all its scenarios
+	private class Buffers
+	{
+		final int[] events = identity(eventID.length);
+		final int[] eventSwaps = new int[eventCount];
+		final int[] eventDelay = new int[eventCount];
+		final int[] activities = identity(activityID.length);
+		final int[] activitySwaps = new int[activityCount];
+		final int[] activityDelay = new int[activityCount];
+		// the chosen candidates with their delays, sorted for writing
+		final long[] chosen = new long[Math.max(eventCount, activityCount)];
+		final StringBuilder line = new StringBuilder();
+	}
+
+
+
+	// chooses the delayed events and activities, the chosen ones are at the
+	// beginning of the candidate arrays
+	private void generateScenario(Buffers buffers, SplittableRandom random, int scenario)
+		throws IOException
+	{
+		int[] events = buffers.events;
+		int[] activities = buffers.activities;
+		RandomDelays.Source source = RandomDelays.source(random);
+
+		randomDelays.chooseEvents(source, events, eventCount, buffers.eventSwaps,
+		                          buffers.eventDelay);
+		randomDelays.chooseActivities(source, activities, activityLowerBound, activityCount,
+		                              buffers.activitySwaps, buffers.activityDelay);
+
+		// how the new delays are combined with the existing ones, see
+		// DelayGenerator: uniform_distribution adds absolute delays and
+		// replaces relative ones, neg_exp keeps existing delays
+		int activityMode = randomDelays.isNegativeExponential()
+			? KEEP : (randomDelays.isAbsolute() ? ADD : REPLACE);
+
+		writeDelays(scenarioFile(eventDelayFile, scenario), eventBaseID, eventBaseDelay,
+		            eventID, events, buffers.eventDelay, eventCount, ADD, buffers);
+		writeDelays(scenarioFile(activityDelayFile, scenario), activityBaseID, activityBaseDelay,
+		            activityID, activities, buffers.activityDelay, activityCount, activityMode, buffers);
+
+		// undo the shuffling, so the next scenario does not depend on this one
+		RandomDelays.undoChoice(events, eventCount, buffers.eventSwaps);
+		RandomDelays.undoChoice(activities, activityCount, buffers.activitySwaps);
+	}
+
+
+
+	// writes the existing delays (if appended) and the count new delays of
+	// candidates[0], ..., candidates[count-1] ordered by ID
+	private void writeDelays(String file, int[] baseID, int[] baseDelay, int[] id,
+	                         int[] candidates, int[] delay, int count, int mode, Buffers buffers)
+		throws IOException
+	{
+		// candidates are positions in id, so ordering them orders the IDs;
+		// delays are not negative and fit into the lower half
+		long[] chosen = buffers.chosen;
+		for (int k = 0; k < count; k++)
+			chosen[k] = ((long) candidates[k] << 32) | delay[k];
+		Arrays.sort(chosen, 0, count);
+
+		Writer out = new BufferedWriter(new FileWriter(file, false), 1 << 16);
+		StringBuilder line = buffers.line;
+		out.write("# ID; delay\n");
+		int b = appendDelays ? 0 : baseID.length;
+		int k = 0;
+		while (b < baseID.length || k < count)
+		{
+			int valueID = k < count ? id[(int) (chosen[k] >>> 32)] : Integer.MAX_VALUE;
+			int value;
+			if (b < baseID.length && baseID[b] < valueID)
+			{
+				valueID = baseID[b];
+				value = baseDelay[b++];
+			}
+			else if (b < baseID.length && baseID[b] == valueID)
+			{
+				if (mode == ADD)
+					value = baseDelay[b] + (int) chosen[k];
+				else if (mode == REPLACE)
+					value = (int) chosen[k];
+				else
+					value = baseDelay[b];
+				b++;
+				k++;
+			}
+			else
+				value = (int) chosen[k++];
+			if (value > 0)
+			{
+				line.setLength(0);
+				line.append(valueID).append("; ").append(value).append('\n');
+				out.append(line);
+			}
+		}
+		out.close();
+	}
+
+
+
+	// the positions of the first count IDs, ordered by ID
+	private static int[] sortedByID(int[] ids, int count)
+	{
+		long[] keys = new long[count];
+		for (int k = 0; k < count; k++)
+			keys[k] = ((long) ids[k] << 32) | k;
+		Arrays.sort(keys);
+		int[] order = new int[count];
+		for (int k = 0; k < count; k++)
+			order[k] = (int) keys[k];
+		return order;
+	}
+
+	private static int[] permute(int[] values, int[] order)
+	{
+		int[] result = new int[order.length];
+		for (int k = 0; k < order.length; k++)
+			result[k] = values[order[k]];
+		return result;
+	}
+
+	private static int[] identity(int n)
+	{
+		int[] result = new int[n];
+		for (int k = 0; k < n; k++)
+			result[k] = k;
+		return result;
+	}
+}
@@ -0,0 +1,248 @@
+import java.util.*;
+
+/**
+ * The rules of the delay generators uniform_distribution and neg_exp: which
+ * events and drive activities are delayed, how many of them, and how long
+ * their source delays are. Used by DelayGenerator, DelayScenarioGenerator
+ * and MonteCarloDM, so all of them draw their delays in the same way.
+ *
+ * uniform_distribution delays events and drive activities by a uniformly
+ * distributed number of seconds in [delays_min_delay,delays_max_delay], or
+ * drive activities by a uniformly distributed percentage in this range of
+ * their lower bound if delays_absolute_numbers is false. neg_exp only delays
+ * drive activities and only by absolute numbers, with a negative exponential
+ * distribution whose mean is chosen uniformly in the same range.
+ */
+public class RandomDelays
+{
+	/**
+	 * The random numbers used to draw the delays, implemented for
+	 * java.util.Random and java.util.SplittableRandom.
+	 */
+	public interface Source
+	{
+		int nextInt(int bound);
+		double nextDouble();
+	}
+
+	public static Source source(final Random random)
+	{
+		return new Source()
+		{
+			public int nextInt(int bound) { return random.nextInt(bound); }
+			public double nextDouble() { return random.nextDouble(); }
+		};
+	}
+
+	public static Source source(final SplittableRandom random)
+	{
+		return new Source()
+		{
+			public int nextInt(int bound) { return random.nextInt(bound); }
+			public double nextDouble() { return random.nextDouble(); }
+		};
+	}
+
+
+
+	private final String caller;
+	private final boolean negativeExponential;
+	private final boolean delayEvents;
+	private final boolean delayActivities;
+	private final boolean absoluteDelays;
+	private final boolean absoluteDelaysCount;
+	private final int numberOfDelays;
+	private final int minDelay;
+	private final int maxDelay;
+
+
+
+	/**
+	 * Checks the settings of the generator.
+	 * @param caller the name of the calling program, used in error messages
+	 */
+	public RandomDelays(String caller, DelayGeneratorType generator, boolean delayEvents,
+	                    boolean delayActivities, boolean absoluteDelays,
+	                    boolean absoluteDelaysCount, int numberOfDelays,
+	                    int minDelay, int maxDelay) throws Exception
+	{
+		if (! generator.isRandom())
+		{
+			throw new Exception(  caller + ": unsupported delay generator: " + generator
+			                    + ", only uniform_distribution and neg_exp are supported");
+		}
+		if ((! delayActivities) && (! absoluteDelays))
+		{
+			throw new Exception(  caller + ": setting both delays_activities"
+			                    + " and delays_absolute_numbers to false does not"
+			                    + " make sense for delay generator " + generator + "!");
+		}
+		checkSettings(caller, absoluteDelaysCount, numberOfDelays, minDelay, maxDelay);
+
+		this.caller = caller;
+		this.negativeExponential = generator == DelayGeneratorType.NEG_EXP;
+		this.delayEvents = delayEvents;
+		this.delayActivities = delayActivities;
+		this.absoluteDelays = absoluteDelays;
+		this.absoluteDelaysCount = absoluteDelaysCount;
+		this.numberOfDelays = numberOfDelays;
+		this.minDelay = minDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	public static RandomDelays fromConfig(Config config, String caller) throws Exception
+	{
+		return new RandomDelays(caller,
+		                        DelayGeneratorType.fromString(caller,
+		                                                      config.getStringValue("delays_generator")),
+		                        config.getBooleanValue("delays_events"),
+		                        config.getBooleanValue("delays_activities"),
+		                        config.getBooleanValue("delays_absolute_numbers"),
+		                        config.getBooleanValue("delays_count_is_absolute"),
+		                        config.getIntegerValue("delays_count"),
+		                        config.getIntegerValue("delays_min_delay"),
+		                        config.getIntegerValue("delays_max_delay"));
+	}
+
+	/**
+	 * Checks the settings of delays_count and the delay range, which are
+	 * used by all delay generators.
+	 */
+	public static void checkSettings(String caller, boolean absoluteDelaysCount,
+	                                 int numberOfDelays, int minDelay, int maxDelay)
+		throws Exception
+	{
+		if ((!absoluteDelaysCount) && numberOfDelays > 100)
+		{
+			throw new Exception(  caller + ": if delays_count_is_absolute"
+			                    + " is not set, delays_count must be <= 100");
+		}
+		if (numberOfDelays < 0)
+			throw new Exception(caller + ": delays_count must not be negative");
+		if (minDelay < 0)
+			throw new Exception(caller + ": delays_min_delay must not be negative");
+		if (minDelay > maxDelay)
+		{
+			throw new Exception(  caller + ": delays_max_delay must not "
+			                    + "be smaller than delays_min_delay");
+		}
+	}
+
+
+
+	public boolean isNegativeExponential()
+	{
+		return negativeExponential;
+	}
+
+	public boolean isAbsolute()
+	{
+		return absoluteDelays;
+	}
+
+	// whether events get new delays; neg_exp does not delay events
+	public boolean delaysEvents()
+	{
+		return delayEvents && ! negativeExponential;
+	}
+
+	// whether drive activities get new delays; neg_exp only delays by
+	// absolute numbers
+	public boolean delaysActivities()
+	{
+		return delayActivities && (absoluteDelays || ! negativeExponential);
+	}
+
+
+
+	/**
+	 * Returns the number of elements to delay, given by delays_count
+	 * either absolutely or as a percentage of the candidates.
+	 * @param candidates the number of elements that might be delayed
+	 * @param what the name of the elements, used in error messages
+	 */
+	public int count(int candidates, String what) throws Exception
+	{
+		int count;
+		if (absoluteDelaysCount)
+			count = numberOfDelays;
+		else
+			count = (int) Math.floor((candidates*numberOfDelays) / 100);
+		if (candidates < count)
+		{
+			throw new Exception(  caller + ": number of " + what + " to delay "
+			                    + "is larger than total number of " + what
+			                    + " that might be delayed!");
+		}
+		return count;
+	}
+
+
+
+	// the new source delay of an event
+	public int eventDelay(Source random)
+	{
+		return minDelay + random.nextInt(maxDelay - minDelay + 1);
+	}
+
+	// the new source delay of a drive activity with the given lower bound
+	public int activityDelay(Source random, int lowerBound)
+	{
+		if (negativeExponential)
+			return (int) Math.round(-(minDelay + random.nextInt(maxDelay - minDelay + 1))
+			                        * Math.log(random.nextDouble()));
+		if (absoluteDelays)
+			return minDelay + random.nextInt(maxDelay - minDelay + 1);
+		double percent = minDelay + random.nextDouble() * (maxDelay - minDelay);
+		return (int) (lowerBound * percent / 100);
+	}
+
+
+
+	/**
+	 * Chooses count of the candidate events by a partial Fisher-Yates
+	 * shuffle and draws their delays: afterwards, candidates[k] is delayed
+	 * by delays[k] for k < count. The swaps are stored, so undoChoice can
+	 * restore the order of the candidates.
+	 */
+	public void chooseEvents(Source random, int[] candidates, int count,
+	                         int[] swaps, int[] delays)
+	{
+		for (int k = 0; k < count; k++)
+		{
+			swaps[k] = k + random.nextInt(candidates.length - k);
+			swap(candidates, k, swaps[k]);
+			delays[k] = eventDelay(random);
+		}
+	}
+
+	/**
+	 * As chooseEvents for drive activities, the lower bound of candidate
+	 * activity a is lowerBound[a].
+	 */
+	public void chooseActivities(Source random, int[] candidates, int[] lowerBound,
+	                             int count, int[] swaps, int[] delays)
+	{
+		for (int k = 0; k < count; k++)
+		{
+			swaps[k] = k + random.nextInt(candidates.length - k);
+			swap(candidates, k, swaps[k]);
+			delays[k] = activityDelay(random, lowerBound[candidates[k]]);
+		}
+	}
+
+	// restores the order of the candidates before chooseEvents or
+	// chooseActivities
+	public static void undoChoice(int[] candidates, int count, int[] swaps)
+	{
+		for (int k = count - 1; k >= 0; k--)
+			swap(candidates, k, swaps[k]);
+	}
+
+	private static void swap(int[] array, int i, int j)
+	{
+		int tmp = array[i];
+		array[i] = array[j];
+		array[j] = tmp;
+	}
+}
@@ -13,6 +13,8 @@ public class EvaluateDM
 	private static String outputFile;
 	private static String odFile;
 	private static String delayedPassengerPathsFileName;
+	private static String pathsFileName;
+	private static int threads;
 	private static NonPeriodicEANetwork Net;
 	private static boolean DEBUG;
 	private static boolean VERBOSE;
@@ -119,7 +121,8 @@ public class EvaluateDM
 		line.append("\nDuration of evaluation without reading:");
 		if(extendedEval){
 			line.append("\n\nExtended evaluation:\n\n");
-			long passenger_delay_after_rerouting = evaluatePassengerPaths();
+			PassengerPathEvaluation pathEvaluation = evaluatePassengerPathsFile();
+			long passenger_delay_after_rerouting = evaluatePassengerPaths(pathEvaluation.getWeightedArrivalTime());
 			s.setLongValue("dm_passenger_delay", passenger_delay_after_rerouting);
 			s.setDoubleValue("dm_passenger_delay_average", passenger_delay_after_rerouting/(double)number_of_passengers);
 			line.append("passenger delay after rerouting: ");
@@ -127,7 +130,7 @@ public class EvaluateDM
 			line.append("(");
 			line.append(passenger_delay_after_rerouting/(double)number_of_passengers);
 			line.append(" per passenger)\n");
-			long real_passenger_delay = calculateRealDelay();
+			long real_passenger_delay = pathEvaluation.getRealDelay();
 			s.setLongValue("dm_obj_dm1", real_passenger_delay);
 			line.append("Objective value DM1: ");
 			line.append(real_passenger_delay);
@@ -155,6 +158,8 @@ public class EvaluateDM
 		outputFile = config.getStringValue("default_evaluation_dm_file");
 		odFile = config.getStringValue("default_od_file");
 		delayedPassengerPathsFileName = config.getStringValue("default_delayed_passenger_paths_file");
+		pathsFileName = config.getStringValue("default_passenger_paths_file");
+		threads = config.getIntegerValue("DM_threads");
 		DEBUG = config.getBooleanValue("DM_debug");
 		VERBOSE = config.getBooleanValue("DM_verbose");
 		extendedEval = config.getBooleanValue("DM_eval_extended");
@@ -177,12 +182,21 @@ public class EvaluateDM
 		Net.setG();
 	}
 
-	private static long evaluatePassengerPaths() throws Exception{
-		Config config = new Config(new File("basis/Config.cnf"));
-		String pathsFileName = config.getStringValue("default_passenger_paths_file");
-		String line;
-		String[] values;
-		Long weighted_time=0L;
+	// evaluates the passenger paths in the disposition timetable, which is
+	// not changed by the rerouting in evaluatePassengerPaths
+	private static PassengerPathEvaluation evaluatePassengerPathsFile() throws Exception{
+		System.err.print("Evaluating passenger paths...");
+		long before = System.currentTimeMillis();
+		PassengerPathEvaluation pathEvaluation = new PassengerPathEvaluation(Net, threads);
+		pathEvaluation.evaluate(new File(pathsFileName));
+		long after = System.currentTimeMillis();
+		System.err.println("Done! Took "+(after-before)+" ms.");
+		return pathEvaluation;
+	}
+
+	// weighted_time is the weighted time needed by the passengers to drive
+	// in the non delayed timetable
+	private static long evaluatePassengerPaths(long weighted_time) throws Exception{
 		TreeMap<Integer, NonPeriodicEvent> events_by_id = new TreeMap<Integer,NonPeriodicEvent>();
 		System.err.print("Reorder EAN...");
 		long before = System.currentTimeMillis();
@@ -191,23 +205,6 @@ public class EvaluateDM
 		}
 		long after = System.currentTimeMillis();
 		System.err.println("Done! Took "+(after-before)+" ms.");
-		//Calculate the weighted time needed by the passengers to drive in the non delayed timetable
-		System.err.print("Reading PassengerPath...");
-		BufferedReader reader = new BufferedReader(new FileReader(new File(pathsFileName)));
-		int weight;
-		while ((line = reader.readLine()) != null){
-			int position = line.indexOf('#');
-			if (position != -1)
-				line = line.substring(0, position);
-			line = line.trim();
-			if (line.isEmpty())
-				continue;
-			values = line.split(";");
-			weight=Integer.parseInt(values[0].trim());
-			weighted_time += events_by_id.get(Integer.parseInt(values[2].trim())).getTime()*weight;
-		}
-		reader.close();
-		System.err.println("Done!");
 		//Calculate the sum of the delayed arrival times and substract the sum of the non-delayed arrival times to get the sum of the delay
 		weighted_delay_time = DelayedPassengerPaths.calculateWeightedDelayTime(passenger_routing_arrival_on_time,Net,new File(delayedPassengerPathsFileName),events_by_id);
 		System.err.println("Calculated delay time: "+weighted_delay_time);
@@ -215,64 +212,6 @@ public class EvaluateDM
 		return weighted_delay_time-weighted_time;
 	}
 
-	private static long calculateRealDelay() throws IOException{
-		Config config = new Config(new File("basis/Config.cnf"));
-		String pathsFileName = config.getStringValue("default_passenger_paths_file");
-		String line;
-		String[] values;
-		String[] changes;
-		int position;
-		boolean connection_missed;
-		long realDelay = 0L;
-		int weight;
-		TreeMap<Integer, NonPeriodicEvent> events_by_id = new TreeMap<Integer,NonPeriodicEvent>();
-		TreeMap<Integer, NonPeriodicChangingActivity> changing_activities_by_id = new TreeMap<Integer, NonPeriodicChangingActivity>();
-		System.err.print("Reorder EAN...");
-		for(NonPeriodicEvent e : Net.getEvents()){
-			events_by_id.put(e.getID(), e);
-		}
-		for(NonPeriodicChangingActivity a : Net.getChangingActivities()){
-			changing_activities_by_id.put(a.getID(), a);
-		}
-		System.err.println("Done!");
-		System.err.print("Calculate the real delay of the passengers given the nondelayed paths...");
-		BufferedReader reader = new BufferedReader(new FileReader(pathsFileName));
-		while((line=reader.readLine())!=null){
-			position = line.indexOf('#');
-			if (position != -1)
-				line = line.substring(0, position);
-			line = line.trim();
-			if (line.isEmpty())
-				continue;
-			values = line.split(";");
-			weight = Integer.parseInt(values[0].trim());
-			if(weight>0){
-				if(values.length <= 5){//There are no changes in the path
-					NonPeriodicEvent last_event_on_path = events_by_id.get(Integer.parseInt(values[2].trim()));
-					realDelay += (last_event_on_path.getDispoTime()-last_event_on_path.getTime())*weight;
-				}
-				else{//Check if any connection is missed for the path. The delay is then the period length
-					changes = values[5].split(",");
-					connection_missed=false;
-					for(int i=0;i<changes.length;i++){
-						NonPeriodicChangingActivity act = changing_activities_by_id.get(Integer.parseInt(changes[i].trim()));
-						if(act.getZ()==1){//The connection is missed. The delay is considered to be the period length.
-							realDelay += Net.getPeriod()*weight;//frequencies.get(act);
-							connection_missed = true;
-							break;
-						}
-					}
-					if(!connection_missed){//There were no missed connections
-						NonPeriodicEvent last_event_on_path = events_by_id.get(Integer.parseInt(values[2].trim()));
-						realDelay += (last_event_on_path.getDispoTime()-last_event_on_path.getTime())*weight;
-					}
-				}
-			}
-		}
-		reader.close();
-		return realDelay;
-	}
-
 	private static boolean checkFeasiblity(){
 		int duration;
 		NonPeriodicChangingActivity act_change;
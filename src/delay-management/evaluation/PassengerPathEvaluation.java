@@ -0,0 +1,291 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates a file of passenger paths (see default_passenger_paths_file)
+ * in the disposition timetable of a NonPeriodicEANetwork: the sum of the
+ * weighted scheduled arrival times of all paths and the real delay of the
+ * passengers if they stick to their paths (objective DM1), i.e., the delay
+ * at their last event or the period length if they miss a connection.
+ *
+ * The delays of the events and the wait-depart decisions are copied into
+ * arrays indexed by ID when the evaluation is constructed. The file is read
+ * in blocks of complete lines which are parsed directly from the bytes and
+ * evaluated in parallel; the sums of the blocks are added up afterwards, so
+ * the result does not depend on the number of threads.
+ */
+public class PassengerPathEvaluation
+{
+	private static final int BLOCK_SIZE = 1 << 22;
+
+	// by event ID: whether there is an event with this ID, its time in the
+	// original timetable and its delay in the disposition timetable
+	private final boolean[] isEvent;
+	private final int[] time;
+	private final int[] delay;
+	// by changing activity ID: whether there is a changing activity with
+	// this ID and whether it is missed (z = 1)
+	private final boolean[] isChange;
+	private final boolean[] missed;
+	private final int period;
+	private final int threads;
+
+	private long weightedArrivalTime;
+	private long realDelay;
+
+
+
+	/**
+	 * @param Net the network containing the disposition timetable and the
+	 * wait-depart decisions (z values)
+	 * @param threads the number of threads, all available processors if
+	 * smaller than 1
+	 */
+	public PassengerPathEvaluation(NonPeriodicEANetwork Net, int threads)
+	{
+		int maxID = 0;
+		for (NonPeriodicEvent e : Net.getEvents())
+			maxID = Math.max(maxID, e.getID());
+		isEvent = new boolean[maxID + 1];
+		time = new int[maxID + 1];
+		delay = new int[maxID + 1];
+		for (NonPeriodicEvent e : Net.getEvents())
+		{
+			isEvent[e.getID()] = true;
+			time[e.getID()] = e.getTime();
+			delay[e.getID()] = e.getDispoTime() - e.getTime();
+		}
+
+		maxID = 0;
+		for (NonPeriodicChangingActivity a : Net.getChangingActivities())
+			maxID = Math.max(maxID, a.getID());
+		isChange = new boolean[maxID + 1];
+		missed = new boolean[maxID + 1];
+		for (NonPeriodicChangingActivity a : Net.getChangingActivities())
+		{
+			isChange[a.getID()] = true;
+			missed[a.getID()] = a.getZ() == 1;
+		}
+
+		period = Net.getPeriod();
+		this.threads = threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+	}
+
+
+
+	/**
+	 * Evaluates all passenger paths in the given file.
+	 * @throws Exception if the file cannot be read or contains a malformed
+	 * line or an unknown event or changing activity
+	 */
+	public void evaluate(File pathsFile) throws Exception
+	{
+		weightedArrivalTime = 0;
+		realDelay = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		// evaluate at most two blocks per thread at once to bound the memory
+		LinkedList<Future<long[]>> running = new LinkedList<Future<long[]>>();
+		InputStream in = new FileInputStream(pathsFile);
+		try
+		{
+			byte[] buffer = new byte[BLOCK_SIZE];
+			int filled = 0;
+			int read;
+			while ((read = in.read(buffer, filled, buffer.length - filled)) != -1 || filled > 0)
+			{
+				if (read > 0)
+				{
+					filled += read;
+					if (filled < buffer.length)
+						continue;
+				}
+				// the block ends after the last complete line; the remaining
+				// bytes are moved to the next block
+				int end = filled;
+				if (read != -1)
+				{
+					while (end > 0 && buffer[end - 1] != '\n')
+						end--;
+					if (end == 0)
+					{
+						// the line does not fit into the block
+						buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+						continue;
+					}
+				}
+				byte[] next = new byte[Math.max(BLOCK_SIZE, filled - end)];
+				System.arraycopy(buffer, end, next, 0, filled - end);
+				running.add(executor.submit(new Block(buffer, end)));
+				if (running.size() >= 2 * threads)
+					add(running.removeFirst().get());
+				buffer = next;
+				filled -= end;
+			}
+			while (!running.isEmpty())
+				add(running.removeFirst().get());
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+		finally
+		{
+			in.close();
+			executor.shutdownNow();
+		}
+	}
+
+
+
+	// the sum of weight * scheduled time of the last event over all paths
+	public long getWeightedArrivalTime()
+	{
+		return weightedArrivalTime;
+	}
+
+	// the sum of the real delays of all paths with positive weight
+	public long getRealDelay()
+	{
+		return realDelay;
+	}
+
+
+
+	private void add(long[] sums)
+	{
+		weightedArrivalTime += sums[0];
+		realDelay += sums[1];
+	}
+
+
+
+	/**
+	 * Evaluates the lines in buffer[0], ..., buffer[end-1]. A line consists
+	 * of the fields weight; source-id; target-id; source-station-id;
+	 * target-station-id; changes, where changes is an optional list of
+	 * changing activity IDs separated by ",". Everything after a "#" is a
+	 * comment.
+	 */
+	private class Block implements Callable<long[]>
+	{
+		private final byte[] buffer;
+		private final int end;
+		// the current position and the end of the current line (without the
+		// comment)
+		private int position;
+		private int lineEnd;
+
+		Block(byte[] buffer, int end)
+		{
+			this.buffer = buffer;
+			this.end = end;
+		}
+
+		@Override
+		public long[] call() throws Exception
+		{
+			long weightedArrivalTime = 0;
+			long realDelay = 0;
+			int lineStart = 0;
+			while (lineStart < end)
+			{
+				int next = lineStart;
+				while (next < end && buffer[next] != '\n')
+					next++;
+				lineEnd = lineStart;
+				while (lineEnd < next && buffer[lineEnd] != '#')
+					lineEnd++;
+				position = lineStart;
+				skipWhitespace();
+				if (position < lineEnd)
+				{
+					int weight = readNumber(lineStart);
+					skipField(lineStart);
+					skipField(lineStart);
+					int target = readNumber(lineStart);
+					if (target >= isEvent.length || !isEvent[target])
+						throw new Exception("unknown event " + target + " in passenger path " + line(lineStart));
+					weightedArrivalTime += (long) time[target] * weight;
+					if (weight > 0)
+					{
+						if (isMissingConnection(lineStart))
+							realDelay += (long) period * weight;
+						else
+							realDelay += (long) delay[target] * weight;
+					}
+				}
+				lineStart = next + 1;
+			}
+			return new long[] {weightedArrivalTime, realDelay};
+		}
+
+		// checks the changes of the current line, positioned after the
+		// target event
+		private boolean isMissingConnection(int lineStart) throws Exception
+		{
+			// skip the station fields, the changes are the sixth field
+			for (int field = 3; field <= 5; field++)
+			{
+				while (position < lineEnd && buffer[position] != ';')
+					position++;
+				if (position == lineEnd)
+					return false;
+				position++;
+			}
+			skipWhitespace();
+			while (position < lineEnd)
+			{
+				int change = readNumber(lineStart);
+				if (change >= isChange.length || !isChange[change])
+					throw new Exception("unknown changing activity " + change + " in passenger path " + line(lineStart));
+				if (missed[change])
+					return true;
+				if (position < lineEnd && buffer[position] == ',')
+					position++;
+				skipWhitespace();
+			}
+			return false;
+		}
+
+		// reads a number surrounded by whitespace at the current position
+		private int readNumber(int lineStart) throws Exception
+		{
+			skipWhitespace();
+			boolean negative = position < lineEnd && buffer[position] == '-';
+			if (negative)
+				position++;
+			int start = position;
+			int value = 0;
+			while (position < lineEnd && buffer[position] >= '0' && buffer[position] <= '9')
+				value = 10 * value + (buffer[position++] - '0');
+			if (position == start)
+				throw new Exception("malformed passenger path " + line(lineStart));
+			skipWhitespace();
+			return negative ? -value : value;
+		}
+
+		// moves to the next field, i.e., after the next ";"
+		private void skipField(int lineStart) throws Exception
+		{
+			while (position < lineEnd && buffer[position] != ';')
+				position++;
+			if (position == lineEnd)
+				throw new Exception("malformed passenger path " + line(lineStart));
+			position++;
+		}
+
+		private void skipWhitespace()
+		{
+			while (position < lineEnd && (buffer[position] == ' ' || buffer[position] == '\t' || buffer[position] == '\r'))
+				position++;
+		}
+
+		private String line(int lineStart)
+		{
+			return new String(buffer, lineStart, lineEnd - lineStart).trim();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+import net.lintim.exception.LinTimException;
+import net.lintim.util.Logger;
+
+import java.util.*;
+
+/**
+ * Computes the disposition timetable of a delay management problem in which all wait-depart and priority decisions
+ * are already fixed, i.e., the network contains neither changing nor headway activities and every activity to
+ * respect is contained in A_nice. Then the model solved by {@link Solve} does not contain any binary variables and
+ * its optimal solution is to let every event take place as early as possible, which is a longest path problem on the
+ * nice activities. This class solves it by the critical path method in time linear in the size of the network,
+ * without using a solver.
+ */
+public class CriticalPath {
+
+    private static final Logger logger = new Logger(CriticalPath.class);
+
+    private CriticalPath() {
+    } // class only contains static methods
+
+
+    /**
+     * Checks whether all decisions of the delay management problem for the given network are fixed, i.e., whether
+     * {@link #solve(NonPeriodicEANetwork)} computes an optimal solution for it.
+     *
+     * @param Net the event-activity network
+     * @return whether the network contains neither changing nor headway activities
+     */
+    public static boolean isApplicable(NonPeriodicEANetwork Net) {
+        return Net.getChangingActivities().isEmpty() && Net.getHeadwayActivities().isEmpty();
+    }
+
+
+    /**
+     * Sets the disposition time of every event to the earliest time that respects the source delay of the event and
+     * all nice activities (including their source delays). Changing and headway activities of the network are
+     * ignored, use {@link #isApplicable(NonPeriodicEANetwork)} to check whether there are none.
+     *
+     * @param Net the event-activity network
+     * @throws LinTimException if the nice activities contain a directed circle
+     */
+    public static void solve(NonPeriodicEANetwork Net) {
+        long start = new Date().getTime();
+        NonPeriodicEvent[] events = Net.getEvents().toArray(new NonPeriodicEvent[0]);
+        int n = events.length;
+        HashMap<NonPeriodicEvent, Integer> newEventIDs = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            newEventIDs.put(events[i], i);
+        }
+
+        // store the nice activities by their source event, together with
+        // the minimal distance of their target to their source
+        int m = Net.getNiceActivities().size();
+        int[] source = new int[m];
+        int[] target = new int[m];
+        int[] length = new int[m];
+        int[] outStart = new int[n + 1];
+        int[] inDegree = new int[n];
+        int j = 0;
+        for (NonPeriodicActivity a : Net.getNiceActivities()) {
+            source[j] = newEventIDs.get(a.getSource());
+            target[j] = newEventIDs.get(a.getTarget());
+            length[j] = a.getLowerBound() + a.getSourceDelay();
+            outStart[source[j] + 1]++;
+            inDegree[target[j]]++;
+            j++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        int[] out = new int[m];
+        int[] fill = Arrays.copyOf(outStart, n);
+        for (j = 0; j < m; j++) {
+            out[fill[source[j]]++] = j;
+        }
+
+        // process the events in a topological ordering, the disposition time
+        // of an event is final when it is taken from the queue
+        int[] dispoTime = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            dispoTime[i] = events[i].getTime() + events[i].getSourceDelay();
+            if (inDegree[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int i = queue[head++];
+            for (int k = outStart[i]; k < outStart[i + 1]; k++) {
+                int t = target[out[k]];
+                dispoTime[t] = Math.max(dispoTime[t], dispoTime[i] + length[out[k]]);
+                if (--inDegree[t] == 0) {
+                    queue[tail++] = t;
+                }
+            }
+        }
+        if (tail < n) {
+            throw new LinTimException("DM: the fixed activities contain a directed circle, " + (n - tail)
+                + " events cannot be ordered");
+        }
+
+        for (int i = 0; i < n; i++) {
+            events[i].setDispoTime(dispoTime[i]);
+        }
+        logger.debug("time for critical path method: " + (new Date().getTime() - start) + "ms");
+    }
+}
@@ -175,12 +175,7 @@ public class DM {
         // bound on maximal delay as this only works for the optimal
         // solution.
         logger.debug("Computing solution with " + parameters.getOptMethod());
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
 
         if (parameters.shouldCheckConsistency()) {
@@ -246,12 +241,7 @@ public class DM {
         // Solve the MIP; do not use M from MIP formulation as upper
         // bound on the maximal delay as this only works for the optimal
         // solution.
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // Use the solution of the uncapacitated problem to fix the headway
         // activities. Note that due to the constructor of NonPeriodicEANetwork
@@ -269,12 +259,7 @@ public class DM {
 
         // solve the MIP with the modified set A_nice (and with an still
         // empty set A_head)
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // as we cleared all variables after the first step, we have
         // to set the g variables correctly
@@ -340,12 +325,7 @@ public class DM {
         // Solve the MIP, do not use M from MIP formulation as upper
         // bound on the maximal delay as this only works for the optimal
         // solution.
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // Use the solution of the uncapacitated problem to fix the headway
         // activities.
@@ -373,12 +353,7 @@ public class DM {
         // this basically is an application of the critical path method.
         // Do not use M from MIP formulation as upper bound on the maximal
         // delay as this only works for the optimal solution!
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // As A_change was empty during the optimization process, we have to
         // manually set the values of the z variables according to the
@@ -460,12 +435,7 @@ public class DM {
         // solve the MIP, do not use M from MIP formulation as upper
         // bound on the maximal delay as this only works for the optimal
         // solution
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // as A_change was empty during the optimization process, we have to
         // manually set the values of the z variables according to the
@@ -546,12 +516,7 @@ public class DM {
         // solve the MIP, do not use M from MIP formulation as upper
         // bound on the maximal delay as this only works for the optimal
         // solution
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // Use the solution of the uncapacitated problem to fix the headway
         // activities. Note that due to the constructor of NonPeriodicEANetwork
@@ -568,12 +533,7 @@ public class DM {
 
         // solve the MIP with A_nice set according to the definition of
         // the heuristic (and with an still empty set A_head)
-        if (parameters.getOptMethod().equals("DM2")) {
-            solve(Net2, false, parameters);
-        } else if (parameters.getOptMethod().equals("DM1")) {
-            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
-            Solve.solveDM1(Net2, passenger_paths, parameters);
-        }
+        solveHeuristic(Net2, parameters);
 
         // as we cleared all variables after the first step, we have
         // to set the g and z variables correctly
@@ -950,6 +910,25 @@ public class DM {
     }
 
 
+    /**
+     * Computes the disposition timetable for a network in which some decisions have already been fixed by a
+     * heuristic, using the optimization method DM_opt_method_for_heuristic. If all decisions are fixed, i.e., if the
+     * network contains neither changing nor headway activities, no solver is needed and the optimal solution is
+     * computed by {@link CriticalPath}.
+     */
+    private static void solveHeuristic(NonPeriodicEANetwork Net2, Parameters parameters) throws Exception {
+        if (CriticalPath.isApplicable(Net2)) {
+            logger.debug("DM: all decisions are fixed, using the critical path method");
+            CriticalPath.solve(Net2);
+        } else if (parameters.getOptMethod().equals("DM2")) {
+            solve(Net2, false, parameters);
+        } else if (parameters.getOptMethod().equals("DM1")) {
+            LinkedList<Path> passenger_paths = IO.readPassengerPaths(Net2);
+            Solve.solveDM1(Net2, passenger_paths, parameters);
+        }
+    }
+
+
     private static void fixHeadwayActivitiesFSFS(LinkedHashSet<NonPeriodicHeadwayActivity> A_head,
                                                  LinkedHashSet<NonPeriodicActivity> A_nice) {
         for (NonPeriodicHeadwayActivity a1 : A_head) {
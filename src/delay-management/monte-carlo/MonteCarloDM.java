@@ -0,0 +1,225 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates the robustness of a timetable against delays in a single
+ * process: the rolled out event-activity network is read once, then
+ * DM_monte_carlo_scenarios delay scenarios are generated, solved with the
+ * heuristic DM_monte_carlo_method (FSFS, FRFS or EARLYFIX, see
+ * ScenarioSolver) and evaluated in parallel on DM_threads threads.
+ *
+ * Every scenario gets its own SplittableRandom, split off from delays_seed
+ * in the order of the scenarios, so the results only depend on the seed and
+ * not on the number of threads. The delays are generated by RandomDelays
+ * of the delay generator, i.e., like by DelayGenerator with the generators
+ * uniform_distribution and neg_exp.
+ *
+ * The values of every scenario are written to filename_dm_monte_carlo_file,
+ * their mean, minimum, maximum and standard deviation to the statistic.
+ */
+public class MonteCarloDM
+{
+	private MonteCarloDM() {}  // class only contains static methods
+
+
+
+	private static int scenarios;
+	private static String method;
+	private static int threads;
+	private static long seed;
+	private static int maxWait;
+	private static DelayGeneratorType generator;
+	private static RandomDelays randomDelays;
+	private static int minTime;
+	private static int maxTime;
+	private static String outputFile;
+	private static boolean VERBOSE;
+
+
+
+	public static void main(String[] args) throws Exception
+	{
+		readConfig();
+
+		long start = System.currentTimeMillis();
+		NonPeriodicEANetwork Net = IO.readNonPeriodicEANetwork(false, false);
+		ScenarioNetwork net = new ScenarioNetwork(Net);
+		Net = null;
+		if (VERBOSE)
+			System.out.println("MonteCarloDM: read network with " + net.n + " events and "
+			                   + net.m + " activities in " + (System.currentTimeMillis() - start) + "ms");
+
+		// the events and activities that might be delayed
+		int[] eventCandidates = new int[0];
+		int[] activityCandidates = new int[0];
+		if (randomDelays.delaysEvents())
+		{
+			ArrayList<Integer> list = new ArrayList<Integer>();
+			for (int i = 0; i < net.n; i++)
+				if (net.time[i] >= minTime && net.time[i] <= maxTime)
+					list.add(i);
+			eventCandidates = list.stream().mapToInt(Integer::intValue).toArray();
+		}
+		if (randomDelays.delaysActivities())
+		{
+			ArrayList<Integer> list = new ArrayList<Integer>();
+			for (int a = 0; a < net.m; a++)
+				if (net.isDrive[a] && net.time[net.source[a]] >= minTime && net.time[net.target[a]] <= maxTime)
+					list.add(a);
+			activityCandidates = list.stream().mapToInt(Integer::intValue).toArray();
+		}
+		int eventCount = randomDelays.delaysEvents()
+			? randomDelays.count(eventCandidates.length, "events") : 0;
+		int activityCount = randomDelays.delaysActivities()
+			? randomDelays.count(activityCandidates.length, "drive activities") : 0;
+
+		// split the random streams in a fixed order to be independent of
+		// the number of threads
+		SplittableRandom random = seed == 0 ? new SplittableRandom() : new SplittableRandom(seed);
+		SplittableRandom[] streams = new SplittableRandom[scenarios];
+		for (int s = 0; s < scenarios; s++)
+			streams[s] = random.split();
+
+		final int[] events = eventCandidates;
+		final int[] activities = activityCandidates;
+		ThreadLocal<ScenarioSolver> solvers = ThreadLocal.withInitial(() ->
+			new ScenarioSolver(net, method, maxWait, randomDelays, events, eventCount,
+			                   activities, activityCount));
+
+		double[][] values = new double[scenarios][];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(scenarios);
+			for (int s = 0; s < scenarios; s++)
+			{
+				final int scenario = s;
+				tasks.add(() -> {
+					values[scenario] = solvers.get().simulate(streams[scenario]);
+					return null;
+				});
+			}
+			for (Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		if (VERBOSE)
+			System.out.println("MonteCarloDM: simulated " + scenarios + " scenarios on " + threads
+			                   + " threads in " + (System.currentTimeMillis() - start) + "ms");
+
+		writeScenarios(values);
+		writeStatistic(values);
+	}
+
+
+
+	private static void readConfig() throws Exception
+	{
+		Config config = new Config(new File("basis/Config.cnf"));
+
+		scenarios = config.getIntegerValue("DM_monte_carlo_scenarios");
+		method = config.getStringValue("DM_monte_carlo_method");
+		threads = config.getIntegerValue("DM_threads");
+		maxWait = config.getIntegerValue("DM_propagate_maxwait");
+		outputFile = config.getStringValue("filename_dm_monte_carlo_file");
+		VERBOSE = config.getBooleanValue("DM_verbose");
+
+		generator = DelayGeneratorType.fromString("MonteCarloDM",
+		                                          config.getStringValue("delays_generator"));
+		seed = (long) config.getIntegerValue("delays_seed");
+		minTime = config.getIntegerValue("delays_min_time");
+		maxTime = config.getIntegerValue("delays_max_time");
+
+		if (scenarios < 1)
+			throw new Exception("MonteCarloDM: DM_monte_carlo_scenarios must be positive");
+		if (!method.equals("FSFS") && !method.equals("FRFS") && !method.equals("EARLYFIX"))
+		{
+			throw new Exception(  "MonteCarloDM: unsupported DM_monte_carlo_method " + method
+			                    + ", only FSFS, FRFS and EARLYFIX can be solved without a solver");
+		}
+		if (threads < 1)
+			threads = Runtime.getRuntime().availableProcessors();
+
+		// same restrictions as in DelayGenerator
+		randomDelays = RandomDelays.fromConfig(config, "MonteCarloDM");
+		if (minTime > maxTime)
+		{
+			throw new Exception(  "MonteCarloDM: delays_max_time must not "
+			                    + "be smaller than delays_min_time");
+		}
+
+		if (VERBOSE)
+		{
+			System.out.println("MonteCarloDM: using the following configuration:");
+			System.out.println("  scenarios: " + scenarios);
+			System.out.println("  method: " + method);
+			System.out.println("  threads: " + threads);
+			System.out.println("  delay generator: " + generator);
+			System.out.println("  output file: " + outputFile);
+		}
+	}
+
+
+
+	private static void writeScenarios(double[][] values) throws IOException
+	{
+		PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(outputFile)));
+		StringBuilder line = new StringBuilder("# scenario");
+		for (String key : ScenarioSolver.STATISTIC_KEYS)
+			line.append("; ").append(key);
+		out.println(line);
+		for (int s = 0; s < values.length; s++)
+		{
+			line.setLength(0);
+			line.append(s + 1);
+			for (double value : values[s])
+				line.append("; ").append(value);
+			out.println(line);
+		}
+		out.close();
+	}
+
+
+
+	private static void writeStatistic(double[][] values) throws IOException
+	{
+		File file = new File("statistic/statistic.sta");
+		Statistic statistic = file.exists() ? new Statistic(file) : new Statistic();
+		statistic.setIntegerValue("dm_mc_scenarios", values.length);
+		for (int k = 0; k < ScenarioSolver.STATISTIC_KEYS.length; k++)
+		{
+			double sum = 0;
+			double sumOfSquares = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (double[] scenario : values)
+			{
+				sum += scenario[k];
+				sumOfSquares += scenario[k] * scenario[k];
+				min = Math.min(min, scenario[k]);
+				max = Math.max(max, scenario[k]);
+			}
+			double mean = sum / values.length;
+			double variance = Math.max(0, sumOfSquares / values.length - mean * mean);
+			String key = ScenarioSolver.STATISTIC_KEYS[k].replaceFirst("dm_", "dm_mc_");
+			statistic.setDoubleValue(key + "_mean", mean);
+			statistic.setDoubleValue(key + "_min", min);
+			statistic.setDoubleValue(key + "_max", max);
+			statistic.setDoubleValue(key + "_stddev", Math.sqrt(variance));
+			if (VERBOSE)
+				System.out.println("  " + ScenarioSolver.STATISTIC_KEYS[k] + ": mean " + mean
+				                   + ", min " + min + ", max " + max);
+		}
+		statistic.writeStatistic(file);
+	}
+}
@@ -0,0 +1,184 @@
+import java.util.*;
+
+/**
+ * An immutable, array based copy of a NonPeriodicEANetwork which is shared by
+ * all threads of the Monte-Carlo simulation. Events are indexed by ID-1,
+ * activities by their position in NonPeriodicEANetwork.getActivities().
+ * The delays, disposition times and disposition decisions of a scenario are
+ * not stored here but in the ScenarioSolver of the thread simulating it.
+ */
+public class ScenarioNetwork
+{
+	// kinds of activities
+	public static final byte TRIP = 0;    // drive, wait, turn and circulation
+	public static final byte CHANGE = 1;
+	public static final byte HEADWAY = 2;
+
+	final int period;
+
+	// events
+	final int n;
+	final int[] time;
+	final double[] eventWeight;
+
+	// activities
+	final int m;
+	final byte[] kind;
+	final boolean[] isDrive;
+	final int[] source;
+	final int[] target;
+	final int[] lowerBound;
+	final double[] activityWeight;
+	// the corresponding headway of a headway activity, -1 otherwise
+	final int[] partner;
+
+	// incoming activities of event i: in[inStart[i]], ..., in[inStart[i+1]-1]
+	final int[] inStart;
+	final int[] in;
+	// outgoing activities of event i: out[outStart[i]], ..., out[outStart[i+1]-1]
+	final int[] outStart;
+	final int[] out;
+
+	// the headway activities respected by the FSFS rule, i.e., in the order
+	// of the original timetable
+	final boolean[] scheduledHeadways;
+
+	// topological orderings of the events for networks without headways and
+	// for the FSFS headways, which are the same for every scenario
+	final int[] orderWithoutHeadways;
+	final int[] orderScheduledHeadways;
+
+
+
+	public ScenarioNetwork(NonPeriodicEANetwork Net) throws Exception
+	{
+		period = Net.getPeriod();
+
+		n = Net.getEvents().size();
+		time = new int[n];
+		eventWeight = new double[n];
+		for (NonPeriodicEvent e : Net.getEvents())
+		{
+			time[e.getID()-1] = e.getTime();
+			eventWeight[e.getID()-1] = e.getWeight();
+		}
+
+		NonPeriodicActivity[] activities = Net.getActivities().toArray(new NonPeriodicActivity[0]);
+		m = activities.length;
+		kind = new byte[m];
+		isDrive = new boolean[m];
+		source = new int[m];
+		target = new int[m];
+		lowerBound = new int[m];
+		activityWeight = new double[m];
+		partner = new int[m];
+		Arrays.fill(partner, -1);
+		HashMap<NonPeriodicActivity, Integer> index = new HashMap<NonPeriodicActivity, Integer>();
+		for (int a = 0; a < m; a++)
+			index.put(activities[a], a);
+		for (int a = 0; a < m; a++)
+		{
+			ActivityType type = ActivityType.fromString(activities[a].getType());
+			if (type == ActivityType.CHANGE)
+				kind[a] = CHANGE;
+			else if (type == ActivityType.HEADWAY)
+			{
+				kind[a] = HEADWAY;
+				NonPeriodicHeadwayActivity corresponding =
+					((NonPeriodicHeadwayActivity) activities[a]).getCorrespodingHeadway();
+				if (corresponding == null)
+					throw new Exception("ScenarioNetwork: headway activity without corresponding headway: " + activities[a]);
+				partner[a] = index.get(corresponding);
+			}
+			else
+				kind[a] = TRIP;
+			isDrive[a] = type == ActivityType.DRIVE;
+			source[a] = activities[a].getSource().getID()-1;
+			target[a] = activities[a].getTarget().getID()-1;
+			lowerBound[a] = activities[a].getLowerBound();
+			activityWeight[a] = activities[a].getWeight();
+		}
+
+		inStart = new int[n+1];
+		outStart = new int[n+1];
+		for (int a = 0; a < m; a++)
+		{
+			inStart[target[a]+1]++;
+			outStart[source[a]+1]++;
+		}
+		for (int i = 0; i < n; i++)
+		{
+			inStart[i+1] += inStart[i];
+			outStart[i+1] += outStart[i];
+		}
+		in = new int[m];
+		out = new int[m];
+		int[] inFill = Arrays.copyOf(inStart, n);
+		int[] outFill = Arrays.copyOf(outStart, n);
+		for (int a = 0; a < m; a++)
+		{
+			in[inFill[target[a]]++] = a;
+			out[outFill[source[a]]++] = a;
+		}
+
+		// same rule as DM.fixHeadwayActivitiesFSFS
+		scheduledHeadways = new boolean[m];
+		for (int a = 0; a < m; a++)
+			if (kind[a] == HEADWAY && a < partner[a])
+			{
+				if (time[source[a]] < time[target[a]])
+					scheduledHeadways[a] = true;
+				else
+					scheduledHeadways[partner[a]] = true;
+			}
+
+		orderWithoutHeadways = topologicalOrder(new boolean[m], new boolean[m]);
+		orderScheduledHeadways = topologicalOrder(scheduledHeadways, new boolean[m]);
+	}
+
+
+
+	/**
+	 * Computes a topological ordering of the events with respect to all
+	 * trip activities, the given headways and the given changes. Among the
+	 * events whose predecessors are all ordered, the one with the earliest
+	 * time in the original timetable is taken first, so changes that are
+	 * not part of the ordering usually point forward as well.
+	 * @throws Exception if these activities contain a directed circle
+	 */
+	int[] topologicalOrder(boolean[] headways, boolean[] changes) throws Exception
+	{
+		int[] inDegree = new int[n];
+		for (int a = 0; a < m; a++)
+			if (isFixed(a, headways, changes))
+				inDegree[target[a]]++;
+		PriorityQueue<Integer> queue = new PriorityQueue<Integer>(n,
+				(i, j) -> time[i] != time[j] ? Integer.compare(time[i], time[j]) : Integer.compare(i, j));
+		for (int i = 0; i < n; i++)
+			if (inDegree[i] == 0)
+				queue.add(i);
+		int[] order = new int[n];
+		int size = 0;
+		while (!queue.isEmpty())
+		{
+			int i = queue.poll();
+			order[size++] = i;
+			for (int k = outStart[i]; k < outStart[i+1]; k++)
+			{
+				int a = out[k];
+				if (isFixed(a, headways, changes) && --inDegree[target[a]] == 0)
+					queue.add(target[a]);
+			}
+		}
+		if (size < n)
+			throw new Exception("ScenarioNetwork: the fixed activities contain a directed circle");
+		return order;
+	}
+
+
+
+	boolean isFixed(int a, boolean[] headways, boolean[] changes)
+	{
+		return kind[a] == TRIP || headways[a] || changes[a];
+	}
+}
@@ -0,0 +1,255 @@
+import java.util.*;
+
+/**
+ * Simulates delay scenarios on a ScenarioNetwork: generates random source
+ * delays, computes a disposition timetable with one of the heuristics
+ * FSFS, FRFS or EARLYFIX and evaluates it. Every thread uses its own
+ * ScenarioSolver, which keeps all arrays needed for a scenario and reuses
+ * them for the next one.
+ *
+ * The heuristics fix the headway decisions like DM.solveFSFS, DM.solveFRFS
+ * and DM.solveEARLYFIX do, but instead of solving an IP afterwards, the
+ * disposition timetable is computed by propagating the delays along a
+ * topological ordering of the fixed activities. A connection is maintained
+ * if the connecting train does not have to wait more than maxWait seconds
+ * for it (as in Propagator.propagate); EARLYFIX fixes the connections
+ * maintained in the first step for the second step.
+ */
+public class ScenarioSolver
+{
+	// the statistic values computed for every scenario, see evaluate()
+	public static final String[] STATISTIC_KEYS = {
+		"dm_obj_dm2",
+		"dm_obj_changes_missed_od",
+		"dm_obj_delay_events_average",
+		"dm_prop_events_delayed",
+		"dm_prop_headways_swapped"
+	};
+
+	private final ScenarioNetwork net;
+	private final String method;
+	private final int maxWait;
+
+	// delay generation, see MonteCarloDM.readConfig()
+	private final RandomDelays randomDelays;
+	private final int[] eventCandidates;
+	private final int eventCount;
+	private final int[] activityCandidates;
+	private final int activityCount;
+
+	// source delays of the current scenario, the delays of the chosen
+	// candidates and the positions swapped when choosing them
+	private final int[] eventDelay;
+	private final int[] activityDelay;
+	private final int[] chosenEventDelay;
+	private final int[] chosenActivityDelay;
+	private final int[] eventSwaps;
+	private final int[] activitySwaps;
+
+	// disposition times and decisions of the current scenario
+	private final int[] dispo;
+	private final int[] processed;
+	private int pass;
+	private final boolean[] noActivities;
+	private final boolean[] headways;
+	private final boolean[] changes;
+
+
+
+	public ScenarioSolver(ScenarioNetwork net, String method, int maxWait,
+	                      RandomDelays randomDelays,
+	                      int[] eventCandidates, int eventCount,
+	                      int[] activityCandidates, int activityCount)
+	{
+		this.net = net;
+		this.method = method;
+		this.maxWait = maxWait;
+		this.randomDelays = randomDelays;
+		// copies, as they are shuffled when choosing the delayed elements
+		this.eventCandidates = eventCandidates.clone();
+		this.eventCount = eventCount;
+		this.activityCandidates = activityCandidates.clone();
+		this.activityCount = activityCount;
+
+		eventDelay = new int[net.n];
+		activityDelay = new int[net.m];
+		chosenEventDelay = new int[eventCount];
+		chosenActivityDelay = new int[activityCount];
+		eventSwaps = new int[eventCount];
+		activitySwaps = new int[activityCount];
+		dispo = new int[net.n];
+		processed = new int[net.n];
+		noActivities = new boolean[net.m];
+		headways = new boolean[net.m];
+		changes = new boolean[net.m];
+	}
+
+
+
+	/**
+	 * Generates the delays of one scenario, computes its disposition
+	 * timetable and evaluates it.
+	 * @param random the random numbers of this scenario
+	 * @return the values of the statistic keys in STATISTIC_KEYS
+	 */
+	public double[] simulate(SplittableRandom random) throws Exception
+	{
+		generateDelays(random);
+
+		if (method.equals("FSFS"))
+		{
+			propagate(net.orderScheduledHeadways, net.scheduledHeadways, null);
+			System.arraycopy(net.scheduledHeadways, 0, headways, 0, net.m);
+		}
+		else if (method.equals("FRFS") || method.equals("EARLYFIX"))
+		{
+			// solve the uncapacitated problem and use its solution to
+			// fix the headways (and the connections for EARLYFIX)
+			propagate(net.orderWithoutHeadways, noActivities, null);
+			fixHeadwaysFRFS();
+			if (method.equals("FRFS"))
+				propagate(net.topologicalOrder(headways, noActivities), headways, null);
+			else
+			{
+				for (int a = 0; a < net.m; a++)
+					changes[a] = net.kind[a] == ScenarioNetwork.CHANGE && !isMissed(a);
+				propagate(net.topologicalOrder(headways, changes), headways, changes);
+			}
+		}
+		else
+			throw new Exception("ScenarioSolver: unsupported method " + method);
+
+		double[] values = evaluate();
+
+		// reset the delays and undo the shuffling, so the next scenario
+		// does not depend on this one
+		for (int k = 0; k < eventCount; k++)
+			eventDelay[eventCandidates[k]] = 0;
+		for (int k = 0; k < activityCount; k++)
+			activityDelay[activityCandidates[k]] = 0;
+		RandomDelays.undoChoice(eventCandidates, eventCount, eventSwaps);
+		RandomDelays.undoChoice(activityCandidates, activityCount, activitySwaps);
+		return values;
+	}
+
+
+
+	// chooses the delayed events and activities, see RandomDelays; all
+	// delays are 0 before
+	private void generateDelays(SplittableRandom random)
+	{
+		RandomDelays.Source source = RandomDelays.source(random);
+		randomDelays.chooseEvents(source, eventCandidates, eventCount, eventSwaps,
+		                          chosenEventDelay);
+		randomDelays.chooseActivities(source, activityCandidates, net.lowerBound,
+		                              activityCount, activitySwaps, chosenActivityDelay);
+		for (int k = 0; k < eventCount; k++)
+			eventDelay[eventCandidates[k]] = chosenEventDelay[k];
+		for (int k = 0; k < activityCount; k++)
+			activityDelay[activityCandidates[k]] = chosenActivityDelay[k];
+	}
+
+
+
+	/**
+	 * Computes the disposition timetable in the given topological ordering.
+	 * Trip activities and the given headways are always respected. If
+	 * fixedChanges is null, a connection is maintained if the waiting time
+	 * of the connecting train does not exceed maxWait, otherwise exactly the
+	 * given connections are maintained.
+	 */
+	private void propagate(int[] order, boolean[] fixedHeadways, boolean[] fixedChanges)
+	{
+		pass++;
+		for (int t : order)
+		{
+			int time = net.time[t] + eventDelay[t];
+			for (int k = net.inStart[t]; k < net.inStart[t+1]; k++)
+			{
+				int a = net.in[k];
+				int s = net.source[a];
+				// activities not contained in the ordering may point backwards
+				if (processed[s] != pass)
+					continue;
+				int required = dispo[s] + net.lowerBound[a] + activityDelay[a];
+				if (required <= time)
+					continue;
+				if (net.kind[a] == ScenarioNetwork.TRIP
+				    || (net.kind[a] == ScenarioNetwork.HEADWAY && fixedHeadways[a])
+				    || (net.kind[a] == ScenarioNetwork.CHANGE
+				        && (fixedChanges == null ? required <= net.time[t] + maxWait : fixedChanges[a])))
+					time = required;
+			}
+			dispo[t] = time;
+			processed[t] = pass;
+		}
+	}
+
+
+
+	// same rule as DM.fixHeadwayActivitiesFRFS
+	private void fixHeadwaysFRFS()
+	{
+		for (int a = 0; a < net.m; a++)
+		{
+			if (net.kind[a] != ScenarioNetwork.HEADWAY || a > net.partner[a])
+				continue;
+			int e1 = net.source[a];
+			int e2 = net.target[a];
+			boolean first = dispo[e1] < dispo[e2]
+			                || (dispo[e1] == dispo[e2] && net.time[e1] < net.time[e2]);
+			headways[a] = first;
+			headways[net.partner[a]] = !first;
+		}
+	}
+
+
+
+	// same rule as NonPeriodicEANetwork.setZ
+	private boolean isMissed(int a)
+	{
+		return dispo[net.target[a]] - dispo[net.source[a]] < net.lowerBound[a];
+	}
+
+
+
+	// the same values as computed by EvaluateDM
+	private double[] evaluate()
+	{
+		long weightedDelay = 0;
+		long totalDelay = 0;
+		int delayedEvents = 0;
+		for (int i = 0; i < net.n; i++)
+		{
+			int delay = dispo[i] - net.time[i];
+			if (delay > 0)
+			{
+				delayedEvents++;
+				totalDelay += delay;
+				weightedDelay += delay * net.eventWeight[i];
+			}
+		}
+		long missedConnectionDelay = 0;
+		int missedUsedConnections = 0;
+		int swappedHeadways = 0;
+		for (int a = 0; a < net.m; a++)
+		{
+			if (net.kind[a] == ScenarioNetwork.CHANGE && isMissed(a))
+			{
+				if (net.activityWeight[a] > 0)
+					missedUsedConnections++;
+				missedConnectionDelay += net.activityWeight[a] * net.period;
+			}
+			else if (net.kind[a] == ScenarioNetwork.HEADWAY && headways[a]
+			         && net.time[net.target[a]] - net.time[net.source[a]] < net.lowerBound[a])
+				swappedHeadways++;
+		}
+		return new double[] {
+			weightedDelay + missedConnectionDelay,
+			missedUsedConnections,
+			((double) totalDelay) / net.n,
+			delayedEvents,
+			swappedHeadways
+		};
+	}
+}
@@ -0,0 +1,8 @@
+#!/usr/bin/env bash
+
+PROGRAMPATH=`dirname ${0}`
+
+source ${PROGRAMPATH}/../../base.sh
+
+ant -q -f ${PROGRAMPATH}/build.xml build-monte-carlo-delay-management
+java "${JFLAGS[@]}" -classpath "${CLASSPATH}${PATHSEP}${PROGRAMPATH}${PATHSEP}${PROGRAMPATH}/../../essentials/config${PATHSEP}${PROGRAMPATH}/../../essentials/statistic${PATHSEP}${PROGRAMPATH}/../../essentials/dm-helper/Tools${PATHSEP}${PROGRAMPATH}/../../essentials/dm-helper/EAN${PATHSEP}${PROGRAMPATH}/../delay-generator" MonteCarloDM
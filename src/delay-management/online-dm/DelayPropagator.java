@@ -0,0 +1,324 @@
+/**
+ *	Iterative Variante von ODM.spreaddelay. Statt rekursiv einer Tiefensuche
+ *	zu folgen, werden Events, deren Dispositionszeit sich erhöht hat, in eine
+ *	Warteschlange eingefügt und in der Reihenfolge ihrer Dispositionszeiten
+ *	abgearbeitet. Die Entscheidungen über Anschlüsse und Headways werden
+ *	weiterhin mit Heuristics.decideChange und Heuristics.decideHeadway
+ *	getroffen.
+ *
+ *	Die ausgehenden Aktivitäten jedes Events werden einmalig in Arrays
+ *	abgelegt (Fahr- und Wartekanten zuerst, danach nach fahrplanmäßiger
+ *	Zielzeit sortiert), die Typen der Aktivitäten als ActivityType.
+ */
+
+import java.util.*;
+
+
+public class DelayPropagator
+{
+	private final NonPeriodicEANetwork ean;
+	private final boolean verbose;
+
+	// Events mit Index ID-1 und ihre Dispositionszeiten
+	private final NonPeriodicEvent[] events;
+	private final int[] dispo;
+
+	// Ausgehende Aktivitäten von Event i: outStart[i], ..., outStart[i+1]-1
+	private final int[] outStart;
+	private final NonPeriodicActivity[] activities;
+	private final ActivityType[] type;
+	private final int[] target;
+	private final int[] lowerBound;
+
+	// Warteschlange als binärer Heap über die Dispositionszeiten,
+	// position[i] ist die Position von Event i im Heap oder -1
+	private final int[] heap;
+	private final int[] position;
+	private int heapSize;
+
+	// Events, deren Dispositionszeit seit dem letzten Aufruf von
+	// commitTimetable geändert wurde
+	private final int[] touched;
+	private final boolean[] isTouched;
+	private int touchedSize;
+
+	// Zähler für die getroffenen Entscheidungen
+	private int keptConnections;
+	private int droppedConnections;
+	private int keptHeadways;
+	private int switchedHeadways;
+
+
+	public DelayPropagator(NonPeriodicEANetwork ean, boolean verbose) {
+		this.ean = ean;
+		this.verbose = verbose;
+
+		int n = ean.getEvents().size();
+		events = new NonPeriodicEvent[n];
+		dispo = new int[n];
+		for (NonPeriodicEvent e : ean.getEvents()) {
+			events[e.getID()-1] = e;
+			dispo[e.getID()-1] = e.getDispoTime();
+		}
+
+		int m = 0;
+		outStart = new int[n+1];
+		for (int i = 0; i < n; i++) {
+			outStart[i] = m;
+			m += events[i].getOutgoingActivities().size();
+		}
+		outStart[n] = m;
+
+		activities = new NonPeriodicActivity[m];
+		type = new ActivityType[m];
+		target = new int[m];
+		lowerBound = new int[m];
+
+		ArrayList<NonPeriodicActivity> list = new ArrayList<NonPeriodicActivity>();
+		for (int i = 0; i < n; i++) {
+			list.clear();
+			list.addAll(events[i].getOutgoingActivities());
+			Collections.sort(list);
+			int j = outStart[i];
+			for (NonPeriodicActivity a : list)
+				if (ActivityType.fromString(a.getType()).isTripActivity())
+					activities[j++] = a;
+			for (NonPeriodicActivity a : list)
+				if (!ActivityType.fromString(a.getType()).isTripActivity())
+					activities[j++] = a;
+		}
+		for (int j = 0; j < m; j++) {
+			type[j] = ActivityType.fromString(activities[j].getType());
+			target[j] = activities[j].getTarget().getID()-1;
+			lowerBound[j] = activities[j].getLowerBound();
+		}
+
+		heap = new int[n];
+		position = new int[n];
+		Arrays.fill(position, -1);
+		touched = new int[n];
+		isTouched = new boolean[n];
+	}
+
+	/**
+	 *	Setzt die Dispositionszeit von e auf time, falls diese dadurch
+	 *	größer wird, und fügt e in die Warteschlange ein.
+	 */
+
+	public void delay(NonPeriodicEvent e, int time) {
+		int i = e.getID()-1;
+		if (time > dispo[i])
+			setDispoTime(i, time);
+	}
+
+	/**
+	 *	Verbreitet alle Verspätungen der Events in der Warteschlange.
+	 */
+
+	public void propagate() throws Exception {
+		while (heapSize > 0)
+			process(poll());
+	}
+
+	/**
+	 *	Verbreitet die Verspätungen nur bis zum Zeitpunkt until: Events mit
+	 *	einer späteren Dispositionszeit bleiben in der Warteschlange und
+	 *	werden erst bei einem späteren Aufruf bearbeitet.
+	 */
+
+	public void propagate(int until) throws Exception {
+		while (heapSize > 0 && dispo[heap[0]] <= until)
+			process(poll());
+	}
+
+	/**
+	 *	Anzahl der Events in der Warteschlange.
+	 */
+
+	public int getPendingEvents() {
+		return heapSize;
+	}
+
+	/**
+	 *	Überschreibt den Fahrplan aller seit dem letzten Aufruf veränderten
+	 *	Events mit ihrer Dispositionszeit.
+	 */
+
+	public void commitTimetable() {
+		commitTimetable(null);
+	}
+
+	/**
+	 *	Wie commitTimetable(), fügt die veränderten Events zusätzlich in
+	 *	changed ein, falls changed nicht null ist.
+	 */
+
+	public void commitTimetable(Collection<NonPeriodicEvent> changed) {
+		for (int k = 0; k < touchedSize; k++) {
+			int i = touched[k];
+			assert (events[i].getTime() <= dispo[i]) : "Fehler in Fahrplan";
+			events[i].setTime(dispo[i]);
+			isTouched[i] = false;
+			if (changed != null)
+				changed.add(events[i]);
+		}
+		touchedSize = 0;
+	}
+
+	public int getKeptConnections() {
+		return keptConnections;
+	}
+
+	public int getDroppedConnections() {
+		return droppedConnections;
+	}
+
+	public int getKeptHeadways() {
+		return keptHeadways;
+	}
+
+	public int getSwitchedHeadways() {
+		return switchedHeadways;
+	}
+
+
+	/**
+	 *	Entspricht einem Aufruf von ODM.spreaddelay für Event e, wobei die
+	 *	Nachfolger nicht rekursiv bearbeitet, sondern in die Warteschlange
+	 *	eingefügt werden.
+	 */
+
+	private void process(int e) throws Exception {
+
+		for (int j = outStart[e]; j < outStart[e+1]; j++) {
+			int t = target[j];
+			int time = dispo[e] + lowerBound[j];
+
+			// Falls keine Verspätung übertragen wird, nächste Kante
+
+			if (time <= dispo[t])
+				continue;
+
+			switch (type[j]) {
+
+				case HEADWAY:
+					NonPeriodicHeadwayActivity headway = (NonPeriodicHeadwayActivity) activities[j];
+
+					if (headway.getG() == 1)
+						continue;
+
+					if (Heuristics.decideHeadway(ean, headway)) {
+						if (verbose)
+							System.out.println("Headway beibehalten!");
+						keptHeadways++;
+						setDispoTime(t, time);
+					}
+
+					// Änderung der Reihenfolge, evtl neue Dispositionszeit
+					// für e; dann wird e mit der neuen Zeit erneut bearbeitet
+
+					else {
+						if (verbose)
+							System.out.println("Headway-Wechsel!");
+						switchedHeadways++;
+						headway.setG(1);
+						headway.getCorrespodingHeadway().setG(0);
+
+						int compare = dispo[t] + headway.getCorrespodingHeadway().getLowerBound();
+						if (compare > dispo[e]) {
+							setDispoTime(e, compare);
+							return;
+						}
+					}
+					break;
+
+				case CHANGE:
+					NonPeriodicChangingActivity change = (NonPeriodicChangingActivity) activities[j];
+
+					if (Heuristics.decideChange(ean, change)) {
+						if (verbose)
+							System.out.println("Anschluss halten!");
+						keptConnections++;
+						change.setZ(0);
+						setDispoTime(t, time);
+					}
+					else {
+						if (verbose)
+							System.out.println("Anschluss nicht halten!");
+						droppedConnections++;
+						change.setZ(1);
+					}
+					break;
+
+				// Fahr-, Warte- und alle übrigen Kanten übertragen die
+				// Verspätung immer
+
+				default:
+					setDispoTime(t, time);
+			}
+		}
+	}
+
+	private void setDispoTime(int i, int time) {
+		dispo[i] = time;
+		events[i].setDispoTime(time);
+		if (!isTouched[i]) {
+			isTouched[i] = true;
+			touched[touchedSize++] = i;
+		}
+		if (position[i] == -1) {
+			position[i] = heapSize;
+			heap[heapSize++] = i;
+			siftUp(position[i]);
+		}
+		else
+			siftDown(position[i]);
+	}
+
+	private int poll() {
+		int first = heap[0];
+		position[first] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+		return first;
+	}
+
+	// Events mit gleicher Dispositionszeit werden nach Index sortiert
+	private boolean before(int i, int j) {
+		return dispo[i] < dispo[j] || (dispo[i] == dispo[j] && i < j);
+	}
+
+	private void siftUp(int k) {
+		int i = heap[k];
+		while (k > 0) {
+			int parent = (k-1) >>> 1;
+			if (!before(i, heap[parent]))
+				break;
+			heap[k] = heap[parent];
+			position[heap[k]] = k;
+			k = parent;
+		}
+		heap[k] = i;
+		position[i] = k;
+	}
+
+	private void siftDown(int k) {
+		int i = heap[k];
+		while (2*k+1 < heapSize) {
+			int child = 2*k+1;
+			if (child+1 < heapSize && before(heap[child+1], heap[child]))
+				child++;
+			if (!before(heap[child], i))
+				break;
+			heap[k] = heap[child];
+			position[heap[k]] = k;
+			k = child;
+		}
+		heap[k] = i;
+		position[i] = k;
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ *	Liest Verspätungsmeldungen nacheinander aus einem Strom. Jede Meldung ist
+ *	eine Zeile im Format der Quellverspätungen auf Aktivitäten,
+ *
+ *		activity-id; delay[; known-time]
+ *
+ *	wobei known-time der Zeitpunkt ist, zu dem die Verspätung bekannt wird
+ *	(ohne Angabe die fahrplanmäßige Zeit des Start-Events). Kommentare mit #
+ *	und Leerzeilen werden übersprungen, die Zeile "end" beendet den Strom.
+ *
+ *	Als Quelle dient entweder "stdin" (z.B. für einen lokalen Socket über
+ *	nc -l <port> | ...) oder eine Datei, an die während der Laufzeit Zeilen
+ *	angehängt werden. Am aktuellen Dateiende wird im Abstand von
+ *	pollInterval Millisekunden erneut gelesen, bis timeout Millisekunden
+ *	lang keine neue Zeile kam (timeout 0: ohne Begrenzung). Unvollständige
+ *	Zeilen ohne Zeilenumbruch werden erst gelesen, wenn sie vollständig sind.
+ */
+
+import java.io.*;
+
+
+public class DelayReportStream
+{
+	private final BufferedReader reader;
+	private final boolean follow;
+	private final int pollInterval;
+	private final int timeout;
+
+	private final StringBuilder line = new StringBuilder();
+	private boolean ended;
+
+
+	public DelayReportStream(String source, int pollInterval, int timeout) throws IOException {
+		if (source.equals("stdin")) {
+			reader = new BufferedReader(new InputStreamReader(System.in));
+			follow = false;
+		}
+		else {
+			reader = new BufferedReader(new FileReader(source));
+			follow = true;
+		}
+		this.pollInterval = pollInterval;
+		this.timeout = timeout;
+	}
+
+	/**
+	 *	Wartet auf die nächste Meldung und gibt sie als {activity-id, delay,
+	 *	known-time} zurück, known-time ist -1, falls nicht angegeben. Gibt
+	 *	null zurück, wenn der Strom beendet ist.
+	 */
+
+	public int[] next() throws Exception {
+		String s;
+		while ((s = readLine()) != null) {
+			int position = s.indexOf('#');
+			if (position != -1)
+				s = s.substring(0, position);
+			s = s.trim();
+			if (s.isEmpty())
+				continue;
+			if (s.equals("end")) {
+				ended = true;
+				return null;
+			}
+
+			String[] tokens = s.split(";");
+			if (tokens.length < 2 || tokens.length > 3)
+				throw new Exception("Ungültige Verspätungsmeldung: " + s);
+			int[] report = new int[3];
+			report[0] = Integer.parseInt(tokens[0].trim());
+			report[1] = Integer.parseInt(tokens[1].trim());
+			report[2] = tokens.length == 3 ? Integer.parseInt(tokens[2].trim()) : -1;
+			if (report[1] < 0)
+				throw new Exception("Fehler, negative Quellverspätung: " + s);
+			return report;
+		}
+		return null;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+
+
+	/**
+	 *	Liest die nächste vollständige Zeile. Am Dateiende wird bei einer
+	 *	Datei gewartet, bei stdin ist der Strom beendet.
+	 */
+
+	private String readLine() throws Exception {
+		if (ended)
+			return null;
+		long waited = 0;
+		while (true) {
+			int c = reader.read();
+			if (c == '\n') {
+				String s = line.toString();
+				line.setLength(0);
+				return s;
+			}
+			if (c != -1) {
+				line.append((char) c);
+				waited = 0;
+				continue;
+			}
+			if (!follow || (timeout > 0 && waited >= timeout)) {
+				ended = true;
+				if (line.length() == 0)
+					return null;
+				String s = line.toString();
+				line.setLength(0);
+				return s;
+			}
+			Thread.sleep(pollInterval);
+			waited += pollInterval;
+		}
+	}
+}
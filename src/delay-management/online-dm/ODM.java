@@ -20,6 +20,13 @@ public class ODM
 	public static String rwtAlgo;
 	public static String passengerAlgo;
 	public static String headwayAlgo;
+	public static String propagationAlgo;
+	private static String mode;
+	private static String streamFile;
+	private static String streamOutputFile;
+	private static int streamHorizon;
+	private static int streamPollInterval;
+	private static int streamTimeout;
 	public static int fixedRWT;
 	public static int slackRelevantEdges;
 	public static double criticalRate;
@@ -46,6 +53,22 @@ public class ODM
 		rwtAlgo = config.getStringValue("algo_RWT");
 		passengerAlgo = config.getStringValue("algo_Passenger");
 		headwayAlgo = config.getStringValue("algo_headway");
+		propagationAlgo = config.getStringValue("algo_propagation");
+
+		mode = config.getStringValue("ODM_mode");
+		if (mode.equals("stream")) {
+			streamFile = config.getStringValue("default_delay_stream_file");
+			streamOutputFile = config.getStringValue("default_disposition_stream_file");
+			streamHorizon = config.getIntegerValue("ODM_stream_horizon");
+			streamPollInterval = config.getIntegerValue("ODM_stream_poll_interval");
+			streamTimeout = config.getIntegerValue("ODM_stream_timeout");
+			if (streamHorizon < 0)
+				throw new Exception("ODM_stream_horizon darf nicht negativ sein");
+			if (streamPollInterval <= 0)
+				throw new Exception("ODM_stream_poll_interval muss positiv sein");
+		}
+		else if (!mode.equals("batch"))
+			throw new Exception("Kein zulässiger Modus für ODM: " + mode);
 
 		if (rwtAlgo.equals("RWT_fixed"))
 			fixedRWT = config.getIntegerValue("fixed_time");
@@ -62,13 +85,14 @@ public class ODM
 	 *	Liest das EAN mit Quellverspätungen und Fahrplan ein
 	 * 	Setzt die Headway-Aktivitäten gemäß dem Fahrplan
 	 * 	Ordnet Verspätungen chronologisch nach Zielzeit
+	 *	Im Modus stream kommen die Quellverspätungen erst aus dem Strom.
 	 */
 
 	
 	private static void readData() throws Exception {
 
 		// Lese EAN mit Fahrplan und Quellverspätungen ein und setze InitalDispo
-		ean = IO.readNonPeriodicEANetwork(true, false);
+		ean = IO.readNonPeriodicEANetwork(mode.equals("batch"), false);
 		for(NonPeriodicEvent e : ean.getEvents())
 			e.setDispoTime(e.getTime());
 
@@ -244,8 +268,13 @@ public class ODM
 
 		System.out.println("Passagierabhängige Strategie: " + passengerAlgo);
 		System.out.println("Strategie Headways: " + headwayAlgo);
+		System.out.println("Verbreitung der Verspätungen: " + propagationAlgo);
 
-		if(delaysKnownBefore)
+		if(mode.equals("stream")) {
+			System.out.println("Verspätungsmeldungen aus: " + streamFile);
+			System.out.println("Zeithorizont in Sekunden: " + streamHorizon);
+		}
+		else if(delaysKnownBefore)
 			System.out.println("Verspätungen sind zum Teil vorher bekannt");
 
 		
@@ -274,10 +303,37 @@ public class ODM
 
 		//*********************ALGORITHMUS**************************************
 
+		if (mode.equals("stream")) {
+			streamDelays();
+			ean.setZ();
+			ean.setG();
+			IO.outputDispoTimetable(ean, defaultDispoFile, dispoHeader);
+			return;
+		}
+
 		// Sortiere Verspätungen gemäß Zeitpunkt ihres Bekanntwerdens
 
 		orderDelays(delayedActivities);
 
+		if (propagationAlgo.equals("event_queue"))
+			propagateDelays();
+		else if (propagationAlgo.equals("recursive"))
+			spreadDelays();
+		else
+			throw new Exception("Kein zulässiger Algorithmus zur Verbreitung der Verspätungen");
+
+		ean.setZ();
+		ean.setG();
+		
+		IO.outputDispoTimetable(ean, defaultDispoFile, dispoHeader);
+	}
+
+	/**
+	 *	Verbreitet die Quellverspätungen nacheinander mit spreaddelay.
+	 */
+
+	private static void spreadDelays() throws Exception {
+
 		for (NonPeriodicActivity a : delayedActivities) {
 
 			NonPeriodicEvent target = a.getTarget();
@@ -295,10 +351,119 @@ public class ODM
 				event.setTime(event.getDispoTime());
 			}
 		}
+	}
 
-		ean.setZ();
-		ean.setG();
-		
-		IO.outputDispoTimetable(ean, defaultDispoFile, dispoHeader);
+	/**
+	 *	Verbreitet die Quellverspätungen nacheinander mit einem DelayPropagator,
+	 *	d.h. ohne Rekursion und ohne die Ausgaben für jede Entscheidung.
+	 */
+
+	private static void propagateDelays() throws Exception {
+
+		DelayPropagator propagator = new DelayPropagator(ean, false);
+
+		for (NonPeriodicActivity a : delayedActivities) {
+
+			NonPeriodicEvent target = a.getTarget();
+			NonPeriodicEvent source = a.getSource();
+
+			if (target.getTime() < source.getTime() + a.getLowerBound() + a.getSourceDelay()) {
+				propagator.delay(target, source.getTime() + a.getLowerBound() + a.getSourceDelay());
+				propagator.propagate();
+			}
+
+			// Überschreibe Fahrplan mit neuem Dispositionsfahrplan
+			propagator.commitTimetable();
+		}
+
+		System.out.println("Anschlüsse gehalten: " + propagator.getKeptConnections());
+		System.out.println("Anschlüsse nicht gehalten: " + propagator.getDroppedConnections());
+		System.out.println("Headways beibehalten: " + propagator.getKeptHeadways());
+		System.out.println("Headway-Wechsel: " + propagator.getSwitchedHeadways());
+	}
+
+	/**
+	 *	Online-Modus: Liest die Verspätungsmeldungen nacheinander aus dem
+	 *	Strom und verbreitet jede sofort mit einem DelayPropagator. Die
+	 *	aktuelle Zeit ist der späteste bisher gemeldete Bekanntwerdenszeitpunkt;
+	 *	verbreitet wird nur bis zum Ende des Zeithorizonts streamHorizon nach
+	 *	der aktuellen Zeit, spätere Events bleiben in der Warteschlange, bis der
+	 *	Horizont sie erreicht. So hängt der Aufwand je Meldung nur vom Horizont
+	 *	ab. Nach jeder Meldung werden die veränderten Dispositionszeiten an
+	 *	streamOutputFile angehängt.
+	 */
+
+	private static void streamDelays() throws Exception {
+
+		NonPeriodicActivity[] activityByID = new NonPeriodicActivity[ean.getActivities().size()+1];
+		for (NonPeriodicActivity a : ean.getActivities()) {
+			if (a.getID() >= activityByID.length)
+				activityByID = Arrays.copyOf(activityByID, a.getID()+1);
+			activityByID[a.getID()] = a;
+		}
+
+		DelayPropagator propagator = new DelayPropagator(ean, false);
+		DelayReportStream stream = new DelayReportStream(streamFile, streamPollInterval, streamTimeout);
+		PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(streamOutputFile)));
+		out.println("# " + dispoHeader);
+		out.flush();
+
+		ArrayList<NonPeriodicEvent> changed = new ArrayList<NonPeriodicEvent>();
+		int now = Integer.MIN_VALUE;
+		int reports = 0;
+		long totalLatency = 0;
+		long maxLatency = 0;
+
+		int[] report;
+		while ((report = stream.next()) != null) {
+			long start = System.nanoTime();
+
+			if (report[0] <= 0 || report[0] >= activityByID.length || activityByID[report[0]] == null)
+				throw new Exception("Verspätungsmeldung für unbekannte Aktivität " + report[0]);
+			NonPeriodicActivity a = activityByID[report[0]];
+			NonPeriodicEvent source = a.getSource();
+			int known = report[2] == -1 ? source.getTime() : report[2];
+			now = Math.max(now, known);
+
+			// Mehrere Meldungen für dieselbe Aktivität addieren sich
+			a.setSourceDelay(a.getSourceDelay() + report[1]);
+			a.setDelayKnownTime(known);
+
+			propagator.delay(a.getTarget(), source.getTime() + a.getLowerBound() + a.getSourceDelay());
+			propagator.propagate(now + streamHorizon);
+
+			changed.clear();
+			propagator.commitTimetable(changed);
+			out.println("# report " + (++reports) + ": activity " + report[0] + ", delay "
+					+ report[1] + ", known at " + known);
+			for (NonPeriodicEvent e : changed)
+				out.println(e.getID() + "; " + e.getDispoTime());
+			out.flush();
+
+			long latency = System.nanoTime() - start;
+			totalLatency += latency;
+			maxLatency = Math.max(maxLatency, latency);
+		}
+		stream.close();
+
+		// Am Ende des Stroms werden auch die Events hinter dem Horizont verbreitet
+
+		propagator.propagate();
+		changed.clear();
+		propagator.commitTimetable(changed);
+		out.println("# end of stream");
+		for (NonPeriodicEvent e : changed)
+			out.println(e.getID() + "; " + e.getDispoTime());
+		out.close();
+
+		System.out.println("Verspätungsmeldungen: " + reports);
+		if (reports > 0) {
+			System.out.println("Mittlere Bearbeitungszeit je Meldung in ms: " + totalLatency / reports / 1e6);
+			System.out.println("Maximale Bearbeitungszeit je Meldung in ms: " + maxLatency / 1e6);
+		}
+		System.out.println("Anschlüsse gehalten: " + propagator.getKeptConnections());
+		System.out.println("Anschlüsse nicht gehalten: " + propagator.getDroppedConnections());
+		System.out.println("Headways beibehalten: " + propagator.getKeptHeadways());
+		System.out.println("Headway-Wechsel: " + propagator.getSwitchedHeadways());
 	}
 }
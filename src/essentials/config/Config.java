@@ -56,6 +56,13 @@ public class Config {
                 String name = fragments[0].trim();
                 String value = fragments[1].trim();
 
+                // ignore a comment after the value (but not a "#" inside
+                // a quoted value), e.g., DM_threads; -1 # (-1 = no restriction)
+                int comment = value.indexOf('#', value.startsWith("\"") ? Math.max(1, value.indexOf('"', 1)) : 0);
+                if (comment != -1) {
+                    value = value.substring(0, comment).trim();
+                }
+
                 if (value.length() >= 2 && value.charAt(0) == '"'
                     && value.charAt(value.length() - 1) == '"') {
 
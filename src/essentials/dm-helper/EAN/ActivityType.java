@@ -0,0 +1,41 @@
+/**
+ * The types of activities in an event-activity network. Activities store
+ * their type as a string as in the input files; algorithms that look at the
+ * type of every activity over and over again should convert it once with
+ * {@link #fromString(String)} instead of comparing strings.
+ */
+public enum ActivityType
+{
+	DRIVE, WAIT, CHANGE, HEADWAY, TURN, FIXED_CIRCULATION, OTHER;
+
+
+
+	public static ActivityType fromString(String type)
+	{
+		switch (type)
+		{
+			case "drive":
+				return DRIVE;
+			case "wait":
+				return WAIT;
+			case "change":
+				return CHANGE;
+			case "headway":
+				return HEADWAY;
+			case "turn":
+				return TURN;
+			case "fixed-circulation":
+				return FIXED_CIRCULATION;
+			default:
+				return OTHER;
+		}
+	}
+
+
+
+	// driving and waiting activities are the activities of a trip
+	public boolean isTripActivity()
+	{
+		return this == DRIVE || this == WAIT;
+	}
+}
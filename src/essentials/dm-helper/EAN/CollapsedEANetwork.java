@@ -86,6 +86,27 @@ public class CollapsedEANetwork {
 		}
 	}
 	
+	/**
+	 * Computes which events of the collapsed EAN can be reached from which
+	 * other events. Query the result with Warshall.isReachable.
+	 * @param threads the number of threads to use, values smaller than 1
+	 * mean all available processors
+	 * @return the reachability matrix, indexed by the IDs of the events
+	 */
+	public long[][] computeReachabilityMatrix(int threads)
+			throws InterruptedException
+	{
+		int[][] successors = new int[this.events.length][];
+		for (int i = 0; i < this.events.length; i++)
+		{
+			CollapsedActivity[] outgoing = this.events[i].getOutgoingActivities();
+			successors[i] = new int[outgoing.length];
+			for (int k = 0; k < outgoing.length; k++)
+				successors[i][k] = outgoing[k].getTarget().getID();
+		}
+		return Reachability.computeTransitiveClosure(successors, threads);
+	}
+	
 	public CollapsedEvent[] getConnectionsFromDeparture(NonPeriodicEvent dep)
 	{
 		LinkedList<CollapsedEvent> list = new LinkedList<CollapsedEvent>();
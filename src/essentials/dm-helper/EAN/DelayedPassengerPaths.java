@@ -37,16 +37,13 @@ public class DelayedPassengerPaths {
 			e.setWeight(0.0);
 		// construct collapsed version
 		CollapsedEANetwork cean = new CollapsedEANetwork(Net);
+		// Read all relevant config parameters
+		Config config = new Config(new File("basis/Config.cnf"));
 		// construct reachability matrix (long integers, considered bitwise,
 		// for more efficient CPU computations than with individual booleans)
-		int n = cean.events.length;
-		long[][] m = new long[n][(n-1)/64 + 1];
-		for (int i = 0; i < n; i++)
-			for (CollapsedActivity a : cean.events[i].getOutgoingActivities())
-				Warshall.setReachable(m, i, a.getTarget().getID(), true);
 		System.out.println(new Date());
-		System.out.println("Calling Warshall to apply transitive closure...");
-		Warshall.applyTransitiveClosure(m);
+		System.out.println("Computing transitive closure...");
+		long[][] m = cean.computeReachabilityMatrix(config.getIntegerValue("DM_threads"));
 		System.out.println(new Date());
 		
 		// save (and re-use) references to events by station ID
@@ -59,8 +56,6 @@ public class DelayedPassengerPaths {
 		Hashtable<Integer, CollapsedEvent[]> connectionsToArrival =
 				new Hashtable<Integer, CollapsedEvent[]>();
 		
-		// Read all relevant config parameters
-		Config config = new Config(new File("basis/Config.cnf"));
 		int beginOfDay = config.getIntegerValue("DM_earliest_time");
 		String odFileName = config.getStringValue("default_od_file");
 		BufferedReader reader = new BufferedReader(new FileReader(odFileName));
@@ -18,6 +18,10 @@ public class NonPeriodicEANetwork
 	private LinkedHashSet<NonPeriodicChangingActivity> changingActivities;
 	private LinkedHashSet<NonPeriodicHeadwayActivity> headwayActivities;
 	private int period;
+	// built on demand, see getIndex()
+	private NonPeriodicEANetworkIndex index;
+	// incremented by every method that adds events or activities
+	private int modifications;
 
 
 
@@ -322,22 +326,14 @@ public class NonPeriodicEANetwork
 	{
 		if (a == null)
 			return null;
-		LinkedList<NonPeriodicActivity> list = a.getTarget().getOutgoingActivities();
-		list.retainAll(this.getDrivingActivities());
-		if (list.isEmpty())
-			return null;
-		else return list.getFirst();
+		return getFirstOutgoingActivity(a.getTarget(), this.getDrivingActivities(), DRIVING);
 	}
 
 	public NonPeriodicActivity getNextWaitingActivity(NonPeriodicActivity a)
 	{
 		if (a==null)
 			return null;
-		LinkedList<NonPeriodicActivity> list = a.getTarget().getOutgoingActivities();
-		list.retainAll(this.getWaitingActivities());
-		if (list.isEmpty())
-			return null;
-		else return list.getFirst();
+		return getFirstOutgoingActivity(a.getTarget(), this.getWaitingActivities(), WAITING);
 	}
 
 	public int getSlack(NonPeriodicActivity a)
@@ -349,10 +345,20 @@ public class NonPeriodicEANetwork
 
 	public LinkedList<NonPeriodicActivity> getOutgoingChangingActivities(NonPeriodicEvent e)
 	{
-		LinkedList<NonPeriodicActivity> list = e.getOutgoingActivities();
-		list.retainAll(this.getChangingActivities());
+		LinkedList<NonPeriodicActivity> list = new LinkedList<NonPeriodicActivity>();
+		NonPeriodicEANetworkIndex index = getIndex();
+		int p = index.getPosition(e);
+		if (p < 0)
+		{
+			for (NonPeriodicActivity a : e.getOutgoingActivities())
+				if (this.getChangingActivities().contains(a))
+					list.add(a);
+			return list;
+		}
+		for (int k = index.outStart[p]; k < index.outStart[p+1]; k++)
+			if (index.type[k] == ActivityType.CHANGE && this.getChangingActivities().contains(index.out[k]))
+				list.add(index.out[k]);
 		return list;
-
 	}
 
 
@@ -702,17 +708,14 @@ public class NonPeriodicEANetwork
 	/**
 	 * Returns all events of the desired type at a given station.
 	 * @param station the ID of the station
-	 * @param type the type of the event like "departure" or "arrival";
-	 * null for all
-	 * @return an array containing all matching events
+	 * @param arrival true for the arrival events, false for the departure
+	 * events
+	 * @return a new array containing all matching events, sorted by their
+	 * time in the original timetable and their ID
 	 */
 	public NonPeriodicEvent[] getEventsAtStation(int station, boolean arrival)
 	{
-		LinkedList<NonPeriodicEvent> list = new LinkedList<NonPeriodicEvent>();
-		for (NonPeriodicEvent e : this.events)
-			if ((e.getStation() == station) && (e.isArrivalEvent() == arrival))
-				list.add(e);
-		return list.toArray(new NonPeriodicEvent[0]);
+		return getIndex().getEventsAtStation(station, arrival);
 	}
 
 
@@ -750,6 +753,87 @@ public class NonPeriodicEANetwork
 	public LinkedList<NonPeriodicHeadwayActivity> getHeadwaysOnTrip(NonPeriodicEvent source,
 			NonPeriodicEvent destination){
 		LinkedList<NonPeriodicHeadwayActivity> headways = new LinkedList<NonPeriodicHeadwayActivity>();
+		NonPeriodicEANetworkIndex index = getIndex();
+		while (source != null)
+		{
+			int p = index.getPosition(source);
+			if (p < 0)
+				return getHeadwaysOnTrip(source, destination, headways);
+			for (int k = index.outStart[p]; k < index.outStart[p+1]; k++){
+				if (index.out[k].getTarget() == destination){
+					return headways;
+				}
+				if (index.type[k] == ActivityType.HEADWAY){
+					headways.add((NonPeriodicHeadwayActivity) index.out[k]);
+				}
+			}
+			if (index.tripSuccessor[p] >= 0)
+			{
+				source = index.out[index.tripSuccessor[p]].getTarget();
+			}
+			else
+				source = null;
+		}
+		return headways;
+	}
+
+
+
+	/**
+	 * Returns the array based index of this network, which is built on
+	 * the first call and rebuilt if activities have been added since.
+	 * Events whose outgoing activities have been changed in the meantime
+	 * are not found in the index, see NonPeriodicEANetworkIndex.
+	 */
+	NonPeriodicEANetworkIndex getIndex()
+	{
+		if (index == null || index.modifications != modifications)
+		{
+			index = new NonPeriodicEANetworkIndex(events, modifications);
+		}
+		return index;
+	}
+
+
+
+
+	/***************************
+	 * internal helper methods *
+	 ***************************/
+
+	// the types of activities that can be contained in the sets
+	// drivingActivities and waitingActivities
+	private static final EnumSet<ActivityType> DRIVING = EnumSet.of(ActivityType.DRIVE);
+	private static final EnumSet<ActivityType> WAITING = EnumSet.of(ActivityType.WAIT, ActivityType.TURN);
+
+
+
+	// the first outgoing activity of e contained in the given set, which
+	// contains only activities of the given types
+	private NonPeriodicActivity getFirstOutgoingActivity(NonPeriodicEvent e,
+			Set<? extends NonPeriodicActivity> set, EnumSet<ActivityType> types)
+	{
+		NonPeriodicEANetworkIndex index = getIndex();
+		int p = index.getPosition(e);
+		if (p < 0)
+		{
+			for (NonPeriodicActivity a : e.getOutgoingActivities())
+				if (set.contains(a))
+					return a;
+			return null;
+		}
+		for (int k = index.outStart[p]; k < index.outStart[p+1]; k++)
+			if (types.contains(index.type[k]) && set.contains(index.out[k]))
+				return index.out[k];
+		return null;
+	}
+
+
+
+	// getHeadwaysOnTrip for events that are not contained in the index
+	private static LinkedList<NonPeriodicHeadwayActivity> getHeadwaysOnTrip(NonPeriodicEvent source,
+			NonPeriodicEvent destination, LinkedList<NonPeriodicHeadwayActivity> headways)
+	{
 		while (source != null)
 		{
 			NonPeriodicActivity next = null;
@@ -777,11 +861,6 @@ public class NonPeriodicEANetwork
 
 
 
-
-	/***************************
-	 * internal helper methods *
-	 ***************************/
-
 	private void addActivity(NonPeriodicActivity a) throws Exception
 	{
 		NonPeriodicEvent source = a.getSource();
@@ -800,6 +879,7 @@ public class NonPeriodicEANetwork
 		activities.add(a);
 		events.add(source);
 		events.add(target);
+		modifications++;
 	}
 
 
@@ -829,5 +909,6 @@ public class NonPeriodicEANetwork
 
 		activities.addAll(ActivitiesToAdd);
 		events.addAll(eventsToAdd);
+		modifications++;
 	}
 }
@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * An array based index of the structure of a NonPeriodicEANetwork, used by
+ * the network to answer the lookups of the DM algorithms (next driving or
+ * waiting activity, outgoing changes, headways on a trip, events at a
+ * station) without scanning all events or comparing type strings.
+ *
+ * Events are indexed by their position in NonPeriodicEANetwork.getEvents().
+ * The outgoing activities of the event at position p are stored in the
+ * order of NonPeriodicEvent.getOutgoingActivities() in
+ * out[outStart[p]], ..., out[outStart[p+1]-1], their types in type[].
+ *
+ * The index is a snapshot: NonPeriodicEANetwork rebuilds it if activities
+ * are added to the network. If the list of outgoing activities of an event
+ * has been changed since the index was built, getPosition() does not find
+ * the event any more, so the network answers the lookup from the list
+ * itself.
+ */
+class NonPeriodicEANetworkIndex
+{
+	// the modification count of the network when the index was built
+	final int modifications;
+
+	// events by position and positions by event ID, -1 for unknown IDs
+	final NonPeriodicEvent[] events;
+	private final int[] positionByID;
+
+	// the lists of outgoing activities and their modification counts when
+	// the index was built
+	private final LinkedList<?>[] outgoingLists;
+	private final int[] outgoingModifications;
+
+	// outgoing activities in CSR format
+	final int[] outStart;
+	final NonPeriodicActivity[] out;
+	final ActivityType[] type;
+
+	// the successor of an event on its trip: the index in out[] of the last
+	// outgoing driving or waiting activity (as in getPathOnTrip), -1 if
+	// there is none
+	final int[] tripSuccessor;
+
+	// events at station stations[k], sorted by time and ID:
+	// arrivals[arrivalStart[k]], ..., arrivals[arrivalStart[k+1]-1],
+	// departures accordingly
+	private final int[] stations;
+	private final int[] arrivalStart;
+	private final NonPeriodicEvent[] arrivals;
+	private final int[] departureStart;
+	private final NonPeriodicEvent[] departures;
+
+
+
+	NonPeriodicEANetworkIndex(Collection<NonPeriodicEvent> eventSet, int modifications)
+	{
+		this.modifications = modifications;
+		int n = eventSet.size();
+
+		events = eventSet.toArray(new NonPeriodicEvent[0]);
+		int maxID = 0;
+		for (NonPeriodicEvent e : events)
+			maxID = Math.max(maxID, e.getID());
+		positionByID = new int[maxID + 1];
+		Arrays.fill(positionByID, -1);
+		for (int p = 0; p < n; p++)
+			positionByID[events[p].getID()] = p;
+
+		outgoingLists = new LinkedList<?>[n];
+		outgoingModifications = new int[n];
+		outStart = new int[n + 1];
+		for (int p = 0; p < n; p++)
+		{
+			outgoingLists[p] = events[p].getOutgoingActivities();
+			outgoingModifications[p] = events[p].getOutgoingModificationCount();
+			outStart[p + 1] = outStart[p] + events[p].getOutgoingActivities().size();
+		}
+		out = new NonPeriodicActivity[outStart[n]];
+		type = new ActivityType[outStart[n]];
+		tripSuccessor = new int[n];
+		for (int p = 0; p < n; p++)
+		{
+			tripSuccessor[p] = -1;
+			int k = outStart[p];
+			for (NonPeriodicActivity a : events[p].getOutgoingActivities())
+			{
+				out[k] = a;
+				type[k] = ActivityType.fromString(a.getType());
+				if (type[k].isTripActivity())
+					tripSuccessor[p] = k;
+				k++;
+			}
+		}
+
+		NonPeriodicEvent[] sorted = events.clone();
+		Arrays.sort(sorted, new Comparator<NonPeriodicEvent>()
+		{
+			@Override
+			public int compare(NonPeriodicEvent e1, NonPeriodicEvent e2)
+			{
+				if (e1.getTime() != e2.getTime())
+					return Integer.compare(e1.getTime(), e2.getTime());
+				return Integer.compare(e1.getID(), e2.getID());
+			}
+		});
+		int[] station = new int[n];
+		for (int p = 0; p < n; p++)
+			station[p] = events[p].getStation();
+		stations = Arrays.stream(station).distinct().sorted().toArray();
+		arrivalStart = new int[stations.length + 1];
+		departureStart = new int[stations.length + 1];
+		for (NonPeriodicEvent e : sorted)
+		{
+			int k = Arrays.binarySearch(stations, e.getStation());
+			if (e.isArrivalEvent())
+				arrivalStart[k + 1]++;
+			else
+				departureStart[k + 1]++;
+		}
+		for (int k = 0; k < stations.length; k++)
+		{
+			arrivalStart[k + 1] += arrivalStart[k];
+			departureStart[k + 1] += departureStart[k];
+		}
+		arrivals = new NonPeriodicEvent[arrivalStart[stations.length]];
+		departures = new NonPeriodicEvent[departureStart[stations.length]];
+		int[] arrivalFill = Arrays.copyOf(arrivalStart, stations.length);
+		int[] departureFill = Arrays.copyOf(departureStart, stations.length);
+		for (NonPeriodicEvent e : sorted)
+		{
+			int k = Arrays.binarySearch(stations, e.getStation());
+			if (e.isArrivalEvent())
+				arrivals[arrivalFill[k]++] = e;
+			else
+				departures[departureFill[k]++] = e;
+		}
+	}
+
+
+
+	// the position of e, -1 if e is not an event of the indexed network or
+	// if its outgoing activities have been changed since
+	int getPosition(NonPeriodicEvent e)
+	{
+		int ID = e.getID();
+		if (ID < 0 || ID >= positionByID.length)
+			return -1;
+		int p = positionByID[ID];
+		if (p < 0 || events[p] != e)
+			return -1;
+		if (   outgoingModifications[p] == -1
+		    || e.getOutgoingActivities() != outgoingLists[p]
+		    || e.getOutgoingModificationCount() != outgoingModifications[p])
+			return -1;
+		return p;
+	}
+
+
+
+	// a new array containing the arrival or departure events at the given
+	// station, sorted by time and ID
+	NonPeriodicEvent[] getEventsAtStation(int station, boolean arrival)
+	{
+		int k = Arrays.binarySearch(stations, station);
+		if (k < 0)
+			return new NonPeriodicEvent[0];
+		if (arrival)
+			return Arrays.copyOfRange(arrivals, arrivalStart[k], arrivalStart[k + 1]);
+		return Arrays.copyOfRange(departures, departureStart[k], departureStart[k + 1]);
+	}
+}
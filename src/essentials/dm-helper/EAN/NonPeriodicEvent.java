@@ -27,7 +27,7 @@ public class NonPeriodicEvent extends Event implements Comparable<NonPeriodicEve
 		this.time = time;
 		this.sourceDelay = 0;
 		this.dispoTime = -1;
-		this.outgoingActivities = new LinkedList<NonPeriodicActivity>();
+		this.outgoingActivities = new ActivityList();
 		this.incomingActivities = new LinkedList<NonPeriodicActivity>();
 	}
 
@@ -39,7 +39,7 @@ public class NonPeriodicEvent extends Event implements Comparable<NonPeriodicEve
 		this.time = time;
 		this.sourceDelay = 0;
 		this.dispoTime = -1;
-		this.outgoingActivities = new LinkedList<NonPeriodicActivity>();
+		this.outgoingActivities = new ActivityList();
 		this.incomingActivities = new LinkedList<NonPeriodicActivity>();
 	}
 	
@@ -52,7 +52,7 @@ public class NonPeriodicEvent extends Event implements Comparable<NonPeriodicEve
 		this.time = time;
 		this.sourceDelay = 0;
 		this.dispoTime = -1;
-		this.outgoingActivities = new LinkedList<NonPeriodicActivity>();
+		this.outgoingActivities = new ActivityList();
 		this.incomingActivities = new LinkedList<NonPeriodicActivity>();
 	}
 
@@ -64,7 +64,7 @@ public class NonPeriodicEvent extends Event implements Comparable<NonPeriodicEve
 		this.time = time;
 		this.sourceDelay = 0;
 		this.dispoTime = -1;
-		this.outgoingActivities = new LinkedList<NonPeriodicActivity>();
+		this.outgoingActivities = new ActivityList();
 		this.incomingActivities = new LinkedList<NonPeriodicActivity>();
 	}
 
@@ -142,6 +142,16 @@ public class NonPeriodicEvent extends Event implements Comparable<NonPeriodicEve
 		outgoingActivities.remove(a);
 	}
 
+	// the number of structural changes of the list of outgoing activities,
+	// used by NonPeriodicEANetworkIndex to detect outdated entries; -1 if
+	// the list has been replaced by one that does not count its changes
+	int getOutgoingModificationCount()
+	{
+		if (outgoingActivities instanceof ActivityList)
+			return ((ActivityList) outgoingActivities).getModificationCount();
+		return -1;
+	}
+
 
 
 	public LinkedList<NonPeriodicActivity> getIncomingActivities()
@@ -228,6 +238,21 @@ public class NonPeriodicEvent extends Event implements Comparable<NonPeriodicEve
 			return ((NonPeriodicEvent) otherEvent).getID() == this.getID();
 		return false;
 	}
+
+
+
+	// a list of activities that counts its structural changes, i.e., all
+	// insertions and removals, also those applied to the list returned by
+	// getOutgoingActivities() directly
+	private static class ActivityList extends LinkedList<NonPeriodicActivity>
+	{
+		private static final long serialVersionUID = 1L;
+
+		int getModificationCount()
+		{
+			return modCount;
+		}
+	}
 	
 	
 }
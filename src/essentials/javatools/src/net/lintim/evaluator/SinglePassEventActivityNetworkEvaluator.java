@@ -0,0 +1,463 @@
+package net.lintim.evaluator;
+
+import net.lintim.exception.DataInconsistentException;
+import net.lintim.model.Activity;
+import net.lintim.model.Activity.ActivityType;
+import net.lintim.model.Event.EventType;
+import net.lintim.model.EventActivityNetwork;
+import net.lintim.util.MathHelper;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * Computes the properties of {@link EventActivityNetworkEvaluator} and
+ * {@link PeriodicTimetableEvaluator} that are used by the evaluation programs
+ * in a single pass over the activities. The activities are copied to
+ * primitive arrays once, which are then evaluated in chunks, optionally in
+ * parallel. The chunks are always combined in the same order, i.e., the
+ * results do not depend on the number of threads.
+ *
+ * {@link #evaluate()} has to be called before any of the getters.
+ */
+public class SinglePassEventActivityNetworkEvaluator {
+
+    protected static final int CHUNK_SIZE = 8192;
+
+    protected EventActivityNetwork ean;
+    protected Integer threads = 1;
+
+    protected int numberOfActivities;
+    protected ActivityType[] types;
+    protected double[] passengers;
+    protected double[] lowerBounds;
+    protected double[] upperBounds;
+    protected double[] durations;
+    protected double[] initialDurationAssumptions;
+    protected boolean[] betweenDepartures;
+    protected boolean[] betweenStations;
+    protected boolean timetableGiven;
+    protected double periodLength;
+
+    protected Totals totals = null;
+
+    /**
+     * The results of one chunk of activities, or of several chunks after
+     * {@link #add(Totals)}.
+     */
+    protected static class Totals {
+        int usedActivities = 0;
+        int objectiveActivities = 0;
+        int feasibilityActivities = 0;
+        int usedChangeActivities = 0;
+        int usedDriveActivities = 0;
+        int usedWaitActivities = 0;
+        boolean headwaysBetweenDeparturesOnly = true;
+        boolean interstationHeadwaysExist = false;
+        double initialTravelingTime = 0.0;
+        double initialPassengers = 0.0;
+        double initialMinimalUsedChangeDuration = Double.MAX_VALUE;
+        double initialMaximalUsedChangeDuration = Double.MIN_VALUE;
+        double travelingTime = 0.0;
+        double driveTime = 0.0;
+        double waitTime = 0.0;
+        double changeTime = 0.0;
+        double weightedSlackTime = 0.0;
+        double minimalUsedChangeDuration = Double.MAX_VALUE;
+        double maximalUsedChangeDuration = Double.MIN_VALUE;
+
+        void add(Totals other){
+            usedActivities += other.usedActivities;
+            objectiveActivities += other.objectiveActivities;
+            feasibilityActivities += other.feasibilityActivities;
+            usedChangeActivities += other.usedChangeActivities;
+            usedDriveActivities += other.usedDriveActivities;
+            usedWaitActivities += other.usedWaitActivities;
+            headwaysBetweenDeparturesOnly &=
+                other.headwaysBetweenDeparturesOnly;
+            interstationHeadwaysExist |= other.interstationHeadwaysExist;
+            initialTravelingTime += other.initialTravelingTime;
+            initialPassengers += other.initialPassengers;
+            initialMinimalUsedChangeDuration = Math.min(
+                    initialMinimalUsedChangeDuration,
+                    other.initialMinimalUsedChangeDuration);
+            initialMaximalUsedChangeDuration = Math.max(
+                    initialMaximalUsedChangeDuration,
+                    other.initialMaximalUsedChangeDuration);
+            travelingTime += other.travelingTime;
+            driveTime += other.driveTime;
+            waitTime += other.waitTime;
+            changeTime += other.changeTime;
+            weightedSlackTime += other.weightedSlackTime;
+            minimalUsedChangeDuration = Math.min(minimalUsedChangeDuration,
+                    other.minimalUsedChangeDuration);
+            maximalUsedChangeDuration = Math.max(maximalUsedChangeDuration,
+                    other.maximalUsedChangeDuration);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ean The event activity network to evaluate.
+     */
+    public SinglePassEventActivityNetworkEvaluator(EventActivityNetwork ean){
+        this.ean = ean;
+    }
+
+    /**
+     * Copies the activities to arrays and computes all properties.
+     *
+     * @throws DataInconsistentException If the parallel evaluation is
+     * interrupted.
+     */
+    public void evaluate() throws DataInconsistentException {
+        copyActivities();
+
+        int numberOfChunks = (numberOfActivities + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final Totals[] chunkTotals = new Totals[numberOfChunks];
+        int numberOfWorkers = Math.min(numberOfChunks, getNumberOfThreads());
+
+        if (numberOfWorkers <= 1) {
+            for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+                chunkTotals[chunk] = evaluateChunk(chunk);
+            }
+        } else {
+            ExecutorService executor =
+                Executors.newFixedThreadPool(numberOfWorkers);
+            ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+            for (int worker = 0; worker < numberOfWorkers; worker++) {
+                final int firstChunk = worker;
+                final int stride = numberOfWorkers;
+                tasks.add(() -> {
+                    for (int chunk = firstChunk; chunk < chunkTotals.length;
+                            chunk += stride) {
+                        chunkTotals[chunk] = evaluateChunk(chunk);
+                    }
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                throw new DataInconsistentException("parallel evaluation "
+                        + "interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("parallel evaluation failed",
+                        e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        totals = new Totals();
+        for (Totals chunk : chunkTotals) {
+            totals.add(chunk);
+        }
+    }
+
+    protected void copyActivities(){
+        numberOfActivities = ean.getActivities().size();
+        types = new ActivityType[numberOfActivities];
+        passengers = new double[numberOfActivities];
+        lowerBounds = new double[numberOfActivities];
+        upperBounds = new double[numberOfActivities];
+        durations = new double[numberOfActivities];
+        initialDurationAssumptions = new double[numberOfActivities];
+        betweenDepartures = new boolean[numberOfActivities];
+        betweenStations = new boolean[numberOfActivities];
+        timetableGiven = true;
+        periodLength = ean.isPeriodic() ?
+            Math.round(ean.getPeriodLength()) : Double.NaN;
+
+        int i = 0;
+        for (Activity a : ean.getActivities()) {
+            types[i] = a.getType();
+            passengers[i] = a.getPassengers();
+            lowerBounds[i] = a.getLowerBound();
+            upperBounds[i] = a.getUpperBound();
+            if (a.getDuration() == null) {
+                timetableGiven = false;
+            } else {
+                durations[i] = a.getDuration();
+            }
+            // NaN marks a missing initial duration assumption
+            initialDurationAssumptions[i] =
+                a.getInitialDurationAssumption() == null ? Double.NaN :
+                    a.getInitialDurationAssumption();
+            if (types[i] == ActivityType.HEADWAY) {
+                betweenDepartures[i] =
+                    a.getFromEvent().getType() == EventType.DEPARTURE &&
+                    a.getToEvent().getType() == EventType.DEPARTURE;
+                betweenStations[i] = a.getFromEvent().getStation() !=
+                    a.getToEvent().getStation();
+            }
+            i++;
+        }
+    }
+
+    protected Totals evaluateChunk(int chunk){
+        Totals t = new Totals();
+        int end = Math.min(numberOfActivities, (chunk + 1) * CHUNK_SIZE);
+
+        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+            ActivityType type = types[i];
+            double p = passengers[i];
+            boolean used = Math.abs(p) > MathHelper.epsilon;
+            boolean feasibility =
+                Math.round(upperBounds[i] - lowerBounds[i] + 1) < periodLength;
+
+            if (used) {
+                t.usedActivities++;
+            }
+            if (used || feasibility) {
+                t.objectiveActivities++;
+            }
+            if (feasibility) {
+                t.feasibilityActivities++;
+            }
+
+            double initialDuration = initialDurationAssumptions[i];
+            if (!Double.isNaN(initialDuration)) {
+                t.initialPassengers += p;
+                t.initialTravelingTime += initialDuration * p;
+            }
+
+            double duration = durations[i];
+            if (timetableGiven) {
+                t.travelingTime += duration * p;
+                t.weightedSlackTime += (duration - lowerBounds[i]) * p;
+            }
+
+            switch (type) {
+            case DRIVE:
+                if (used) {
+                    t.usedDriveActivities++;
+                }
+                t.driveTime += duration * p;
+                break;
+            case WAIT:
+                if (used) {
+                    t.usedWaitActivities++;
+                }
+                t.waitTime += duration * p;
+                break;
+            case CHANGE:
+                t.changeTime += duration * p;
+                if (used) {
+                    t.usedChangeActivities++;
+                    double initialChangeDuration =
+                        Double.isNaN(initialDuration) ? lowerBounds[i] :
+                            initialDuration;
+                    t.initialMinimalUsedChangeDuration = Math.min(
+                            initialChangeDuration,
+                            t.initialMinimalUsedChangeDuration);
+                    t.initialMaximalUsedChangeDuration = Math.max(
+                            initialChangeDuration,
+                            t.initialMaximalUsedChangeDuration);
+                    t.minimalUsedChangeDuration = Math.min(duration,
+                            t.minimalUsedChangeDuration);
+                    t.maximalUsedChangeDuration = Math.max(duration,
+                            t.maximalUsedChangeDuration);
+                }
+                break;
+            case HEADWAY:
+                if (!betweenDepartures[i]) {
+                    t.headwaysBetweenDeparturesOnly = false;
+                }
+                if (betweenStations[i]) {
+                    t.interstationHeadwaysExist = true;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        return t;
+    }
+
+    protected int getNumberOfThreads() {
+        return threads == null || threads < 1 ?
+            Runtime.getRuntime().availableProcessors() : threads;
+    }
+
+    protected void ensurePeriodic() throws DataInconsistentException {
+        if (!ean.isPeriodic()) {
+            throw new DataInconsistentException("event activity network " +
+                    "needs to be periodic to compute the number of " +
+                    "model necessary activities");
+        }
+    }
+
+    protected void ensureTimetableGiven() throws DataInconsistentException {
+        if (!timetableGiven) {
+            throw new DataInconsistentException("timetable evaluation "
+                    + "requested but no timetable available");
+        }
+    }
+
+    // =========================================================================
+    // === Setters =============================================================
+    // =========================================================================
+    /**
+     * Sets the number of threads for {@link #evaluate()}. Values smaller than
+     * 1 use all available processors.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    // =========================================================================
+    // === Getters =============================================================
+    // =========================================================================
+    public Integer getThreads() {
+        return threads;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#numberOfUsedActivites(EventActivityNetwork)}.
+     */
+    public Integer getNumberOfUsedActivities() {
+        return totals.usedActivities;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#numberOfObjectiveActivities(EventActivityNetwork)}.
+     */
+    public Integer getNumberOfObjectiveActivities()
+    throws DataInconsistentException {
+        ensurePeriodic();
+        return totals.objectiveActivities;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#numberOfFeasibilityActivities(EventActivityNetwork)}.
+     */
+    public Integer getNumberOfFeasibilityActivities()
+    throws DataInconsistentException {
+        ensurePeriodic();
+        return totals.feasibilityActivities;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#numberOfUsedChangeActivites(EventActivityNetwork)}.
+     */
+    public Integer getNumberOfUsedChangeActivities() {
+        return totals.usedChangeActivities;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#numberOfUsedDriveActivites(EventActivityNetwork)}.
+     */
+    public Integer getNumberOfUsedDriveActivities() {
+        return totals.usedDriveActivities;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#numberOfUsedWaitActivites(EventActivityNetwork)}.
+     */
+    public Integer getNumberOfUsedWaitActivities() {
+        return totals.usedWaitActivities;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#headwaysBetweenDeparturesOnly(EventActivityNetwork)}.
+     */
+    public Boolean getHeadwaysBetweenDeparturesOnly() {
+        return totals.headwaysBetweenDeparturesOnly;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#interstationHeadwaysExist(EventActivityNetwork)}.
+     */
+    public Boolean getInterstationHeadwaysExist() {
+        return totals.interstationHeadwaysExist;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#initialAverageTravelingTime(EventActivityNetwork)}.
+     */
+    public Double getInitialAverageTravelingTime() {
+        return totals.initialTravelingTime / totals.initialPassengers;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#initialMinimalUsedChangeDuration(EventActivityNetwork)}.
+     */
+    public Double getInitialMinimalUsedChangeDuration() {
+        return totals.initialMinimalUsedChangeDuration;
+    }
+
+    /**
+     * See {@link EventActivityNetworkEvaluator#initialMaximalUsedChangeDuration(EventActivityNetwork)}.
+     */
+    public Double getInitialMaximalUsedChangeDuration() {
+        return totals.initialMaximalUsedChangeDuration;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#averageTravelingTime(EventActivityNetwork)}.
+     */
+    public Double getAverageTravelingTime() throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.travelingTime;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#averageDriveTime(EventActivityNetwork)}.
+     */
+    public Double getAverageDriveTime() throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.driveTime;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#averageWaitTime(EventActivityNetwork)}.
+     */
+    public Double getAverageWaitTime() throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.waitTime;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#averageChangeTime(EventActivityNetwork)}.
+     */
+    public Double getAverageChangeTime() throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.changeTime;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#weightedSlackTime(EventActivityNetwork)}.
+     */
+    public Double getWeightedSlackTime() throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.weightedSlackTime;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#minimalUsedChangeDuration(EventActivityNetwork)}.
+     */
+    public Double getMinimalUsedChangeDuration()
+    throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.minimalUsedChangeDuration;
+    }
+
+    /**
+     * See {@link PeriodicTimetableEvaluator#maximalUsedChangeDuration(EventActivityNetwork)}.
+     */
+    public Double getMaximalUsedChangeDuration()
+    throws DataInconsistentException {
+        ensureTimetableGiven();
+        return totals.maximalUsedChangeDuration;
+    }
+
+}
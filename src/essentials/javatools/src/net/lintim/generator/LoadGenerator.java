@@ -7,8 +7,10 @@ import net.lintim.model.*;
 import net.lintim.util.IterationProgressCounter;
 import net.lintim.util.NullIterationProgressCounter;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.concurrent.*;
 
 /**
  * Computes the public transportation network edge load from either a passenger
@@ -35,6 +37,13 @@ public class LoadGenerator {
     private Double upperFrequencyFactor;
     private Boolean fixUpperFrequency;
     private Integer fixedUpperFrequency;
+    private Integer threads = 1;
+
+    /**
+     * Number of origins every worker routes before the loads are added to the
+     * links in the order of the origins.
+     */
+    private static final int ORIGINS_PER_WORKER_AND_BLOCK = 8;
 
     private IterationProgressCounter iterationProgressCounter =
         new NullIterationProgressCounter();
@@ -112,6 +121,7 @@ public class LoadGenerator {
                 config.getDoubleValue("load_generator_upper_frequency_factor"),
                 config.getBooleanValue("load_generator_fix_upper_frequency"),
                 config.getIntegerValue("load_generator_fixed_upper_frequency"));
+        setThreads(config.getIntegerValue("load_generator_threads"));
 
     }
 
@@ -168,48 +178,77 @@ public class LoadGenerator {
             iterationProgressCounter.setTotalNumberOfIterations(
                     ptn.getStations().size());
 
-            for (Station source : stations) {
-                iterationProgressCounter.reportIteration();
+            ArrayList<Station> origins = new ArrayList<Station>(stations);
+            int numberOfWorkers = Math.min(origins.size(),
+                    getNumberOfThreads());
 
-                try {
-                    sp.compute(source);
-                } catch (GraphMalformedException e) {
-                    throw new DataInconsistentException("shortest paths" +
-                            "calculation failed: " + e.getMessage());
+            if (numberOfWorkers <= 1) {
+                for (Station source : origins) {
+                    iterationProgressCounter.reportIteration();
+                    addOriginLoad(routeOrigin(sp, source, origins));
+                }
+            } else {
+                ArrayList<ShortestPathsGraph<Station, Link>> workspaces =
+                    new ArrayList<ShortestPathsGraph<Station, Link>>();
+                workspaces.add(sp);
+                for (int worker = 1; worker < numberOfWorkers; worker++) {
+                    workspaces.add(new ShortestPathsGraph<Station, Link>(sp));
                 }
 
-                for (Station target : stations) {
-                    if (source == target) {
-                        continue;
-                    }
-
-                    Double passengers = od.get(source, target);
-
-                    LinkedList<Link> path = sp.trackPath(target);
-
-                    if (path.size() == 0) {
-                        throw new DataInconsistentException("there is no "
-                                + "path from station " + source.getIndex()
-                                + " to " + target.getIndex());
-                    }
+                ExecutorService executor =
+                    Executors.newFixedThreadPool(numberOfWorkers);
+                int blockSize = numberOfWorkers * ORIGINS_PER_WORKER_AND_BLOCK;
 
-                    LinkedHashSet<Link> linkPath = rememberOdPaths ?
-                            new LinkedHashSet<Link>() : null;
+                try {
+                    for (int blockStart = 0; blockStart < origins.size();
+                            blockStart += blockSize) {
+
+                        // Every worker routes a strided part of the block into
+                        // its own results, which are added in the order of the
+                        // origins afterwards.
+                        final int firstOrigin = blockStart;
+                        final OriginLoad[] loads = new OriginLoad[
+                            Math.min(blockSize, origins.size() - blockStart)];
+                        ArrayList<Callable<Void>> tasks =
+                            new ArrayList<Callable<Void>>();
+
+                        for (int worker = 0; worker < numberOfWorkers;
+                                worker++) {
+                            final int firstIndex = worker;
+                            final int stride = numberOfWorkers;
+                            final ShortestPathsGraph<Station, Link> workspace =
+                                workspaces.get(worker);
+                            tasks.add(() -> {
+                                for (int index = firstIndex;
+                                        index < loads.length; index += stride) {
+                                    loads[index] = routeOrigin(workspace,
+                                            origins.get(firstOrigin + index),
+                                            origins);
+                                }
+                                return null;
+                            });
+                        }
 
-                    for (Link link : path) {
-                        link.setLoad(link.getLoad() + passengers);
-                        if(rememberOdPaths){
-                            linkPath.add(link);
+                        for (Future<Void> future : executor.invokeAll(tasks)) {
+                            future.get();
                         }
-                    }
 
-                    if(rememberOdPaths){
-                        ptn.addOriginDestinationPath(source, target, linkPath);
+                        for (OriginLoad load : loads) {
+                            iterationProgressCounter.reportIteration();
+                            addOriginLoad(load);
+                        }
                     }
-
+                } catch (InterruptedException e) {
+                    throw new DataInconsistentException("parallel shortest "
+                            + "paths calculation interrupted");
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("parallel shortest paths "
+                            + "calculation failed", e.getCause());
+                } finally {
+                    executor.shutdown();
                 }
-
             }
+
             if(rememberOdPaths){
                 ptn.completeOriginDestinationPathMap();
             }
@@ -254,6 +293,110 @@ public class LoadGenerator {
 
     }
 
+    /**
+     * The load caused by the passengers of one origin station, computed by
+     * {@link #routeOrigin(ShortestPathsGraph, Station, ArrayList)} and added
+     * to the links by {@link #addOriginLoad(OriginLoad)}.
+     */
+    private class OriginLoad {
+        Station source;
+        ArrayList<Station> targets = new ArrayList<Station>();
+        ArrayList<Double> passengers = new ArrayList<Double>();
+        ArrayList<LinkedList<Link>> paths = new ArrayList<LinkedList<Link>>();
+        DataInconsistentException error = null;
+    }
+
+    /**
+     * Computes the shortest paths from the given origin to all stations. Does
+     * not change the public transportation network, i.e., may be called in
+     * parallel with different shortest paths graphs.
+     *
+     * @param sp The shortest paths graph to use.
+     * @param source The origin station.
+     * @param stations All stations.
+     * @return The passengers of the origin on their shortest paths.
+     */
+    private OriginLoad routeOrigin(ShortestPathsGraph<Station, Link> sp,
+            Station source, ArrayList<Station> stations) {
+
+        OriginLoad load = new OriginLoad();
+        load.source = source;
+
+        try {
+            sp.compute(source);
+        } catch (GraphMalformedException e) {
+            load.error = new DataInconsistentException("shortest paths" +
+                    "calculation failed: " + e.getMessage());
+            return load;
+        }
+
+        for (Station target : stations) {
+            if (source == target) {
+                continue;
+            }
+
+            LinkedList<Link> path = sp.trackPath(target);
+
+            if (path.size() == 0) {
+                load.error = new DataInconsistentException("there is no "
+                        + "path from station " + source.getIndex()
+                        + " to " + target.getIndex());
+                return load;
+            }
+
+            load.targets.add(target);
+            load.passengers.add(od.get(source, target));
+            load.paths.add(path);
+        }
+
+        return load;
+    }
+
+    /**
+     * Adds the load caused by the passengers of one origin to the links and
+     * remembers their paths, if requested.
+     *
+     * @param load The passengers of the origin on their shortest paths.
+     * @throws DataInconsistentException If there was no path for some of the
+     * passengers.
+     */
+    private void addOriginLoad(OriginLoad load)
+            throws DataInconsistentException {
+
+        if (load.error != null) {
+            throw load.error;
+        }
+
+        for (int i = 0; i < load.targets.size(); i++) {
+            Double passengers = load.passengers.get(i);
+
+            LinkedHashSet<Link> linkPath = rememberOdPaths ?
+                    new LinkedHashSet<Link>() : null;
+
+            for (Link link : load.paths.get(i)) {
+                link.setLoad(link.getLoad() + passengers);
+                if(rememberOdPaths){
+                    linkPath.add(link);
+                }
+            }
+
+            if(rememberOdPaths){
+                ptn.addOriginDestinationPath(load.source, load.targets.get(i),
+                        linkPath);
+            }
+        }
+    }
+
+    /**
+     * The number of threads to compute the shortest paths with, at least 1.
+     *
+     * @return The number of threads.
+     */
+    private int getNumberOfThreads() {
+        return threads == null || threads < 1 ?
+            Runtime.getRuntime().availableProcessors() : threads;
+    }
+
     // =========================================================================
     // === Setters =============================================================
     // =========================================================================
@@ -307,6 +450,16 @@ public class LoadGenerator {
         this.rememberOdPaths = rememberOdPaths;
     }
 
+    /**
+     * Sets the number of threads for the shortest paths calculation of
+     * LOAD_FROM_PTN. Values smaller than 1 use all available processors.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
     public void setIterationProgressCounter(
             IterationProgressCounter iterationProgressCounter) {
         this.iterationProgressCounter = iterationProgressCounter;
@@ -363,4 +516,8 @@ public class LoadGenerator {
         return rememberOdPaths;
     }
 
+    public Integer getThreads() {
+        return threads;
+    }
+
 }
@@ -10,6 +10,7 @@ import net.lintim.util.MathHelper;
 import net.lintim.util.NullIterationProgressCounter;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Generates a periodic passenger distribution by either routing passengers
@@ -49,6 +50,13 @@ public class PeriodicPassengerDistributionGenerator {
     protected InitialWeightWait initialWeightWait;
     protected ModelInitialDurationAssumption modelInitialDurationAssumption;
     protected ShortestPathsGraph.ShortestPathsMethod shortestPathsMethod;
+    protected Integer threads = 1;
+
+    /**
+     * Number of origins every worker routes before the results are added to
+     * the event activity network in the order of the origins.
+     */
+    protected static final int ORIGINS_PER_WORKER_AND_BLOCK = 8;
 
     protected IterationProgressCounter iterationProgressCounter =
         new NullIterationProgressCounter();
@@ -132,6 +140,7 @@ public class PeriodicPassengerDistributionGenerator {
                         "ean_initial_duration_assumption_model").toUpperCase()),
                         ShortestPathsGraph.ShortestPathsMethod.valueOf(
                                 config.getStringValue("ean_algorithm_shortest_paths")));
+        setThreads(config.getIntegerValue("ean_routing_threads"));
     }
 
     protected Double getWeight(Activity activity)
@@ -304,80 +313,237 @@ public class PeriodicPassengerDistributionGenerator {
         iterationProgressCounter.setTotalNumberOfIterations(
                 ptn.getStations().size());
 
-        for (Map.Entry<Station, Event> e1 : sourceEvents.entrySet()) {
-            iterationProgressCounter.reportIteration();
+        ArrayList<Map.Entry<Station, Event>> origins =
+            new ArrayList<Map.Entry<Station, Event>>(sourceEvents.entrySet());
 
-            Station s1 = e1.getKey();
-            Event source = e1.getValue();
+        // Randomized shortest paths share the random number generator, i.e.,
+        // they are only deterministic if computed sequentially.
+        int numberOfWorkers = random != null ? 1 :
+            Math.min(origins.size(), getNumberOfThreads());
 
-            try {
-                sp.compute(source);
-            } catch (GraphMalformedException e) {
-                throw new DataInconsistentException(
-                        "shortest paths computation: " + e.getMessage());
+        if (numberOfWorkers <= 1) {
+            for (Map.Entry<Station, Event> e1 : origins) {
+                iterationProgressCounter.reportIteration();
+                addOriginRouting(routeOrigin(sp, e1.getKey(), e1.getValue(),
+                        sinkEvents));
+            }
+        } else {
+            ArrayList<ShortestPathsGraph<Event, Activity>> workspaces =
+                new ArrayList<ShortestPathsGraph<Event, Activity>>();
+            workspaces.add(sp);
+            for (int worker = 1; worker < numberOfWorkers; worker++) {
+                workspaces.add(new ShortestPathsGraph<Event, Activity>(sp));
             }
 
-            for (Map.Entry<Station, Event> e2 : sinkEvents.entrySet()) {
+            ExecutorService executor =
+                Executors.newFixedThreadPool(numberOfWorkers);
+            int blockSize = numberOfWorkers * ORIGINS_PER_WORKER_AND_BLOCK;
+
+            try {
+                for (int blockStart = 0; blockStart < origins.size();
+                        blockStart += blockSize) {
+
+                    // Every worker routes a strided part of the block into its
+                    // own results, which are added in the order of the
+                    // origins afterwards.
+                    final int firstOrigin = blockStart;
+                    final OriginRouting[] routings = new OriginRouting[
+                        Math.min(blockSize, origins.size() - blockStart)];
+                    ArrayList<Callable<Void>> tasks =
+                        new ArrayList<Callable<Void>>();
+
+                    for (int worker = 0; worker < numberOfWorkers; worker++) {
+                        final int firstIndex = worker;
+                        final int stride = numberOfWorkers;
+                        final ShortestPathsGraph<Event, Activity> workspace =
+                            workspaces.get(worker);
+                        tasks.add(() -> {
+                            for (int index = firstIndex;
+                                    index < routings.length; index += stride) {
+                                Map.Entry<Station, Event> e1 =
+                                    origins.get(firstOrigin + index);
+                                routings[index] = routeOrigin(workspace,
+                                        e1.getKey(), e1.getValue(), sinkEvents);
+                            }
+                            return null;
+                        });
+                    }
 
-                Station s2 = e2.getKey();
-                Event sink = e2.getValue();
-                Double passengers = od.get(s1, s2);
+                    for (Future<Void> future : executor.invokeAll(tasks)) {
+                        future.get();
+                    }
 
-                if (s1 == s2 || passengers.doubleValue() < MathHelper.epsilon) {
-                    continue;
+                    for (OriginRouting routing : routings) {
+                        iterationProgressCounter.reportIteration();
+                        addOriginRouting(routing);
+                    }
                 }
+            } catch (InterruptedException e) {
+                throw new DataInconsistentException("parallel shortest paths "
+                        + "computation interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("parallel shortest paths "
+                        + "computation failed", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
 
-                LinkedList<Activity> path = sp.trackPath(sink);
+        if(rememberOdLinkPaths){
+            ptn.completeOriginDestinationPathMap();
+        }
 
-                if (path.size() == 0) {
-                    throw new DataInconsistentException("there is no "
-                            + "path from station " + s1.getIndex() + " to "
-                            + s2.getIndex());
-                }
+    }
 
-                Iterator<Activity> itr = path.descendingIterator();
+    /**
+     * The passengers of one origin station on their shortest paths, computed
+     * by {@link #routeOrigin(ShortestPathsGraph, Station, Event, Map)} and
+     * added to the event activity network by
+     * {@link #addOriginRouting(OriginRouting)}.
+     */
+    protected class OriginRouting {
+        Station origin;
+        ArrayList<Station> destinations = new ArrayList<Station>();
+        ArrayList<Double> passengers = new ArrayList<Double>();
+        ArrayList<Event> arrivals = new ArrayList<Event>();
+        ArrayList<ArrayList<Activity>> paths =
+            new ArrayList<ArrayList<Activity>>();
+        ArrayList<LinkedHashSet<Link>> linkPaths =
+            new ArrayList<LinkedHashSet<Link>>();
+        ArrayList<LinkedHashSet<Activity>> activityPaths =
+            new ArrayList<LinkedHashSet<Activity>>();
+        DataInconsistentException error = null;
+    }
 
-                // Skip last activity, it is null anyway.
-                itr.next();
+    /**
+     * Computes the shortest paths of all passengers starting at the given
+     * origin. Does not change the event activity network, i.e., may be called
+     * in parallel with different shortest paths graphs.
+     *
+     * @param sp The shortest paths graph to use.
+     * @param s1 The origin station.
+     * @param source The source event of the origin station.
+     * @param sinkEvents The sink events of all stations.
+     * @return The passengers of the origin on their shortest paths.
+     */
+    protected OriginRouting routeOrigin(ShortestPathsGraph<Event, Activity> sp,
+            Station s1, Event source, Map<Station, Event> sinkEvents) {
+
+        OriginRouting routing = new OriginRouting();
+        routing.origin = s1;
+
+        try {
+            sp.compute(source);
+        } catch (GraphMalformedException e) {
+            routing.error = new DataInconsistentException(
+                    "shortest paths computation: " + e.getMessage());
+            return routing;
+        }
 
-                Activity activity = itr.next();
-                Event arrival = activity.getToEvent();
-                arrival.setPassengers(arrival.getPassengers() + passengers);
+        for (Map.Entry<Station, Event> e2 : sinkEvents.entrySet()) {
 
-                LinkedHashSet<Link> linkPath = rememberOdLinkPaths ?
-                    linkPath = new LinkedHashSet<Link>() : null;
+            Station s2 = e2.getKey();
+            Event sink = e2.getValue();
+            Double passengers = od.get(s1, s2);
 
-                LinkedHashSet<Activity> activityPath = rememberOdActivityPaths ?
-                    activityPath = new LinkedHashSet<Activity>() : null;
+            if (s1 == s2 || passengers.doubleValue() < MathHelper.epsilon) {
+                continue;
+            }
 
-                while (itr.hasNext() && activity != null) {
-                    activity.setPassengers(activity.getPassengers()
-                            + passengers);
-                    if (rememberOdLinkPaths && activity.getType() ==
-                        ActivityType.DRIVE) {
-                        linkPath.add(activity.getAssociatedLink());
-                    }
-                    if (rememberOdActivityPaths && activity.getType() != null) {
-                        activityPath.add(activity);
-                    }
-                    activity = itr.next();
-                }
+            LinkedList<Activity> path = sp.trackPath(sink);
 
-                if (rememberOdLinkPaths) {
-                    ptn.addOriginDestinationPath(s1, s2, linkPath);
-                }
+            if (path.size() == 0) {
+                routing.error = new DataInconsistentException("there is no "
+                        + "path from station " + s1.getIndex() + " to "
+                        + s2.getIndex());
+                return routing;
+            }
 
-                if (rememberOdActivityPaths) {
-                    ean.addOriginDestinationPath(s1, s2, activityPath);
-                }
+            Iterator<Activity> itr = path.descendingIterator();
+
+            // Skip last activity, it is null anyway.
+            itr.next();
+
+            Activity activity = itr.next();
+            ArrayList<Activity> usedActivities = new ArrayList<Activity>();
 
+            LinkedHashSet<Link> linkPath = rememberOdLinkPaths ?
+                new LinkedHashSet<Link>() : null;
+
+            LinkedHashSet<Activity> activityPath = rememberOdActivityPaths ?
+                new LinkedHashSet<Activity>() : null;
+
+            routing.arrivals.add(activity.getToEvent());
+
+            while (itr.hasNext() && activity != null) {
+                usedActivities.add(activity);
+                if (rememberOdLinkPaths && activity.getType() ==
+                    ActivityType.DRIVE) {
+                    linkPath.add(activity.getAssociatedLink());
+                }
+                if (rememberOdActivityPaths && activity.getType() != null) {
+                    activityPath.add(activity);
+                }
+                activity = itr.next();
             }
+
+            routing.destinations.add(s2);
+            routing.passengers.add(passengers);
+            routing.paths.add(usedActivities);
+            routing.linkPaths.add(linkPath);
+            routing.activityPaths.add(activityPath);
         }
 
-        if(rememberOdLinkPaths){
-            ptn.completeOriginDestinationPathMap();
+        return routing;
+    }
+
+    /**
+     * Adds the passengers of one origin to the event activity network and
+     * remembers their paths, if requested.
+     *
+     * @param routing The passengers of the origin on their shortest paths.
+     * @throws DataInconsistentException If there was no path for some of the
+     * passengers.
+     */
+    protected void addOriginRouting(OriginRouting routing)
+            throws DataInconsistentException {
+
+        if (routing.error != null) {
+            throw routing.error;
         }
 
+        for (int i = 0; i < routing.destinations.size(); i++) {
+            Double passengers = routing.passengers.get(i);
+
+            Event arrival = routing.arrivals.get(i);
+            arrival.setPassengers(arrival.getPassengers() + passengers);
+
+            for (Activity activity : routing.paths.get(i)) {
+                activity.setPassengers(activity.getPassengers()
+                        + passengers);
+            }
+
+            if (rememberOdLinkPaths) {
+                ptn.addOriginDestinationPath(routing.origin,
+                        routing.destinations.get(i), routing.linkPaths.get(i));
+            }
+
+            if (rememberOdActivityPaths) {
+                ean.addOriginDestinationPath(routing.origin,
+                        routing.destinations.get(i),
+                        routing.activityPaths.get(i));
+            }
+        }
+    }
+
+    /**
+     * The number of threads to route passengers with, at least 1.
+     *
+     * @return The number of threads.
+     */
+    protected int getNumberOfThreads() {
+        return threads == null || threads < 1 ?
+            Runtime.getRuntime().availableProcessors() : threads;
     }
 
     // =========================================================================
@@ -444,6 +610,17 @@ public class PeriodicPassengerDistributionGenerator {
         this.random = random;
     }
 
+    /**
+     * Sets the number of threads to route passengers with. Values smaller
+     * than 1 use all available processors. Randomized shortest paths are
+     * always computed sequentially.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
     public void setIterationProgressCounter(
             IterationProgressCounter iterationProgressCounter) {
         this.iterationProgressCounter = iterationProgressCounter;
@@ -498,4 +675,8 @@ public class PeriodicPassengerDistributionGenerator {
         return silent;
     }
 
+    public Integer getThreads() {
+        return threads;
+    }
+
 }
@@ -8,8 +8,12 @@ import java.util.LinkedHashSet;
 import java.util.Map.Entry;
 import java.util.TreeSet;
 
+import net.lintim.algorithm.CycleBasis;
 import net.lintim.evaluator.PeriodicTimetableEvaluator;
 import net.lintim.exception.DataInconsistentException;
+import net.lintim.graph.EventActivityGraph;
+import net.lintim.graph.EventActivityGraph.ActivityEdge;
+import net.lintim.graph.EventActivityGraph.EventNode;
 import net.lintim.graph.IntegralCycleBasis;
 import net.lintim.model.Activity;
 import net.lintim.model.Configuration;
@@ -47,7 +51,8 @@ public abstract class PeriodicTimetableGenerator {
 
     public enum CyclebaseModel {
         UNEXPLORED_VERTICES,
-        MSF_FUNDAMENTAL_IMPROVEMENT
+        MSF_FUNDAMENTAL_IMPROVEMENT,
+        SPARSE_FUNDAMENTAL
     }
 
     EventActivityNetwork ean;
@@ -68,6 +73,8 @@ public abstract class PeriodicTimetableGenerator {
     LinearModel linearModel;
     ObjectiveFunctionModel objectiveFunctionModel = ObjectiveFunctionModel.SLACK;
     CyclebaseModel cyclebaseModel;
+    Integer cyclebaseCandidates = 8;
+    Integer cyclebaseThreads = -1;
     Double objectiveFunction = null;
 
     OutputStream stream = System.err;
@@ -194,6 +201,7 @@ public abstract class PeriodicTimetableGenerator {
     public void initialize(EventActivityNetwork ean,
             Configuration config) throws DataInconsistentException{
 
+        setCyclebaseSearch(config);
         initialize(ean, Solver.valueOf(config.getStringValue("tim_solver").
                 toUpperCase()), LinearModel.valueOf(
                     config.getStringValue("tim_linear_model").toUpperCase()),
@@ -221,6 +229,9 @@ public abstract class PeriodicTimetableGenerator {
         case MSF_FUNDAMENTAL_IMPROVEMENT:
             makeCyclebaseMsfFundamentalImprovement();
             break;
+        case SPARSE_FUNDAMENTAL:
+            makeCyclebaseSparseFundamental();
+            break;
         }
 
         cyclebaseReady = true;
@@ -465,6 +476,64 @@ public abstract class PeriodicTimetableGenerator {
 
     }
 
+    /**
+     * Computes a strictly fundamental cyclebase with {@link CycleBasis} of the
+     * core, which compares the basis of the minimum spanning forest w.r.t. the
+     * spans with {@link #cyclebaseCandidates} - 1 breadth first search bases
+     * on {@link #cyclebaseThreads} threads and keeps the one with the smallest
+     * widths. The roots are drawn with a fixed seed, so the cyclebase does not
+     * change between runs.
+     */
+    protected void makeCyclebaseSparseFundamental(){
+
+        if(events.isEmpty()){
+            return;
+        }
+
+        EventActivityGraph graph = new EventActivityGraph(events, activities);
+
+        CycleBasis<EventNode, ActivityEdge> basis =
+            CycleBasis.computeShortBasis(graph.getGraph(),
+                    edge -> edge.getActivity().getLowerBound(),
+                    edge -> edge.getActivity().getUpperBound(),
+                    (int)Math.round(periodLength), cyclebaseCandidates,
+                    cyclebaseThreads, 0);
+        CycleBasis.ModuloBounds bounds = basis.computeModuloBounds(
+                edge -> edge.getActivity().getLowerBound(),
+                edge -> edge.getActivity().getUpperBound(),
+                (int)Math.round(periodLength));
+
+        LinkedHashSet<Activity> cycleBaseEdges = new LinkedHashSet<Activity>();
+
+        for(int cycle = 0; cycle < basis.getNumberOfCycles(); cycle++){
+            Integer cycleCount = cycle+1;
+            LinkedHashMap<Activity, Boolean> cycleActivities =
+                new LinkedHashMap<Activity, Boolean>();
+
+            for(int index = basis.cycleStart(cycle);
+                    index < basis.cycleEnd(cycle); index++){
+                Activity activity = basis.getEdges().get(
+                        basis.getCycleEdge(index)).getActivity();
+                cycleActivities.put(activity, basis.getOrientation(index) > 0);
+                edgeInSomeCycle.add(activity);
+            }
+
+            Activity nonForestEdge =
+                basis.getEdges().get(basis.getNonForestEdge(cycle)).getActivity();
+            cycleBaseEdges.add(nonForestEdge);
+
+            cycles.put(cycleCount, cycleActivities);
+            nonForestEdges.put(cycleCount, nonForestEdge);
+            a_C.put(cycleCount, (double) bounds.getLowerBound(cycle));
+            b_C.put(cycleCount, (double) bounds.getUpperBound(cycle));
+        }
+
+        forestEdges.clear();
+        forestEdges.addAll(activities);
+        forestEdges.removeAll(cycleBaseEdges);
+
+    }
+
     /**
      * Solves the actual problem with {@link #solveInternal()} after checking
      * whether {@link #initialize(LineCollection, Configuration)} has been run
@@ -569,6 +638,29 @@ public abstract class PeriodicTimetableGenerator {
         this.solver = solver;
     }
 
+    /**
+     * Reads the settings of the search for a short cyclebase of
+     * {@link CyclebaseModel#SPARSE_FUNDAMENTAL}, i.e.
+     * <code>tim_cyclebase_candidates</code> and <code>tim_threads</code>.
+     *
+     * @param config The configuration.
+     * @throws DataInconsistentException
+     */
+    public void setCyclebaseSearch(Configuration config)
+    throws DataInconsistentException {
+        setCyclebaseCandidates(config.getIntegerValue(
+                "tim_cyclebase_candidates"));
+        setCyclebaseThreads(config.getIntegerValue("tim_threads"));
+    }
+
+    public void setCyclebaseCandidates(Integer cyclebaseCandidates) {
+        this.cyclebaseCandidates = cyclebaseCandidates;
+    }
+
+    public void setCyclebaseThreads(Integer cyclebaseThreads) {
+        this.cyclebaseThreads = cyclebaseThreads;
+    }
+
     public void setCyclebaseModel(CyclebaseModel cyclebaseModel) {
         this.cyclebaseModel = cyclebaseModel;
     }
@@ -84,6 +84,7 @@ PeriodicTimetableGenerator {
             OriginDestinationMatrix od, Configuration config)
     throws DataInconsistentException{
 
+        setCyclebaseSearch(config);
         initialize(ean, od, PeriodicTimetableGenerator.Solver.
                 valueOf(config.getStringValue("tim_odpesp_solver").trim().
                         toUpperCase()),
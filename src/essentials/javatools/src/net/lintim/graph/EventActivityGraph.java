@@ -0,0 +1,126 @@
+package net.lintim.graph;
+
+import net.lintim.model.Activity;
+import net.lintim.model.Edge;
+import net.lintim.model.Event;
+import net.lintim.model.Graph;
+import net.lintim.model.Node;
+import net.lintim.model.impl.ArrayListGraph;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * Wraps events and activities as nodes and edges of a graph of the core
+ * library, so that the algorithms of the core, e.g. the cycle bases of
+ * {@link net.lintim.algorithm.CycleBasis}, can be used on event activity
+ * networks. Nodes and edges are numbered consecutively from 1 in the given
+ * order; the events and activities themselves are not changed.
+ */
+public class EventActivityGraph {
+
+    public static class EventNode implements Node {
+        Event event;
+        int id;
+
+        public EventNode(int id, Event event) {
+            this.id = id;
+            this.event = event;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(int id) {
+            this.id = id;
+        }
+
+    }
+
+    public static class ActivityEdge implements Edge<EventNode> {
+        Activity activity;
+        EventNode from;
+        EventNode to;
+        int id;
+
+        public ActivityEdge(int id, Activity activity, EventNode from,
+                EventNode to) {
+            this.id = id;
+            this.activity = activity;
+            this.from = from;
+            this.to = to;
+        }
+
+        public Activity getActivity() {
+            return activity;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public EventNode getLeftNode() {
+            return from;
+        }
+
+        @Override
+        public EventNode getRightNode() {
+            return to;
+        }
+
+        @Override
+        public boolean isDirected() {
+            return true;
+        }
+
+    }
+
+    Graph<EventNode, ActivityEdge> graph =
+        new ArrayListGraph<EventNode, ActivityEdge>();
+
+    /**
+     * @param events The events, i.e. the nodes of the graph.
+     * @param activities The activities, i.e. the edges of the graph. Their
+     * events have to be contained in <code>events</code>.
+     */
+    public EventActivityGraph(Collection<Event> events,
+            Collection<Activity> activities) {
+
+        LinkedHashMap<Event, EventNode> nodes =
+            new LinkedHashMap<Event, EventNode>();
+
+        for(Event event : events){
+            EventNode node = new EventNode(nodes.size()+1, event);
+            nodes.put(event, node);
+            graph.addNode(node);
+        }
+
+        int edgeCount = 1;
+        for(Activity activity : activities){
+            graph.addEdge(new ActivityEdge(edgeCount, activity,
+                    nodes.get(activity.getFromEvent()),
+                    nodes.get(activity.getToEvent())));
+            edgeCount++;
+        }
+
+    }
+
+    public Graph<EventNode, ActivityEdge> getGraph() {
+        return graph;
+    }
+
+}
@@ -62,6 +62,56 @@ public class ShortestPathsGraph<V, E> {
     ShortestPathsMethod method = ShortestPathsMethod.FIBONACCI_HEAP;
     Boolean negativeEdgeExists = false;
 
+    /** Creates an empty shortest paths graph.
+     */
+    public ShortestPathsGraph(){
+    }
+
+    /** Creates a copy of a shortest paths graph with the same vertices,
+     * edges, weights and method, but with its own shortest paths tree. Since
+     * {@link #compute(Object)} stores the tree in the graph, every thread
+     * computing shortest paths needs its own copy. The vertices and edges are
+     * copied in their original order, i.e., the copy computes the same
+     * shortest paths as the original.
+     *
+     * @param other The shortest paths graph to copy.
+     */
+    public ShortestPathsGraph(ShortestPathsGraph<V, E> other){
+        LinkedHashMap<NodeStruct, NodeStruct> nodeCopies =
+            new LinkedHashMap<NodeStruct, NodeStruct>();
+        LinkedHashMap<EdgeStruct, EdgeStruct> edgeCopies =
+            new LinkedHashMap<EdgeStruct, EdgeStruct>();
+
+        for(Entry<V, NodeStruct> e1 : other.graph.entrySet()){
+            NodeStruct nodeStruct = new NodeStruct();
+            graph.put(e1.getKey(), nodeStruct);
+            nodeCopies.put(e1.getValue(), nodeStruct);
+        }
+
+        for(NodeStruct nodeStruct : other.graph.values()){
+            for(EdgeStruct edgeStruct : nodeStruct.outgoingEdges){
+                EdgeStruct edgeCopy = new EdgeStruct();
+                edgeCopy.edge = edgeStruct.edge;
+                edgeCopy.source = nodeCopies.get(edgeStruct.source);
+                edgeCopy.target = nodeCopies.get(edgeStruct.target);
+                edgeCopy.weight = edgeStruct.weight;
+                edgeCopies.put(edgeStruct, edgeCopy);
+                edgeCopy.source.outgoingEdges.add(edgeCopy);
+                nodeEdgeMap.put(edgeCopy.source, edgeCopy.target, edgeCopy);
+            }
+        }
+
+        for(Entry<NodeStruct, NodeStruct> e1 : nodeCopies.entrySet()){
+            for(EdgeStruct edgeStruct : e1.getKey().incomingEdges){
+                e1.getValue().incomingEdges.add(edgeCopies.get(edgeStruct));
+            }
+        }
+
+        method = other.method;
+        negativeEdgeExists = other.negativeEdgeExists;
+        random = other.random;
+    }
+
     /** Adds a vertex object to the shortest paths graph.
      *
      * @param vertex The vertex to add.
@@ -4,6 +4,7 @@ import net.lintim.csv.*;
 import net.lintim.debug.DebugOriginDestinationLinkPaths;
 import net.lintim.dump.IterationProgressCounterDump;
 import net.lintim.evaluator.EventActivityNetworkEvaluator;
+import net.lintim.evaluator.SinglePassEventActivityNetworkEvaluator;
 import net.lintim.exception.DataInconsistentException;
 import net.lintim.generator.PeriodicPassengerDistributionGenerator;
 import net.lintim.generator.PeriodicPassengerDistributionGenerator.ModelInitialDurationAssumption;
@@ -16,7 +17,8 @@ import java.util.Random;
 /**
  * Runs the event activity network evaluation, i.e. basically all methods of
  * {@link EventActivityNetworkEvaluator} once and writes results to both console
- * as well as statistic.
+ * as well as statistic. The values are computed in a single pass by
+ * {@link SinglePassEventActivityNetworkEvaluator}.
  */
 
 public class EvaluateEventActivityNetwork {
@@ -149,6 +151,10 @@ public class EvaluateEventActivityNetwork {
             // -----------------------------------------------------------------
             Boolean ean_extended_statistic = config.getBooleanValue("ean_eval_extended");
             System.err.println("Evaluating Event Activity Network...");
+            SinglePassEventActivityNetworkEvaluator evaluator =
+                new SinglePassEventActivityNetworkEvaluator(ean);
+            evaluator.setThreads(config.getIntegerValue("ean_eval_threads"));
+            evaluator.evaluate();
             System.err.println("  Computing Statistic...");
 
             {
@@ -214,7 +220,7 @@ public class EvaluateEventActivityNetwork {
             {
                 System.err.print("    Used Activities: ");
                 Integer numberOfUsedActivities =
-                    EventActivityNetworkEvaluator.numberOfUsedActivites(ean);
+                    evaluator.getNumberOfUsedActivities();
                 statistic.setIntegerValue("ean_prop_activities_od",
                         numberOfUsedActivities);
                 System.err.println(numberOfUsedActivities);
@@ -223,7 +229,7 @@ public class EvaluateEventActivityNetwork {
             if(ean_extended_statistic){
                 System.err.print("    Objective Activities: ");
                 Integer numberOfObjectiveActivities =
-                    EventActivityNetworkEvaluator.numberOfObjectiveActivities(ean);
+                    evaluator.getNumberOfObjectiveActivities();
                 statistic.setIntegerValue("ean_prop_activities_objective",
                         numberOfObjectiveActivities);
                 System.err.println(numberOfObjectiveActivities);
@@ -232,7 +238,7 @@ public class EvaluateEventActivityNetwork {
             if(ean_extended_statistic){
                 System.err.print("    Feasibility Activities: ");
                 Integer numberOfFeasibilityActivities =
-                    EventActivityNetworkEvaluator.numberOfFeasibilityActivities(ean);
+                    evaluator.getNumberOfFeasibilityActivities();
                 statistic.setIntegerValue("ean_prop_activities_feas",
                         numberOfFeasibilityActivities);
                 System.err.println(numberOfFeasibilityActivities);
@@ -241,7 +247,7 @@ public class EvaluateEventActivityNetwork {
             {
                 System.err.print("    Used Change Activities: ");
                 Integer numberOfUsedChangeActivities =
-                    EventActivityNetworkEvaluator.numberOfUsedChangeActivites(ean);
+                    evaluator.getNumberOfUsedChangeActivities();
                 statistic.setIntegerValue("ean_prop_activities_od_change",
                         numberOfUsedChangeActivities);
                 System.err.println(numberOfUsedChangeActivities);
@@ -250,7 +256,7 @@ public class EvaluateEventActivityNetwork {
                         {
                 System.err.print("    Used Drive Activities: ");
                 Integer numberOfUsedDriveActivities =
-                    EventActivityNetworkEvaluator.numberOfUsedDriveActivites(ean);
+                    evaluator.getNumberOfUsedDriveActivities();
                 statistic.setIntegerValue("ean_prop_activities_od_drive",
                         numberOfUsedDriveActivities);
                 System.err.println(numberOfUsedDriveActivities);
@@ -259,7 +265,7 @@ public class EvaluateEventActivityNetwork {
                         {
                 System.err.print("    Used Wait Activities: ");
                 Integer numberOfUsedWaitActivities =
-                    EventActivityNetworkEvaluator.numberOfUsedWaitActivites(ean);
+                    evaluator.getNumberOfUsedWaitActivities();
                 statistic.setIntegerValue("ean_prop_activities_od_wait",
                         numberOfUsedWaitActivities);
                 System.err.println(numberOfUsedWaitActivities);
@@ -268,7 +274,7 @@ public class EvaluateEventActivityNetwork {
             if(ean_extended_statistic){
                 System.err.print("    Headways Between Departures Only: ");
                 Boolean headwaysBetweenDeparturesOnly =
-                    EventActivityNetworkEvaluator.headwaysBetweenDeparturesOnly(ean);
+                    evaluator.getHeadwaysBetweenDeparturesOnly();
                 statistic.setBooleanValue("ean_prop_headways_dep",
                         headwaysBetweenDeparturesOnly);
                 System.err.println(headwaysBetweenDeparturesOnly);
@@ -277,7 +283,7 @@ public class EvaluateEventActivityNetwork {
             if(ean_extended_statistic){
                 System.err.print("    Interstation Headways Exist: ");
                 Boolean interstationHeadwaysExist =
-                    EventActivityNetworkEvaluator.interstationHeadwaysExist(ean);
+                    evaluator.getInterstationHeadwaysExist();
                 statistic.setBooleanValue("ean_prop_headways_interstation",
                         interstationHeadwaysExist);
                 System.err.println(interstationHeadwaysExist);
@@ -286,7 +292,7 @@ public class EvaluateEventActivityNetwork {
             {
                 System.err.print("    Average Traveling Time: ");
                 Double initialAverageTravelingTime =
-                    EventActivityNetworkEvaluator.initialAverageTravelingTime(ean);
+                    evaluator.getInitialAverageTravelingTime();
                 statistic.setDoubleValue("ean_time_average", initialAverageTravelingTime);
                 System.err.println(initialAverageTravelingTime);
             }
@@ -294,7 +300,7 @@ public class EvaluateEventActivityNetwork {
             if(ean_extended_statistic){
 				System.err.print("    Minimal Used Change Duration:     ");
 				Double initialMinimalUsedChangeDuration =
-                    EventActivityNetworkEvaluator.initialMinimalUsedChangeDuration(ean);
+                    evaluator.getInitialMinimalUsedChangeDuration();
                 statistic.setDoubleValue("ean_prop_change_od_min",initialMinimalUsedChangeDuration);
                 System.err.println(initialMinimalUsedChangeDuration);
             }   
@@ -302,7 +308,7 @@ public class EvaluateEventActivityNetwork {
             if(ean_extended_statistic){
 				System.err.print("    Maximal Used Change Duration:     ");       
                 Double initialMaximalUsedChangeDuration =
-                  EventActivityNetworkEvaluator.initialMaximalUsedChangeDuration(ean);
+                  evaluator.getInitialMaximalUsedChangeDuration();
 				statistic.setDoubleValue("ean_prop_change_od_max",initialMaximalUsedChangeDuration);
 				System.err.println(initialMaximalUsedChangeDuration);
 			}
@@ -3,6 +3,7 @@ package net.lintim.main;
 import net.lintim.csv.*;
 import net.lintim.debug.DebugOriginDestinationLinkPaths;
 import net.lintim.evaluator.PeriodicTimetableEvaluator;
+import net.lintim.evaluator.SinglePassEventActivityNetworkEvaluator;
 import net.lintim.exception.DataInconsistentException;
 import net.lintim.model.*;
 
@@ -12,7 +13,8 @@ import java.io.IOException;
 /**
  * Runs the timetable evaluation, i.e. basically all methods of
  * {@link PeriodicTimetableEvaluator} once and writes results to both console
- * as well as statistic.
+ * as well as statistic. The values are computed in a single pass by
+ * {@link SinglePassEventActivityNetworkEvaluator}.
  */
 
 public class EvaluateTimetable {
@@ -122,12 +124,15 @@ public class EvaluateTimetable {
             // --- Evaluate Timetable ------------------------------------------
             // -----------------------------------------------------------------
             System.err.println("Evaluating Event Activity Network...");
+            SinglePassEventActivityNetworkEvaluator evaluator =
+                new SinglePassEventActivityNetworkEvaluator(ean);
+            evaluator.setThreads(config.getIntegerValue("ean_eval_threads"));
+            evaluator.evaluate();
             System.err.println("  Computing Statistic...");
 
             {
                 System.err.print("    Average Traveling Time: ");
-                Double averageTravelingTime = PeriodicTimetableEvaluator
-                .averageTravelingTime(ean);
+                Double averageTravelingTime = evaluator.getAverageTravelingTime();
                 statistic.setDoubleValue("tim_average_traveling_time",
                         averageTravelingTime);
                 System.err.println(averageTravelingTime);
@@ -135,8 +140,7 @@ public class EvaluateTimetable {
 
             {
                 System.err.print("    Average Drive Time: ");
-                Double averageDriveTime = PeriodicTimetableEvaluator
-                .averageDriveTime(ean);
+                Double averageDriveTime = evaluator.getAverageDriveTime();
                 statistic.setDoubleValue("tim_average_drive_time",
                         averageDriveTime);
                 System.err.println(averageDriveTime);
@@ -144,8 +148,7 @@ public class EvaluateTimetable {
 
             {
                 System.err.print("    Average Wait Time: ");
-                Double averageWaitTime = PeriodicTimetableEvaluator
-                .averageWaitTime(ean);
+                Double averageWaitTime = evaluator.getAverageWaitTime();
                 statistic.setDoubleValue("tim_average_wait_time",
                         averageWaitTime);
                 System.err.println(averageWaitTime);
@@ -153,8 +156,7 @@ public class EvaluateTimetable {
 
             {
                 System.err.print("    Average Change Time: ");
-                Double averageChangeTime = PeriodicTimetableEvaluator
-                .averageChangeTime(ean);
+                Double averageChangeTime = evaluator.getAverageChangeTime();
                 statistic.setDoubleValue("tim_average_change_time",
                         averageChangeTime);
                 System.err.println(averageChangeTime);
@@ -162,8 +164,7 @@ public class EvaluateTimetable {
 
             {
                 System.err.print("    Weighted Slack Time: ");
-                Double weightedSlackTime = PeriodicTimetableEvaluator
-                .weightedSlackTime(ean);
+                Double weightedSlackTime = evaluator.getWeightedSlackTime();
                 statistic.setDoubleValue("tim_weighted_slack_time",
                         weightedSlackTime);
                 System.err.println(weightedSlackTime);
@@ -171,8 +172,7 @@ public class EvaluateTimetable {
 
             {
                 System.err.print("    Minimal used change duration: ");
-                Double minimalUsedChangeDuration = PeriodicTimetableEvaluator
-                .minimalUsedChangeDuration(ean);
+                Double minimalUsedChangeDuration = evaluator.getMinimalUsedChangeDuration();
                 statistic.setDoubleValue("tim_minimal_used_change_duration",
                         minimalUsedChangeDuration);
                 System.err.println(minimalUsedChangeDuration);
@@ -180,8 +180,7 @@ public class EvaluateTimetable {
 
             {
                 System.err.print("    Maximal used change duration: ");
-                Double maximalUsedChangeDuration = PeriodicTimetableEvaluator
-                .maximalUsedChangeDuration(ean);
+                Double maximalUsedChangeDuration = evaluator.getMaximalUsedChangeDuration();
                 statistic.setDoubleValue("tim_maximal_used_change_duration",
                         maximalUsedChangeDuration);
                 System.err.println(maximalUsedChangeDuration);
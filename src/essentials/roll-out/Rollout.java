@@ -40,6 +40,8 @@ public class Rollout
 	private static boolean rolloutFortimetabling;
 	private static boolean rolloutPassengerPaths;
 	private static boolean headways;
+	private static boolean streaming;
+	private static int threads;
 	private static boolean CHECK_CONSISTENCY;
 	private static boolean DEBUG;
 	private static boolean VERBOSE;
@@ -72,20 +74,29 @@ public class Rollout
 			System.out.println("Rollout: reading input files...");
 		readInputFiles();
 
-		if (VERBOSE)
-			System.out.println("Rollout: rolling out...");
-		rollOut();
+		if (streaming)
+		{
+			if (VERBOSE)
+				System.out.println("Rollout: rolling out and writing output files...");
+			streamingRollOut();
+		}
+		else
+		{
+			if (VERBOSE)
+				System.out.println("Rollout: rolling out...");
+			rollOut();
 
-		if (VERBOSE)
-			System.out.println("Rollout: cleaning up headways...");
-		cleanHeadways();
+			if (VERBOSE)
+				System.out.println("Rollout: cleaning up headways...");
+			cleanHeadways();
 
-		if (events.size() == 0 || activities.size() == 0)
-			throw new Exception("Rollout: empty network after rollout (only_whole_trips enabled and [DM_earliest_time,DM_latest_time] too small?)");
+			if (events.size() == 0 || activities.size() == 0)
+				throw new Exception("Rollout: empty network after rollout (only_whole_trips enabled and [DM_earliest_time,DM_latest_time] too small?)");
 
-		if (VERBOSE)
-			System.out.println("Rollout: writing output files...");
-		writeOutputFiles(events, activities);
+			if (VERBOSE)
+				System.out.println("Rollout: writing output files...");
+			writeOutputFiles(events, activities);
+		}
 
 		// call path-distribution of passengers
 		// (a little bit unlucky: as it needs a NonPeriodicEANetwork object,
@@ -204,6 +215,8 @@ public class Rollout
 			config.getStringValue("ean_model_frequency").equalsIgnoreCase("FREQUENCY_AS_ATTRIBUTE");
 		discardUnusedChangingActivities =
 			config.getBooleanValue("rollout_discard_unused_change_edges");
+		streaming = config.getBooleanValue("rollout_streaming");
+		threads = config.getIntegerValue("rollout_threads");
 		CHECK_CONSISTENCY = config.getBooleanValue("DM_enable_consistency_checks");
 		DEBUG = config.getBooleanValue("DM_debug");
 		VERBOSE = config.getBooleanValue("DM_verbose");
@@ -234,6 +247,8 @@ public class Rollout
 				System.out.println("  also rolling out periodically (ean_model_frequency set to FREQUENCY_AS_ATTRIBUTE)");
 			else
 				System.out.println("  not rolling out periodically (ean_model_frequency not set to FREQUENCY_AS_ATTRIBUTE)");
+			if (streaming)
+				System.out.println("  streaming rolled-out activities to the output files using " + Math.max(threads, 1) + " thread(s)");
 			if (discardUnusedChangingActivities)
 				System.out.println("  ignoring changing activities with weight 0");
 			else
@@ -487,6 +502,52 @@ public class Rollout
 
 
 
+	private static void addLineHeadways()
+	{
+		if (! headways)
+			return;
+
+		int ID = pActivities.size() + 1;
+		LinkedList<PeriodicActivity> toAdd = new LinkedList<PeriodicActivity>();
+		for (PeriodicActivity currentPActivity: pActivities)
+		{
+			if (! currentPActivity.getType().equalsIgnoreCase("drive"))
+				continue;
+
+			PeriodicEvent pSource = currentPActivity.getSource();
+			int lowerBound = eventHeadways[pSource.getID()-1];
+			int upperBound = period - lowerBound;
+
+			PeriodicActivity a = new PeriodicActivity(ID, pSource, pSource, lowerBound, upperBound, 0, "headway");
+			toAdd.add(a);
+			ID++;
+		}
+		pActivities.addAll(toAdd);
+	}
+
+
+
+	// Same as rollOut, cleanHeadways and writeOutputFiles together, but
+	// without creating the non-periodic network in memory, see
+	// StreamingRollout.
+	private static void streamingRollOut() throws Exception
+	{
+		addLineHeadways();
+
+		StreamingRollout rollout = new StreamingRollout(pEvents, pActivities,
+				earliestTime, latestTime, period, onlyWholeTrips, rolloutFortimetabling, DEBUG, VERBOSE);
+		rollout.rollOut();
+		if (rollout.getNumberOfEvents() == 0)
+			throw new Exception("Rollout: empty network after rollout (only_whole_trips enabled and [DM_earliest_time,DM_latest_time] too small?)");
+
+		rollout.writeEvents(eventOutputFile, aperiodicEventHeader, endEventsofTripsFileName);
+		int numberOfActivities = rollout.writeActivities(activityOutputFile, aperiodicActivityHeader, threads);
+		if (numberOfActivities == 0)
+			throw new Exception("Rollout: empty network after rollout (only_whole_trips enabled and [DM_earliest_time,DM_latest_time] too small?)");
+	}
+
+
+
 	private static void rollOut()
 	{
 		// roll out the events
@@ -515,25 +576,7 @@ public class Rollout
 		// before rolling out the activities, we have to add some
 		// headways to make sure we have headways between vehicles
 		// of the same line
-		if (headways)
-		{
-			ID = pActivities.size() + 1;
-			LinkedList<PeriodicActivity> toAdd = new LinkedList<PeriodicActivity>();
-			for (PeriodicActivity currentPActivity: pActivities)
-			{
-				if (! currentPActivity.getType().equalsIgnoreCase("drive"))
-					continue;
-
-				PeriodicEvent pSource = currentPActivity.getSource();
-				int lowerBound = eventHeadways[pSource.getID()-1];
-				int upperBound = period - lowerBound;
-
-				PeriodicActivity a = new PeriodicActivity(ID, pSource, pSource, lowerBound, upperBound, 0, "headway");
-				toAdd.add(a);
-				ID++;
-			}
-			pActivities.addAll(toAdd);
-		}
+		addLineHeadways();
 
 
 
@@ -846,13 +889,9 @@ public class Rollout
 		// for more efficient CPU computations than with individual booleans)
 		int n = cean.events.length;
 		System.out.println("Events in Collapsed EAN: "+n);
-		long[][] m = new long[n][(n-1)/64 + 1];
-		for (int i = 0; i < n; i++)
-			for (CollapsedActivity a : cean.events[i].getOutgoingActivities())
-				Warshall.setReachable(m, i, a.getTarget().getID(), true);
 		System.out.println(new Date());
-		System.out.println("Calling Warshall to apply transitive closure...");
-		Warshall.applyTransitiveClosure(m);
+		System.out.println("Computing transitive closure...");
+		long[][] m = cean.computeReachabilityMatrix(threads);
 		System.out.println(new Date());
 
 		// save (and re-use) references to events by station ID
@@ -0,0 +1,616 @@
+/********************************************************************
+ * Index-based variant of the rollout in Rollout that does not      *
+ * create NonPeriodicEvent/NonPeriodicActivity objects at all.      *
+ *                                                                  *
+ * The rolled-out events are kept in primitive arrays, targets of   *
+ * rolled-out activities are found by binary search and the         *
+ * activities are written to the output file while they are         *
+ * generated, so the memory needed only depends on the number of    *
+ * rolled-out events. The produced files are the same as the ones   *
+ * written by Rollout (including the removal of incomplete trips,   *
+ * isolated events and duplicate headways).                         *
+ *                                                                  *
+ * For documentation, see Readme.txt.                               *
+ ********************************************************************/
+
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+
+public class StreamingRollout
+{
+	private final ArrayList<PeriodicEvent> pEvents;
+	private final ArrayList<PeriodicActivity> pActivities;
+	private final int earliestTime;
+	private final int latestTime;
+	private final int period;
+	private final boolean onlyWholeTrips;
+	private final boolean rolloutFortimetabling;
+	private final boolean DEBUG;
+	private final boolean VERBOSE;
+
+	// The rolled-out events are numbered from 0 in the order they are
+	// written. The events of periodic event p are the indices
+	// first[p], ..., first[p+1]-1, and sorted[first[p]], ...,
+	// sorted[first[p+1]-1] are the same indices sorted by time.
+	private int[] time;
+	private int[] parent;
+	private int[] first;
+	private int[] sorted;
+	private boolean[] removed;
+	// IDs of the remaining events in the output file, 0 for removed events
+	private int[] newID;
+	private int numberOfEvents;
+
+	// smallest lower bound and index of the first periodic headway activity
+	// attaining it for each ordered pair of periodic events, see cleanHeadways
+	// in Rollout
+	private HashMap<Long, int[]> bestHeadways;
+
+
+
+	public StreamingRollout(ArrayList<PeriodicEvent> pEvents,
+	                        ArrayList<PeriodicActivity> pActivities,
+	                        int earliestTime, int latestTime, int period,
+	                        boolean onlyWholeTrips, boolean rolloutFortimetabling,
+	                        boolean debug, boolean verbose)
+	{
+		this.pEvents = pEvents;
+		this.pActivities = pActivities;
+		this.earliestTime = earliestTime;
+		this.latestTime = latestTime;
+		this.period = period;
+		this.onlyWholeTrips = onlyWholeTrips;
+		this.rolloutFortimetabling = rolloutFortimetabling;
+		this.DEBUG = debug;
+		this.VERBOSE = verbose;
+	}
+
+
+
+	public int getNumberOfEvents()
+	{
+		return numberOfEvents;
+	}
+
+
+
+	// Rolls out the events and determines which of them have to be removed.
+	// Has to be called before the output files are written.
+	public void rollOut()
+	{
+		rollOutEvents();
+
+		if (onlyWholeTrips)
+		{
+			if (VERBOSE)
+				System.out.println("Rollout: removing incomplete trips");
+			removeIncompleteTrips();
+		}
+		else
+			removeIsolatedEvents();
+
+		if (DEBUG)
+		{
+			// there are no event objects to print as in Rollout, so the
+			// removed events are given by their periodic event and time
+			StringBuilder list = new StringBuilder();
+			for (int i=0; i<time.length; i++)
+				if (removed[i])
+					list.append("  periodic event " + pEvents.get(parent[i]).getID() + " at time " + time[i] + "\n");
+			System.out.print("Rollout: events to be removed:\n" + list);
+		}
+
+		newID = new int[time.length];
+		numberOfEvents = 0;
+		for (int i=0; i<time.length; i++)
+			if (! removed[i])
+				newID[i] = ++numberOfEvents;
+
+		computeBestHeadways();
+	}
+
+
+
+	private void rollOutEvents()
+	{
+		first = new int[pEvents.size()+1];
+		int count = 0;
+		for (int p=0; p<pEvents.size(); p++)
+		{
+			first[p] = count;
+			for (int pTime: pEvents.get(p).getPeriodicTimes())
+				count += Math.max(0, lastIteration(pTime) - firstIteration(pTime) + 1);
+		}
+		first[pEvents.size()] = count;
+
+		time = new int[count];
+		parent = new int[count];
+		sorted = new int[count];
+		removed = new boolean[count];
+
+		int index = 0;
+		for (int p=0; p<pEvents.size(); p++)
+		{
+			for (int pTime: pEvents.get(p).getPeriodicTimes())
+			{
+				for (int k = firstIteration(pTime); k <= lastIteration(pTime); k++)
+				{
+					time[index] = k*period + pTime;
+					parent[index] = p;
+					index++;
+				}
+			}
+
+			// sort the events of p by time and (for equal times) by index,
+			// like the list of rolled-out events of a PeriodicEvent
+			long[] keys = new long[first[p+1] - first[p]];
+			for (int i=0; i<keys.length; i++)
+				keys[i] = ((long) time[first[p]+i] << 32) | (first[p]+i);
+			Arrays.sort(keys);
+			for (int i=0; i<keys.length; i++)
+				sorted[first[p]+i] = (int) keys[i];
+		}
+	}
+
+	private int firstIteration(int pTime)
+	{
+		return (int) Math.ceil((earliestTime-pTime) / ((double) period));
+	}
+
+	private int lastIteration(int pTime)
+	{
+		return (int) Math.floor((latestTime-pTime) / ((double) period));
+	}
+
+
+
+	// Returns the position in sorted of the first rolled-out event of
+	// periodic event p taking place at minTime or later, or first[p+1]
+	// if there is no such event.
+	private int findTarget(int p, int minTime)
+	{
+		int low = first[p];
+		int high = first[p+1];
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (time[sorted[middle]] < minTime)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+
+
+	private static boolean isTripActivity(String type)
+	{
+		return type.equals("drive") || type.equals("wait");
+	}
+
+
+
+	// Same as the onlyWholeTrips part of Rollout.rollOut, but only the
+	// driving and waiting activities are needed and they are stored as arcs
+	// between event indices.
+	private void removeIncompleteTrips()
+	{
+		int n = time.length;
+
+		int m = 0;
+		for (PeriodicActivity a: pActivities)
+			if (isTripActivity(a.getType()))
+				m += first[a.getSource().getID()] - first[a.getSource().getID()-1];
+		int[] arcSource = new int[m];
+		int[] arcTarget = new int[m];
+		m = 0;
+		for (PeriodicActivity a: pActivities)
+		{
+			if (! isTripActivity(a.getType()))
+				continue;
+			int s = a.getSource().getID()-1;
+			int t = a.getTarget().getID()-1;
+			for (int i=first[s]; i<first[s+1]; i++)
+			{
+				int position = findTarget(t, time[sorted[i]] + a.getLowerBound());
+				if (position == first[t+1])
+					continue;
+				arcSource[m] = sorted[i];
+				arcTarget[m] = sorted[position];
+				m++;
+			}
+		}
+
+		// adjacency arrays (compressed sparse rows) of the arcs
+		int[] outStart = new int[n+1];
+		int[] inStart = new int[n+1];
+		for (int j=0; j<m; j++)
+		{
+			outStart[arcSource[j]+1]++;
+			inStart[arcTarget[j]+1]++;
+		}
+		for (int i=0; i<n; i++)
+		{
+			outStart[i+1] += outStart[i];
+			inStart[i+1] += inStart[i];
+		}
+		int[] out = new int[m];
+		int[] in = new int[m];
+		int[] outFill = Arrays.copyOf(outStart, n);
+		int[] inFill = Arrays.copyOf(inStart, n);
+		for (int j=0; j<m; j++)
+		{
+			out[outFill[arcSource[j]]++] = arcTarget[j];
+			in[inFill[arcTarget[j]]++] = arcSource[j];
+		}
+		arcSource = null;
+		arcTarget = null;
+
+		// First, remove all events without incoming driving or waiting
+		// activity which are not the start of some trip together with the
+		// rest of their trip.
+		int[] queue = new int[n];
+		int head = 0;
+		int tail = 0;
+		boolean[] marked = new boolean[n];
+		for (int i=0; i<n; i++)
+			if (inStart[i] == inStart[i+1] && ! pEvents.get(parent[i]).isStartofTrip())
+			{
+				marked[i] = true;
+				queue[tail++] = i;
+			}
+		while (head < tail)
+		{
+			int e = queue[head++];
+			if (removed[e])
+				continue;
+			removed[e] = true;
+			for (int j=outStart[e]; j<outStart[e+1]; j++)
+				if (! marked[out[j]])
+				{
+					marked[out[j]] = true;
+					queue[tail++] = out[j];
+				}
+		}
+
+		// Now, treat all events without outgoing driving or waiting activity
+		// to a remaining event which are not the end of some trip. As in
+		// Rollout, this includes events which have already been removed.
+		boolean[] removedFirst = Arrays.copyOf(removed, n);
+		Arrays.fill(marked, false);
+		head = 0;
+		tail = 0;
+		for (int i=0; i<n; i++)
+		{
+			if (pEvents.get(parent[i]).isEndOfTrip())
+				continue;
+			boolean last = true;
+			for (int j=outStart[i]; j<outStart[i+1]; j++)
+				if (! removedFirst[out[j]])
+				{
+					last = false;
+					break;
+				}
+			if (last)
+			{
+				marked[i] = true;
+				queue[tail++] = i;
+			}
+		}
+		while (head < tail)
+		{
+			int e = queue[head++];
+			removed[e] = true;
+			for (int j=inStart[e]; j<inStart[e+1]; j++)
+				if (! removedFirst[in[j]] && ! marked[in[j]])
+				{
+					marked[in[j]] = true;
+					queue[tail++] = in[j];
+				}
+		}
+	}
+
+
+
+	// Same as the else-branch of the onlyWholeTrips part of Rollout.rollOut:
+	// all events without any incoming or outgoing activity are removed.
+	private void removeIsolatedEvents()
+	{
+		boolean[] connected = new boolean[time.length];
+		for (PeriodicActivity a: pActivities)
+		{
+			int s = a.getSource().getID()-1;
+			int t = a.getTarget().getID()-1;
+			if (a.getType().equals("headway"))
+			{
+				if (s == t)
+				{
+					if (first[s+1] - first[s] >= 2)
+						Arrays.fill(connected, first[s], first[s+1], true);
+				}
+				else if (first[s+1] > first[s] && first[t+1] > first[t])
+				{
+					Arrays.fill(connected, first[s], first[s+1], true);
+					Arrays.fill(connected, first[t], first[t+1], true);
+				}
+				continue;
+			}
+			for (int i=first[s]; i<first[s+1]; i++)
+			{
+				int position = findTarget(t, time[sorted[i]] + a.getLowerBound());
+				if (position == first[t+1])
+					continue;
+				connected[sorted[i]] = true;
+				connected[sorted[position]] = true;
+			}
+		}
+		for (int i=0; i<time.length; i++)
+			removed[i] = ! connected[i];
+	}
+
+
+
+	// Rollout keeps for each pair of rolled-out events only the first of
+	// the headway activities between them with the smallest lower bound.
+	// As the lower bound only depends on the periodic activity and the
+	// direction, the remaining activity can be determined for each pair of
+	// periodic events beforehand.
+	private void computeBestHeadways()
+	{
+		bestHeadways = new HashMap<Long, int[]>();
+		for (int i=0; i<pActivities.size(); i++)
+		{
+			PeriodicActivity a = pActivities.get(i);
+			if (! a.getType().equals("headway"))
+				continue;
+			int s = a.getSource().getID()-1;
+			int t = a.getTarget().getID()-1;
+			updateBestHeadway(s, t, forwardLowerBound(a), i);
+			updateBestHeadway(t, s, backwardLowerBound(a), i);
+		}
+	}
+
+	private void updateBestHeadway(int s, int t, int lowerBound, int index)
+	{
+		int[] best = bestHeadways.get(pairKey(s, t));
+		if (best == null)
+			bestHeadways.put(pairKey(s, t), new int[] {lowerBound, index});
+		else if (lowerBound < best[0])
+		{
+			best[0] = lowerBound;
+			best[1] = index;
+		}
+	}
+
+	private boolean isBestHeadway(int s, int t, int lowerBound, int index)
+	{
+		int[] best = bestHeadways.get(pairKey(s, t));
+		return best[0] == lowerBound && best[1] == index;
+	}
+
+	private static long pairKey(int s, int t)
+	{
+		return ((long) s << 32) | t;
+	}
+
+	private int forwardLowerBound(PeriodicActivity a)
+	{
+		return Math.floorMod(a.getLowerBound(), period);
+	}
+
+	private int backwardLowerBound(PeriodicActivity a)
+	{
+		return period - Math.floorMod(a.getUpperBound(), period);
+	}
+
+
+
+	public void writeEvents(String eventOutputFile, String aperiodicEventHeader,
+	                        String endEventsofTripsFileName) throws IOException
+	{
+		File outputFile = new File(eventOutputFile);
+		outputFile.getParentFile().mkdirs();
+		PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(outputFile)));
+		PrintWriter endOut = new PrintWriter(new BufferedWriter(new FileWriter(endEventsofTripsFileName)));
+		out.println("#" + aperiodicEventHeader);
+		endOut.println("# event-id");
+		StringBuilder line = new StringBuilder(128);
+		for (int i=0; i<time.length; i++)
+		{
+			if (removed[i])
+				continue;
+			PeriodicEvent e = pEvents.get(parent[i]);
+			line.setLength(0);
+			line.append(newID[i]);
+			line.append("; ");
+			line.append(e.getID());
+			line.append("; ");
+			line.append(e.isArrivalEvent() ? "\"arrival\"" : "\"departure\"");
+			line.append("; ");
+			line.append(time[i]);
+			line.append("; ");
+			line.append(e.getWeight());
+			line.append("; ");
+			line.append(e.getStation());
+			out.println(line);
+			if (e.isEndOfTrip())
+				endOut.println(newID[i]);
+		}
+		endOut.close();
+		out.close();
+	}
+
+
+
+	// Writes the rolled-out activities and returns their number. If threads
+	// is larger than 1, the periodic activities are rolled out in parallel,
+	// but the activities are still written in the same order.
+	public int writeActivities(String activityOutputFile, String aperiodicActivityHeader,
+	                           int threads) throws IOException, InterruptedException
+	{
+		PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(activityOutputFile)));
+		out.println("#" + aperiodicActivityHeader);
+		int[] ID = {1};
+
+		if (threads <= 1)
+		{
+			StringBuilder lines = new StringBuilder(1 << 16);
+			for (int i=0; i<pActivities.size(); i++)
+			{
+				lines.setLength(0);
+				rollOutActivity(i, lines);
+				writeActivityLines(out, lines, ID);
+			}
+		}
+		else
+		{
+			// at most 2*threads periodic activities are rolled out at the
+			// same time, so only their results have to be kept in memory
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			ArrayDeque<Future<StringBuilder>> pending = new ArrayDeque<Future<StringBuilder>>();
+			try
+			{
+				int next = 0;
+				while (next < pActivities.size() || ! pending.isEmpty())
+				{
+					while (next < pActivities.size() && pending.size() < 2*threads)
+					{
+						final int index = next++;
+						pending.add(executor.submit(() -> {
+							StringBuilder lines = new StringBuilder(1024);
+							rollOutActivity(index, lines);
+							return lines;
+						}));
+					}
+					writeActivityLines(out, pending.remove().get(), ID);
+				}
+			}
+			catch (ExecutionException e)
+			{
+				throw new RuntimeException("Rollout: rolling out activities failed", e.getCause());
+			}
+			finally
+			{
+				executor.shutdownNow();
+			}
+		}
+		out.close();
+		return ID[0] - 1;
+	}
+
+	// Every line in lines is missing the activity ID, which is prepended
+	// here. Empty lines are activities which are not written but still
+	// get an ID, i.e., backward headways for nonperiodic timetabling.
+	private static void writeActivityLines(PrintWriter out, StringBuilder lines, int[] ID)
+	{
+		int start = 0;
+		for (int i=0; i<lines.length(); i++)
+		{
+			if (lines.charAt(i) != '\n')
+				continue;
+			if (i > start)
+			{
+				out.print(ID[0]);
+				out.append(lines, start, i);
+				out.println();
+			}
+			ID[0]++;
+			start = i+1;
+		}
+	}
+
+
+
+	// Appends the rolled-out activities of the periodic activity with the
+	// given index to lines, one line per activity, each without the leading
+	// activity ID.
+	private void rollOutActivity(int index, StringBuilder lines)
+	{
+		PeriodicActivity a = pActivities.get(index);
+		int pID = a.getID();
+		int s = a.getSource().getID()-1;
+		int t = a.getTarget().getID()-1;
+		String type = a.getType();
+		// For each activity, we equally distribute the customers
+		// over all occurrences of this activity during one period.
+		double weight = a.getWeight() / a.getSource().getFrequency();
+
+		if (type.equals("headway"))
+		{
+			int lowerBound = forwardLowerBound(a);
+			int upperBound = Math.floorMod(a.getUpperBound(), period);
+			int backwardLower = backwardLowerBound(a);
+			int backwardUpper = period-lowerBound;
+			boolean forward = isBestHeadway(s, t, lowerBound, index);
+			boolean backward = isBestHeadway(t, s, backwardLower, index);
+			// For s == t with equal lower bounds, forward and backward
+			// activities coincide and only the first one created is kept.
+			boolean tie = s == t && forward && backward;
+
+			for (int i=first[s]; i<first[s+1]; i++)
+			{
+				int source = sorted[i];
+				for (int j=first[t]; j<first[t+1]; j++)
+				{
+					int e = sorted[j];
+					if (source == e)
+						continue;
+					boolean keep = ! removed[source] && ! removed[e] && (! tie || i < j);
+					if (keep && forward)
+						appendActivity(lines, pID, type, source, e, lowerBound, upperBound, weight);
+					if (keep && backward)
+						appendActivity(lines, pID, type, e, source, backwardLower, backwardUpper, weight);
+				}
+			}
+		}
+		else
+		{
+			int lowerBound = a.getLowerBound();
+			int upperBound = a.getUpperBound();
+			for (int i=first[s]; i<first[s+1]; i++)
+			{
+				int source = sorted[i];
+				int position = findTarget(t, time[source] + lowerBound);
+				if (position == first[t+1] || removed[source] || removed[sorted[position]])
+					continue;
+				appendActivity(lines, pID, type, source, sorted[position], lowerBound, upperBound, weight);
+			}
+		}
+	}
+
+	private void appendActivity(StringBuilder lines, int pID, String type, int source,
+	                            int target, int lowerBound, int upperBound, double weight)
+	{
+		// for non-periodic timetabling, we consider only
+		// forward headways!
+		if (   rolloutFortimetabling
+		    && type.equals("headway")
+		    && time[target] - time[source] < lowerBound)
+		{
+			lines.append('\n');
+			return;
+		}
+
+		lines.append("; ");
+		lines.append(pID);
+		lines.append("; \"");
+		lines.append(type);
+		lines.append("\"; ");
+		lines.append(newID[source]);
+		lines.append("; ");
+		lines.append(newID[target]);
+		lines.append("; ");
+		lines.append(lowerBound);
+		lines.append("; ");
+		lines.append(upperBound);
+		lines.append("; ");
+		lines.append(weight);
+		lines.append('\n');
+	}
+}
@@ -0,0 +1,334 @@
+import java.util.*;
+
+/**
+ * Compact variant of {@link ShortestPathsGraph} with the same interface.
+ *
+ * Vertices and edges are numbered consecutively and stored in primitive
+ * arrays, the outgoing edges of all vertices in one contiguous array. Instead
+ * of a fibonacci heap with one handle object per vertex, a binary heap on an
+ * int array is used, which is faster in practice for the sparse graphs we
+ * handle. For a comparison, see {@link ShortestPathsBenchmark}.
+ *
+ * As in {@link ShortestPathsGraph}, multiple edges between the same vertices
+ * are reduced to the one with minimal weight. The method
+ * {@link ShortestPathsGraph.ShortestPathsMethod#BELLMAN_FORD} is supported
+ * for negative edge weights, all other methods use the binary heap.
+ *
+ * @param <V> Class used for nodes.
+ * @param <E> Class used for edges.
+ */
+
+public class CompactShortestPathsGraph<V, E> {
+
+    HashMap<V, Integer> vertexIndices = new HashMap<>();
+    HashMap<Long, Integer> edgeIndices = new HashMap<>();
+
+    int numberOfVertices = 0;
+    int numberOfEdges = 0;
+    Object[] edgeObjects = new Object[16];
+    int[] edgeSources = new int[16];
+    int[] edgeTargets = new int[16];
+    double[] edgeWeights = new double[16];
+
+    // Outgoing edges of vertex v are edgeOrder[outgoingStart[v]] to
+    // edgeOrder[outgoingStart[v + 1] - 1], valid if not structureChanged.
+    boolean structureChanged = true;
+    int[] outgoingStart;
+    int[] edgeOrder;
+
+    // Shortest paths tree of the last computation.
+    double[] distances = new double[0];
+    int[] predecessors = new int[0];
+
+    // Binary heap of vertices, ordered by distance.
+    int[] heap = new int[0];
+    int[] heapPositions = new int[0];
+    int heapSize;
+
+    ShortestPathsGraph.ShortestPathsMethod method =
+        ShortestPathsGraph.ShortestPathsMethod.FIBONACCI_HEAP;
+    boolean negativeEdgeExists = false;
+    Random random = null;
+
+    /** Adds a vertex object to the shortest paths graph.
+     *
+     * @param vertex The vertex to add.
+     */
+    public void addVertex(V vertex){
+        if(vertexIndices.containsKey(vertex)){
+            return;
+        }
+        vertexIndices.put(vertex, numberOfVertices++);
+        structureChanged = true;
+    }
+
+    /** Adds an edge object to the shortest paths graph.
+     *
+     * @param edge The edge object to add.
+     * @param sourceNode The edges source.
+     * @param targetNode The edges target.
+     * @param weight The edges weight for the shortest paths.
+     */
+    public void addEdge(E edge, V sourceNode, V targetNode, Double weight){
+        int source = vertexIndices.get(sourceNode);
+        int target = vertexIndices.get(targetNode);
+        long key = ((long) source << 32) | target;
+
+        Integer index = edgeIndices.get(key);
+
+        if(index == null){
+            if(numberOfEdges == edgeSources.length){
+                int capacity = 2 * numberOfEdges;
+                edgeObjects = Arrays.copyOf(edgeObjects, capacity);
+                edgeSources = Arrays.copyOf(edgeSources, capacity);
+                edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+                edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            }
+            index = numberOfEdges++;
+            edgeIndices.put(key, index);
+            edgeSources[index] = source;
+            edgeTargets[index] = target;
+            edgeWeights[index] = Double.POSITIVE_INFINITY;
+            structureChanged = true;
+        }
+
+        if(weight < edgeWeights[index]){
+            edgeObjects[index] = edge;
+            edgeWeights[index] = weight;
+        }
+
+        if(edgeWeights[index] < 0){
+            negativeEdgeExists = true;
+        }
+    }
+
+    private void buildStructure(){
+        if(!structureChanged){
+            return;
+        }
+
+        outgoingStart = new int[numberOfVertices + 1];
+        for(int e = 0; e < numberOfEdges; e++){
+            outgoingStart[edgeSources[e] + 1]++;
+        }
+        for(int v = 0; v < numberOfVertices; v++){
+            outgoingStart[v + 1] += outgoingStart[v];
+        }
+
+        // Counting sort by source, keeps the insertion order per vertex.
+        int[] next = Arrays.copyOf(outgoingStart, numberOfVertices);
+        edgeOrder = new int[numberOfEdges];
+        for(int e = 0; e < numberOfEdges; e++){
+            edgeOrder[next[edgeSources[e]]++] = e;
+        }
+
+        if(distances.length != numberOfVertices){
+            distances = new double[numberOfVertices];
+            predecessors = new int[numberOfVertices];
+            heap = new int[numberOfVertices];
+            heapPositions = new int[numberOfVertices];
+        }
+
+        structureChanged = false;
+    }
+
+    /** Computes a shortest paths tree.
+     *
+     * @param sourceVertex Start vertex of the tree.
+     * @throws GraphMalformedException
+     */
+    public void compute(V sourceVertex) throws GraphMalformedException{
+        buildStructure();
+
+        int source = vertexIndices.get(sourceVertex);
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessors, -1);
+        distances[source] = 0.0;
+
+        if(method == ShortestPathsGraph.ShortestPathsMethod.BELLMAN_FORD){
+            computeBellmanFord();
+        }
+        else{
+            computeBinaryHeap(source);
+        }
+    }
+
+    private void computeBinaryHeap(int source) throws GraphMalformedException{
+
+        if(random != null){
+            throw new RuntimeException("randomized shortest paths " +
+                    "unsupported for compact shortest paths graphs");
+        }
+
+        if(negativeEdgeExists){
+            throw new GraphMalformedException("graph has negative edge weights");
+        }
+
+        Arrays.fill(heapPositions, -1);
+        heapSize = 0;
+        insert(source);
+
+        while(heapSize > 0){
+            int vertex = deleteMin();
+            double distance = distances[vertex];
+
+            int end = outgoingStart[vertex + 1];
+
+            for(int i = outgoingStart[vertex]; i < end; i++){
+                int e = edgeOrder[i];
+                int target = edgeTargets[e];
+                double newDistance = distance + edgeWeights[e];
+
+                if(newDistance < distances[target]){
+                    distances[target] = newDistance;
+                    predecessors[target] = e;
+                    if(heapPositions[target] == -1){
+                        insert(target);
+                    }
+                    else{
+                        siftUp(heapPositions[target]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void insert(int vertex){
+        heap[heapSize] = vertex;
+        heapPositions[vertex] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int deleteMin(){
+        int minimum = heap[0];
+        heapPositions[minimum] = -2;
+        heapSize--;
+        if(heapSize > 0){
+            heap[0] = heap[heapSize];
+            heapPositions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return minimum;
+    }
+
+    private void siftUp(int position){
+        int vertex = heap[position];
+        double distance = distances[vertex];
+        while(position > 0){
+            int parent = (position - 1) >> 1;
+            if(distances[heap[parent]] <= distance){
+                break;
+            }
+            heap[position] = heap[parent];
+            heapPositions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = vertex;
+        heapPositions[vertex] = position;
+    }
+
+    private void siftDown(int position){
+        int vertex = heap[position];
+        double distance = distances[vertex];
+        while(true){
+            int child = 2 * position + 1;
+            if(child >= heapSize){
+                break;
+            }
+            if(child + 1 < heapSize &&
+                    distances[heap[child + 1]] < distances[heap[child]]){
+                child++;
+            }
+            if(distance <= distances[heap[child]]){
+                break;
+            }
+            heap[position] = heap[child];
+            heapPositions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = vertex;
+        heapPositions[vertex] = position;
+    }
+
+    private void computeBellmanFord() throws GraphMalformedException{
+        if(random != null){
+            throw new RuntimeException("randomized shortest paths " +
+                    "unsupported for bellman ford");
+        }
+
+        boolean changed = true;
+
+        for(int round = 0; round < numberOfVertices && changed; round++){
+            changed = false;
+            for(int e = 0; e < numberOfEdges; e++){
+                double newDistance = distances[edgeSources[e]] + edgeWeights[e];
+                if(newDistance < distances[edgeTargets[e]]){
+                    distances[edgeTargets[e]] = newDistance;
+                    predecessors[edgeTargets[e]] = e;
+                    changed = true;
+                }
+            }
+        }
+
+        if(changed){
+            for(int e = 0; e < numberOfEdges; e++){
+                if(distances[edgeSources[e]] + edgeWeights[e] <
+                        distances[edgeTargets[e]]){
+                    throw new GraphMalformedException(
+                            "graph contains negative cycle");
+                }
+            }
+        }
+    }
+
+    /** Sets the shortest paths method. All methods but
+     * {@link ShortestPathsGraph.ShortestPathsMethod#BELLMAN_FORD} use the
+     * binary heap.
+     *
+     * @param method The method to set.
+     */
+    public void setMethod(ShortestPathsGraph.ShortestPathsMethod method){
+        this.method = method;
+    }
+
+    /** Returns a shortest path in the shortest path tree computed by
+     * {@link #compute(Object)}, which has to be run first.
+     *
+     * @param targetVertex The target vertex.
+     * @return The path from th tree root to target vertex as a sequence of
+     * edges.
+     */
+    @SuppressWarnings("unchecked")
+    public LinkedList<E> trackPath(V targetVertex){
+
+        LinkedList<E> path = new LinkedList<>();
+
+        int predecessor = predecessors[vertexIndices.get(targetVertex)];
+
+        while(predecessor != -1){
+            path.addFirst((E) edgeObjects[predecessor]);
+            predecessor = predecessors[edgeSources[predecessor]];
+        }
+
+        return path;
+    }
+
+    /** Returns the length of a shortest path in the shortest path tree computed
+     * by {@link #compute(Object)}, which has to be run first.
+     *
+     * @param targetVertex The target vertex.
+     * @return The distance from the tree root to the target vertex.
+     */
+    public double getDistance(V targetVertex){
+        return distances[vertexIndices.get(targetVertex)];
+    }
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+}
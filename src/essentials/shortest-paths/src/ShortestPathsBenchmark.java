@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/** Compares the running times of the methods of {@link ShortestPathsGraph}
+ * and of {@link CompactShortestPathsGraph} on a random sparse graph.
+ *
+ * The graph consists of a cycle through all nodes, such that all nodes are
+ * reachable, and additional random edges with integral weights. Bellman-Ford
+ * is only run for a few sources and small graphs, since it always does as
+ * many rounds as there are nodes. The distances from these sources are
+ * compared node by node with those of {@link CompactShortestPathsGraph}; on a
+ * mismatch the benchmark stops with exit code 1.
+ */
+public class ShortestPathsBenchmark {
+
+    private static final int BELLMAN_FORD_SOURCES = 2;
+    private static final double BELLMAN_FORD_MAXIMAL_WORK = 1e9;
+
+    private interface Graph {
+        void addVertex(Integer vertex);
+        void addEdge(Integer edge, Integer source, Integer target, Double weight);
+        void compute(Integer source) throws GraphMalformedException;
+        double getDistance(Integer target);
+    }
+
+    private static Graph wrap(final ShortestPathsGraph<Integer, Integer> sp){
+        return new Graph() {
+            public void addVertex(Integer vertex){ sp.addVertex(vertex); }
+            public void addEdge(Integer edge, Integer source, Integer target,
+                    Double weight){ sp.addEdge(edge, source, target, weight); }
+            public void compute(Integer source) throws GraphMalformedException{
+                sp.compute(source);
+            }
+            public double getDistance(Integer target){
+                return sp.getDistance(target);
+            }
+        };
+    }
+
+    private static Graph wrap(final CompactShortestPathsGraph<Integer, Integer> sp){
+        return new Graph() {
+            public void addVertex(Integer vertex){ sp.addVertex(vertex); }
+            public void addEdge(Integer edge, Integer source, Integer target,
+                    Double weight){ sp.addEdge(edge, source, target, weight); }
+            public void compute(Integer source) throws GraphMalformedException{
+                sp.compute(source);
+            }
+            public double getDistance(Integer target){
+                return sp.getDistance(target);
+            }
+        };
+    }
+
+    private static void run(String name, Graph sp, int numberOfNodes,
+            ArrayList<int[]> edges, ArrayList<Double> weights,
+            int numberOfSources, double[][] distances)
+                    throws GraphMalformedException{
+
+        long start = System.nanoTime();
+        for(int node = 0; node < numberOfNodes; node++){
+            sp.addVertex(node);
+        }
+        for(int edge = 0; edge < edges.size(); edge++){
+            sp.addEdge(edge, edges.get(edge)[0], edges.get(edge)[1],
+                    weights.get(edge));
+        }
+        long built = System.nanoTime();
+
+        double[][] computedDistances =
+            new double[Math.min(numberOfSources, distances.length)][];
+        for(int source = 0; source < numberOfSources; source++){
+            sp.compute(source);
+            if(source < computedDistances.length){
+                computedDistances[source] = new double[numberOfNodes];
+                for(int node = 0; node < numberOfNodes; node++){
+                    computedDistances[source][node] = sp.getDistance(node);
+                }
+            }
+        }
+        long computed = System.nanoTime();
+
+        System.out.println(String.format("%-22s %10.1f %14.3f", name,
+                (built - start) / 1e6,
+                (computed - built) / 1e6 / numberOfSources));
+
+        // the first run is the reference, all weights are integral, so the
+        // distances have to coincide exactly
+        for(int source = 0; source < computedDistances.length; source++){
+            if(distances[source] == null){
+                distances[source] = computedDistances[source];
+                continue;
+            }
+            for(int node = 0; node < numberOfNodes; node++){
+                if(computedDistances[source][node] != distances[source][node]){
+                    System.err.println(name + ": distance from " + source
+                            + " to " + node + " is "
+                            + computedDistances[source][node] + " instead of "
+                            + distances[source][node]);
+                    System.exit(1);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args){
+        if(args.length != 4){
+            System.err.println("Wrong number of arguments. Requiring: "
+                    + "NUMBER_OF_NODES NUMBER_OF_EDGES NUMBER_OF_SOURCES SEED");
+            System.exit(1);
+        }
+
+        int numberOfNodes = Integer.parseInt(args[0]);
+        int numberOfEdges = Integer.parseInt(args[1]);
+        int numberOfSources = Math.min(numberOfNodes, Integer.parseInt(args[2]));
+        Random random = new Random(Long.parseLong(args[3]));
+
+        ArrayList<int[]> edges = new ArrayList<>();
+        ArrayList<Double> weights = new ArrayList<>();
+        for(int node = 0; node < numberOfNodes; node++){
+            edges.add(new int[]{node, (node + 1) % numberOfNodes});
+            weights.add((double) (1 + random.nextInt(100)));
+        }
+        while(edges.size() < numberOfEdges){
+            edges.add(new int[]{random.nextInt(numberOfNodes),
+                    random.nextInt(numberOfNodes)});
+            weights.add((double) (1 + random.nextInt(100)));
+        }
+
+        try {
+            System.out.println(String.format("%-22s %10s %14s", "method",
+                    "build [ms]", "source [ms]"));
+            double[][] distances = new double[BELLMAN_FORD_SOURCES][];
+            run("COMPACT_BINARY_HEAP",
+                    wrap(new CompactShortestPathsGraph<Integer, Integer>()),
+                    numberOfNodes, edges, weights, numberOfSources, distances);
+            for(ShortestPathsGraph.ShortestPathsMethod method :
+                ShortestPathsGraph.ShortestPathsMethod.values()){
+
+                boolean bellmanFord =
+                    method == ShortestPathsGraph.ShortestPathsMethod.BELLMAN_FORD;
+                if(bellmanFord && (double) numberOfNodes * numberOfEdges >
+                    BELLMAN_FORD_MAXIMAL_WORK){
+                    System.out.println(String.format("%-22s %10s", method.name(),
+                            "skipped"));
+                    continue;
+                }
+
+                ShortestPathsGraph<Integer, Integer> sp =
+                    new ShortestPathsGraph<>();
+                sp.setMethod(method);
+                run(method.name(), wrap(sp), numberOfNodes, edges, weights,
+                        bellmanFord ? Math.min(numberOfSources,
+                                BELLMAN_FORD_SOURCES) : numberOfSources,
+                        distances);
+            }
+
+        } catch (GraphMalformedException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
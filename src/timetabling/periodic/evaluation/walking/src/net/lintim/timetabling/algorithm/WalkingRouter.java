@@ -15,8 +15,8 @@ import net.lintim.util.PeriodicEanHelper;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.function.ToDoubleFunction;
-import java.util.function.ToIntFunction;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class WalkingRouter {
@@ -279,7 +279,6 @@ public class WalkingRouter {
     protected void routePassengers() throws IOException {
         logger.debug("Route passengers");
         ArrayList<RoutingNode> startNodes = new ArrayList<>();
-        Dijkstra<RoutingNode, RoutingEdge, Graph<RoutingNode, RoutingEdge>> dijkstra;
         // Iterate once, compute the weights of all start nodes
         Map<RoutingNode, Double> weightsPerStartNode = new HashMap<>();
         for (InfrastructureNode originNode: walkingGraph.getNodes()) {
@@ -305,81 +304,194 @@ public class WalkingRouter {
             }
         }
 
-        // Now, iterate all passengers and compute the new shortest paths
-        int index = 0;
-        Map<Pair<Integer, Integer>, List<Pair<Pair<Double, Double>, Pair<Integer, Integer>>>> travelTimes = new HashMap<>();
-        for (InfrastructureNode destinationNode: walkingGraph.getNodes()) {
-            if (!nodesWithIncomingDemand.contains(destinationNode.getId())) {
-                continue;
-            }
-            index += 1;
-            logger.debug("Compute paths for end node " + index + " of " + nodesWithIncomingDemand.size());
-            // Now compute all shortest paths for the different start nodes
-            RoutingNode endNode = endNodeByNodeId.get(destinationNode.getId());
-            dijkstra = new Dijkstra<>(routingGraph, endNode, e -> e.getLength(parameters.getWalkingUtility(),
-                parameters.getAdaptionUtility(), parameters.getChangePenalty(), parameters.getChangeUtility()));
-            for (InfrastructureNode originNode: walkingGraph.getNodes()) {
-                double demand = this.od.getValue(originNode.getId(), destinationNode.getId());
-                if (demand == 0 || originNode.equals(destinationNode)) {
-                    continue;
-                }
-                List<Pair<Pair<Double, Double>, Pair<Integer, Integer>>> travelTimeList = new ArrayList<>();
-                for (RoutingNode startNode: startNodesByNodeId.get(originNode.getId())) {
-                    double length = dijkstra.computeShortestPath(startNode);
-                    double weight = weightsPerStartNode.get(startNode);
-                    // Set the new weights
-                    int firstArrivalNodeId = -1;
-                    int lastDepartureNodeId = -1;
-                    for (RoutingEdge edge : dijkstra.getPath(startNode).getEdges()) {
-                        if (edge.getRightNode().getType() == RoutingNode.NodeType.ARRIVAL && firstArrivalNodeId == -1) {
-                            firstArrivalNodeId = edge.getRightNode().getCorrespondingId();
-                        }
-                        else if (edge.getRightNode().getType() == RoutingNode.NodeType.DEPARTURE) {
-                            lastDepartureNodeId = edge.getRightNode().getCorrespondingId();
-                        }
-                        edge.addWeight(weight * demand);
-                    }
-                    int finalFirstArrivalNodeId = firstArrivalNodeId;
-                    int firstArrivalStopId = ptn.getNode((Stop s) -> s.getLongName().equals(String.valueOf(finalFirstArrivalNodeId)), true).getId();
-                    int finalLastDepartureNodeId = lastDepartureNodeId;
-                    int lastDepartureStopId = ptn.getNode((Stop s) -> s.getLongName().equals(String.valueOf(finalLastDepartureNodeId)), true).getId();
-                    travelTimeList.add(new Pair<>(new Pair<>(weight * demand, length), new Pair<>(lastDepartureStopId, firstArrivalStopId)));
+        // Index the stops by their long name, i.e., by the id of the corresponding infrastructure node
+        Map<String, Integer> stopIdByLongName = new HashMap<>();
+        for (Stop stop: ptn.getNodes()) {
+            stopIdByLongName.putIfAbsent(stop.getLongName(), stop.getId());
+        }
+        // Index the routing edges by id, the weights are accumulated per thread in arrays by this index
+        List<RoutingEdge> routingEdges = new ArrayList<>(routingGraph.getEdges());
+        int numberOfEdgeIds = routingEdges.stream().mapToInt(RoutingEdge::getId).max().orElse(0) + 1;
+        List<InfrastructureNode> destinationNodes = walkingGraph.getNodes().stream()
+            .filter(node -> nodesWithIncomingDemand.contains(node.getId())).collect(Collectors.toList());
+        List<InfrastructureNode> originNodes = new ArrayList<>(walkingGraph.getNodes());
+
+        // Now, iterate all passengers and compute the new shortest paths. The destinations are distributed among the
+        // threads in a fixed way and the results are merged in thread order, i.e., the result is deterministic.
+        int numberOfThreads = Math.max(1, Math.min(destinationNodes.size(), parameters.getThreads() > 0 ?
+            parameters.getThreads() : Runtime.getRuntime().availableProcessors()));
+        AtomicInteger finishedDestinations = new AtomicInteger();
+        List<Callable<RoutingResult>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < numberOfThreads; thread++) {
+            int firstDestination = thread;
+            tasks.add(() -> {
+                RoutingResult result = new RoutingResult(numberOfEdgeIds);
+                for (int destination = firstDestination; destination < destinationNodes.size();
+                     destination += numberOfThreads) {
+                    routeToDestination(destinationNodes.get(destination), originNodes, weightsPerStartNode,
+                        stopIdByLongName, result);
+                    logger.debug("Computed paths for end node " + finishedDestinations.incrementAndGet() + " of " +
+                        destinationNodes.size());
                 }
-                travelTimes.put(new Pair<>(originNode.getId(), destinationNode.getId()), travelTimeList);
+                return result;
+            });
+        }
+        List<RoutingResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            for (Future<RoutingResult> future: executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof LinTimException) {
+                throw (LinTimException) cause;
+            }
+            throw new LinTimException("Routing the passengers failed: " + cause);
+        } finally {
+            executor.shutdown();
+        }
+        for (RoutingEdge edge: routingEdges) {
+            for (RoutingResult result: results) {
+                edge.addWeight(result.edgeWeights[edge.getId()]);
             }
         }
+
         if (parameters.isOutputTravelTimes()) {
+            List<TravelTimes> travelTimes = new ArrayList<>();
+            for (RoutingResult result: results) {
+                travelTimes.addAll(result.travelTimes);
+            }
+            travelTimes.sort(Comparator.comparingInt((TravelTimes t) -> t.origin).thenComparingInt(t -> t.destination));
             CsvWriter travelTimeWriter = new CsvWriter(parameters.getTravelTimeOutputFileName(), parameters.getTravelTimeOutputHeader());
-            List<Pair<Integer, Integer>> keys = new ArrayList<>(travelTimes.keySet());
-            keys.sort(Comparator.comparingInt((ToIntFunction<Pair<Integer, Integer>>) Pair::getFirstElement).thenComparing(Pair::getSecondElement));
-            for (Pair<Integer, Integer> key: keys) {
-                List<Pair<Pair<Double, Double>, Pair<Integer, Integer>>> values = travelTimes.get(key);
-                values.sort(Comparator.comparingDouble(p -> p.getFirstElement().getSecondElement()));
+            for (TravelTimes values: travelTimes) {
+                Integer[] order = new Integer[values.size];
+                for (int i = 0; i < values.size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparingDouble(i -> values.length[i]));
                 double currentLength = -1;
                 double currentDemand = 0;
                 int currentDepartureStop = -1;
                 int currentArrivalStop = -1;
-                for (Pair<Pair<Double, Double>, Pair<Integer, Integer>> value: values) {
-                    if (currentLength == value.getFirstElement().getSecondElement()) {
-                        currentDemand += value.getFirstElement().getFirstElement();
+                for (int i: order) {
+                    if (currentLength == values.length[i]) {
+                        currentDemand += values.demand[i];
                     }
                     else {
                         if (currentLength != -1) {
-                            travelTimeWriter.writeLine(String.valueOf(key.getFirstElement()),
-                                String.valueOf(key.getSecondElement()), String.valueOf(currentDepartureStop), String.valueOf(currentArrivalStop),
+                            travelTimeWriter.writeLine(String.valueOf(values.origin),
+                                String.valueOf(values.destination), String.valueOf(currentDepartureStop), String.valueOf(currentArrivalStop),
                                 String.valueOf(currentDemand), String.valueOf(currentLength));
                         }
-                        currentLength = value.getFirstElement().getSecondElement();
-                        currentDemand = value.getFirstElement().getFirstElement();
-                        currentDepartureStop = value.getSecondElement().getFirstElement();
-                        currentArrivalStop = value.getSecondElement().getSecondElement();
+                        currentLength = values.length[i];
+                        currentDemand = values.demand[i];
+                        currentDepartureStop = values.departureStop[i];
+                        currentArrivalStop = values.arrivalStop[i];
                     }
                 }
-                travelTimeWriter.writeLine(String.valueOf(key.getFirstElement()),
-                    String.valueOf(key.getSecondElement()), String.valueOf(currentDepartureStop), String.valueOf(currentArrivalStop),
+                travelTimeWriter.writeLine(String.valueOf(values.origin),
+                    String.valueOf(values.destination), String.valueOf(currentDepartureStop), String.valueOf(currentArrivalStop),
                     String.format("%.2f", currentDemand), String.valueOf(currentLength));
             }
             travelTimeWriter.close();
         }
     }
+
+    /**
+     * Compute the shortest paths of all passengers to the given destination, add their weights to the edge weights
+     * of the result and store their travel times, if they should be written.
+     */
+    private void routeToDestination(InfrastructureNode destinationNode, List<InfrastructureNode> originNodes,
+                                    Map<RoutingNode, Double> weightsPerStartNode, Map<String, Integer> stopIdByLongName,
+                                    RoutingResult result) {
+        // Now compute all shortest paths for the different start nodes
+        RoutingNode endNode = endNodeByNodeId.get(destinationNode.getId());
+        Dijkstra<RoutingNode, RoutingEdge, Graph<RoutingNode, RoutingEdge>> dijkstra = new Dijkstra<>(routingGraph,
+            endNode, e -> e.getLength(parameters.getWalkingUtility(), parameters.getAdaptionUtility(),
+            parameters.getChangePenalty(), parameters.getChangeUtility()));
+        for (InfrastructureNode originNode: originNodes) {
+            double demand = this.od.getValue(originNode.getId(), destinationNode.getId());
+            if (demand == 0 || originNode.equals(destinationNode)) {
+                continue;
+            }
+            Set<RoutingNode> startNodes = startNodesByNodeId.get(originNode.getId());
+            TravelTimes travelTimes = parameters.isOutputTravelTimes() ? new TravelTimes(originNode.getId(),
+                destinationNode.getId(), startNodes.size()) : null;
+            for (RoutingNode startNode: startNodes) {
+                double length = dijkstra.computeShortestPath(startNode);
+                double weight = weightsPerStartNode.get(startNode);
+                // Set the new weights
+                int firstArrivalNodeId = -1;
+                int lastDepartureNodeId = -1;
+                for (RoutingEdge edge : dijkstra.getPath(startNode).getEdges()) {
+                    if (edge.getRightNode().getType() == RoutingNode.NodeType.ARRIVAL && firstArrivalNodeId == -1) {
+                        firstArrivalNodeId = edge.getRightNode().getCorrespondingId();
+                    }
+                    else if (edge.getRightNode().getType() == RoutingNode.NodeType.DEPARTURE) {
+                        lastDepartureNodeId = edge.getRightNode().getCorrespondingId();
+                    }
+                    result.edgeWeights[edge.getId()] += weight * demand;
+                }
+                if (travelTimes != null) {
+                    travelTimes.add(weight * demand, length, getStopId(stopIdByLongName, lastDepartureNodeId),
+                        getStopId(stopIdByLongName, firstArrivalNodeId));
+                }
+            }
+            if (travelTimes != null) {
+                result.travelTimes.add(travelTimes);
+            }
+        }
+    }
+
+    private static int getStopId(Map<String, Integer> stopIdByLongName, int nodeId) {
+        Integer stopId = stopIdByLongName.get(String.valueOf(nodeId));
+        if (stopId == null) {
+            throw new LinTimException("Could not find a stop for infrastructure node " + nodeId);
+        }
+        return stopId;
+    }
+
+    /**
+     * The edge weights and travel times computed by one thread.
+     */
+    private static class RoutingResult {
+        private final double[] edgeWeights;
+        private final List<TravelTimes> travelTimes = new ArrayList<>();
+
+        private RoutingResult(int numberOfEdgeIds) {
+            edgeWeights = new double[numberOfEdgeIds];
+        }
+    }
+
+    /**
+     * The travel times of all start nodes of an od pair, i.e., the demand, the perceived travel time, the stop of the
+     * last departure and the stop of the first arrival.
+     */
+    private static class TravelTimes {
+        private final int origin;
+        private final int destination;
+        private final double[] demand;
+        private final double[] length;
+        private final int[] departureStop;
+        private final int[] arrivalStop;
+        private int size = 0;
+
+        private TravelTimes(int origin, int destination, int capacity) {
+            this.origin = origin;
+            this.destination = destination;
+            demand = new double[capacity];
+            length = new double[capacity];
+            departureStop = new int[capacity];
+            arrivalStop = new int[capacity];
+        }
+
+        private void add(double demand, double length, int departureStop, int arrivalStop) {
+            this.demand[size] = demand;
+            this.length[size] = length;
+            this.departureStop[size] = departureStop;
+            this.arrivalStop[size] = arrivalStop;
+            size++;
+        }
+    }
 }
@@ -13,6 +13,7 @@ public class WalkingParameters {
     private final boolean outputTravelTimes;
     private final String travelTimeOutputFileName;
     private final String travelTimeOutputHeader;
+    private final int threads;
 
     public WalkingParameters(Config config) {
         periodLength = config.getIntegerValue("period_length");
@@ -23,6 +24,7 @@ public class WalkingParameters {
         adaptionUtility = config.getDoubleValue("gen_adaption_utility");
         outputTravelTimes = config.getBooleanValue("tim_eval_extended");
         changeUtility = config.getDoubleValue("gen_change_utility");
+        threads = config.getIntegerValue("gen_walking_routing_threads");
         if(outputTravelTimes) {
             travelTimeOutputFileName = config.getStringValue("filename_perceived_travel_time_walking");
             travelTimeOutputHeader = config.getStringValue("travel_time_walking_output_header");
@@ -72,4 +74,8 @@ public class WalkingParameters {
     public int getMaxChangeTime() {
         return maxChangeTime;
     }
+
+    public int getThreads() {
+        return threads;
+    }
 }
@@ -57,22 +57,26 @@ public class EanPreProcessor {
         // If this happens, we update the corresponding activities, since the given fixed times should take priority
         // above generic time bounds on activities. But the log will contain all updates, allowing developers to
         // debug this if the behavior is unintended by them.
+		// Only the outgoing activities of fixed events are checked, instead of all pairs of fixed events
+		List<PeriodicActivity> activitiesToUpdate = new ArrayList<>();
 		for (Map.Entry<PeriodicEvent, Pair<Integer, Integer>> sourceEventEntry : eventTimeBounds.entrySet()) {
-		    if (isNotFixedOnOneTime(sourceEventEntry)) {
+		    if (isNotFixedOnOneTime(sourceEventEntry.getValue())) {
 		        continue;
             }
-			for (Map.Entry<PeriodicEvent, Pair<Integer, Integer>> targetEventEntry : eventTimeBounds.entrySet()) {
-				if (isNotFixedOnOneTime(targetEventEntry) || sourceEventEntry.equals(targetEventEntry)) {
+			for (PeriodicActivity activity : ean.getOutgoingEdges(sourceEventEntry.getKey())) {
+				Pair<Integer, Integer> targetBounds = eventTimeBounds.get(activity.getRightNode());
+				if (targetBounds == null || isNotFixedOnOneTime(targetBounds) || activity.getRightNode().equals
+						(sourceEventEntry.getKey())) {
 					continue;
 				}
-				Optional<PeriodicActivity> activity = ean.getEdge(sourceEventEntry.getKey(), targetEventEntry.getKey());
-				activity.ifPresent(this::updateActivity);
+				activitiesToUpdate.add(activity);
 			}
 		}
+		activitiesToUpdate.forEach(this::updateActivity);
 	}
 
-	private boolean isNotFixedOnOneTime(Map.Entry<PeriodicEvent, Pair<Integer, Integer>> mapEntry) {
-	    return !mapEntry.getValue().getFirstElement().equals(mapEntry.getValue().getSecondElement());
+	private boolean isNotFixedOnOneTime(Pair<Integer, Integer> timeBounds) {
+	    return !timeBounds.getFirstElement().equals(timeBounds.getSecondElement());
     }
 
 	private void updateActivity(PeriodicActivity activity) {
@@ -0,0 +1,522 @@
+package net.lintim.algorithm.timetabling;
+
+import net.lintim.exception.LinTimException;
+import net.lintim.model.*;
+import net.lintim.model.impl.ArrayListGraph;
+import net.lintim.util.Logger;
+import net.lintim.util.Pair;
+import net.lintim.util.PeriodicEanHelper;
+import net.lintim.util.Statistic;
+
+import java.util.*;
+
+/**
+ * Class for reducing a periodic ean before timetabling. The reduction consists of the following steps:
+ * <ul>
+ *     <li>In every connected component, one event is fixed to time 0 (the fix event, if there is one). Periodic
+ *     time windows of the events are propagated from there along the activities with a worklist algorithm.</li>
+ *     <li>The bounds of the activities are tightened to the durations possible within the time windows.</li>
+ *     <li>Events joined by an activity with a fixed duration are merged, i.e., only a representative remains and the
+ *     time of the other events is given by an offset to the representative.</li>
+ *     <li>Redundant activities are removed, i.e., activities between merged events, activities without passengers
+ *     that are always feasible or dominated by a parallel activity. Parallel activities with the same bounds are
+ *     combined.</li>
+ * </ul>
+ * Every timetable of the reduced ean can be expanded to a timetable of the original ean with the same durations on
+ * all remaining activities, see {@link #expandTimetable(Graph, Graph, Map, int)}. The reduced ean is numbered
+ * consecutively.
+ * <p>
+ * For models that depend on the events and activities of the lines, {@link #tightenEan(Graph, int)} only performs
+ * the first two steps and keeps all events and activities with their ids.
+ */
+public class EanReducer {
+	private static Logger logger = new Logger(EanReducer.class.getCanonicalName());
+
+	private final int periodLength;
+	private final ArrayList<PeriodicEvent> events;
+	private final HashMap<Integer, Integer> eventIndex = new HashMap<>();
+	private final ArrayList<PeriodicActivity> activities;
+	private final int[] source;
+	private final int[] target;
+	private final int[] lowerBound;
+	private final int[] upperBound;
+	private final int[] windowStart;
+	private final int[] windowWidth;
+	private final int[] parent;
+	private final int[] offset;
+	private final boolean[] removed;
+	private final ArrayList<ArrayList<Integer>> incidentActivities = new ArrayList<>();
+
+	private int numberOfWindowUpdates = 0;
+	private int numberOfTightenedActivities = 0;
+	private int numberOfMergedEvents = 0;
+	private int numberOfRemovedActivities = 0;
+
+	private Graph<PeriodicEvent, PeriodicActivity> reducedEan;
+	private final Map<Integer, Pair<Integer, Integer>> eventReduction = new HashMap<>();
+
+	/**
+	 * Reduce the given ean. The ean itself is not changed.
+	 * @param ean the ean to reduce
+	 * @param periodLength the period length
+	 * @return the reducer, containing the reduced ean and the mapping of the original events
+	 * @throws LinTimException if the ean is detected to be infeasible
+	 */
+	public static EanReducer reduceEan(Graph<PeriodicEvent, PeriodicActivity> ean, int periodLength) {
+		EanReducer reducer = new EanReducer(ean, periodLength);
+		reducer.propagateTimeWindows();
+		reducer.tightenActivityBounds();
+		reducer.mergeFixedDurationActivities();
+		reducer.buildReducedEan();
+		reducer.logReduction();
+		return reducer;
+	}
+
+	/**
+	 * Only propagate the time windows and tighten the bounds of the activities. No events are merged and no
+	 * activities are removed, the reduced ean contains all events and activities with their original ids and the
+	 * event reduction maps every event to itself. The ean itself is not changed.
+	 * @param ean the ean to tighten
+	 * @param periodLength the period length
+	 * @return the reducer, containing the tightened ean and the identical mapping of the events
+	 * @throws LinTimException if the ean is detected to be infeasible
+	 */
+	public static EanReducer tightenEan(Graph<PeriodicEvent, PeriodicActivity> ean, int periodLength) {
+		EanReducer reducer = new EanReducer(ean, periodLength);
+		reducer.propagateTimeWindows();
+		reducer.tightenActivityBounds();
+		reducer.buildTightenedEan();
+		reducer.logReduction();
+		return reducer;
+	}
+
+	/**
+	 * Expand a timetable of a reduced ean to the original ean.
+	 * @param ean the original ean, the times of the events will be set
+	 * @param reducedEan the reduced ean with a timetable
+	 * @param eventReduction the reduction of the events, mapping each original event id to the id of its event in the
+	 *                       reduced ean and the time offset to this event
+	 * @param periodLength the period length
+	 */
+	public static void expandTimetable(Graph<PeriodicEvent, PeriodicActivity> ean, Graph<PeriodicEvent,
+			PeriodicActivity> reducedEan, Map<Integer, Pair<Integer, Integer>> eventReduction, int periodLength) {
+		for (PeriodicEvent event : ean.getNodes()) {
+			Pair<Integer, Integer> reduction = eventReduction.get(event.getId());
+			if (reduction == null) {
+				throw new LinTimException("Event " + event.getId() + " is not contained in the ean reduction");
+			}
+			PeriodicEvent reducedEvent = reducedEan.getNode(reduction.getFirstElement());
+			if (reducedEvent == null) {
+				throw new LinTimException("Event " + reduction.getFirstElement() + " of the ean reduction cannot be " +
+						"found in the reduced ean");
+			}
+			event.setTime(PeriodicEanHelper.transformTimeToPeriodic(reducedEvent.getTime() +
+					reduction.getSecondElement(), periodLength));
+		}
+	}
+
+	public Graph<PeriodicEvent, PeriodicActivity> getReducedEan() {
+		return reducedEan;
+	}
+
+	/**
+	 * Get the reduction of the events.
+	 * @return a map from each original event id to the id of its event in the reduced ean and the time offset to
+	 * this event
+	 */
+	public Map<Integer, Pair<Integer, Integer>> getEventReduction() {
+		return eventReduction;
+	}
+
+	private EanReducer(Graph<PeriodicEvent, PeriodicActivity> ean, int periodLength) {
+		this.periodLength = periodLength;
+		this.events = new ArrayList<>(ean.getNodes());
+		this.events.sort(Comparator.comparingInt(PeriodicEvent::getId));
+		for (PeriodicEvent event : events) {
+			eventIndex.put(event.getId(), eventIndex.size());
+			incidentActivities.add(new ArrayList<>());
+		}
+		this.activities = new ArrayList<>(ean.getEdges());
+		this.activities.sort(Comparator.comparingInt(PeriodicActivity::getId));
+		int numberOfActivities = activities.size();
+		source = new int[numberOfActivities];
+		target = new int[numberOfActivities];
+		lowerBound = new int[numberOfActivities];
+		upperBound = new int[numberOfActivities];
+		removed = new boolean[numberOfActivities];
+		for (int activity = 0; activity < numberOfActivities; activity++) {
+			source[activity] = eventIndex.get(activities.get(activity).getLeftNode().getId());
+			target[activity] = eventIndex.get(activities.get(activity).getRightNode().getId());
+			lowerBound[activity] = (int) Math.round(activities.get(activity).getLowerBound());
+			upperBound[activity] = (int) Math.round(activities.get(activity).getUpperBound());
+			if (lowerBound[activity] > upperBound[activity]) {
+				throw new LinTimException("Activity " + activities.get(activity).getId() + " has a lower bound " +
+						"larger than its upper bound, the ean is infeasible");
+			}
+			incidentActivities.get(source[activity]).add(activity);
+			incidentActivities.get(target[activity]).add(activity);
+		}
+		windowStart = new int[events.size()];
+		windowWidth = new int[events.size()];
+		Arrays.fill(windowWidth, periodLength - 1);
+		parent = new int[events.size()];
+		for (int event = 0; event < events.size(); event++) {
+			parent[event] = event;
+		}
+		offset = new int[events.size()];
+	}
+
+	private boolean isUnconstrained(int activity) {
+		return upperBound[activity] - lowerBound[activity] >= periodLength - 1;
+	}
+
+	/**
+	 * Fix one event per connected component to time 0 and propagate the time windows. A time window of an event is
+	 * the periodic interval [start, start + width], where a width of at least periodLength - 1 means that the time
+	 * of the event is not restricted.
+	 */
+	private void propagateTimeWindows() {
+		int[] component = new int[events.size()];
+		Arrays.fill(component, -1);
+		ArrayList<Integer> roots = new ArrayList<>();
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		for (int start = 0; start < events.size(); start++) {
+			if (component[start] != -1) {
+				continue;
+			}
+			int root = start;
+			component[start] = roots.size();
+			queue.add(start);
+			while (!queue.isEmpty()) {
+				int event = queue.poll();
+				if (events.get(event).getType() == EventType.FIX && events.get(root).getType() != EventType.FIX) {
+					root = event;
+				}
+				for (int activity : incidentActivities.get(event)) {
+					int other = source[activity] == event ? target[activity] : source[activity];
+					if (component[other] == -1) {
+						component[other] = roots.size();
+						queue.add(other);
+					}
+				}
+			}
+			roots.add(root);
+		}
+
+		boolean[] inQueue = new boolean[events.size()];
+		for (int root : roots) {
+			windowStart[root] = 0;
+			windowWidth[root] = 0;
+			queue.add(root);
+			inQueue[root] = true;
+		}
+		while (!queue.isEmpty()) {
+			int event = queue.poll();
+			inQueue[event] = false;
+			for (int activity : incidentActivities.get(event)) {
+				if (isUnconstrained(activity) || source[activity] == target[activity]) {
+					continue;
+				}
+				int width = windowWidth[event] + upperBound[activity] - lowerBound[activity];
+				if (width >= periodLength - 1) {
+					continue;
+				}
+				int other;
+				int start;
+				if (source[activity] == event) {
+					other = target[activity];
+					start = windowStart[event] + lowerBound[activity];
+				} else {
+					other = source[activity];
+					start = windowStart[event] - upperBound[activity];
+				}
+				if (intersectWindow(other, PeriodicEanHelper.transformTimeToPeriodic(start, periodLength), width)
+						&& !inQueue[other]) {
+					queue.add(other);
+					inQueue[other] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Intersect the time window of the given event with the given window. If the intersection consists of two
+	 * intervals, the smaller window is kept.
+	 * @return whether the time window of the event changed
+	 */
+	private boolean intersectWindow(int event, int start, int width) {
+		if (width >= windowWidth[event]) {
+			if (windowWidth[event] >= periodLength - 1) {
+				return false;
+			}
+		}
+		else if (windowWidth[event] >= periodLength - 1) {
+			windowStart[event] = start;
+			windowWidth[event] = width;
+			numberOfWindowUpdates++;
+			return true;
+		}
+		// Express the new window relative to the start of the old one, the old one is [0, oldWidth] then
+		int oldWidth = windowWidth[event];
+		int relativeStart = PeriodicEanHelper.transformTimeToPeriodic(start - windowStart[event], periodLength);
+		boolean firstPart = relativeStart <= oldWidth;
+		boolean secondPart = relativeStart + width - periodLength >= 0;
+		int newStart;
+		int newEnd;
+		if (firstPart && secondPart) {
+			if (Math.min(oldWidth, relativeStart + width - periodLength) + 1 >= relativeStart) {
+				// The parts are connected and cover the old window
+				return false;
+			}
+			// Two separate intervals, keep the smaller window
+			if (width >= oldWidth) {
+				return false;
+			}
+			windowStart[event] = start;
+			windowWidth[event] = width;
+			numberOfWindowUpdates++;
+			return true;
+		}
+		else if (firstPart) {
+			newStart = relativeStart;
+			newEnd = Math.min(oldWidth, relativeStart + width);
+		}
+		else if (secondPart) {
+			newStart = 0;
+			newEnd = Math.min(oldWidth, relativeStart + width - periodLength);
+		}
+		else {
+			throw new LinTimException("The time window of event " + events.get(event).getId() + " is empty, the ean" +
+					" is infeasible");
+		}
+		if (newEnd - newStart >= oldWidth) {
+			return false;
+		}
+		windowStart[event] = PeriodicEanHelper.transformTimeToPeriodic(windowStart[event] + newStart, periodLength);
+		windowWidth[event] = newEnd - newStart;
+		numberOfWindowUpdates++;
+		return true;
+	}
+
+	/**
+	 * Restrict the bounds of the activities to the durations that are possible within the time windows of their
+	 * events.
+	 */
+	private void tightenActivityBounds() {
+		for (int activity = 0; activity < activities.size(); activity++) {
+			int sourceEvent = source[activity];
+			int targetEvent = target[activity];
+			int width = windowWidth[sourceEvent] + windowWidth[targetEvent];
+			if (sourceEvent == targetEvent || width >= periodLength - 1) {
+				continue;
+			}
+			// The possible differences of the event times are [differenceStart, differenceStart + width]
+			int differenceStart = windowStart[targetEvent] - windowStart[sourceEvent] - windowWidth[sourceEvent];
+			int lowerRemainder = PeriodicEanHelper.transformTimeToPeriodic(lowerBound[activity] - differenceStart,
+					periodLength);
+			int newLowerBound = lowerRemainder <= width ? lowerBound[activity] :
+					lowerBound[activity] + periodLength - lowerRemainder;
+			int upperRemainder = PeriodicEanHelper.transformTimeToPeriodic(upperBound[activity] - differenceStart,
+					periodLength);
+			int newUpperBound = upperRemainder <= width ? upperBound[activity] :
+					upperBound[activity] - upperRemainder + width;
+			if (newLowerBound > newUpperBound) {
+				throw new LinTimException("Activity " + activities.get(activity).getId() + " cannot be fulfilled " +
+						"within the time windows of its events, the ean is infeasible");
+			}
+			if (newLowerBound != lowerBound[activity] || newUpperBound != upperBound[activity]) {
+				lowerBound[activity] = newLowerBound;
+				upperBound[activity] = newUpperBound;
+				numberOfTightenedActivities++;
+			}
+		}
+	}
+
+	/**
+	 * Find the representative of the given event and set its offset relative to the representative.
+	 */
+	private int find(int event) {
+		int root = event;
+		int rootOffset = 0;
+		while (parent[root] != root) {
+			rootOffset += offset[root];
+			root = parent[root];
+		}
+		// Path compression, the offsets are made relative to the root
+		int current = event;
+		int currentOffset = rootOffset;
+		while (parent[current] != root && current != root) {
+			int next = parent[current];
+			int nextOffset = currentOffset - offset[current];
+			parent[current] = root;
+			offset[current] = currentOffset;
+			current = next;
+			currentOffset = nextOffset;
+		}
+		return root;
+	}
+
+	/**
+	 * Merge the events of all activities with a fixed duration. The fix event always stays a representative.
+	 */
+	private void mergeFixedDurationActivities() {
+		for (int activity = 0; activity < activities.size(); activity++) {
+			if (lowerBound[activity] != upperBound[activity]) {
+				continue;
+			}
+			int sourceRoot = find(source[activity]);
+			int targetRoot = find(target[activity]);
+			if (sourceRoot == targetRoot) {
+				continue;
+			}
+			// time(targetRoot) = time(sourceRoot) + sourceOffset + duration - targetOffset
+			int rootDifference = offset(source[activity]) + lowerBound[activity] - offset(target[activity]);
+			if (events.get(targetRoot).getType() == EventType.FIX) {
+				parent[sourceRoot] = targetRoot;
+				offset[sourceRoot] = -rootDifference;
+			}
+			else {
+				parent[targetRoot] = sourceRoot;
+				offset[targetRoot] = rootDifference;
+			}
+			numberOfMergedEvents++;
+		}
+	}
+
+	/**
+	 * Get the time offset of the event to its representative.
+	 */
+	private int offset(int event) {
+		find(event);
+		return parent[event] == event ? 0 : offset[event];
+	}
+
+	private void buildReducedEan() {
+		reducedEan = new ArrayListGraph<>();
+		HashMap<Integer, PeriodicEvent> reducedEvents = new HashMap<>();
+		for (int event = 0; event < events.size(); event++) {
+			if (find(event) != event) {
+				continue;
+			}
+			PeriodicEvent original = events.get(event);
+			PeriodicEvent reducedEvent = new PeriodicEvent(reducedEvents.size() + 1, original.getStopId(),
+					original.getType(), original.getLineId(), original.getTime(), original.getNumberOfPassengers(),
+					original.getDirection(), original.getLineFrequencyRepetition());
+			reducedEan.addNode(reducedEvent);
+			reducedEvents.put(event, reducedEvent);
+		}
+		for (int event = 0; event < events.size(); event++) {
+			eventReduction.put(events.get(event).getId(), new Pair<>(reducedEvents.get(find(event)).getId(),
+					offset(event)));
+		}
+
+		// Activities between the same events, by their bounds in the reduced ean
+		HashMap<Pair<Integer, Integer>, ArrayList<Integer>> parallelActivities = new HashMap<>();
+		double[] weight = new double[activities.size()];
+		for (int activity = 0; activity < activities.size(); activity++) {
+			weight[activity] = activities.get(activity).getNumberOfPassengers();
+			int sourceRoot = find(source[activity]);
+			int targetRoot = find(target[activity]);
+			// time(target) - time(source) = time(targetRoot) - time(sourceRoot) + shift
+			int shift = offset(target[activity]) - offset(source[activity]);
+			int newLowerBound = lowerBound[activity] - shift;
+			int newUpperBound = upperBound[activity] - shift;
+			int normalization = PeriodicEanHelper.transformTimeToPeriodic(newLowerBound, periodLength) -
+					newLowerBound;
+			lowerBound[activity] = newLowerBound + normalization;
+			upperBound[activity] = newUpperBound + normalization;
+			if (sourceRoot == targetRoot) {
+				// The duration is fixed by the offsets, it is feasible if a multiple of the period is in the bounds
+				if (lowerBound[activity] > 0 && upperBound[activity] < periodLength) {
+					throw new LinTimException("Activity " + activities.get(activity).getId() + " contradicts " +
+							"activities with fixed durations, the ean is infeasible");
+				}
+				removeActivity(activity);
+				continue;
+			}
+			if (weight[activity] == 0 && isUnconstrained(activity)) {
+				removeActivity(activity);
+				continue;
+			}
+			parallelActivities.computeIfAbsent(new Pair<>(sourceRoot, targetRoot), key -> new ArrayList<>())
+					.add(activity);
+		}
+		for (ArrayList<Integer> parallel : parallelActivities.values()) {
+			removeRedundantParallelActivities(parallel, weight);
+		}
+
+		int nextActivityId = 1;
+		for (int activity = 0; activity < activities.size(); activity++) {
+			if (removed[activity]) {
+				continue;
+			}
+			PeriodicActivity original = activities.get(activity);
+			reducedEan.addEdge(new PeriodicActivity(nextActivityId, original.getType(),
+					reducedEvents.get(find(source[activity])), reducedEvents.get(find(target[activity])),
+					lowerBound[activity], upperBound[activity], weight[activity]));
+			nextActivityId++;
+		}
+	}
+
+	private void buildTightenedEan() {
+		reducedEan = new ArrayListGraph<>();
+		PeriodicEvent[] tightenedEvents = new PeriodicEvent[events.size()];
+		for (int event = 0; event < events.size(); event++) {
+			PeriodicEvent original = events.get(event);
+			tightenedEvents[event] = new PeriodicEvent(original.getId(), original.getStopId(), original.getType(),
+					original.getLineId(), original.getTime(), original.getNumberOfPassengers(),
+					original.getDirection(), original.getLineFrequencyRepetition());
+			reducedEan.addNode(tightenedEvents[event]);
+			eventReduction.put(original.getId(), new Pair<>(original.getId(), 0));
+		}
+		for (int activity = 0; activity < activities.size(); activity++) {
+			PeriodicActivity original = activities.get(activity);
+			reducedEan.addEdge(new PeriodicActivity(original.getId(), original.getType(),
+					tightenedEvents[source[activity]], tightenedEvents[target[activity]], lowerBound[activity],
+					upperBound[activity], original.getNumberOfPassengers()));
+		}
+	}
+
+	/**
+	 * Remove the redundant activities among activities with the same source and target. Activities with the same
+	 * bounds always have the same duration and are combined, activities without passengers are removed if their
+	 * bounds contain the bounds of another activity. All bounds are normalized to a lower bound in [0, periodLength).
+	 */
+	private void removeRedundantParallelActivities(ArrayList<Integer> parallel, double[] weight) {
+		for (int first : parallel) {
+			if (removed[first]) {
+				continue;
+			}
+			for (int second : parallel) {
+				if (first == second || removed[second]) {
+					continue;
+				}
+				if (lowerBound[first] == lowerBound[second] && upperBound[first] == upperBound[second]) {
+					weight[first] += weight[second];
+					removeActivity(second);
+				}
+				else if (weight[second] == 0 && lowerBound[second] <= lowerBound[first] && upperBound[first] <=
+						upperBound[second]) {
+					removeActivity(second);
+				}
+			}
+		}
+	}
+
+	private void removeActivity(int activity) {
+		removed[activity] = true;
+		numberOfRemovedActivities++;
+	}
+
+	private void logReduction() {
+		logger.debug("Performed " + numberOfWindowUpdates + " time window updates, tightened the bounds of " +
+				numberOfTightenedActivities + " activities");
+		logger.debug("Reduced ean from " + events.size() + " events and " + activities.size() + " activities to " +
+				reducedEan.getNodes().size() + " events and " + reducedEan.getEdges().size() + " activities");
+		Statistic.putStatic("tim_reduction_merged_events", numberOfMergedEvents);
+		Statistic.putStatic("tim_reduction_removed_activities", numberOfRemovedActivities);
+		Statistic.putStatic("tim_reduction_tightened_activities", numberOfTightenedActivities);
+		Statistic.putStatic("tim_reduction_events", reducedEan.getNodes().size());
+		Statistic.putStatic("tim_reduction_activities", reducedEan.getEdges().size());
+	}
+}
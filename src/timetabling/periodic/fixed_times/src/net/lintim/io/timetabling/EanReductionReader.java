@@ -0,0 +1,101 @@
+package net.lintim.io.timetabling;
+
+import net.lintim.exception.InputFormatException;
+import net.lintim.exception.InputTypeInconsistencyException;
+import net.lintim.io.CsvReader;
+import net.lintim.util.Config;
+import net.lintim.util.Pair;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class for reading the reduction of an ean, see {@link net.lintim.algorithm.timetabling.EanReducer}. Can be created
+ * using a {@link Builder}, afterwards {@link #read()} can be called for the actual reading process.
+ */
+public class EanReductionReader {
+	private final Map<Integer, Pair<Integer, Integer>> reductionMap;
+	private final String reductionFileName;
+
+	private EanReductionReader(Builder builder) {
+		this.reductionMap = builder.reductionMap == null ? new HashMap<>() : builder.reductionMap;
+		this.reductionFileName = "".equals(builder.reductionFileName) ?
+				builder.config.getStringValue("default_ean_reduction_file") : builder.reductionFileName;
+	}
+
+	/**
+	 * Start the reading process. The behavior is controlled by the {@link Builder} object, this object was created
+	 * with.
+	 * @return the read reduction, mapping each original event id to the id of its event in the reduced ean and the
+	 * time offset to this event
+	 */
+	public Map<Integer, Pair<Integer, Integer>> read() {
+		CsvReader.readCsv(reductionFileName, this::processReduction);
+		return reductionMap;
+	}
+
+	private void processReduction(String[] args, int lineNumber) throws InputFormatException,
+			InputTypeInconsistencyException {
+		if (args.length != 3) {
+			throw new InputFormatException(reductionFileName, args.length, 3);
+		}
+		int[] values = new int[3];
+		for (int column = 0; column < 3; column++) {
+			try {
+				values[column] = Integer.parseInt(args[column]);
+			} catch (NumberFormatException e) {
+				throw new InputTypeInconsistencyException(reductionFileName, column + 1, lineNumber, "int",
+						args[column]);
+			}
+		}
+		reductionMap.put(values[0], new Pair<>(values[1], values[2]));
+	}
+
+	/**
+	 * Builder object for an EanReductionReader.
+	 */
+	public static class Builder {
+		private Map<Integer, Pair<Integer, Integer>> reductionMap;
+		private String reductionFileName = "";
+		private Config config = Config.getDefaultConfig();
+
+		/**
+		 * Create a default builder object. Possible parameters for this class are (with the default in parentheses):
+		 * <ul>
+		 *     <li>
+		 *         reduction map (empty {@link HashMap}) - the map to store the reduction in
+		 *     </li>
+		 *     <li>
+		 *         config ({@link Config#getDefaultConfig()}) - the config to read the file names from. This will only
+		 *         happen, if the file names are not given, but queried.
+		 *     </li>
+		 *     <li>
+		 *         reduction file name (dependent on config) - the file name to read the reduction from
+		 *     </li>
+		 * </ul>
+		 * All values can be set using the corresponding setters of this class. If you are ready, call
+		 * {@link #build()} to create a reader with the given parameters.
+		 */
+		public Builder() {
+		}
+
+		public Builder setReductionMap(Map<Integer, Pair<Integer, Integer>> reductionMap) {
+			this.reductionMap = reductionMap;
+			return this;
+		}
+
+		public Builder setReductionFileName(String reductionFileName) {
+			this.reductionFileName = reductionFileName;
+			return this;
+		}
+
+		public Builder setConfig(Config config) {
+			this.config = config;
+			return this;
+		}
+
+		public EanReductionReader build() {
+			return new EanReductionReader(this);
+		}
+	}
+}
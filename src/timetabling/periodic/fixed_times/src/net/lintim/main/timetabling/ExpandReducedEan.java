@@ -0,0 +1,49 @@
+package net.lintim.main.timetabling;
+
+import net.lintim.algorithm.timetabling.EanReducer;
+import net.lintim.exception.ConfigNoFileNameGivenException;
+import net.lintim.io.ConfigReader;
+import net.lintim.io.PeriodicEANReader;
+import net.lintim.io.PeriodicEANWriter;
+import net.lintim.io.timetabling.EanReductionReader;
+import net.lintim.model.Graph;
+import net.lintim.model.PeriodicActivity;
+import net.lintim.model.PeriodicEvent;
+import net.lintim.util.Config;
+import net.lintim.util.Logger;
+import net.lintim.util.Pair;
+
+import java.util.Map;
+
+/**
+ * Postprocessing class for timetabling on a reduced ean. Restores the original ean and expands the timetable of the
+ * reduced ean to it.
+ */
+public class ExpandReducedEan {
+	private static Logger logger = new Logger(ExpandReducedEan.class.getCanonicalName());
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			throw new ConfigNoFileNameGivenException();
+		}
+		logger.info("Begin reading configuration");
+		Config config = new ConfigReader.Builder(args[0]).build().read();
+		logger.info("Finished reading configuration");
+		logger.info("Begin reading input files");
+		int periodLength = config.getIntegerValue("period_length");
+		Graph<PeriodicEvent, PeriodicActivity> reducedEan = new PeriodicEANReader.Builder().readTimetable(true)
+				.build().read().getFirstElement();
+		Graph<PeriodicEvent, PeriodicActivity> ean = new PeriodicEANReader.Builder()
+				.setEventFileName(config.getStringValue("default_events_periodic_unreduced_file"))
+				.setActivityFileName(config.getStringValue("default_activities_periodic_unreduced_file")).build()
+				.read().getFirstElement();
+		Map<Integer, Pair<Integer, Integer>> eventReduction = new EanReductionReader.Builder().build().read();
+		logger.info("Finished reading input files");
+		logger.info("Begin expanding timetable");
+		EanReducer.expandTimetable(ean, reducedEan, eventReduction, periodLength);
+		logger.info("Finished expanding timetable");
+		logger.info("Begin writing output files");
+		new PeriodicEANWriter.Builder(ean).build().write();
+		logger.info("Finished writing output files");
+	}
+}
@@ -0,0 +1,84 @@
+package net.lintim.main.timetabling;
+
+import net.lintim.algorithm.timetabling.EanReducer;
+import net.lintim.exception.ConfigNoFileNameGivenException;
+import net.lintim.io.ConfigReader;
+import net.lintim.io.CsvWriter;
+import net.lintim.io.PeriodicEANReader;
+import net.lintim.io.PeriodicEANWriter;
+import net.lintim.io.StatisticWriter;
+import net.lintim.model.Graph;
+import net.lintim.model.PeriodicActivity;
+import net.lintim.model.PeriodicEvent;
+import net.lintim.util.Config;
+import net.lintim.util.Logger;
+import net.lintim.util.Pair;
+
+import java.util.Map;
+
+/**
+ * Preprocessing class for reducing the ean before timetabling. The original ean is stored in the unreduced ean files,
+ * the reduced ean replaces the default ean files. For the line based timetabling models, which rely on the events and
+ * activities of the lines, only the bounds of the activities are tightened.
+ */
+public class ReduceEan {
+	private static Logger logger = new Logger(ReduceEan.class.getCanonicalName());
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			throw new ConfigNoFileNameGivenException();
+		}
+		logger.info("Begin reading configuration");
+		Config config = new ConfigReader.Builder(args[0]).build().read();
+		logger.info("Finished reading configuration");
+		logger.info("Begin reading input files");
+		int periodLength = config.getIntegerValue("period_length");
+		String timetablingModel = config.getStringValue("tim_model");
+		boolean useOldSolution = config.getBooleanValue("tim_use_old_solution");
+		Graph<PeriodicEvent, PeriodicActivity> ean = new PeriodicEANReader.Builder().readTimetable(useOldSolution)
+				.build().read().getFirstElement();
+		logger.info("Finished reading input files");
+		logger.info("Begin reducing ean");
+		EanReducer reducer;
+		if (isLineBased(timetablingModel)) {
+			logger.debug("Timetabling model " + timetablingModel + " is line based, only tightening the bounds");
+			reducer = EanReducer.tightenEan(ean, periodLength);
+		}
+		else {
+			reducer = EanReducer.reduceEan(ean, periodLength);
+		}
+		logger.info("Finished reducing ean");
+		logger.info("Begin writing output files");
+		new PeriodicEANWriter.Builder(ean).writeTimetable(false)
+				.setEventFileName(config.getStringValue("default_events_periodic_unreduced_file"))
+				.setActivityFileName(config.getStringValue("default_activities_periodic_unreduced_file")).build()
+				.write();
+		new PeriodicEANWriter.Builder(reducer.getReducedEan()).writeTimetable(useOldSolution).build().write();
+		CsvWriter.writeCollection(config.getStringValue("default_ean_reduction_file"),
+				config.getStringValue("ean_reduction_header"), reducer.getEventReduction().entrySet(),
+				ReduceEan::toCsvStrings, Map.Entry.comparingByKey());
+		new StatisticWriter.Builder().build().write();
+		logger.info("Finished writing output files");
+	}
+
+	private static boolean isLineBased(String timetablingModel) {
+		switch (timetablingModel.toLowerCase()) {
+			case "rptts":
+			case "rptts_ns":
+			case "match":
+			case "matching":
+			case "matching_merge":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static String[] toCsvStrings(Map.Entry<Integer, Pair<Integer, Integer>> reductionEntry) {
+		return new String[]{
+				String.valueOf(reductionEntry.getKey()),
+				String.valueOf(reductionEntry.getValue().getFirstElement()),
+				String.valueOf(reductionEntry.getValue().getSecondElement())
+		};
+	}
+}
@@ -0,0 +1,248 @@
+package net.lintim.algorithm.timetabling;
+
+import net.lintim.exception.LinTimException;
+import net.lintim.model.*;
+import net.lintim.model.impl.ArrayListGraph;
+import net.lintim.util.Pair;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Tests for {@link EanReducer}. The eans are small enough with a short period to enumerate all their timetables, so
+ * the optimal travel time of an ean can be compared with the optimal travel time of its reduction.
+ */
+public class EanReducerTest {
+
+	private static final double DELTA = 1e-9;
+	private static final int PERIOD = 6;
+
+	@BeforeClass
+	public static void setupClass() {
+		// Infeasible eans are logged by the reducer
+		Logger globalLogger = Logger.getLogger("");
+		for (Handler handler : globalLogger.getHandlers()) {
+			globalLogger.removeHandler(handler);
+		}
+	}
+
+	@Test
+	public void mergesEventsAndCombinesActivities() {
+		Graph<PeriodicEvent, PeriodicActivity> ean = new ArrayListGraph<>();
+		for (int id = 1; id <= 3; id++) {
+			ean.addNode(new PeriodicEvent(id, id, EventType.DEPARTURE, 1, 0, 0, LineDirection.FORWARDS, 1));
+		}
+		ean.addEdge(new PeriodicActivity(1, ActivityType.DRIVE, ean.getNode(1), ean.getNode(2), 2, 2, 5));
+		ean.addEdge(new PeriodicActivity(2, ActivityType.WAIT, ean.getNode(2), ean.getNode(3), 1, 3, 5));
+		ean.addEdge(new PeriodicActivity(3, ActivityType.CHANGE, ean.getNode(1), ean.getNode(3), 0, 5, 0));
+		EanReducer reducer = EanReducer.reduceEan(ean, PERIOD);
+
+		// Event 2 is merged into event 1 by the drive. The time window of event 3 restricts the change to [3, 5],
+		// which are the bounds of the wait in the reduced ean as well, so both are combined
+		Graph<PeriodicEvent, PeriodicActivity> reducedEan = reducer.getReducedEan();
+		Assert.assertEquals(2, reducedEan.getNodes().size());
+		Assert.assertEquals(1, reducedEan.getEdges().size());
+		PeriodicActivity activity = reducedEan.getEdge(1);
+		Assert.assertEquals(3, activity.getLowerBound(), DELTA);
+		Assert.assertEquals(5, activity.getUpperBound(), DELTA);
+		Assert.assertEquals(5, activity.getNumberOfPassengers(), DELTA);
+		Assert.assertEquals(new Pair<>(1, 0), reducer.getEventReduction().get(1));
+		Assert.assertEquals(new Pair<>(1, 2), reducer.getEventReduction().get(2));
+		Assert.assertEquals(new Pair<>(2, 0), reducer.getEventReduction().get(3));
+
+		activity.getLeftNode().setTime(4);
+		activity.getRightNode().setTime(1);
+		EanReducer.expandTimetable(ean, reducedEan, reducer.getEventReduction(), PERIOD);
+		Assert.assertEquals(4, ean.getNode(1).getTime());
+		Assert.assertEquals(0, ean.getNode(2).getTime());
+		Assert.assertEquals(1, ean.getNode(3).getTime());
+	}
+
+	@Test
+	public void tighteningKeepsEventsAndActivities() {
+		Graph<PeriodicEvent, PeriodicActivity> ean = new ArrayListGraph<>();
+		for (int id = 1; id <= 3; id++) {
+			ean.addNode(new PeriodicEvent(id, id, EventType.DEPARTURE, 1, 0, 0, LineDirection.FORWARDS, 1));
+		}
+		ean.addEdge(new PeriodicActivity(1, ActivityType.DRIVE, ean.getNode(1), ean.getNode(2), 2, 2, 5));
+		ean.addEdge(new PeriodicActivity(2, ActivityType.WAIT, ean.getNode(2), ean.getNode(3), 1, 3, 5));
+		ean.addEdge(new PeriodicActivity(3, ActivityType.CHANGE, ean.getNode(1), ean.getNode(3), 0, 5, 0));
+		EanReducer reducer = EanReducer.tightenEan(ean, PERIOD);
+
+		// Only the change is restricted to [3, 5] by the time window of event 3
+		Graph<PeriodicEvent, PeriodicActivity> tightenedEan = reducer.getReducedEan();
+		Assert.assertEquals(3, tightenedEan.getNodes().size());
+		Assert.assertEquals(3, tightenedEan.getEdges().size());
+		int[][] bounds = {{2, 2}, {1, 3}, {3, 5}};
+		for (int id = 1; id <= 3; id++) {
+			PeriodicActivity activity = tightenedEan.getEdge(id);
+			Assert.assertEquals(ean.getEdge(id).getType(), activity.getType());
+			Assert.assertEquals(ean.getEdge(id).getLeftNode().getId(), activity.getLeftNode().getId());
+			Assert.assertEquals(ean.getEdge(id).getRightNode().getId(), activity.getRightNode().getId());
+			Assert.assertEquals(bounds[id - 1][0], activity.getLowerBound(), DELTA);
+			Assert.assertEquals(bounds[id - 1][1], activity.getUpperBound(), DELTA);
+			Assert.assertEquals(new Pair<>(id, 0), reducer.getEventReduction().get(id));
+		}
+	}
+
+	/**
+	 * Every feasible timetable of the reduced ean has to expand to a feasible timetable of the original ean. The
+	 * removed activities and the shifted bounds only add a constant to the travel time, therefore the difference of
+	 * the travel times has to be the same for all timetables and the optimal travel times have to differ by it.
+	 */
+	@Test
+	public void preservesOptimalTimetables() {
+		checkOptimalTimetables(false);
+	}
+
+	@Test
+	public void tighteningPreservesOptimalTimetables() {
+		checkOptimalTimetables(true);
+	}
+
+	private static void checkOptimalTimetables(boolean tightenOnly) {
+		Random random = new Random(17);
+		int numberOfFeasibleEans = 0;
+		for (int run = 0; run < 300; run++) {
+			Graph<PeriodicEvent, PeriodicActivity> ean = randomEan(random);
+			double optimalTravelTime = Double.POSITIVE_INFINITY;
+			List<PeriodicEvent> events = sortedEvents(ean);
+			do {
+				if (isFeasible(ean)) {
+					optimalTravelTime = Math.min(optimalTravelTime, travelTime(ean));
+				}
+			} while (nextTimetable(events));
+
+			EanReducer reducer;
+			try {
+				reducer = tightenOnly ? EanReducer.tightenEan(ean, PERIOD) : EanReducer.reduceEan(ean, PERIOD);
+			} catch (LinTimException e) {
+				Assert.assertEquals("run " + run, Double.POSITIVE_INFINITY, optimalTravelTime, 0);
+				continue;
+			}
+			Graph<PeriodicEvent, PeriodicActivity> reducedEan = reducer.getReducedEan();
+			if (tightenOnly) {
+				Assert.assertEquals(ean.getNodes().size(), reducedEan.getNodes().size());
+				Assert.assertEquals(ean.getEdges().size(), reducedEan.getEdges().size());
+			} else {
+				Assert.assertTrue(reducedEan.getNodes().size() <= ean.getNodes().size());
+				Assert.assertTrue(reducedEan.getEdges().size() <= ean.getEdges().size());
+			}
+
+			double optimalReducedTravelTime = Double.POSITIVE_INFINITY;
+			Double constant = null;
+			List<PeriodicEvent> reducedEvents = sortedEvents(reducedEan);
+			do {
+				if (!isFeasible(reducedEan)) {
+					continue;
+				}
+				double reducedTravelTime = travelTime(reducedEan);
+				optimalReducedTravelTime = Math.min(optimalReducedTravelTime, reducedTravelTime);
+				EanReducer.expandTimetable(ean, reducedEan, reducer.getEventReduction(), PERIOD);
+				Assert.assertTrue("run " + run, isFeasible(ean));
+				double difference = travelTime(ean) - reducedTravelTime;
+				if (constant == null) {
+					constant = difference;
+				}
+				Assert.assertEquals("run " + run, constant, difference, DELTA);
+			} while (nextTimetable(reducedEvents));
+
+			if (constant == null) {
+				Assert.assertEquals("run " + run, Double.POSITIVE_INFINITY, optimalTravelTime, 0);
+			} else {
+				Assert.assertEquals("run " + run, optimalTravelTime, optimalReducedTravelTime + constant, DELTA);
+				numberOfFeasibleEans++;
+			}
+		}
+		// Make sure that the instances are not trivially infeasible
+		Assert.assertTrue(numberOfFeasibleEans > 100);
+	}
+
+	/**
+	 * Create an ean with up to five events and some fix events. Parallel activities and activities with fixed,
+	 * narrow or unrestricted durations are frequent, the passengers are often 0.
+	 */
+	private static Graph<PeriodicEvent, PeriodicActivity> randomEan(Random random) {
+		Graph<PeriodicEvent, PeriodicActivity> ean = new ArrayListGraph<>();
+		int numberOfEvents = 2 + random.nextInt(4);
+		for (int id = 1; id <= numberOfEvents; id++) {
+			EventType type = random.nextInt(4) == 0 ? EventType.FIX : EventType.DEPARTURE;
+			ean.addNode(new PeriodicEvent(id, id, type, 1, 0, 0, LineDirection.FORWARDS, 1));
+		}
+		int numberOfActivities = 1 + random.nextInt(2 * numberOfEvents);
+		for (int id = 1; id <= numberOfActivities; id++) {
+			int source = 1 + random.nextInt(numberOfEvents);
+			int target = 1 + (source + random.nextInt(numberOfEvents - 1)) % numberOfEvents;
+			int lowerBound = random.nextInt(PERIOD);
+			int span;
+			switch (random.nextInt(4)) {
+				case 0:
+					span = 0;
+					break;
+				case 1:
+					span = 1 + random.nextInt(2);
+					break;
+				case 2:
+					span = PERIOD - 1;
+					break;
+				default:
+					span = PERIOD + random.nextInt(PERIOD);
+			}
+			int passengers = random.nextBoolean() ? 0 : 1 + random.nextInt(5);
+			ean.addEdge(new PeriodicActivity(id, ActivityType.CHANGE, ean.getNode(source), ean.getNode(target),
+					lowerBound, lowerBound + span, passengers));
+		}
+		return ean;
+	}
+
+	/**
+	 * Get the events of the ean ordered by id, all set to time 0.
+	 */
+	private static List<PeriodicEvent> sortedEvents(Graph<PeriodicEvent, PeriodicActivity> ean) {
+		List<PeriodicEvent> events = new ArrayList<>(ean.getNodes());
+		events.sort(Comparator.comparingInt(PeriodicEvent::getId));
+		for (PeriodicEvent event : events) {
+			event.setTime(0);
+		}
+		return events;
+	}
+
+	/**
+	 * Set the events to the next timetable, counting with the times as digits.
+	 * @return false if all timetables have been enumerated, the events are set to time 0 again then
+	 */
+	private static boolean nextTimetable(List<PeriodicEvent> events) {
+		for (PeriodicEvent event : events) {
+			if (event.getTime() + 1 < PERIOD) {
+				event.setTime(event.getTime() + 1);
+				return true;
+			}
+			event.setTime(0);
+		}
+		return false;
+	}
+
+	private static boolean isFeasible(Graph<PeriodicEvent, PeriodicActivity> ean) {
+		for (PeriodicActivity activity : ean.getEdges()) {
+			if (activity.getDuration(PERIOD) > activity.getUpperBound()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static double travelTime(Graph<PeriodicEvent, PeriodicActivity> ean) {
+		double travelTime = 0;
+		for (PeriodicActivity activity : ean.getEdges()) {
+			travelTime += activity.getDuration(PERIOD) * activity.getNumberOfPassengers();
+		}
+		return travelTime;
+	}
+}
@@ -0,0 +1,147 @@
+package net.lintim.algorithm.timetabling.periodic;
+
+import net.lintim.model.ActivityType;
+import net.lintim.model.Graph;
+import net.lintim.model.PeriodicActivity;
+import net.lintim.model.PeriodicEvent;
+import net.lintim.util.Logger;
+import net.lintim.util.timetabling.periodic.Parameters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The best timetable found so far by the members of a {@link PespPortfolio}. Timetables are given as arrays of times,
+ * indexed by {@link #getEventIndex(int)}. Every offered timetable is checked for feasibility and evaluated with the
+ * objective of the pesp ip. All methods are thread safe.
+ */
+public class PespIncumbent {
+    private static final Logger logger = new Logger(PespIncumbent.class);
+
+    private final HashMap<Integer, Integer> eventIndex = new HashMap<>();
+    private final int periodLength;
+    private final int[] source;
+    private final int[] target;
+    private final double[] lowerBound;
+    private final double[] upperBound;
+    private final double[] weight;
+    private double changePenaltyObjective;
+
+    private int[] bestTimes;
+    private double bestObjective = Double.POSITIVE_INFINITY;
+    private String bestMember;
+    private int version;
+    private volatile boolean stopped;
+
+    /**
+     * Create an empty incumbent for the given ean.
+     *
+     * @param ean        the ean
+     * @param parameters the parameters, used for the period length and the change penalty
+     */
+    public PespIncumbent(Graph<PeriodicEvent, PeriodicActivity> ean, Parameters parameters) {
+        periodLength = parameters.getPeriodLength();
+        for (PeriodicEvent event : ean.getNodes()) {
+            eventIndex.put(event.getId(), eventIndex.size());
+        }
+        ArrayList<PeriodicActivity> activities = new ArrayList<>(ean.getEdges());
+        source = new int[activities.size()];
+        target = new int[activities.size()];
+        lowerBound = new double[activities.size()];
+        upperBound = new double[activities.size()];
+        weight = new double[activities.size()];
+        for (int index = 0; index < activities.size(); index++) {
+            PeriodicActivity activity = activities.get(index);
+            source[index] = eventIndex.get(activity.getLeftNode().getId());
+            target[index] = eventIndex.get(activity.getRightNode().getId());
+            lowerBound[index] = activity.getLowerBound();
+            upperBound[index] = activity.getUpperBound();
+            weight[index] = activity.getNumberOfPassengers();
+            if (activity.getType() == ActivityType.CHANGE) {
+                changePenaltyObjective += weight[index] * parameters.getChangePenalty();
+            }
+        }
+    }
+
+    public int getNumberOfEvents() {
+        return eventIndex.size();
+    }
+
+    /**
+     * Get the index of an event in the timetable arrays.
+     *
+     * @param eventId the id of the event
+     * @return the index of the event
+     */
+    public int getEventIndex(int eventId) {
+        return eventIndex.get(eventId);
+    }
+
+    /**
+     * Offer a timetable. It replaces the incumbent if it is feasible and has a smaller objective.
+     *
+     * @param times  the times of the events
+     * @param member the name of the member that found the timetable, used for logging
+     * @return whether the timetable is the new incumbent
+     */
+    public boolean offer(int[] times, String member) {
+        double objective = 0;
+        for (int activity = 0; activity < source.length; activity++) {
+            double duration = lowerBound[activity] + Math.floorMod(Math.round(times[target[activity]] -
+                times[source[activity]] - lowerBound[activity]), (long) periodLength);
+            if (duration > upperBound[activity]) {
+                return false;
+            }
+            objective += weight[activity] * duration;
+        }
+        objective += changePenaltyObjective;
+        synchronized (this) {
+            if (objective >= bestObjective) {
+                return false;
+            }
+            logger.debug("New incumbent with objective " + objective + " found by " + member);
+            bestTimes = times.clone();
+            bestObjective = objective;
+            bestMember = member;
+            version++;
+            return true;
+        }
+    }
+
+    /**
+     * Get a copy of the times of the incumbent.
+     *
+     * @return the times or null, if no feasible timetable was offered yet
+     */
+    public synchronized int[] getBestTimes() {
+        return bestTimes == null ? null : bestTimes.clone();
+    }
+
+    public synchronized double getBestObjective() {
+        return bestObjective;
+    }
+
+    public synchronized String getBestMember() {
+        return bestMember;
+    }
+
+    /**
+     * Get the number of improvements of the incumbent so far.
+     *
+     * @return the version of the incumbent
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /**
+     * Signal all members to stop as soon as possible.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+}
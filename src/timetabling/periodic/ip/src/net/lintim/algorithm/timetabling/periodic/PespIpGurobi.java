@@ -78,6 +78,15 @@ public class PespIpGurobi extends PespSolver {
                 }
             }
 
+            // Exchange solutions with the other members of the portfolio
+            if (incumbent != null) {
+                GRBVar[] eventVariables = new GRBVar[incumbent.getNumberOfEvents()];
+                for (PeriodicEvent event : ean.getNodes()) {
+                    eventVariables[incumbent.getEventIndex(event.getId())] = eventIdToVarMap.get(event.getId());
+                }
+                model.setCallback(new IncumbentCallback(incumbent, eventVariables));
+            }
+
             if (parameters.writeLpFile()) {
                 logger.debug("Writing lp file");
                 model.write("PeriodicTimetablingPespIp.lp");
@@ -91,6 +100,10 @@ public class PespIpGurobi extends PespSolver {
 
             int status = model.get(GRB.IntAttr.Status);
             int solCount = model.get(GRB.IntAttr.SolCount);
+            if (incumbent != null && (status == GRB.OPTIMAL || status == GRB.USER_OBJ_LIMIT)) {
+                logger.debug("Stop the portfolio");
+                incumbent.stop();
+            }
 
             if (solCount > 0) {
                 if (status == GRB.OPTIMAL) {
@@ -116,4 +129,48 @@ public class PespIpGurobi extends PespSolver {
             throw new SolverGurobiException(e.toString());
         }
     }
+
+    /**
+     * Callback offering every new solution to the incumbent of the portfolio and setting better solutions of other
+     * members as heuristic solutions.
+     */
+    private static class IncumbentCallback extends GRBCallback {
+        private final PespIncumbent incumbent;
+        private final GRBVar[] eventVariables;
+        private int knownVersion = -1;
+
+        private IncumbentCallback(PespIncumbent incumbent, GRBVar[] eventVariables) {
+            this.incumbent = incumbent;
+            this.eventVariables = eventVariables;
+        }
+
+        @Override
+        protected void callback() {
+            try {
+                if (incumbent.isStopped()) {
+                    abort();
+                } else if (where == GRB.CB_MIPSOL) {
+                    double[] values = getSolution(eventVariables);
+                    int[] times = new int[values.length];
+                    for (int index = 0; index < values.length; index++) {
+                        times[index] = (int) Math.round(values[index]);
+                    }
+                    incumbent.offer(times, "gurobi");
+                    knownVersion = incumbent.getVersion();
+                } else if (where == GRB.CB_MIPNODE && incumbent.getVersion() != knownVersion) {
+                    knownVersion = incumbent.getVersion();
+                    int[] times = incumbent.getBestTimes();
+                    if (times != null) {
+                        double[] values = new double[times.length];
+                        for (int index = 0; index < times.length; index++) {
+                            values[index] = times[index];
+                        }
+                        setSolution(eventVariables, values);
+                    }
+                }
+            } catch (GRBException e) {
+                throw new SolverGurobiException(e.toString());
+            }
+        }
+    }
 }
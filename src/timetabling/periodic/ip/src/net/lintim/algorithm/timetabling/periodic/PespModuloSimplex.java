@@ -0,0 +1,677 @@
+package net.lintim.algorithm.timetabling.periodic;
+
+import net.lintim.exception.LinTimException;
+import net.lintim.model.ActivityType;
+import net.lintim.model.Graph;
+import net.lintim.model.PeriodicActivity;
+import net.lintim.model.PeriodicEvent;
+import net.lintim.util.Logger;
+import net.lintim.util.timetabling.periodic.Parameters;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Pesp solver implementation using a modulo network simplex in pure Java, see Nachtigall and Opitz, "Solving Periodic
+ * Timetable Optimisation Problems by Modulo Simplex Calculations", 2008.
+ * <p>
+ * The state of the algorithm is a timetable together with a spanning forest of activities with slack zero, i.e.,
+ * activities at their lower bound. A pivot shifts the smaller side of the fundamental cut of a tree activity by some
+ * delta, such that another activity of the cut becomes tight and enters the tree. The slack of every activity in the cut
+ * is a piecewise linear function of the delta, therefore all possible deltas of a cut are evaluated at once in
+ * O(|cut| + T) time. After a pivot, only the slacks of the activities in the cut are updated. When there is no
+ * improving fundamental cut anymore, single node cuts and randomly grown connected cuts are searched for improvements.
+ * The candidate cuts are evaluated in parallel.
+ * <p>
+ * Violated upper bounds are allowed during the search, the total violation is minimized before the objective. This
+ * way, the same search finds a feasible timetable if the initial one is infeasible.
+ */
+public class PespModuloSimplex extends PespSolver {
+    private static final Logger logger = new Logger(PespModuloSimplex.class);
+
+    private static final double EPSILON = 1e-6;
+    /**
+     * The number of candidate cuts per thread that are evaluated before the best improving cut is applied.
+     */
+    private static final int CANDIDATES_PER_THREAD = 64;
+
+    private int numberOfEvents;
+    private int numberOfActivities;
+    private int periodLength;
+
+    private int[] source;
+    private int[] target;
+    private int[] lowerBound;
+    private int[] span;
+    private double[] weight;
+    private double changePenaltyObjective;
+    private int[] incidentStart;
+    private int[] incident;
+
+    private int[] time;
+    private int[] slack;
+    private long violation;
+
+    private int[] parentArc;
+    private int[] order;
+    private int[] position;
+    private int[] subtreeSize;
+    private int[] componentRoot;
+
+    private int[][] connectedCuts;
+    private CutEvaluator[] evaluators;
+    private ExecutorService executor;
+    private long deadline;
+    private int numberOfPivots;
+
+    @Override
+    public boolean solveTimetablingPespModel(Graph<PeriodicEvent, PeriodicActivity> ean, Parameters parameters) {
+        ArrayList<PeriodicEvent> events = new ArrayList<>(ean.getNodes());
+        ArrayList<PeriodicActivity> activities = new ArrayList<>(ean.getEdges());
+        if (!initialize(events, activities, parameters)) {
+            logger.debug("There is an activity with lower bound larger than upper bound");
+            return false;
+        }
+        deadline = parameters.getTimelimit() > 0 ? System.currentTimeMillis() + 1000L * parameters.getTimelimit() :
+            Long.MAX_VALUE;
+        int threads = parameters.getThreadLimit() > 0 ? parameters.getThreadLimit() :
+            Runtime.getRuntime().availableProcessors();
+        evaluators = new CutEvaluator[threads];
+        for (int thread = 0; thread < threads; thread++) {
+            evaluators[thread] = new CutEvaluator();
+        }
+        executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        Random random = parameters.getSeed() != 0 ? new Random(parameters.getSeed()) : new Random();
+        logger.debug("Start modulo simplex with objective " + computeObjective() + " and violation " +
+            violation + ", using " + threads + " threads");
+        try {
+            boolean improved = true;
+            while (improved && !isTimeUp()) {
+                improved = sweep(CutType.FUNDAMENTAL, numberOfEvents);
+                if (!improved) {
+                    improved = sweep(CutType.SINGLE_NODE, numberOfEvents);
+                }
+                if (!improved) {
+                    generateConnectedCuts(random, parameters.getLocalSearchNodes());
+                    improved = sweep(CutType.CONNECTED, connectedCuts.length);
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        if (isTimeUp()) {
+            logger.debug("Search stopped before reaching a local optimum");
+        }
+        logger.debug("Finished modulo simplex after " + numberOfPivots + " pivots with objective " +
+            computeObjective() + " and violation " + violation);
+        if (violation > 0) {
+            logger.debug("No feasible solution found");
+            return false;
+        }
+        for (int event = 0; event < numberOfEvents; event++) {
+            events.get(event).setTime(time[event]);
+        }
+        return true;
+    }
+
+    private boolean isTimeUp() {
+        return System.currentTimeMillis() > deadline || incumbent != null && incumbent.isStopped();
+    }
+
+    /**
+     * Build the array representation of the ean and the initial timetable and forest.
+     *
+     * @return whether all activities have a lower bound not larger than their upper bound
+     */
+    private boolean initialize(ArrayList<PeriodicEvent> events, ArrayList<PeriodicActivity> activities,
+                               Parameters parameters) {
+        numberOfEvents = events.size();
+        numberOfActivities = activities.size();
+        periodLength = parameters.getPeriodLength();
+        HashMap<Integer, Integer> eventIndex = new HashMap<>();
+        for (int event = 0; event < numberOfEvents; event++) {
+            eventIndex.put(events.get(event).getId(), event);
+        }
+        source = new int[numberOfActivities];
+        target = new int[numberOfActivities];
+        lowerBound = new int[numberOfActivities];
+        span = new int[numberOfActivities];
+        weight = new double[numberOfActivities];
+        incidentStart = new int[numberOfEvents + 1];
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            PeriodicActivity periodicActivity = activities.get(activity);
+            source[activity] = eventIndex.get(periodicActivity.getLeftNode().getId());
+            target[activity] = eventIndex.get(periodicActivity.getRightNode().getId());
+            lowerBound[activity] = (int) Math.round(periodicActivity.getLowerBound());
+            int upperBound = (int) Math.round(periodicActivity.getUpperBound());
+            if (upperBound < lowerBound[activity]) {
+                return false;
+            }
+            // A span of at least T - 1 can never be violated
+            span[activity] = (int) Math.min(periodLength - 1, (long) upperBound - lowerBound[activity]);
+            weight[activity] = periodicActivity.getNumberOfPassengers();
+            if (periodicActivity.getType() == ActivityType.CHANGE) {
+                changePenaltyObjective += weight[activity] * parameters.getChangePenalty();
+            }
+            incidentStart[source[activity] + 1]++;
+            if (target[activity] != source[activity]) {
+                incidentStart[target[activity] + 1]++;
+            }
+        }
+        for (int event = 0; event < numberOfEvents; event++) {
+            incidentStart[event + 1] += incidentStart[event];
+        }
+        incident = new int[incidentStart[numberOfEvents]];
+        int[] next = Arrays.copyOf(incidentStart, numberOfEvents);
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            incident[next[source[activity]]++] = activity;
+            if (target[activity] != source[activity]) {
+                incident[next[target[activity]]++] = activity;
+            }
+        }
+
+        // Activities with small span are put into the forest first, they are the hardest to satisfy. Afterwards,
+        // the activities with most passengers are preferred.
+        Integer[] sortedActivities = new Integer[numberOfActivities];
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            sortedActivities[activity] = activity;
+        }
+        Arrays.sort(sortedActivities, Comparator.<Integer>comparingInt(activity -> span[activity])
+            .thenComparingDouble(activity -> -weight[activity]));
+        int[] candidates = Arrays.stream(sortedActivities).mapToInt(Integer::intValue).toArray();
+
+        parentArc = new int[numberOfEvents];
+        Arrays.fill(parentArc, -1);
+        order = new int[numberOfEvents];
+        position = new int[numberOfEvents];
+        subtreeSize = new int[numberOfEvents];
+        componentRoot = new int[numberOfEvents];
+        time = new int[numberOfEvents];
+        slack = new int[numberOfActivities];
+        int[] oldTime = null;
+        long oldViolation = 0;
+        double oldObjective = 0;
+        if (parameters.shouldUseOldSolution()) {
+            oldTime = new int[numberOfEvents];
+            for (int event = 0; event < numberOfEvents; event++) {
+                oldTime[event] = Math.floorMod(events.get(event).getTime(), periodLength);
+            }
+            time = oldTime.clone();
+            computeSlacks();
+            oldViolation = violation;
+            oldObjective = computeObjective();
+            Arrays.fill(slack, 0);
+        }
+        // All slacks are zero, therefore the forest is chosen by Kruskal on all activities. Afterwards, the times are
+        // set along the forest, such that the tree activities are really tight
+        rebuildForest(candidates, candidates.length);
+        for (int index = 0; index < numberOfEvents; index++) {
+            int event = order[index];
+            int activity = parentArc[event];
+            if (activity == -1) {
+                time[event] = 0;
+            } else if (target[activity] == event) {
+                time[event] = Math.floorMod(time[source[activity]] + lowerBound[activity], periodLength);
+            } else {
+                time[event] = Math.floorMod(time[target[activity]] - lowerBound[activity], periodLength);
+            }
+        }
+        computeSlacks();
+        // The old timetable is only used if it is not worse than the constructed one, an infeasible old timetable is
+        // often hard to repair by cuts
+        if (oldTime != null && (oldViolation < violation || oldViolation == violation &&
+            oldObjective <= computeObjective())) {
+            time = oldTime;
+            computeSlacks();
+            Arrays.fill(parentArc, -1);
+            rebuildForest(candidates, candidates.length);
+        } else if (oldTime != null) {
+            logger.debug("The old timetable has violation " + oldViolation + " and objective " + oldObjective +
+                ", start with a new one");
+        }
+        return true;
+    }
+
+    private void computeSlacks() {
+        violation = 0;
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            slack[activity] = Math.floorMod(time[target[activity]] - time[source[activity]] - lowerBound[activity],
+                periodLength);
+            violation += Math.max(0, slack[activity] - span[activity]);
+        }
+    }
+
+    private double computeObjective() {
+        double objective = 0;
+        for (int activity = 0; activity < numberOfActivities; activity++) {
+            objective += weight[activity] * (lowerBound[activity] + slack[activity]);
+        }
+        return objective + changePenaltyObjective;
+    }
+
+    /**
+     * Recompute the spanning forest. The current tree activities that are still tight are kept, afterwards the given
+     * candidates with slack zero are added if they do not close a cycle. The forest is stored by parent activities and
+     * a preorder, where every subtree is a consecutive range.
+     *
+     * @param candidates the candidate activities to add to the forest
+     * @param count      the number of candidates
+     */
+    private void rebuildForest(int[] candidates, int count) {
+        int[] unionFind = new int[numberOfEvents];
+        for (int event = 0; event < numberOfEvents; event++) {
+            unionFind[event] = event;
+        }
+        int[] treeArcs = new int[numberOfEvents];
+        int numberOfTreeArcs = 0;
+        for (int event = 0; event < numberOfEvents; event++) {
+            int activity = parentArc[event];
+            if (activity != -1 && slack[activity] == 0 && union(unionFind, source[activity], target[activity])) {
+                treeArcs[numberOfTreeArcs++] = activity;
+            }
+        }
+        for (int index = 0; index < count && numberOfTreeArcs < numberOfEvents - 1; index++) {
+            int activity = candidates[index];
+            if (slack[activity] == 0 && union(unionFind, source[activity], target[activity])) {
+                treeArcs[numberOfTreeArcs++] = activity;
+            }
+        }
+
+        int[] treeStart = new int[numberOfEvents + 1];
+        for (int index = 0; index < numberOfTreeArcs; index++) {
+            treeStart[source[treeArcs[index]] + 1]++;
+            treeStart[target[treeArcs[index]] + 1]++;
+        }
+        for (int event = 0; event < numberOfEvents; event++) {
+            treeStart[event + 1] += treeStart[event];
+        }
+        int[] treeIncident = new int[2 * numberOfTreeArcs];
+        int[] next = Arrays.copyOf(treeStart, numberOfEvents);
+        for (int index = 0; index < numberOfTreeArcs; index++) {
+            treeIncident[next[source[treeArcs[index]]]++] = treeArcs[index];
+            treeIncident[next[target[treeArcs[index]]]++] = treeArcs[index];
+        }
+
+        Arrays.fill(parentArc, -1);
+        Arrays.fill(position, -1);
+        int[] stack = new int[numberOfEvents];
+        int numberOrdered = 0;
+        for (int root = 0; root < numberOfEvents; root++) {
+            if (position[root] != -1) {
+                continue;
+            }
+            int stackSize = 0;
+            stack[stackSize++] = root;
+            position[root] = numberOrdered;
+            while (stackSize > 0) {
+                int event = stack[--stackSize];
+                order[numberOrdered] = event;
+                position[event] = numberOrdered++;
+                componentRoot[event] = root;
+                for (int index = treeStart[event]; index < treeStart[event + 1]; index++) {
+                    int activity = treeIncident[index];
+                    int child = source[activity] == event ? target[activity] : source[activity];
+                    if (position[child] == -1) {
+                        parentArc[child] = activity;
+                        position[child] = numberOrdered;
+                        stack[stackSize++] = child;
+                    }
+                }
+            }
+        }
+        Arrays.fill(subtreeSize, 1);
+        for (int index = numberOfEvents - 1; index >= 0; index--) {
+            int event = order[index];
+            int activity = parentArc[event];
+            if (activity != -1) {
+                subtreeSize[source[activity] == event ? target[activity] : source[activity]] += subtreeSize[event];
+            }
+        }
+    }
+
+    private static boolean union(int[] unionFind, int first, int second) {
+        int firstRoot = find(unionFind, first);
+        int secondRoot = find(unionFind, second);
+        if (firstRoot == secondRoot) {
+            return false;
+        }
+        unionFind[firstRoot] = secondRoot;
+        return true;
+    }
+
+    private static int find(int[] unionFind, int element) {
+        while (unionFind[element] != element) {
+            unionFind[element] = unionFind[unionFind[element]];
+            element = unionFind[element];
+        }
+        return element;
+    }
+
+    private void generateConnectedCuts(Random random, int maxNodes) {
+        int[] seeds = new int[numberOfEvents];
+        for (int event = 0; event < numberOfEvents; event++) {
+            seeds[event] = event;
+        }
+        for (int index = numberOfEvents - 1; index > 0; index--) {
+            int other = random.nextInt(index + 1);
+            int swap = seeds[index];
+            seeds[index] = seeds[other];
+            seeds[other] = swap;
+        }
+        connectedCuts = new int[numberOfEvents][];
+        int[] cut = new int[Math.max(2, maxNodes)];
+        for (int index = 0; index < numberOfEvents; index++) {
+            int size = 2 + random.nextInt(Math.max(1, maxNodes - 1));
+            int count = 0;
+            cut[count++] = seeds[index];
+            // Grow the cut by random neighbours of random events of the cut
+            for (int attempt = 0; attempt < 4 * size && count < size; attempt++) {
+                int event = cut[random.nextInt(count)];
+                int degree = incidentStart[event + 1] - incidentStart[event];
+                if (degree == 0) {
+                    continue;
+                }
+                int activity = incident[incidentStart[event] + random.nextInt(degree)];
+                int neighbour = source[activity] == event ? target[activity] : source[activity];
+                boolean contained = false;
+                for (int other = 0; other < count && !contained; other++) {
+                    contained = cut[other] == neighbour;
+                }
+                if (!contained) {
+                    cut[count++] = neighbour;
+                }
+            }
+            connectedCuts[index] = Arrays.copyOf(cut, count);
+        }
+    }
+
+    /**
+     * Evaluate the candidate cuts of the given type until a whole round over all candidates did not improve the
+     * solution. The candidates are evaluated in chunks in parallel, the best improving cut of a chunk is applied.
+     *
+     * @return whether an improving cut was applied
+     */
+    private boolean sweep(CutType type, int numberOfCandidates) {
+        boolean improved = false;
+        int chunkSize = evaluators.length * CANDIDATES_PER_THREAD;
+        int candidatesWithoutImprovement = 0;
+        int chunkStart = 0;
+        while (candidatesWithoutImprovement < numberOfCandidates && !isTimeUp()) {
+            int start = chunkStart;
+            int end = Math.min(numberOfCandidates, start + chunkSize);
+            Move best = evaluateChunk(type, start, end);
+            candidatesWithoutImprovement += end - start;
+            if (best != null) {
+                CutEvaluator evaluator = evaluators[0];
+                evaluator.fill(type, best.candidate);
+                evaluator.apply(best.delta);
+                violation += best.violationChange;
+                numberOfPivots++;
+                improved = true;
+                candidatesWithoutImprovement = 0;
+            }
+            chunkStart = end == numberOfCandidates ? 0 : end;
+        }
+        return improved;
+    }
+
+    private Move evaluateChunk(CutType type, int start, int end) {
+        if (executor == null) {
+            return evaluators[0].evaluateCandidates(type, start, end, 1);
+        }
+        ArrayList<Callable<Move>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < evaluators.length; thread++) {
+            CutEvaluator evaluator = evaluators[thread];
+            int first = start + thread;
+            tasks.add(() -> evaluator.evaluateCandidates(type, first, end, evaluators.length));
+        }
+        Move best = null;
+        try {
+            for (Future<Move> future : executor.invokeAll(tasks)) {
+                Move move = future.get();
+                if (move != null && (best == null || move.isBetterThan(best))) {
+                    best = move;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new LinTimException("Parallel cut evaluation failed: " + e.getMessage());
+        }
+        return best;
+    }
+
+    private enum CutType {
+        FUNDAMENTAL, SINGLE_NODE, CONNECTED
+    }
+
+    /**
+     * A shift of a cut by a delta and its change of the violation and the objective.
+     */
+    private static class Move {
+        private final int candidate;
+        private final int delta;
+        private final long violationChange;
+        private final double objectiveChange;
+
+        private Move(int candidate, int delta, long violationChange, double objectiveChange) {
+            this.candidate = candidate;
+            this.delta = delta;
+            this.violationChange = violationChange;
+            this.objectiveChange = objectiveChange;
+        }
+
+        private boolean isBetterThan(Move other) {
+            if (violationChange != other.violationChange) {
+                return violationChange < other.violationChange;
+            }
+            if (Math.abs(objectiveChange - other.objectiveChange) > EPSILON) {
+                return objectiveChange < other.objectiveChange;
+            }
+            return candidate < other.candidate;
+        }
+    }
+
+    /**
+     * Evaluation of cuts. Every thread has its own evaluator, the evaluation only reads the shared state.
+     */
+    private class CutEvaluator {
+        private final int[] nodes = new int[numberOfEvents];
+        private int size;
+        private final int[] mark = new int[numberOfEvents];
+        private int stamp;
+        // Difference arrays of the constant and the linear part of the objective and the violation, by delta
+        private final double[] objectiveConstant = new double[periodLength + 1];
+        private final double[] objectiveSlope = new double[periodLength + 1];
+        private final long[] violationConstant = new long[periodLength + 1];
+        private final long[] violationSlope = new long[periodLength + 1];
+        private final int[] entering = new int[numberOfActivities];
+
+        private Move evaluateCandidates(CutType type, int first, int end, int step) {
+            Move best = null;
+            for (int candidate = first; candidate < end; candidate += step) {
+                fill(type, candidate);
+                Move move = evaluate(candidate);
+                if (move != null && (best == null || move.isBetterThan(best))) {
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Set the events of the given candidate cut. For a fundamental cut, this is the smaller side of the cut of
+         * the tree activity above the candidate event.
+         */
+        private void fill(CutType type, int candidate) {
+            size = 0;
+            switch (type) {
+                case SINGLE_NODE:
+                    nodes[size++] = candidate;
+                    break;
+                case CONNECTED:
+                    for (int event : connectedCuts[candidate]) {
+                        nodes[size++] = event;
+                    }
+                    break;
+                case FUNDAMENTAL:
+                    int subtreeStart = position[candidate];
+                    int subtreeEnd = subtreeStart + subtreeSize[candidate];
+                    int root = componentRoot[candidate];
+                    int componentStart = position[root];
+                    int componentEnd = componentStart + subtreeSize[root];
+                    if (parentArc[candidate] == -1 || 2 * subtreeSize[candidate] <= subtreeSize[root]) {
+                        addRange(subtreeStart, subtreeEnd);
+                    } else {
+                        addRange(componentStart, subtreeStart);
+                        addRange(subtreeEnd, componentEnd);
+                    }
+                    break;
+            }
+        }
+
+        private void addRange(int start, int end) {
+            System.arraycopy(order, start, nodes, size, end - start);
+            size += end - start;
+        }
+
+        /**
+         * Evaluate all shifts of the current cut.
+         *
+         * @return the best improving shift or null if there is none
+         */
+        private Move evaluate(int candidate) {
+            markNodes();
+            Arrays.fill(objectiveConstant, 0);
+            Arrays.fill(objectiveSlope, 0);
+            Arrays.fill(violationConstant, 0);
+            Arrays.fill(violationSlope, 0);
+            boolean crossing = false;
+            for (int index = 0; index < size; index++) {
+                int event = nodes[index];
+                for (int incidentIndex = incidentStart[event]; incidentIndex < incidentStart[event + 1];
+                     incidentIndex++) {
+                    int activity = incident[incidentIndex];
+                    boolean sourceInCut = mark[source[activity]] == stamp;
+                    boolean targetInCut = mark[target[activity]] == stamp;
+                    if (sourceInCut != targetInCut) {
+                        addActivity(activity, targetInCut);
+                        crossing = true;
+                    }
+                }
+            }
+            if (!crossing) {
+                return null;
+            }
+            double objectiveConstantSum = 0;
+            double objectiveSlopeSum = 0;
+            long violationConstantSum = 0;
+            long violationSlopeSum = 0;
+            double currentObjective = 0;
+            long currentViolation = 0;
+            Move best = null;
+            for (int delta = 0; delta < periodLength; delta++) {
+                objectiveConstantSum += objectiveConstant[delta];
+                objectiveSlopeSum += objectiveSlope[delta];
+                violationConstantSum += violationConstant[delta];
+                violationSlopeSum += violationSlope[delta];
+                double objective = objectiveConstantSum + delta * objectiveSlopeSum;
+                long violation = violationConstantSum + delta * violationSlopeSum;
+                if (delta == 0) {
+                    currentObjective = objective;
+                    currentViolation = violation;
+                    continue;
+                }
+                long violationChange = violation - currentViolation;
+                double objectiveChange = objective - currentObjective;
+                if (violationChange > 0 || violationChange == 0 && objectiveChange > -EPSILON) {
+                    continue;
+                }
+                Move move = new Move(candidate, delta, violationChange, objectiveChange);
+                if (best == null || move.isBetterThan(best)) {
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+        private void markNodes() {
+            stamp++;
+            for (int index = 0; index < size; index++) {
+                mark[nodes[index]] = stamp;
+            }
+        }
+
+        /**
+         * Add the objective and violation of a crossing activity as a function of the delta. Shifting the cut by
+         * delta increases the slack of an incoming activity by delta and decreases the slack of an outgoing one.
+         */
+        private void addActivity(int activity, boolean incoming) {
+            int currentSlack = slack[activity];
+            if (incoming) {
+                addPiece(activity, 0, periodLength - 1 - currentSlack, currentSlack, 1);
+                if (currentSlack > 0) {
+                    addPiece(activity, periodLength - currentSlack, periodLength - 1, currentSlack - periodLength, 1);
+                }
+            } else {
+                addPiece(activity, 0, currentSlack, currentSlack, -1);
+                if (currentSlack < periodLength - 1) {
+                    addPiece(activity, currentSlack + 1, periodLength - 1, currentSlack + periodLength, -1);
+                }
+            }
+        }
+
+        /**
+         * Add the activity for the deltas in [from, to], where its slack is constant + sign * delta.
+         */
+        private void addPiece(int activity, int from, int to, int constant, int sign) {
+            if (weight[activity] != 0) {
+                objectiveConstant[from] += weight[activity] * constant;
+                objectiveConstant[to + 1] -= weight[activity] * constant;
+                objectiveSlope[from] += weight[activity] * sign;
+                objectiveSlope[to + 1] -= weight[activity] * sign;
+            }
+            int activitySpan = span[activity];
+            if (activitySpan >= periodLength - 1) {
+                return;
+            }
+            int violatedFrom = sign > 0 ? Math.max(from, activitySpan - constant + 1) : from;
+            int violatedTo = sign > 0 ? to : Math.min(to, constant - activitySpan - 1);
+            if (violatedFrom <= violatedTo) {
+                violationConstant[violatedFrom] += constant - activitySpan;
+                violationConstant[violatedTo + 1] -= constant - activitySpan;
+                violationSlope[violatedFrom] += sign;
+                violationSlope[violatedTo + 1] -= sign;
+            }
+        }
+
+        /**
+         * Shift the current cut by delta. Only the slacks of the crossing activities change, afterwards the forest is
+         * updated with the activities that became tight.
+         */
+        private void apply(int delta) {
+            markNodes();
+            for (int index = 0; index < size; index++) {
+                time[nodes[index]] = (time[nodes[index]] + delta) % periodLength;
+            }
+            int numberEntering = 0;
+            for (int index = 0; index < size; index++) {
+                int event = nodes[index];
+                for (int incidentIndex = incidentStart[event]; incidentIndex < incidentStart[event + 1];
+                     incidentIndex++) {
+                    int activity = incident[incidentIndex];
+                    boolean sourceInCut = mark[source[activity]] == stamp;
+                    boolean targetInCut = mark[target[activity]] == stamp;
+                    if (sourceInCut == targetInCut) {
+                        continue;
+                    }
+                    slack[activity] = Math.floorMod(slack[activity] + (targetInCut ? delta : -delta), periodLength);
+                    if (slack[activity] == 0) {
+                        entering[numberEntering++] = activity;
+                    }
+                }
+            }
+            rebuildForest(entering, numberEntering);
+        }
+    }
+}
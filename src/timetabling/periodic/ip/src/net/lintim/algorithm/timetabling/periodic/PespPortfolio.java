@@ -0,0 +1,234 @@
+package net.lintim.algorithm.timetabling.periodic;
+
+import net.lintim.exception.ConfigTypeMismatchException;
+import net.lintim.exception.LinTimException;
+import net.lintim.model.Graph;
+import net.lintim.model.PeriodicActivity;
+import net.lintim.model.PeriodicEvent;
+import net.lintim.model.impl.ArrayListGraph;
+import net.lintim.solver.Solver;
+import net.lintim.util.Logger;
+import net.lintim.util.SolverType;
+import net.lintim.util.Statistic;
+import net.lintim.util.timetabling.periodic.Parameters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pesp solver that runs a portfolio of solvers concurrently, each on its own copy of the ean.
+ * <p>
+ * The members are given by tim_pesp_portfolio_members as a comma separated list of entries {@code method:value}, where
+ * method is ns_java for the modulo network simplex, with the random seed as value, or an ip solver, with the mip focus
+ * as value, e.g., {@code ns_java:1,ns_java:2,gurobi:1,gurobi:3}. The members share their timetables by a
+ * {@link PespIncumbent}: every member starts from the current incumbent, Gurobi additionally exchanges solutions with
+ * the incumbent during the optimization. A modulo network simplex member restarts from the incumbent whenever another
+ * member improved it. All members are stopped when the time limit is reached or when an ip member terminates because
+ * of optimality or the best bound stop.
+ * <p>
+ * The threads given by tim_threads are distributed among the members, every modulo network simplex member gets one.
+ */
+public class PespPortfolio extends PespSolver {
+    private static final Logger logger = new Logger(PespPortfolio.class);
+
+    private static final String MODULO_SIMPLEX = "ns_java";
+    /**
+     * Time in seconds the members get to stop after the time limit is reached.
+     */
+    private static final int STOP_GRACE_PERIOD = 30;
+
+    @Override
+    public boolean solveTimetablingPespModel(Graph<PeriodicEvent, PeriodicActivity> ean, Parameters parameters) {
+        PespIncumbent portfolioIncumbent = new PespIncumbent(ean, parameters);
+        ArrayList<PeriodicEvent> events = new ArrayList<>(ean.getNodes());
+        if (parameters.shouldUseOldSolution()) {
+            portfolioIncumbent.offer(getTimes(events, portfolioIncumbent), "old timetable");
+        }
+        ArrayList<Member> members = parseMembers(parameters, ean, portfolioIncumbent);
+        if (members.isEmpty()) {
+            throw new LinTimException("The pesp solver portfolio has no members");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(members.size());
+        for (Member member : members) {
+            executor.submit(member::run);
+        }
+        executor.shutdown();
+        try {
+            if (parameters.getTimelimit() > 0) {
+                executor.awaitTermination(parameters.getTimelimit(), TimeUnit.SECONDS);
+            } else {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            }
+            portfolioIncumbent.stop();
+            if (!executor.awaitTermination(STOP_GRACE_PERIOD, TimeUnit.SECONDS)) {
+                logger.warn("Not all members of the pesp solver portfolio stopped in time");
+            }
+        } catch (InterruptedException e) {
+            portfolioIncumbent.stop();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int[] times = portfolioIncumbent.getBestTimes();
+        if (times == null) {
+            logger.debug("No feasible solution found by the portfolio");
+            return false;
+        }
+        logger.debug("Best solution with objective " + portfolioIncumbent.getBestObjective() + " found by " +
+            portfolioIncumbent.getBestMember());
+        for (PeriodicEvent event : events) {
+            event.setTime(times[portfolioIncumbent.getEventIndex(event.getId())]);
+        }
+        Statistic.putStatic("tim_pesp_portfolio_best_member", portfolioIncumbent.getBestMember());
+        return true;
+    }
+
+    private static ArrayList<Member> parseMembers(Parameters parameters, Graph<PeriodicEvent, PeriodicActivity> ean,
+                                                  PespIncumbent portfolioIncumbent) {
+        ArrayList<String[]> entries = new ArrayList<>();
+        int numberOfModuloSimplexMembers = 0;
+        for (String entry : parameters.getPortfolioMembers().split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] methodAndValue = entry.trim().split(":");
+            if (methodAndValue.length > 2) {
+                throw new ConfigTypeMismatchException("tim_pesp_portfolio_members", "method:value", entry);
+            }
+            entries.add(methodAndValue);
+            if (methodAndValue[0].equalsIgnoreCase(MODULO_SIMPLEX)) {
+                numberOfModuloSimplexMembers++;
+            }
+        }
+        int threads = parameters.getThreadLimit() > 0 ? parameters.getThreadLimit() :
+            Runtime.getRuntime().availableProcessors();
+        int numberOfIpMembers = entries.size() - numberOfModuloSimplexMembers;
+        int ipThreads = numberOfIpMembers == 0 ? 0 : Math.max(1, (threads - numberOfModuloSimplexMembers) /
+            numberOfIpMembers);
+
+        ArrayList<Member> members = new ArrayList<>();
+        for (String[] entry : entries) {
+            String name = String.join(":", entry);
+            int value;
+            try {
+                value = entry.length > 1 ? Integer.parseInt(entry[1].trim()) : -1;
+            } catch (NumberFormatException e) {
+                throw new ConfigTypeMismatchException("tim_pesp_portfolio_members", "method:value", name);
+            }
+            PespSolver solver;
+            Parameters memberParameters;
+            if (entry[0].equalsIgnoreCase(MODULO_SIMPLEX)) {
+                solver = new PespModuloSimplex();
+                memberParameters = parameters.forPortfolioMember(parameters.getSolverType(), true,
+                    parameters.getMipFocus(), value >= 0 ? value : parameters.getSeed(), 1, true);
+            } else {
+                SolverType solverType;
+                try {
+                    solverType = Solver.parseSolverType(entry[0].trim());
+                } catch (LinTimException e) {
+                    throw new ConfigTypeMismatchException("tim_pesp_portfolio_members", "method:value", name);
+                }
+                try {
+                    solver = PespSolver.getSolver(solverType);
+                } catch (LinTimException e) {
+                    logger.warn("Skip portfolio member " + name + ": " + e.getMessage());
+                    continue;
+                }
+                memberParameters = parameters.forPortfolioMember(solverType, false,
+                    value >= 0 ? value : parameters.getMipFocus(), parameters.getSeed(), ipThreads, true);
+            }
+            solver.setIncumbent(portfolioIncumbent);
+            members.add(new Member(name, solver, memberParameters, ean, portfolioIncumbent,
+                solver instanceof PespModuloSimplex));
+        }
+        return members;
+    }
+
+    private static int[] getTimes(ArrayList<PeriodicEvent> events, PespIncumbent portfolioIncumbent) {
+        int[] times = new int[portfolioIncumbent.getNumberOfEvents()];
+        for (PeriodicEvent event : events) {
+            times[portfolioIncumbent.getEventIndex(event.getId())] = event.getTime();
+        }
+        return times;
+    }
+
+    /**
+     * A member of the portfolio, solving its own copy of the ean.
+     */
+    private static class Member {
+        private final String name;
+        private final PespSolver solver;
+        private final Parameters parameters;
+        private final Graph<PeriodicEvent, PeriodicActivity> ean;
+        private final PespIncumbent portfolioIncumbent;
+        private final boolean restartOnImprovement;
+
+        private Member(String name, PespSolver solver, Parameters parameters, Graph<PeriodicEvent, PeriodicActivity>
+            ean, PespIncumbent portfolioIncumbent, boolean restartOnImprovement) {
+            this.name = name;
+            this.solver = solver;
+            this.parameters = parameters;
+            this.ean = ean;
+            this.portfolioIncumbent = portfolioIncumbent;
+            this.restartOnImprovement = restartOnImprovement;
+        }
+
+        private void run() {
+            try {
+                while (!portfolioIncumbent.isStopped()) {
+                    int version = portfolioIncumbent.getVersion();
+                    int[] startTimes = portfolioIncumbent.getBestTimes();
+                    ArrayList<PeriodicEvent> events = new ArrayList<>();
+                    Graph<PeriodicEvent, PeriodicActivity> copy = copyEan(startTimes, events);
+                    Parameters runParameters = startTimes != null ? parameters :
+                        parameters.forPortfolioMember(parameters.getSolverType(), parameters.useModuloSimplex(),
+                            parameters.getMipFocus(), parameters.getSeed(), parameters.getThreadLimit(), false);
+                    logger.debug("Start portfolio member " + name);
+                    if (solver.solveTimetablingPespModel(copy, runParameters)) {
+                        portfolioIncumbent.offer(getTimes(events, portfolioIncumbent), name);
+                    }
+                    logger.debug("Finished portfolio member " + name);
+                    boolean improvedByOthers = portfolioIncumbent.getVersion() != version &&
+                        !name.equals(portfolioIncumbent.getBestMember());
+                    if (!restartOnImprovement || !improvedByOthers) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Portfolio member " + name + " failed: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Copy the ean, such that the member can set the times of the events.
+         *
+         * @param startTimes the times to set, indexed by the incumbent, or null to keep the times of the ean
+         * @param events     the list to add the copied events to
+         * @return the copy
+         */
+        private Graph<PeriodicEvent, PeriodicActivity> copyEan(int[] startTimes, ArrayList<PeriodicEvent> events) {
+            Graph<PeriodicEvent, PeriodicActivity> copy = new ArrayListGraph<>();
+            HashMap<Integer, PeriodicEvent> copiedEvents = new HashMap<>();
+            for (PeriodicEvent event : ean.getNodes()) {
+                int time = startTimes == null ? event.getTime() :
+                    startTimes[portfolioIncumbent.getEventIndex(event.getId())];
+                PeriodicEvent copiedEvent = new PeriodicEvent(event.getId(), event.getStopId(), event.getType(),
+                    event.getLineId(), time, event.getNumberOfPassengers(), event.getDirection(),
+                    event.getLineFrequencyRepetition());
+                copy.addNode(copiedEvent);
+                copiedEvents.put(event.getId(), copiedEvent);
+                events.add(copiedEvent);
+            }
+            for (PeriodicActivity activity : ean.getEdges()) {
+                copy.addEdge(new PeriodicActivity(activity.getId(), activity.getType(),
+                    copiedEvents.get(activity.getLeftNode().getId()), copiedEvents.get(activity.getRightNode().getId()),
+                    activity.getLowerBound(), activity.getUpperBound(), activity.getNumberOfPassengers()));
+            }
+            return copy;
+        }
+    }
+}
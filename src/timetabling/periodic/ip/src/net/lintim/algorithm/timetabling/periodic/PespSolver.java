@@ -15,6 +15,12 @@ import net.lintim.util.timetabling.periodic.Parameters;
 public abstract class PespSolver {
     private static final Logger logger = new Logger(PespSolver.class);
 
+    /**
+     * The incumbent of the portfolio this solver is a member of, null if the solver runs alone. Solvers that support
+     * it report their solutions during the run, use better solutions of other members and stop when it is stopped.
+     */
+    protected PespIncumbent incumbent;
+
     /**
      * Solve the periodic timetabling problem for the given data.
      *
@@ -24,6 +30,34 @@ public abstract class PespSolver {
      */
     public abstract boolean solveTimetablingPespModel(Graph<PeriodicEvent, PeriodicActivity> ean, Parameters parameters);
 
+    /**
+     * Set the incumbent of the portfolio this solver is a member of.
+     *
+     * @param incumbent the incumbent
+     */
+    public void setIncumbent(PespIncumbent incumbent) {
+        this.incumbent = incumbent;
+    }
+
+    /**
+     * Get the pesp solver for the given parameters. This is the solver portfolio or the java modulo network simplex
+     * if requested, otherwise the ip solver of the configured solver type.
+     *
+     * @param parameters the parameters
+     * @return the solver
+     */
+    public static PespSolver getSolver(Parameters parameters) {
+        if (parameters.usePortfolio()) {
+            logger.debug("Will use a solver portfolio for optimization");
+            return new PespPortfolio();
+        }
+        if (parameters.useModuloSimplex()) {
+            logger.debug("Will use the java modulo network simplex for optimization");
+            return new PespModuloSimplex();
+        }
+        return getSolver(parameters.getSolverType());
+    }
+
     /**
      * Get a pesp solver of the given type
      *
@@ -13,7 +13,8 @@ import net.lintim.util.timetabling.periodic.Parameters;
 
 /**
  * Main class for computing a solution for the periodic timetabling problem using a PESP IP solver. This will use a
- * very straight forward ip formulation that is not very efficient!
+ * very straight forward ip formulation that is not very efficient! For tim_model ns_java, the modulo network simplex
+ * {@link net.lintim.algorithm.timetabling.periodic.PespModuloSimplex} is used instead, which needs no ip solver.
  */
 public class PespIp {
     public static void main(String[] args) {
@@ -32,7 +33,7 @@ public class PespIp {
             .readTimetable(parameters.shouldUseOldSolution()).build().read().getFirstElement();
         logger.info("Finished reading input data");
         logger.info("Begin execution of the periodic timetabling pesp ip solver");
-        PespSolver solver = PespSolver.getSolver(parameters.getSolverType());
+        PespSolver solver = PespSolver.getSolver(parameters);
         boolean optimalSolutionFound = solver.solveTimetablingPespModel(ean, parameters);
 
         if (!optimalSolutionFound) {
@@ -6,19 +6,33 @@ import net.lintim.util.SolverType;
 
 public class Parameters extends SolverParameters {
 
+    private final Config config;
+    private final SolverType solverType;
+    private final int threadLimit;
     private final boolean useOldSolution;
     private final int periodLength;
     private final int mipFocus;
     private final double changePenalty;
     private final int solutionLimit;
     private final double bestBoundStop;
+    private final boolean useModuloSimplex;
+    private final int seed;
+    private final int localSearchNodes;
+    private final boolean usePortfolio;
+    private final String portfolioMembers;
 
     public Parameters(Config config) {
         super(config, "tim_");
+        this.config = config;
+        solverType = super.getSolverType();
+        threadLimit = super.getThreadLimit();
         useOldSolution = config.getBooleanValue("tim_use_old_solution");
         periodLength = config.getIntegerValue("period_length");
         changePenalty = config.getDoubleValue("ean_change_penalty");
-        if (getSolverType() == SolverType.GUROBI) {
+        String model = config.getStringValue("tim_model");
+        useModuloSimplex = model.equalsIgnoreCase("ns_java");
+        usePortfolio = model.equalsIgnoreCase("pesp_portfolio");
+        if (solverType == SolverType.GUROBI || usePortfolio) {
             mipFocus = config.getIntegerValue("tim_pesp_ip_mip_focus");
             solutionLimit = config.getIntegerValue("tim_pesp_ip_solution_limit");
             bestBoundStop = config.getDoubleValue("tim_pesp_ip_best_bound_stop");
@@ -27,6 +41,59 @@ public class Parameters extends SolverParameters {
             solutionLimit = -1;
             bestBoundStop = -1;
         }
+        if (useModuloSimplex || usePortfolio) {
+            seed = config.getIntegerValue("tim_nws_seed");
+            localSearchNodes = config.getIntegerValue("tim_nws_loc_number_of_nodes");
+        } else {
+            seed = 0;
+            localSearchNodes = -1;
+        }
+        portfolioMembers = usePortfolio ? config.getStringValue("tim_pesp_portfolio_members") : "";
+    }
+
+    private Parameters(Parameters base, SolverType solverType, boolean useModuloSimplex, int mipFocus, int seed,
+                       int threadLimit, boolean useOldSolution) {
+        super(base.config, "tim_");
+        this.config = base.config;
+        this.solverType = solverType;
+        this.threadLimit = threadLimit;
+        this.useOldSolution = useOldSolution;
+        this.periodLength = base.periodLength;
+        this.mipFocus = mipFocus;
+        this.changePenalty = base.changePenalty;
+        this.solutionLimit = base.solutionLimit;
+        this.bestBoundStop = base.bestBoundStop;
+        this.useModuloSimplex = useModuloSimplex;
+        this.seed = seed;
+        this.localSearchNodes = base.localSearchNodes;
+        this.usePortfolio = false;
+        this.portfolioMembers = "";
+    }
+
+    /**
+     * Get the parameters for a single member of a solver portfolio. All other parameters are taken from these ones.
+     *
+     * @param solverType       the ip solver of the member, ignored for the modulo network simplex
+     * @param useModuloSimplex whether the member uses the modulo network simplex
+     * @param mipFocus         the mip focus of the member
+     * @param seed             the random seed of the member
+     * @param threadLimit      the number of threads of the member
+     * @param useOldSolution   whether the member should start from the times of the events
+     * @return the parameters of the member
+     */
+    public Parameters forPortfolioMember(SolverType solverType, boolean useModuloSimplex, int mipFocus, int seed,
+                                         int threadLimit, boolean useOldSolution) {
+        return new Parameters(this, solverType, useModuloSimplex, mipFocus, seed, threadLimit, useOldSolution);
+    }
+
+    @Override
+    public SolverType getSolverType() {
+        return solverType;
+    }
+
+    @Override
+    public int getThreadLimit() {
+        return threadLimit;
     }
 
     public boolean shouldUseOldSolution() {
@@ -52,4 +119,24 @@ public class Parameters extends SolverParameters {
     public double getBestBoundStop() {
         return bestBoundStop;
     }
+
+    public boolean useModuloSimplex() {
+        return useModuloSimplex;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public int getLocalSearchNodes() {
+        return localSearchNodes;
+    }
+
+    public boolean usePortfolio() {
+        return usePortfolio;
+    }
+
+    public String getPortfolioMembers() {
+        return portfolioMembers;
+    }
 }
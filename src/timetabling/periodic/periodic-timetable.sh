@@ -8,12 +8,41 @@ source ${PROGRAMPATH}/../../base.sh
 
 TIM_MODEL=`"${CONFIGCMD[@]}" -s tim_model -u`
 RESPECT_FIXED_TIMES=`"${CONFIGCMD[@]}" -s tim_respect_fixed_times -u`
+REDUCE_EAN=`"${CONFIGCMD[@]}" -s tim_reduce_ean -u`
 
 if [[ ${RESPECT_FIXED_TIMES} == "true" ]];then
     echo "Preprocessing for fixed times"
     bash ${PROGRAMPATH}/fixed_times/preprocessing.sh $1
 fi
 
+if [[ ${REDUCE_EAN} == "true" ]];then
+    # The reduced ean replaces the default ean files until the timetable is expanded. Keep a copy of the original
+    # files to put them back if anything fails in between
+    EVENT_FILE=`"${CONFIGCMD[@]}" -s default_events_periodic_file -u`
+    ACTIVITY_FILE=`"${CONFIGCMD[@]}" -s default_activities_periodic_file -u`
+    TIMETABLE_FILE=`"${CONFIGCMD[@]}" -s default_timetable_periodic_file -u`
+    EAN_BACKUP=`mktemp -d`
+    cp ${EVENT_FILE} ${EAN_BACKUP}/events
+    cp ${ACTIVITY_FILE} ${EAN_BACKUP}/activities
+    if [[ -f ${TIMETABLE_FILE} ]]; then
+        cp ${TIMETABLE_FILE} ${EAN_BACKUP}/timetable
+    fi
+    restore_ean() {
+        echo "Restoring original ean"
+        cp ${EAN_BACKUP}/events ${EVENT_FILE}
+        cp ${EAN_BACKUP}/activities ${ACTIVITY_FILE}
+        if [[ -f ${EAN_BACKUP}/timetable ]]; then
+            cp ${EAN_BACKUP}/timetable ${TIMETABLE_FILE}
+        else
+            rm -f ${TIMETABLE_FILE}
+        fi
+        rm -rf ${EAN_BACKUP}
+    }
+    trap restore_ean EXIT
+    echo "Reducing ean"
+    bash ${PROGRAMPATH}/fixed_times/reduce.sh $1
+fi
+
 
 if [[ ${TIM_MODEL} == "javatools" ]]; then
   bash ${PROGRAMPATH}/../../essentials/javatools/runner.sh PeriodicTimetable basis/Config.cnf || exit 1
@@ -94,6 +123,14 @@ elif [[ ${TIM_MODEL} == "rptts_ns" ]]; then
 elif [[ ${TIM_MODEL} == "ip" ]]; then
 	ant -q -f ${PROGRAMPATH}/ip/build.xml
 	java ${JFLAGS[@]} -cp ${CLASSPATH}${PATHSEP}${PROGRAMPATH}/ip/build${PATHSEP}${PROGRAMPATH}/../../core/java/lintim-core.jar net.lintim.main.timetabling.periodic.PespIp $1
+elif [[ ${TIM_MODEL} == "ns_java" ]]; then
+	ant -q -f ${PROGRAMPATH}/ip/build.xml
+	echo "Using java modulo network simplex."
+	java ${JFLAGS[@]} -cp ${CLASSPATH}${PATHSEP}${PROGRAMPATH}/ip/build${PATHSEP}${PROGRAMPATH}/../../core/java/lintim-core.jar net.lintim.main.timetabling.periodic.PespIp $1
+elif [[ ${TIM_MODEL} == "pesp_portfolio" ]]; then
+	ant -q -f ${PROGRAMPATH}/ip/build.xml
+	echo "Using a portfolio of pesp solvers."
+	java ${JFLAGS[@]} -cp ${CLASSPATH}${PATHSEP}${PROGRAMPATH}/ip/build${PATHSEP}${PROGRAMPATH}/../../core/java/lintim-core.jar net.lintim.main.timetabling.periodic.PespIp $1
 elif [[ ${TIM_MODEL} == "cb_ip" ]]; then
     bash ${PROGRAMPATH}/cycle-base/run.sh $1
 elif [[ ${TIM_MODEL} == "phase-one" ]]; then
@@ -111,6 +148,13 @@ else
 	exit 1
 fi
 
+if [[ ${REDUCE_EAN} == "true" ]];then
+    echo "Expanding timetable of reduced ean"
+    bash ${PROGRAMPATH}/fixed_times/expand.sh $1
+    trap - EXIT
+    rm -rf ${EAN_BACKUP}
+fi
+
 if [[ ${RESPECT_FIXED_TIMES} == "true" ]];then
     echo "Postprocessing for fixed times"
     bash ${PROGRAMPATH}/fixed_times/postprocessing.sh $1
@@ -0,0 +1,362 @@
+package net.lintim.algorithm.vehiclescheduling;
+
+import net.lintim.exception.LinTimException;
+import net.lintim.model.vehiclescheduling.*;
+import net.lintim.solver.*;
+import net.lintim.util.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Solver agnostic implementation of the models AM, TM, NM and the canal model. Instead of writing the data files for
+ * the mosel models, the models are built directly by the core solver interface {@link Model} and solved by the
+ * solver given in the {@link SolverParameters}.
+ * <p>
+ * The models are the same as in the corresponding mosel files am.mos, tm.mos, nm.mos and vehicle_flow.mos, with the
+ * same indices, i.e., the trips are numbered starting at 1 and the depot has the index numberOfTrips + 1. The input
+ * data is read entry by entry from the given functions, variables which are fixed to 0 in the mosel models are not
+ * created at all.
+ */
+public class CanalModelSolver {
+    private static final Logger logger = new Logger(CanalModelSolver.class);
+
+    private final SolverParameters parameters;
+    private Model.Status status;
+    private double objectiveValue;
+    private int numberOfVehicles;
+
+    /**
+     * Create a new solver for the models of the canal-model.
+     *
+     * @param parameters the solver parameters, including the solver to use
+     */
+    public CanalModelSolver(SolverParameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * A transfer between two trips (or the depot) used in the solution of one of the models AM, TM and NM.
+     */
+    public static class Connection {
+        private final int firstTrip;
+        private final int secondTrip;
+        private final double costs;
+
+        Connection(int firstTrip, int secondTrip, double costs) {
+            this.firstTrip = firstTrip;
+            this.secondTrip = secondTrip;
+            this.costs = costs;
+        }
+
+        public int getFirstTrip() {
+            return firstTrip;
+        }
+
+        public int getSecondTrip() {
+            return secondTrip;
+        }
+
+        public double getCosts() {
+            return costs;
+        }
+    }
+
+    /**
+     * Solve the model AM (assignment model), see am.mos. The costs of x(i,j) are U(i,j) + A(i,j) * cv.
+     *
+     * @param numberOfTrips  the number of trips
+     * @param compatibility  the value A(i,j) of the compatibility matrix
+     * @param transferCosts  the value U(i,j) of the transfer costs
+     * @param vehicleCosts   the costs cv of a single vehicle
+     * @return the connections x(i,j) = 1 of the solution
+     */
+    public ArrayList<Connection> solveAssignmentModel(int numberOfTrips, IntBinaryOperator compatibility,
+                                                      IntBinaryOperator transferCosts, int vehicleCosts) {
+        Model model = createModel();
+        MatrixVariables x = new MatrixVariables(model, numberOfTrips);
+        for (int i = 1; i <= numberOfTrips; i++) {
+            for (int j = 1; j <= numberOfTrips; j++) {
+                double costs = transferCosts.applyAsInt(i, j) + compatibility.applyAsInt(i, j) * vehicleCosts;
+                x.add(i, j, 0, 1, Variable.VariableType.BINARY, costs);
+            }
+        }
+        for (int i = 1; i <= numberOfTrips; i++) {
+            model.addConstraint(x.rowSum(i, 1), Constraint.ConstraintSense.EQUAL, 1, "row_" + i);
+            model.addConstraint(x.columnSum(i, 1), Constraint.ConstraintSense.EQUAL, 1, "column_" + i);
+        }
+        solve(model, "am");
+        return x.getUsedConnections();
+    }
+
+    /**
+     * Solve the model TM (transportation model), see tm.mos. The depot has the index numberOfTrips + 1.
+     *
+     * @param numberOfTrips the number of trips
+     * @param compatibility the value A(i,j) of the compatibility matrix, only queried for trips
+     * @param transferCosts the value U(i,j) of the transfer costs, only queried for trips
+     * @param vehicleCosts  the costs cv of a single vehicle
+     * @param penaltyCosts  the costs s(i) for not serving a trip
+     * @return the connections x(i,j) = 1 of the solution
+     */
+    public ArrayList<Connection> solveTransportationModel(int numberOfTrips, IntBinaryOperator compatibility,
+                                                          IntBinaryOperator transferCosts, int vehicleCosts,
+                                                          int penaltyCosts) {
+        Model model = createModel();
+        int depot = numberOfTrips + 1;
+        MatrixVariables x = new MatrixVariables(model, depot);
+        for (int i = 1; i <= depot; i++) {
+            for (int j = 1; j <= depot; j++) {
+                double costs;
+                if (i == depot && j == depot) {
+                    costs = 0;
+                } else if (i == depot || j == depot) {
+                    costs = vehicleCosts / 2.;
+                } else if (i == j) {
+                    costs = penaltyCosts;
+                } else if (compatibility.applyAsInt(i, j) == 0) {
+                    costs = transferCosts.applyAsInt(i, j);
+                } else {
+                    // fixed to 0 in the mosel model
+                    continue;
+                }
+                x.add(i, j, 0, Double.POSITIVE_INFINITY, Variable.VariableType.INTEGER, costs);
+            }
+        }
+        for (int i = 1; i <= numberOfTrips; i++) {
+            model.addConstraint(x.rowSum(i, 1), Constraint.ConstraintSense.EQUAL, 1, "row_" + i);
+            model.addConstraint(x.columnSum(i, 1), Constraint.ConstraintSense.EQUAL, 1, "column_" + i);
+        }
+        model.addConstraint(x.columnSum(depot, 1), Constraint.ConstraintSense.EQUAL, numberOfTrips, "to_depot");
+        model.addConstraint(x.rowSum(depot, 1), Constraint.ConstraintSense.EQUAL, numberOfTrips, "from_depot");
+        solve(model, "tm");
+        return x.getUsedConnections();
+    }
+
+    /**
+     * Solve the model NM (network flow model), see nm.mos. The depot has the index numberOfTrips + 1.
+     *
+     * @param numberOfTrips the number of trips
+     * @param compatibility the value A(i,j) of the compatibility matrix, only queried for trips
+     * @param transferCosts the value U(i,j) of the transfer costs, including the row and column of the depot
+     * @param vehicleCosts  the costs cv of a single vehicle
+     * @return the connections x(i,j) = 1 of the solution
+     */
+    public ArrayList<Connection> solveNetworkFlowModel(int numberOfTrips, IntBinaryOperator compatibility,
+                                                       IntBinaryOperator transferCosts, int vehicleCosts) {
+        Model model = createModel();
+        int depot = numberOfTrips + 1;
+        MatrixVariables x = new MatrixVariables(model, depot);
+        for (int i = 1; i <= depot; i++) {
+            for (int j = 1; j <= depot; j++) {
+                if (i == j) {
+                    // every trip is served, the depot loop counts the vehicles
+                    if (i == depot) {
+                        x.add(i, j, 0, Double.POSITIVE_INFINITY, Variable.VariableType.INTEGER, vehicleCosts);
+                    } else {
+                        x.add(i, j, 1, 1, Variable.VariableType.INTEGER, 0);
+                    }
+                } else if (i == depot || j == depot || compatibility.applyAsInt(i, j) == 0) {
+                    x.add(i, j, 0, Double.POSITIVE_INFINITY, Variable.VariableType.INTEGER,
+                        transferCosts.applyAsInt(i, j));
+                }
+            }
+        }
+        for (int j = 1; j <= depot; j++) {
+            model.addConstraint(x.columnSum(j, -1), Constraint.ConstraintSense.EQUAL, 0, "inflow_" + j);
+            model.addConstraint(x.rowSum(j, -1), Constraint.ConstraintSense.EQUAL, 0, "outflow_" + j);
+        }
+        solve(model, "nm");
+        ArrayList<Connection> connections = new ArrayList<>();
+        for (Connection connection : x.getUsedConnections()) {
+            if (connection.getFirstTrip() != connection.getSecondTrip()) {
+                connections.add(connection);
+            }
+        }
+        return connections;
+    }
+
+    /**
+     * Solve the canal model, see vehicle_flow.mos. The transfers of the network are identified by their position,
+     * i.e., the transfer associated with a canal event has the position ID - 1, as in the mosel model. The first
+     * 2 * numberOfTrips transfers are the trips themselves and are fixed to be used.
+     *
+     * @param network      the canal network
+     * @param vehicleCosts the costs cv of a single vehicle
+     * @return whether the transfer at the respective position is used
+     */
+    public boolean[] solveCanalModel(CanalNetwork network, int vehicleCosts) {
+        Model model = createModel();
+        ArrayList<CTransfer> transfers = network.getTransfers();
+        int numberOfLineTransfers = 2 * network.getTrips().size();
+        Variable[] x = new Variable[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            double lowerBound = i < numberOfLineTransfers ? 1 : 0;
+            x[i] = model.addVariable(lowerBound, 1, Variable.VariableType.BINARY, transfers.get(i).getCosts(),
+                "x_" + (i + 1));
+        }
+        // N(e) is the number of vehicles in the canal after event e
+        ArrayList<Variable> lastEventVariables = new ArrayList<>();
+        for (Canal canal : network.getCanals()) {
+            if (canal == null || canal.getEvents().isEmpty()) {
+                continue;
+            }
+            ArrayList<CEvent> events = canal.getEvents();
+            HashMap<CEvent, Variable> numberOfVehicles = new HashMap<>();
+            for (int k = 0; k < events.size(); k++) {
+                double costs = k == events.size() - 1 ? vehicleCosts : 0;
+                Variable variable = model.addVariable(0, Double.POSITIVE_INFINITY, Variable.VariableType.INTEGER,
+                    costs, "N_" + canal.getID() + "_" + events.get(k).getID());
+                numberOfVehicles.put(events.get(k), variable);
+            }
+            for (CEvent event : events) {
+                LinearExpression balance = model.createExpression();
+                balance.addTerm(1, numberOfVehicles.get(event));
+                balance.addTerm(-1, numberOfVehicles.get(canal.getPreviousEvent(event)));
+                double sign = event.getType().equals(Event.TYPE_START) ? -1 : 1;
+                balance.addTerm(sign, x[event.getJourney().getID() - 1]);
+                model.addConstraint(balance, Constraint.ConstraintSense.EQUAL, 0,
+                    "balance_" + canal.getID() + "_" + event.getID());
+            }
+            lastEventVariables.add(numberOfVehicles.get(events.get(events.size() - 1)));
+        }
+        solve(model, "vehicle_flow");
+
+        boolean[] used = new boolean[transfers.size()];
+        double vehicles = 0;
+        for (int i = 0; i < transfers.size(); i++) {
+            used[i] = Math.round(model.getValue(x[i])) == 1;
+            if (used[i] && transfers.get(i).getTimeCycleJump()) {
+                vehicles++;
+            }
+        }
+        for (Variable variable : lastEventVariables) {
+            vehicles += model.getValue(variable);
+        }
+        numberOfVehicles = (int) Math.round(vehicles);
+        return used;
+    }
+
+    /**
+     * Get the status of the last solved model.
+     *
+     * @return the status
+     */
+    public Model.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the objective value of the last solved model.
+     *
+     * @return the objective value
+     */
+    public double getObjectiveValue() {
+        return objectiveValue;
+    }
+
+    /**
+     * Get the number of vehicles of the last solution of the canal model.
+     *
+     * @return the number of vehicles
+     */
+    public int getNumberOfVehicles() {
+        return numberOfVehicles;
+    }
+
+    private Model createModel() {
+        Solver solver = Solver.createSolver(parameters.getSolverType());
+        Model model = solver.createModel();
+        parameters.setSolverParameters(model);
+        model.setSense(Model.OptimizationSense.MINIMIZE);
+        return model;
+    }
+
+    private void solve(Model model, String name) {
+        if (parameters.writeLpFile()) {
+            model.write(name + ".lp");
+        }
+        logger.debug("Start optimization");
+        model.solve();
+        logger.debug("End optimization");
+        status = model.getStatus();
+        if (model.getIntAttribute(Model.IntAttribute.NUM_SOLUTIONS) == 0) {
+            if (status == Model.Status.INFEASIBLE) {
+                logger.debug("The problem is infeasible!");
+                model.computeIIS(name);
+            }
+            throw new LinTimException("No feasible solution found for the vehicle scheduling model " + name);
+        }
+        objectiveValue = model.getDoubleAttribute(Model.DoubleAttribute.OBJ_VAL);
+    }
+
+    /**
+     * The variables x(i,j) of the models AM, TM and NM, together with the sums over the rows and columns without the
+     * diagonal, which are needed for the constraints. Only the variables which are added exist.
+     */
+    private static class MatrixVariables {
+        private final Model model;
+        private final ArrayList<Variable> variables = new ArrayList<>();
+        private final ArrayList<Connection> connections = new ArrayList<>();
+        private final Variable[] diagonal;
+        private final LinearExpression[] rowSums;
+        private final LinearExpression[] columnSums;
+
+        MatrixVariables(Model model, int size) {
+            this.model = model;
+            diagonal = new Variable[size + 1];
+            rowSums = new LinearExpression[size + 1];
+            columnSums = new LinearExpression[size + 1];
+            for (int i = 1; i <= size; i++) {
+                rowSums[i] = model.createExpression();
+                columnSums[i] = model.createExpression();
+            }
+        }
+
+        void add(int i, int j, double lowerBound, double upperBound, Variable.VariableType type, double costs) {
+            Variable variable = model.addVariable(lowerBound, upperBound, type, costs, "x_" + i + "_" + j);
+            variables.add(variable);
+            connections.add(new Connection(i, j, costs));
+            if (i == j) {
+                diagonal[i] = variable;
+            } else {
+                rowSums[i].addTerm(1, variable);
+                columnSums[j].addTerm(1, variable);
+            }
+        }
+
+        /**
+         * Get sum(j) x(i,j) over the existing variables, with or without x(i,i), times the given factor.
+         */
+        LinearExpression rowSum(int i, double diagonalFactor) {
+            return withDiagonal(rowSums[i], i, diagonalFactor);
+        }
+
+        /**
+         * Get sum(i) x(i,j) over the existing variables, with or without x(j,j), times the given factor.
+         */
+        LinearExpression columnSum(int j, double diagonalFactor) {
+            return withDiagonal(columnSums[j], j, diagonalFactor);
+        }
+
+        private LinearExpression withDiagonal(LinearExpression sum, int i, double diagonalFactor) {
+            LinearExpression expression = model.createExpression();
+            expression.add(sum);
+            if (diagonal[i] != null && diagonalFactor != 0) {
+                expression.addTerm(diagonalFactor, diagonal[i]);
+            }
+            return expression;
+        }
+
+        ArrayList<Connection> getUsedConnections() {
+            ArrayList<Connection> used = new ArrayList<>();
+            for (int k = 0; k < variables.size(); k++) {
+                if (Math.round(model.getValue(variables.get(k))) == 1) {
+                    used.add(connections.get(k));
+                }
+            }
+            return used;
+        }
+    }
+}
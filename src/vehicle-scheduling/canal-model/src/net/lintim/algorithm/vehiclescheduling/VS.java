@@ -1,11 +1,15 @@
 package net.lintim.algorithm.vehiclescheduling;
 
+import net.lintim.algorithm.TripCompatibility;
 import net.lintim.io.vehiclescheduling.IO;
 import net.lintim.model.vehiclescheduling.*;
 import net.lintim.util.Logger;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Makes calculations for the vehicle scheduling problem.
@@ -75,7 +79,151 @@ public class VS {
     }
 
     /**
-     * calculates the compatibility matrix for the models AM, TM and NM.
+     * calculates the shortest distances between all pairs of the given terminal stops, i.e., the stops where
+     * trips start or end.
+     * Method:
+     * the algorithm of Dijkstra with a binary heap, started from every terminal in parallel. In contrast to
+     * {@link #calculateShortestPathsFloyd(ArrayList, ArrayList, boolean)}, only the rows and columns of the
+     * terminals are stored and the stop IDs do not have to be continuous. For parallel edges, the shortest one
+     * is used.
+     *
+     * @param stops        an ArrayList of the stops in the network, every stop is represented by an unique ID (Integer)
+     * @param edges        an ArrayList of the edges in the network
+     * @param isUndirected whether the edges can be used in both directions
+     * @param terminals    the IDs of the stops between which the distances are needed
+     * @param threads      the number of threads to use, all available processors if smaller than 1
+     * @return the distances between every pair of terminals, Integer.MAX_VALUE / 2 if there is no path
+     */
+    public static StopDistances calculateShortestPathsDijkstra(ArrayList<Integer> stops, ArrayList<Edge> edges,
+                                                               boolean isUndirected, int[] terminals, int threads)
+        throws IllegalArgumentException {
+        int maxID = 0;
+        for (int stopID : stops) {
+            maxID = Math.max(maxID, stopID);
+        }
+        int[] index = new int[maxID + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < stops.size(); i++) {
+            index[stops.get(i)] = i;
+        }
+
+        // adjacency of every stop in compressed rows: the edges leaving stop i are at the positions
+        // edgeStart[i], ..., edgeStart[i + 1] - 1 of edgeTarget and edgeLength
+        int n = stops.size();
+        int[] edgeStart = new int[n + 1];
+        for (Edge edge : edges) {
+            int left = stopIndex(index, edge.getLeftStopID());
+            int right = stopIndex(index, edge.getRightStopID());
+            edgeStart[left + 1]++;
+            if (isUndirected) {
+                edgeStart[right + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            edgeStart[i + 1] += edgeStart[i];
+        }
+        int[] edgeTarget = new int[edgeStart[n]];
+        int[] edgeLength = new int[edgeStart[n]];
+        int[] position = Arrays.copyOf(edgeStart, n);
+        for (Edge edge : edges) {
+            int left = index[edge.getLeftStopID()];
+            int right = index[edge.getRightStopID()];
+            edgeTarget[position[left]] = right;
+            edgeLength[position[left]++] = edge.getLength();
+            if (isUndirected) {
+                edgeTarget[position[right]] = left;
+                edgeLength[position[right]++] = edge.getLength();
+            }
+        }
+
+        int[] terminalIndex = new int[terminals.length];
+        for (int t = 0; t < terminals.length; t++) {
+            terminalIndex[t] = stopIndex(index, terminals[t]);
+        }
+
+        int[][] distances = new int[terminals.length][];
+        ThreadLocal<int[]> distance = ThreadLocal.withInitial(() -> new int[n]);
+        ThreadLocal<long[]> heap = ThreadLocal.withInitial(() -> new long[edgeStart[n] + 1]);
+        ForkJoinPool pool = new ForkJoinPool(threads < 1 ? Runtime.getRuntime().availableProcessors() : threads);
+        try {
+            pool.submit(() -> IntStream.range(0, terminals.length).parallel().forEach(t -> {
+                int[] dist = distance.get();
+                dijkstra(terminalIndex[t], edgeStart, edgeTarget, edgeLength, dist, heap.get());
+                int[] row = new int[terminals.length];
+                for (int u = 0; u < terminals.length; u++) {
+                    row[u] = dist[terminalIndex[u]];
+                }
+                distances[t] = row;
+            })).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("Computation of the shortest paths failed", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        return new StopDistances(terminals.clone(), distances);
+    }
+
+    private static int stopIndex(int[] index, int stopID) throws IllegalArgumentException {
+        if (stopID < 0 || stopID >= index.length || index[stopID] == -1) {
+            throw new IllegalArgumentException("edge contains a stop ID, which doesn't exist");
+        }
+        return index[stopID];
+    }
+
+    /**
+     * Dijkstra from one stop with lazy deletion: the heap contains (distance, stop) pairs encoded as
+     * distance * 2^32 + stop, outdated pairs are skipped. Every edge adds at most one pair, so the heap
+     * needs at most one entry per edge plus the source.
+     */
+    private static void dijkstra(int source, int[] edgeStart, int[] edgeTarget, int[] edgeLength, int[] dist,
+                                 long[] heap) {
+        Arrays.fill(dist, Integer.MAX_VALUE / 2); // Don't use Integer.MAX_VALUE! Otherwise, an overflow will occur!
+        dist[source] = 0;
+        heap[0] = source;
+        int size = 1;
+        while (size > 0) {
+            long first = heap[0];
+            long last = heap[--size];
+            int k = 0;
+            while (2 * k + 1 < size) {
+                int child = 2 * k + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= last) {
+                    break;
+                }
+                heap[k] = heap[child];
+                k = child;
+            }
+            heap[k] = last;
+
+            int stop = (int) first;
+            int d = (int) (first >>> 32);
+            if (d > dist[stop]) {
+                continue;
+            }
+            for (int e = edgeStart[stop]; e < edgeStart[stop + 1]; e++) {
+                int target = edgeTarget[e];
+                int newDistance = d + edgeLength[e];
+                if (newDistance < dist[target]) {
+                    dist[target] = newDistance;
+                    long entry = ((long) newDistance << 32) | target;
+                    k = size++;
+                    while (k > 0 && heap[(k - 1) / 2] > entry) {
+                        heap[k] = heap[(k - 1) / 2];
+                        k = (k - 1) / 2;
+                    }
+                    heap[k] = entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * calculates the compatible pairs of trips for the models AM, TM and NM as adjacency lists, see
+     * {@link TripCompatibility}.
      * Assumptions:
      * <ul>
      * <li> two trips i and j are compatible, if trip j can be driven directly after trip i by the same vehicle
@@ -92,28 +240,34 @@ public class VS {
      *                  <li> startTime: the time (in seconds), when the vehicle departs at the first station
      *                  <li> endTime: the time (in seconds), when the vehicle arrives at the last station
      *                  	</ul>
-     * @param distances the two dimensional matrix calculated by the function {@link #calculateShortestPathsFloyd(ArrayList, ArrayList, boolean)}
-     * @return CompatibilityMatrix, an two dimensional matrix of Integer of size trips \times trips, it holds:
-     * <ul>
-     * <li> CompatibilityMatrix[i][j] = 0, if the trips are compatible
-     * <li> CompatibilityMatrix[i][j] = 1, if the trips are incompatible
-     * 	</ul>
+     * @param distances the distances calculated by the function {@link #calculateShortestPathsFloyd(ArrayList, ArrayList, boolean)}
+     *                  (for all stops) or {@link #calculateShortestPathsDijkstra(ArrayList, ArrayList, boolean, int[], int)}
+     * @param turnoverTime        the time (in seconds) needed between two trips in addition to the empty trip
+     * @param maxConnectionTime   the maximal time (in seconds) between the end of a trip and the start of a
+     *                            compatible trip, -1 for no restriction
+     * @param maxDeadheadsPerStop the maximal number of compatible trips at every station other than the end station of
+     *                            a trip, -1 for no restriction
+     * @return the compatible trips, trips are given by their index in trips. Trips i and j are compatible iff
+     * compatibility.isCompatible(i, j)
      */
-    public static int[][] calculateCompatibilityMatrix(ArrayList<Trip> trips, int[][] distances, int turnoverTime) {
-        int[][] CompatibilityMatrix = new int[trips.size()][trips.size()];
+    public static TripCompatibility calculateCompatibility(ArrayList<Trip> trips, StopDistances distances,
+                                                           int turnoverTime, int maxConnectionTime,
+                                                           int maxDeadheadsPerStop) {
         logger.debug("Turnover time: " + turnoverTime);
+        int[] startStation = new int[trips.size()];
+        double[] startTime = new double[trips.size()];
+        int[] endStation = new int[trips.size()];
+        double[] endTime = new double[trips.size()];
         for (int i = 0; i < trips.size(); i++) {
-            for (int j = 0; j < trips.size(); j++) {
-                if (trips.get(i).getEndTime() + (distances[trips.get(i).getEndStation() - 1][trips.get(j).getStartStation() - 1])
-                    + (turnoverTime) <= trips.get(j).getStartTime()) {
-                    CompatibilityMatrix[i][j] = 1;
-                } else {
-                    CompatibilityMatrix[i][j] = 0;
-                }
-            }
+            startStation[i] = trips.get(i).getStartStation();
+            startTime[i] = trips.get(i).getStartTime();
+            endStation[i] = trips.get(i).getEndStation();
+            endTime[i] = trips.get(i).getEndTime();
         }
-
-        return CompatibilityMatrix;
+        TripCompatibility compatibility = new TripCompatibility(startStation, startTime, endStation, endTime,
+            distances::getDistance, turnoverTime, maxConnectionTime, maxDeadheadsPerStop);
+        logger.debug("Compatible pairs of trips: " + compatibility.getNumberOfConnections());
+        return compatibility;
     }
 
 
@@ -162,7 +316,7 @@ public class VS {
      * @param turnOverTime an integer, which represents the minimum time for a vehicle to turn over in a station
      */
     public static void calculateCanalsAndTransfers(CanalNetwork network,
-                                                   ArrayList<Integer> stops, int vehicleCosts, int[][] distances,
+                                                   ArrayList<Integer> stops, int vehicleCosts, StopDistances distances,
                                                    int turnOverTime) throws IOException {
         ArrayList<CTrip> trips = network.getTrips();
         HashSet<CTrip> tripsSet = new HashSet<>(trips);
@@ -245,10 +399,10 @@ public class VS {
                     // calculate Leaves after an Enter in canal i
                     if (event.getType().equals(Event.TYPE_START)) {
                         int startTime = event.getTime() + turnOverTime; // distances are scaled by 100 when they were read in
-                        int endTime = event.getTime() + turnOverTime + distances[i][j]; // distances are scaled by 100 when they were read in
+                        int endTime = event.getTime() + turnOverTime + distances.getDistance(i + 1, j + 1); // distances are scaled by 100 when they were read in
 
                         // If the transfer contains a time cycle jump ==> additional costs of a single vehicle are induced
-                        CTransfer transfer = new CTransfer(transferID, null, null, distances[i][j] + (startTime <= endTime ? 0 : vehicleCosts), "EMPTY", startTime > endTime);
+                        CTransfer transfer = new CTransfer(transferID, null, null, distances.getDistance(i + 1, j + 1) + (startTime <= endTime ? 0 : vehicleCosts), "EMPTY", startTime > endTime);
                         transfers.add(transfer);
 
                         CEvent canalEndEvent = new CEvent(transfer, eventID, startTime, Event.TYPE_END);
@@ -271,10 +425,10 @@ public class VS {
                     // calculates Enters before a Leave in canal i
                     else if (event.getType().equals(Event.TYPE_END)) {
                         int endTime = event.getTime() - turnOverTime; // distances are scaled by 100 when they were read in
-                        int startTime = event.getTime() - turnOverTime - distances[j][i]; // distances are scaled by 100 when they were read in
+                        int startTime = event.getTime() - turnOverTime - distances.getDistance(j + 1, i + 1); // distances are scaled by 100 when they were read in
 
                         // If the transfer contains a time cycle jump ==> additional costs of a single vehicle are induced
-                        CTransfer transfer = new CTransfer(transferID, null, null, distances[j][i] + (startTime <= endTime ? 0 : vehicleCosts), "EMPTY", startTime > endTime);
+                        CTransfer transfer = new CTransfer(transferID, null, null, distances.getDistance(j + 1, i + 1) + (startTime <= endTime ? 0 : vehicleCosts), "EMPTY", startTime > endTime);
                         transfers.add(transfer);
 
                         CEvent canalStartEvent = new CEvent(transfer, eventID, endTime, Event.TYPE_START);
@@ -430,7 +584,7 @@ public class VS {
                                                    HashMap<Integer, Integer> leftEventsOfTheLines,
                                                    HashMap<Integer, Integer> leftEventsOfTheOccuringTransfers,
                                                    HashMap<Integer, Integer> leftEventsOfTheMappings,
-                                                   int[][] distances, HashMap<Integer, CTransfer> transferForGivenEventIDs, int turnoverTime) {
+                                                   StopDistances distances, HashMap<Integer, CTransfer> transferForGivenEventIDs, int turnoverTime) {
 
         int[][] transfersMatrix = new int[trips.size()][trips.size()];
         HashMap<Integer, Integer> allMappingsFromStartsToEnds = new HashMap<>();
@@ -501,11 +655,11 @@ public class VS {
 
 
             if (numberOfZS == 0) {
-                if (!(trips.get(currentLineID - 1).getEndTime() + distances[trips.get(currentLineID - 1).getEndStation() - 1][trips.get(followingLineID - 1).getStartStation() - 1] + turnoverTime
+                if (!(trips.get(currentLineID - 1).getEndTime() + distances.getDistance(trips.get(currentLineID - 1).getEndStation(), trips.get(followingLineID - 1).getStartStation()) + turnoverTime
                     <= trips.get(followingLineID - 1).getStartTime())) {
                     logger.debug("Transfer from " + currentLineID + " at " + trips.get(currentLineID - 1).getEndTime());
                     logger.debug(" to " + followingLineID + " at " + trips.get(followingLineID - 1).getStartTime());
-                    logger.debug(": distance is " + (distances[trips.get(currentLineID - 1).getEndStation() - 1][trips.get(followingLineID - 1).getStartStation() - 1]));
+                    logger.debug(": distance is " + (distances.getDistance(trips.get(currentLineID - 1).getEndStation(), trips.get(followingLineID - 1).getStartStation())));
                     logger.debug("Min Distance: " + turnoverTime);
                 }
 
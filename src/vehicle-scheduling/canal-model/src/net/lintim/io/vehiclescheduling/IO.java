@@ -1,13 +1,19 @@
 package net.lintim.io.vehiclescheduling;
 
+import net.lintim.algorithm.TripCompatibility;
+import net.lintim.algorithm.vehiclescheduling.CanalModelSolver;
 import net.lintim.algorithm.vehiclescheduling.VS;
+import net.lintim.exception.LinTimException;
 import net.lintim.model.vehiclescheduling.*;
+import net.lintim.solver.Model;
+import net.lintim.solver.SolverParameters;
 import net.lintim.util.Config;
 import net.lintim.util.LogLevel;
 import net.lintim.util.Logger;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.IntBinaryOperator;
 
 public class IO {
     private static Logger logger = new Logger(IO.class);
@@ -26,7 +32,11 @@ public class IO {
     // WARNING: it can not be moved to config without extra modification.
     private static final String transfersFileName = "vehicle-scheduling/Transfers.vs";
 
-    private static int[][] distances;
+    /**
+     * The shortest distances between the stops, for all stops or only for the stops where trips start or end,
+     * see {@link #initialize(Config)}.
+     */
+    private static StopDistances distances;
     /**
      * Contains the IDs of the stops of the network. the IDs of the stops are
      * continous and starting with 1.
@@ -47,6 +57,8 @@ public class IO {
     private static int timeUnitsPerMinute = 1; // Needed for lower bounds to seconds conversion
     private static boolean verbose = false; // This boolean states if the variable "vs_verbose" in the config is set and prints more informations if it is the case
     private static int turnOverTime = 0; // This is the time, which is needed to turn over in a station (so the minDistance has to be greater or equal as this value) --> Canal Model
+    private static int maxConnectionTime = -1; // This is the maximal time between two trips served directly after each other (-1 = no restriction) --> AM, TM, NM
+    private static int maxDeadheadsPerStop = -1; // This is the maximal number of compatible trips per station reached by an empty trip (-1 = no restriction) --> AM, TM, NM
     // default names for input files
     private static String eventsFileName = null;
     private static String tripsFileName = null;
@@ -60,6 +72,8 @@ public class IO {
     private static int threadLimit;
     private static boolean outputSolverMessages;
     private static boolean writeLpFile;
+    // Whether the compatibility matrix is written in the sparse format of mosel --> AM, TM, NM
+    private static boolean sparseInput;
 
     /**
      * gets the informations about the trips.
@@ -465,8 +479,8 @@ public class IO {
         } else {
             ArrayList<Trip> trips;
             trips = readTrips();
-            int[][] CompMatrix = VS.calculateCompatibilityMatrix(trips,
-                distances, turnOverTime);
+            TripCompatibility compatibility = VS.calculateCompatibility(trips, distances, turnOverTime,
+                maxConnectionTime, maxDeadheadsPerStop);
 
             switch (models.get(modelName)) {
                 case 0:
@@ -476,13 +490,13 @@ public class IO {
                     calculateMoselInputForMDM2(trips);
                     break;
                 case 2:
-                    calculateMoselInputForAM(trips, CompMatrix);
+                    calculateMoselInputForAM(trips, compatibility);
                     break;
                 case 3:
-                    calculateMoselInputForTM(trips, CompMatrix);
+                    calculateMoselInputForTM(trips, compatibility);
                     break;
                 case 4:
-                    calculateMoselInputForNM(trips, CompMatrix);
+                    calculateMoselInputForNM(trips, compatibility);
                     break;
             }
         }
@@ -490,177 +504,330 @@ public class IO {
 
     }
 
-    public static void calculateMoselInputVehicleFlow(CanalNetwork network) throws IOException {
-        String moselVFInputFileName = "../../src/vehicle-scheduling/canal-model/data_vehicle_flow";
-        File file = new File(moselVFInputFileName);
-
-        PrintStream pstream = new PrintStream(file);
-
-
-        pstream.println("NumberOfTrips: " + network.getTrips().size());
-        pstream.println("NumberOfTransfers: " + network.getTransfers().size());
-        pstream.println("NumberOfCanalEvents: " + network.getTotalNumberOfCanalEvents());
-        pstream.println("NumberOfCanals: " + network.getCanals().length);
-        pstream.println("NumberOfLineTransfers: " + (2 * network.getTrips().size()));
-        pstream.println("timelimit: " + timelimit);
-        pstream.println("threads: " + threadLimit);
-        pstream.println("outputMessages: " + outputSolverMessages);
-        pstream.println("mipGap: " + mipGap);
-        pstream.println("writeLpFile: " + writeLpFile);
-
-        pstream.println("! Costs of a single vehicle:");
-        pstream.println("cv: " + vehicleCosts);
-
-        pstream.println("! Costs of the transfers:");
+    /**
+     * Solve the chosen model directly by the core solver interface instead of calling mosel, see
+     * {@link CanalModelSolver}. The results are written to the same files as by the mosel models, i.e., to
+     * vehicle-scheduling/Vehicle_Flow.vs for the canal model and to vehicle-scheduling/Transfers.vs for the models
+     * AM, TM and NM. The models MDM1 and MDM2 are only available in mosel.
+     *
+     * @param parameters the solver parameters
+     */
+    public static void solveModel(SolverParameters parameters) throws IOException {
+        CanalModelSolver solver = new CanalModelSolver(parameters);
+        if (modelName.equals("CANAL_MODEL")) {
+            CanalNetwork network = calculateCanalNetwork();
+            boolean[] usedTransfers = solver.solveCanalModel(network, vehicleCosts);
+            writeVehicleFlow(network, usedTransfers, solver);
+            printCanalNetwork(network);
+            return;
+        }
+        ArrayList<Trip> trips = readTrips();
+        int numberOfTrips = trips.size();
+        TripCompatibility compatibility = VS.calculateCompatibility(trips, distances, turnOverTime,
+            maxConnectionTime, maxDeadheadsPerStop);
+        // the matrices A and U as written to the data files, indices starting at 1
+        IntBinaryOperator compatibilityMatrix = (i, j) -> compatibility.isCompatible(i - 1, j - 1) ? 1 : 0;
+        IntBinaryOperator transferCosts = (i, j) -> {
+            if (i > numberOfTrips && j > numberOfTrips) {
+                return vehicleCosts;
+            }
+            int from = i > numberOfTrips ? depot + 1 : trips.get(i - 1).getEndStation();
+            int to = j > numberOfTrips ? depot + 1 : trips.get(j - 1).getStartStation();
+            return distances.getDistance(from, to);
+        };
+        ArrayList<CanalModelSolver.Connection> connections;
+        String header;
+        switch (modelName) {
+            case "ASSIGNMENT_MODEL":
+                connections = solver.solveAssignmentModel(numberOfTrips, compatibilityMatrix, transferCosts,
+                    vehicleCosts);
+                header = "# Used model : AM (Assignment Model)";
+                break;
+            case "TRANSPORTATION_MODEL":
+                connections = solver.solveTransportationModel(numberOfTrips, compatibilityMatrix, transferCosts,
+                    vehicleCosts, penCosts);
+                header = "# Used model : TM (Transportation Model)";
+                break;
+            case "NETWORK_FLOW_MODEL":
+                connections = solver.solveNetworkFlowModel(numberOfTrips, compatibilityMatrix, transferCosts,
+                    vehicleCosts);
+                header = "# Used model : NM (Network Flow Model)";
+                break;
+            default:
+                throw new LinTimException("The model " + modelName + " can only be solved by mosel, set " +
+                    "vs_canal_use_solver_interface to false");
+        }
+
+        try (MoselFileWriter writer = new MoselFileWriter(transfersFileName)) {
+            writer.println(header);
+            writer.print("# Value of objective function (costs of the vehicle scheduling): ")
+                .println(formatReal(solver.getObjectiveValue() / 100));
+            writer.print("# Problem status: ").println(formatStatus(solver.getStatus()));
+            if (modelName.equals("ASSIGNMENT_MODEL")) {
+                writer.println("# transfers: first-trip (id) ; second-trip (id) ; costs of the transfer ; transfer " +
+                    "with time cycle jump (true or false)");
+                writer.println("# remark: a time cycle jump occurs, when a vehicle pauses between to trips untill " +
+                    "the next time cycle, e.g. over night");
+            } else {
+                writer.println("# transfers: first-trip (id) ; second-trip (id) ; costs of the transfer -------- id = "
+                    + (numberOfTrips + 1) + " stands for the depot");
+                writer.println("# remark: costs for the transfer from and to the depot are half the costs of one " +
+                    "single vehicle");
+            }
+            for (CanalModelSolver.Connection connection : connections) {
+                int i = connection.getFirstTrip();
+                int j = connection.getSecondTrip();
+                if (modelName.equals("TRANSPORTATION_MODEL") && i == j && i > numberOfTrips) {
+                    continue;
+                }
+                writer.print(i).print(" ; ").print(j).print(" ; ").print(formatReal(connection.getCosts() / 100));
+                if (modelName.equals("ASSIGNMENT_MODEL")) {
+                    writer.print(i != j && compatibilityMatrix.applyAsInt(i, j) == 0 ? " ; false" : " ; true");
+                }
+                writer.println();
+            }
+        }
+    }
 
+    /**
+     * Write the vehicle flow of the canal model in the format of vehicle_flow.mos, see
+     * {@link #readVehicleFlowCanals()} and {@link #readVehicleFlowTransfers()}.
+     */
+    private static void writeVehicleFlow(CanalNetwork network, boolean[] usedTransfers, CanalModelSolver solver)
+        throws IOException {
         ArrayList<CTransfer> transfers = network.getTransfers();
-
-        StringBuilder transferString = new StringBuilder("C: [ ");
-        for (CTransfer cTransfer : transfers) {
-            transferString.append(cTransfer.getCosts());
-            transferString.append(" ");
+        int[] timeOfEvents = calculateTimeOfEvents(transfers);
+        try (MoselFileWriter writer = new MoselFileWriter(vehicleFlowFileName)) {
+            writer.println("# Used model : Canal Model");
+            writer.print("# Value of objective function (costs of the vehicle scheduling): ")
+                .println(formatReal(solver.getObjectiveValue() / 100));
+            writer.print("# Number of used vehicles: ").print(solver.getNumberOfVehicles()).println();
+            writer.print("# Problem status: ").println(formatStatus(solver.getStatus()));
+            writer.println("# Canals of the model with the events contained in the calculated vehicle flow, format:");
+            writer.println("# first line: 'Canal; canal-id', following lines: line i has the format 'id of the ith " +
+                "event of the canal (format 'ID ; time; type')'");
+            Canal[] canals = network.getCanals();
+            for (int i = 0; i < canals.length; i++) {
+                if (canals[i] == null || canals[i].getEvents().isEmpty()) {
+                    continue;
+                }
+                writer.print("Canal; ").print(i + 1).println();
+                for (CEvent event : canals[i].getEvents()) {
+                    if (!usedTransfers[event.getJourney().getID() - 1]) {
+                        continue;
+                    }
+                    writer.print(event.getID()).print("; ").print(timeOfEvents[event.getID() - 1]).print("; ")
+                        .println(event.getType().equals(Event.TYPE_START) ? "START; " : "END; ");
+                }
+            }
+            writer.println("#Transfers: (format = ID; startEvent (with format 'ID ; time; type'); endEvent (with " +
+                "format 'ID ; time; type'); costs; timeCycleJump; type)");
+            for (int i = 0; i < transfers.size(); i++) {
+                if (!usedTransfers[i]) {
+                    continue;
+                }
+                CTransfer transfer = transfers.get(i);
+                int startEvent = transfer.getStartEvent().getID();
+                int endEvent = transfer.getEndEvent().getID();
+                writer.print(i + 1).print("; ").print(startEvent).print("; ").print(timeOfEvents[startEvent - 1])
+                    .print("; END; ").print(endEvent).print("; ").print(timeOfEvents[endEvent - 1]).print("; START; ")
+                    .print(transfer.getCosts()).print("; ").print(String.valueOf(transfer.getTimeCycleJump()))
+                    .print("; ").println(transfer.getType());
+            }
         }
-        transferString.append("]");
-        pstream.println(transferString.toString());
+    }
 
-        pstream.println("! Type of Event: 0 == train arrives at canal/start; 1 == train leaves canal/end");
+    /**
+     * Format a real value like mosel, i.e., without decimal places for integral values.
+     */
+    private static String formatReal(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
 
-        StringBuilder eventTypeString = new StringBuilder("EventType: [");
-        int eventIndex = 1;
-        for (Canal canal : network.getCanals()) {
-            if (canal == null) continue;
-            for (CEvent event : canal.getEvents()) {
-                event.setMoselIndex(Integer.toString(eventIndex++));
-                eventTypeString.append(event.getType().equals(Event.TYPE_START) ? " 0" : " 1");
-            }
+    /**
+     * Get the status of a solved model as written by print_status.mos.
+     */
+    private static String formatStatus(Model.Status status) {
+        switch (status) {
+            case OPTIMAL:
+                return "Optimum found";
+            case FEASIBLE:
+                return "Unfinished";
+            case INFEASIBLE:
+                return "Infeasible";
+            default:
+                return "???";
         }
-        eventTypeString.append(" ]");
-        pstream.println(eventTypeString);
+    }
 
-        pstream.println("! Array of the Event Indizes, ordered by the order of the given canals and the order of the events in this canals");
+    /**
+     * calculate the mosel-input for the canal model.
+     * Output-File: data_vehicle_flow in the folder src/vehicle-scheduling/canal-model
+     * <p>
+     * All arrays are written directly while iterating over the transfers and canals of the network, the arrays are
+     * never stored as a whole. Additionally, the mosel index of every canal event is set.
+     *
+     * @param network the canal network, calculated in the function {@link #calculateCanalNetwork()}
+     */
+    public static void calculateMoselInputVehicleFlow(CanalNetwork network) throws IOException {
+        String moselVFInputFileName = "../../src/vehicle-scheduling/canal-model/data_vehicle_flow";
+        ArrayList<CTransfer> transfers = network.getTransfers();
 
-        StringBuilder canalEventJavaIndizesString = new StringBuilder("CanalEventJavaIndizes: [ ");
-        for (Canal canal : network.getCanals()) {
-            if (canal == null) continue;
-            for (CEvent event : canal.getEvents()) {
-                canalEventJavaIndizesString.append(event.getID());
-                canalEventJavaIndizesString.append(" ");
+        try (MoselFileWriter writer = new MoselFileWriter(moselVFInputFileName)) {
+            writer.printParameter("NumberOfTrips", network.getTrips().size());
+            writer.printParameter("NumberOfTransfers", transfers.size());
+            writer.printParameter("NumberOfCanalEvents", network.getTotalNumberOfCanalEvents());
+            writer.printParameter("NumberOfCanals", network.getCanals().length);
+            writer.printParameter("NumberOfLineTransfers", 2 * network.getTrips().size());
+            printSolverParameters(writer);
+
+            writer.println("! Costs of a single vehicle:");
+            writer.printParameter("cv", vehicleCosts);
+
+            writer.println("! Costs of the transfers:");
+            writer.print("C: [ ");
+            for (CTransfer cTransfer : transfers) {
+                writer.print(cTransfer.getCosts()).print(' ');
+            }
+            writer.println("]");
+
+            writer.println("! Type of Event: 0 == train arrives at canal/start; 1 == train leaves canal/end");
+            writer.print("EventType: [");
+            int eventIndex = 1;
+            for (Canal canal : network.getCanals()) {
+                if (canal == null) continue;
+                for (CEvent event : canal.getEvents()) {
+                    event.setMoselIndex(Integer.toString(eventIndex++));
+                    writer.print(event.getType().equals(Event.TYPE_START) ? " 0" : " 1");
+                }
             }
-        }
-        canalEventJavaIndizesString.append(" ]");
-        pstream.println(canalEventJavaIndizesString);
+            writer.println(" ]");
 
-        pstream.println("! Index of the event occuring before this event in the same canal");
+            writer.println("! Array of the Event Indizes, ordered by the order of the given canals and the order of the events in this canals");
+            writer.print("CanalEventJavaIndizes: [ ");
+            for (Canal canal : network.getCanals()) {
+                if (canal == null) continue;
+                for (CEvent event : canal.getEvents()) {
+                    writer.print(event.getID()).print(' ');
+                }
+            }
+            writer.println(" ]");
 
-        StringBuilder previousEventString = new StringBuilder(network.getCanals().length * 32);
-        previousEventString.append("PreviousEvent: [ ");
+            writer.println("! Index of the event occuring before this event in the same canal");
+            writer.print("PreviousEvent: [ ");
+            for (Canal canal : network.getCanals()) {
+                if (canal == null) continue;
+                for (CEvent event : canal.getEvents()) {
+                    writer.print(' ').print(canal.getPreviousEvent(event).getMoselIndex());
+                }
+            }
+            writer.println(" ]");
 
-        for (Canal canal : network.getCanals()) {
-            if (canal == null) continue;
-            for (CEvent event : canal.getEvents()) {
-                previousEventString.append(" ");
-                previousEventString.append(canal.getPreviousEvent(event).getMoselIndex());
+            writer.println("! Transfer associated with each event");
+            writer.print("AssociatedTransfer: [ ");
+            for (Canal canal : network.getCanals()) {
+                if (canal == null) continue;
+                for (CEvent event : canal.getEvents()) {
+                    writer.print(' ').print(event.getJourney().getIDString());
+                }
             }
-        }
-        previousEventString.append(" ]");
-        pstream.println(previousEventString);
+            writer.println(" ]");
 
-        pstream.println("! Transfer associated with each event");
-        StringBuilder associatedTransferString = new StringBuilder("AssociatedTransfer: [ ");
-        for (Canal canal : network.getCanals()) {
-            if (canal == null) continue;
-            for (CEvent event : canal.getEvents()) {
-                associatedTransferString.append(" ");
-                associatedTransferString.append(event.getJourney().getIDString());
+            writer.println("! Array of the indizes, which belong to the last event of the canals (length = number of the canals)");
+            writer.println("Jump: [ ");
+            for (Canal canal : network.getCanals()) {
+                if (canal == null || canal.getEvents().size() <= 0) {
+                    writer.print(" -1");
+                } else {
+                    writer.print(' ').print(canal.getEvents().get(canal.getEvents().size() - 1).getMoselIndex());
+                }
             }
-        }
-        associatedTransferString.append(" ]");
-        pstream.println(associatedTransferString);
+            writer.println("]");
 
-        pstream.println("! Array of the indizes, which belong to the last event of the canals (length = number of the canals)");
-        pstream.println("Jump: [ ");
-        for (Canal canal : network.getCanals()) {
-            if (canal == null || canal.getEvents().size() <= 0) {
-                pstream.print(" -1");
-            } else {
-                pstream.print(" " + canal.getEvents().get(canal.getEvents().size() - 1).getMoselIndex());
+            writer.println("! Array of booleans, which states if a canal with the associated index exists");
+            writer.println("CanalExists: [ ");
+            for (Canal canal : network.getCanals()) {
+                if (canal == null || canal.getEvents().size() <= 0) {
+                    writer.print(" false");
+                } else {
+                    writer.print(" true");
+                }
             }
-        }
-        pstream.println("]");
+            writer.println("]");
 
-        pstream.println("! Array of booleans, which states if a canal with the associated index exists");
-        pstream.println("CanalExists: [ ");
-        for (Canal canal : network.getCanals()) {
-            if (canal == null || canal.getEvents().size() <= 0) {
-                pstream.print(" " + false);
-            } else {
-                pstream.print(" " + true);
+            writer.println("! Array of booleans, which states if a transfer has a time cycle jump");
+            writer.print("TransfersWithTimeCycleJump: [");
+            for (CTransfer transfer : transfers) {
+                writer.print(transfer.getTimeCycleJump() ? " true" : " false");
             }
-        }
-        pstream.println("]");
+            writer.println(" ]");
 
-        pstream.println("! Array of booleans, which states if a transfer has a time cycle jump");
-        StringBuilder TransferWithTimeCycleJumpString = new StringBuilder("TransfersWithTimeCycleJump: [");
-        for (CTransfer transfer : transfers) {
-            TransferWithTimeCycleJumpString.append(" ");
-            TransferWithTimeCycleJumpString.append(transfer.getTimeCycleJump());
-        }
-        TransferWithTimeCycleJumpString.append(" ]");
-        pstream.println(TransferWithTimeCycleJumpString);
+            // the following data is only used for the output in the mosel-program
 
-        // the following data is only used for the output in the mosel-program
+            Set<Integer> startIDs = new HashSet<>();
+            writer.println("! Array of the indizes of the first event of a transfer");
+            writer.print("TransferStartEvent: [");
+            for (CTransfer transfer : transfers) {
+                writer.print(' ').print(transfer.getStartEvent().getID());
+                startIDs.add(transfer.getStartEvent().getID());
+            }
+            writer.println(" ]");
 
-        Set<Integer> startIDs = new HashSet<>();
-        pstream.println("! Array of the indizes of the first event of a transfer");
-        StringBuilder TransferStartEventString = new StringBuilder("TransferStartEvent: [");
-        for (CTransfer transfer : transfers) {
-            TransferStartEventString.append(" ");
-            TransferStartEventString.append(transfer.getStartEvent().getID());
-            startIDs.add(transfer.getStartEvent().getID());
-        }
-        TransferStartEventString.append(" ]");
-        pstream.println(TransferStartEventString);
+            writer.println("! Array of the indizes of the first event of a transfer");
+            writer.print("TransferEndEvent: [");
+            for (CTransfer transfer : transfers) {
+                writer.print(' ').print(transfer.getEndEvent().getID());
+                if (startIDs.contains(transfer.getEndEvent().getID())) {
+                    throw new Error("ID " + transfer.getEndEvent().getID() + " used as both start and end");
+                }
+            }
+            writer.println(" ]");
 
-        pstream.println("! Array of the indizes of the first event of a transfer");
-        StringBuilder TransferEndEventString = new StringBuilder("TransferEndEvent: [");
-        for (CTransfer transfer : transfers) {
-            TransferEndEventString.append(" ");
-            TransferEndEventString.append(transfer.getEndEvent().getID());
-            if (startIDs.contains(transfer.getEndEvent().getID())) {
-                throw new Error("ID " + transfer.getEndEvent().getID() + " used as both start and end");
+            writer.println("! Array of the types of the transfers");
+            writer.print("TransferType: [");
+            for (CTransfer transfer : transfers) {
+                writer.print(' ').print(transfer.getType());
             }
-        }
-        TransferEndEventString.append(" ]");
-        pstream.println(TransferEndEventString);
+            writer.println(" ]");
 
-        pstream.println("! Array of the types of the transfers");
-        StringBuilder TransferTypeString = new StringBuilder("TransferType: [");
-        for (CTransfer transfer : transfers) {
-            TransferTypeString.append(" ");
-            TransferTypeString.append(transfer.getType());
-        }
-        TransferTypeString.append(" ]");
-        pstream.println(TransferTypeString);
+            int[] timeOfTransfers = calculateTimeOfEvents(transfers);
+            writer.printParameter("NumberOfEvents", timeOfTransfers.length);
 
-        ArrayList<Event> givenEvents = IO.readEvents();
-        int numberOfGivenEvents = givenEvents.size();
-        pstream.println("NumberOfEvents: " + (numberOfGivenEvents + transfers.size() * 2));
+            writer.println("! Array of the times of the events");
+            writer.print("TimeOfEvents: [");
+            for (int timeOfTransfer : timeOfTransfers) {
+                writer.print(timeOfTransfer).print(' ');
+            }
+            writer.println("]");
+        }
+    }
 
-        pstream.println("! Array of the times of the events");
-        StringBuilder EventTimeString = new StringBuilder("TimeOfEvents: [");
-        int[] timeOfTransfers = new int[numberOfGivenEvents + transfers.size() * 2];
+    /**
+     * Get the times of the start and end events of the transfers, indexed by the ID of the event - 1. The times of the
+     * given events are -1.
+     */
+    private static int[] calculateTimeOfEvents(ArrayList<CTransfer> transfers) throws IOException {
+        int[] timeOfTransfers = new int[readEvents().size() + transfers.size() * 2];
         Arrays.fill(timeOfTransfers, -1);
         for (CTransfer transfer : transfers) {
             timeOfTransfers[transfer.getStartEvent().getID() - 1] = transfer.getStartEvent().getTime();
             timeOfTransfers[transfer.getEndEvent().getID() - 1] = transfer.getEndEvent().getTime();
         }
-        for (int timeOfTransfer : timeOfTransfers) {
-            EventTimeString.append(timeOfTransfer);
-            EventTimeString.append(" ");
-        }
-        EventTimeString.append("]");
-        pstream.println(EventTimeString);
+        return timeOfTransfers;
+    }
 
+    /**
+     * Write the solver parameters, which are read by all mosel models.
+     */
+    private static void printSolverParameters(MoselFileWriter writer) throws IOException {
+        writer.printParameter("timelimit", timelimit);
+        writer.printParameter("threads", threadLimit);
+        writer.printParameter("outputMessages", outputSolverMessages);
+        writer.printParameter("mipGap", mipGap);
+        writer.printParameter("writeLpFile", writeLpFile);
     }
 
     /**
@@ -679,60 +846,55 @@ public class IO {
      *
      * @param trips an ArrayList of the trips, each trip is represented like in the function {@link #readTrips()}
      */
-    public static void calculateMoselInputForMDM1(ArrayList<Trip> trips) throws FileNotFoundException {
+    public static void calculateMoselInputForMDM1(ArrayList<Trip> trips) throws IOException {
         String moselInputFileName = "../../src/vehicle-scheduling/canal-model/data_mdm1";
-        File file = new File(moselInputFileName);
+        try (MoselFileWriter writer = new MoselFileWriter(moselInputFileName)) {
 
-        PrintStream pstream = new PrintStream(file);
-
-        pstream.print("C: [");
+            writer.print("C: [");
 
-        for (int i = 0; i <= trips.size(); i++) {
-            for (int j = 0; j <= trips.size(); j++) {
+            for (int i = 0; i <= trips.size(); i++) {
+                for (int j = 0; j <= trips.size(); j++) {
 
-                if (i == 0) {
-                    if (j == 0) {
-                        pstream.print(" 1");
-                    } else if (j < trips.size()) {
-                        pstream.print(" 0");
-                    } else {
-                        pstream.println(" 0");
-                    }
-                } else if (j == 0) {
-                    pstream.print(" 0");
-                } else if ((trips.get(i - 1).getEndStation() == trips.get(j - 1).getStartStation()) && (trips.get(i - 1).getEndTime() + turnOverTime
-                    <= trips.get(j - 1).getStartTime())) {
-                    if (j < trips.size()) {
-                        pstream.print(" 0");
-                    } else if (i == trips.size()) {
-                        pstream.print(" 0");
-                    } else {
-                        pstream.println(" 0");
-                    }
-                } else {
-                    if (j < trips.size()) {
-                        pstream.print(" -1000");
-                    } else if (i == trips.size()) {
-                        pstream.print(" -1000");
+                    if (i == 0) {
+                        if (j == 0) {
+                            writer.print(" 1");
+                        } else if (j < trips.size()) {
+                            writer.print(" 0");
+                        } else {
+                            writer.println(" 0");
+                        }
+                    } else if (j == 0) {
+                        writer.print(" 0");
+                    } else if ((trips.get(i - 1).getEndStation() == trips.get(j - 1).getStartStation()) && (trips.get(i - 1).getEndTime() + turnOverTime
+                        <= trips.get(j - 1).getStartTime())) {
+                        if (j < trips.size()) {
+                            writer.print(" 0");
+                        } else if (i == trips.size()) {
+                            writer.print(" 0");
+                        } else {
+                            writer.println(" 0");
+                        }
                     } else {
-                        pstream.println(" -1000");
-                    }
+                        if (j < trips.size()) {
+                            writer.print(" -1000");
+                        } else if (i == trips.size()) {
+                            writer.print(" -1000");
+                        } else {
+                            writer.println(" -1000");
+                        }
 
+                    }
                 }
+
             }
 
+            writer.println(" ]");
+            writer.println();
+            writer.println("! The '-1000' is at the places, where rather should be minus infinity.");
+            writer.println();
+            writer.printParameter("NumberOfTrips", trips.size());
+            printSolverParameters(writer);
         }
-
-        pstream.println(" ]");
-        pstream.println();
-        pstream.println("! The '-1000' is at the places, where rather should be minus infinity.");
-        pstream.println();
-        pstream.println("NumberOfTrips: " + trips.size());
-        pstream.println("timelimit: " + timelimit);
-        pstream.println("threads: " + threadLimit);
-        pstream.println("outputMessages: " + outputSolverMessages);
-        pstream.println("mipGap: " + mipGap);
-        pstream.println("writeLpFile: " + writeLpFile);
     }
 
     /**
@@ -749,56 +911,83 @@ public class IO {
      *
      * @param trips an ArrayList of the trips, each trip is represented like in the function {@link #readTrips()}
      */
-    public static void calculateMoselInputForMDM2(ArrayList<Trip> trips) throws FileNotFoundException {
+    public static void calculateMoselInputForMDM2(ArrayList<Trip> trips) throws IOException {
         String moselInputFileName = "../../src/vehicle-scheduling/canal-model/data_mdm2";
-        File file = new File(moselInputFileName);
-
-        PrintStream pstream = new PrintStream(file);
-
-        pstream.print("C: [");
-
-        for (int i = 0; i < trips.size(); i++) {
-            for (int j = 0; j < trips.size(); j++) {
-                if ((trips.get(i).getEndStation() == trips.get(j).getStartStation()) && (trips.get(i).getEndTime() + turnOverTime <= trips.get(j).getStartTime())) {
-                    if (j < trips.size() - 1) {
-                        pstream.print(" 1");
-                    } else if (i == trips.size() - 1) {
-                        pstream.print(" 1");
-                    } else {
-                        pstream.println(" 1");
-                    }
-                } else {
-                    if (j < trips.size() - 1) {
-                        pstream.print(" -1000");
-                    } else if (i == trips.size() - 1) {
-                        pstream.print(" -1000");
+        try (MoselFileWriter writer = new MoselFileWriter(moselInputFileName)) {
+
+            writer.print("C: [");
+
+            for (int i = 0; i < trips.size(); i++) {
+                for (int j = 0; j < trips.size(); j++) {
+                    if ((trips.get(i).getEndStation() == trips.get(j).getStartStation()) && (trips.get(i).getEndTime() + turnOverTime <= trips.get(j).getStartTime())) {
+                        if (j < trips.size() - 1) {
+                            writer.print(" 1");
+                        } else if (i == trips.size() - 1) {
+                            writer.print(" 1");
+                        } else {
+                            writer.println(" 1");
+                        }
                     } else {
-                        pstream.println(" -1000");
-                    }
+                        if (j < trips.size() - 1) {
+                            writer.print(" -1000");
+                        } else if (i == trips.size() - 1) {
+                            writer.print(" -1000");
+                        } else {
+                            writer.println(" -1000");
+                        }
 
+                    }
                 }
+
+
             }
 
+            writer.println(" ]");
+            writer.println();
+            writer.println("! The '-1000' is at the places, where rather should be minus infinity.");
+            writer.println();
+            writer.printParameter("NumberOfTrips", trips.size());
+            printSolverParameters(writer);
+        }
+    }
 
+    /**
+     * Write the row of the compatibility matrix of the given trip, i.e., row[j] = 1 if trip j is compatible to trip i
+     * and 0 otherwise, into the given array. This way, the dense matrix never needs to be stored.
+     */
+    private static void compatibilityRow(TripCompatibility compatibility, int i, int[] row) {
+        Arrays.fill(row, 0);
+        for (int k = compatibility.successorStart(i); k < compatibility.successorEnd(i); k++) {
+            row[compatibility.getSuccessor(k)] = 1;
         }
+    }
 
-        pstream.println(" ]");
-        pstream.println();
-        pstream.println("! The '-1000' is at the places, where rather should be minus infinity.");
-        pstream.println();
-        pstream.println("NumberOfTrips: " + trips.size());
-        pstream.println("timelimit: " + timelimit);
-        pstream.println("threads: " + threadLimit);
-        pstream.println("outputMessages: " + outputSolverMessages);
-        pstream.println("mipGap: " + mipGap);
-        pstream.println("writeLpFile: " + writeLpFile);
+    /**
+     * Write the compatibility matrix in the sparse format of mosel, i.e., only the entries A(i,j) = 1 are listed, one
+     * line per trip. All other entries are 0 in mosel, therefore the model reads the same matrix as in the dense
+     * format. For the model NM, the depot row and column contain no entries.
+     */
+    private static void printSparseCompatibilityMatrix(MoselFileWriter writer, TripCompatibility compatibility)
+        throws IOException {
+        writer.print("A: [ ");
+        for (int i = 0; i < compatibility.getNumberOfTrips(); i++) {
+            if (compatibility.successorStart(i) == compatibility.successorEnd(i)) {
+                continue;
+            }
+            for (int k = compatibility.successorStart(i); k < compatibility.successorEnd(i); k++) {
+                writer.printSparseEntry(i + 1, compatibility.getSuccessor(k) + 1, 1);
+            }
+            writer.println();
+        }
+        writer.println("]");
     }
 
     /**
      * calculate the mosel-input for the model AM.
      * Output-File: data_am in the folder src/vehicle-scheduling/canal-model
      * format:
-     * A: [ .... ], where the "...." represents the compatibility matrix (line by line)
+     * A: [ .... ], where the "...." represents the compatibility matrix (line by line, or only the entries A(i,j) = 1
+     * if vs_mosel_sparse_input is set, see {@link #printSparseCompatibilityMatrix})
      * U: [ .... ], where the "...." represents the matrix with the transfer costs (line by line)
      * cv: vehicleCosts
      * NumberOfTrips: trips.size()
@@ -817,70 +1006,72 @@ public class IO {
      * FIXME!!!!!
      *
      * @param trips      an ArrayList of the trips, each trip is represented like in the function {@link #readTrips}
-     * @param CompMatrix Compatibility Matrix, calculated in the function {@link VS#calculateCompatibilityMatrix}
+     * @param compatibility the compatible trips, calculated in the function {@link VS#calculateCompatibility}
      */
-    public static void calculateMoselInputForAM(ArrayList<Trip> trips, int[][] CompMatrix) throws FileNotFoundException {
+    public static void calculateMoselInputForAM(ArrayList<Trip> trips, TripCompatibility compatibility) throws IOException {
         String moselInputFileName = "../../src/vehicle-scheduling/canal-model/data_am";
-        File file = new File(moselInputFileName);
-
-        PrintStream pstream = new PrintStream(file);
-
-        pstream.println("! Compatibility-Matrix (A(i,j) = 1 <=> i \\bar{\\alpha} j; 0 else):");
+        try (MoselFileWriter writer = new MoselFileWriter(moselInputFileName)) {
 
-        pstream.print("A: [ ");
+            writer.println("! Compatibility-Matrix (A(i,j) = 1 <=> i \\bar{\\alpha} j; 0 else):");
 
-        for (int i = 0; i < trips.size(); i++) {
-            for (int j = 0; j < trips.size(); j++) {
-                if (j != trips.size() - 1) {
-                    pstream.print(CompMatrix[i][j] + " ");
-                } else {
-                    pstream.print(CompMatrix[i][j]);
-                }
-            }
-            if (i != trips.size() - 1) {
-                pstream.println();
+            if (sparseInput) {
+                printSparseCompatibilityMatrix(writer, compatibility);
             } else {
-                pstream.println(" ]");
+                writer.print("A: [ ");
+
+                int[] row = new int[trips.size()];
+                for (int i = 0; i < trips.size(); i++) {
+                    compatibilityRow(compatibility, i, row);
+                    for (int j = 0; j < trips.size(); j++) {
+                        if (j != trips.size() - 1) {
+                            writer.print(row[j]).print(' ');
+                        } else {
+                            writer.print(row[j]);
+                        }
+                    }
+                    if (i != trips.size() - 1) {
+                        writer.println();
+                    } else {
+                        writer.println(" ]");
+                    }
+                }
             }
-        }
 
-        pstream.println();
-        pstream.println("! Pure transfer costs (driving costs):");
+            writer.println();
+            writer.println("! Pure transfer costs (driving costs):");
 
-        pstream.print("U: [ ");
+            writer.print("U: [ ");
 
-        for (int i = 0; i < trips.size(); i++) {
-            for (int j = 0; j < trips.size(); j++) {
-                if (j != trips.size() - 1) {
-                    pstream.print(distances[trips.get(i).getEndStation() - 1][trips.get(j).getStartStation() - 1] + " ");
+            for (int i = 0; i < trips.size(); i++) {
+                for (int j = 0; j < trips.size(); j++) {
+                    if (j != trips.size() - 1) {
+                        writer.print(distances.getDistance(trips.get(i).getEndStation(), trips.get(j).getStartStation())).print(' ');
+                    } else {
+                        writer.print(distances.getDistance(trips.get(i).getEndStation(), trips.get(j).getStartStation()));
+                    }
+                }
+                if (i != trips.size() - 1) {
+                    writer.println();
                 } else {
-                    pstream.print(distances[trips.get(i).getEndStation() - 1][trips.get(j).getStartStation() - 1]);
+                    writer.println(" ]");
                 }
             }
-            if (i != trips.size() - 1) {
-                pstream.println();
-            } else {
-                pstream.println(" ]");
-            }
-        }
 
-        pstream.println();
-        pstream.println("! Costs of a single vehicle:");
-        pstream.println("cv: " + vehicleCosts);
-        pstream.println();
-        pstream.println("NumberOfTrips: " + trips.size());
-        pstream.println("timelimit: " + timelimit);
-        pstream.println("threads: " + threadLimit);
-        pstream.println("outputMessages: " + outputSolverMessages);
-        pstream.println("mipGap: " + mipGap);
-        pstream.println("writeLpFile: " + writeLpFile);
+            writer.println();
+            writer.println("! Costs of a single vehicle:");
+            writer.printParameter("cv", vehicleCosts);
+            writer.println();
+            writer.printParameter("NumberOfTrips", trips.size());
+            printSolverParameters(writer);
+        }
     }
 
     /**
      * calculate the mosel-input for the model TM.
      * Output-File: data_tm in the folder src/vehicle-scheduling/canal-model
      * format:
-     * A: [ .... ], where the "...." represents the compatibility matrix (line by line)
+     * A: [ .... ], where the "...." represents the compatibility matrix (line by line, or only the entries A(i,j) = 1
+     * if vs_mosel_sparse_input is set, see {@link #printSparseCompatibilityMatrix})
      * U: [ .... ], where the "...." represents the matrix with the transfer costs (line by line)
      * s: [ .... ], where the "...." represents an array with the penalty costs, if a trip isn't served (one value for each trip)
      * cv: vehicleCosts
@@ -895,77 +1086,79 @@ public class IO {
      * vehicleCosts = costs of a single vehicle
      *
      * @param trips      an ArrayList of the trips, each trip is represented like in the function {@link #readTrips}
-     * @param CompMatrix Compatibility Matrix, calculated in the function {@link VS#calculateCompatibilityMatrix}
+     * @param compatibility the compatible trips, calculated in the function {@link VS#calculateCompatibility}
      */
-    public static void calculateMoselInputForTM(ArrayList<Trip> trips, int[][] CompMatrix) throws FileNotFoundException {
+    public static void calculateMoselInputForTM(ArrayList<Trip> trips, TripCompatibility compatibility) throws IOException {
         String moselInputFileName = "../../src/vehicle-scheduling/canal-model/data_tm";
-        File file = new File(moselInputFileName);
-
-        PrintStream pstream = new PrintStream(file);
-
-        pstream.println("! Compatibility-Matrix (A(i,j) = 1 <=> i \\bar{\\alpha} j; 0 else):");
+        try (MoselFileWriter writer = new MoselFileWriter(moselInputFileName)) {
 
-        pstream.print("A: [ ");
+            writer.println("! Compatibility-Matrix (A(i,j) = 1 <=> i \\bar{\\alpha} j; 0 else):");
 
-        for (int i = 0; i < trips.size(); i++) {
-            for (int j = 0; j < trips.size(); j++) {
-                if (j != trips.size() - 1) {
-                    pstream.print(CompMatrix[i][j] + " ");
-                } else {
-                    pstream.print(CompMatrix[i][j]);
-                }
-            }
-            if (i != trips.size() - 1) {
-                pstream.println();
+            if (sparseInput) {
+                printSparseCompatibilityMatrix(writer, compatibility);
             } else {
-                pstream.println(" ]");
+                writer.print("A: [ ");
+
+                int[] row = new int[trips.size()];
+                for (int i = 0; i < trips.size(); i++) {
+                    compatibilityRow(compatibility, i, row);
+                    for (int j = 0; j < trips.size(); j++) {
+                        if (j != trips.size() - 1) {
+                            writer.print(row[j]).print(' ');
+                        } else {
+                            writer.print(row[j]);
+                        }
+                    }
+                    if (i != trips.size() - 1) {
+                        writer.println();
+                    } else {
+                        writer.println(" ]");
+                    }
+                }
             }
-        }
 
-        pstream.println();
-        pstream.println("! Pure transfer costs (driving costs):");
+            writer.println();
+            writer.println("! Pure transfer costs (driving costs):");
 
-        pstream.print("U: [ ");
+            writer.print("U: [ ");
 
-        for (int i = 0; i < trips.size(); i++) {
-            for (int j = 0; j < trips.size(); j++) {
-                if (j != trips.size() - 1) {
-                    pstream.print(distances[trips.get(i).getEndStation() - 1][trips.get(j).getStartStation() - 1] + " ");
+            for (int i = 0; i < trips.size(); i++) {
+                for (int j = 0; j < trips.size(); j++) {
+                    if (j != trips.size() - 1) {
+                        writer.print(distances.getDistance(trips.get(i).getEndStation(), trips.get(j).getStartStation())).print(' ');
+                    } else {
+                        writer.print(distances.getDistance(trips.get(i).getEndStation(), trips.get(j).getStartStation()));
+                    }
+                }
+                if (i != trips.size() - 1) {
+                    writer.println();
                 } else {
-                    pstream.print(distances[trips.get(i).getEndStation() - 1][trips.get(j).getStartStation() - 1]);
+                    writer.println(" ]");
                 }
             }
-            if (i != trips.size() - 1) {
-                pstream.println();
-            } else {
-                pstream.println(" ]");
-            }
-        }
 
-        pstream.println();
+            writer.println();
 
-        pstream.println("! Penalty costs for not serving a trip:");
-        pstream.print("s: [ ");
-        for (int i = 0; i < trips.size(); i++) {
-            pstream.print(penCosts + " ");
+            writer.println("! Penalty costs for not serving a trip:");
+            writer.print("s: [ ");
+            for (int i = 0; i < trips.size(); i++) {
+                writer.print(penCosts).print(' ');
+            }
+            writer.println("]");
+            writer.println("! Costs of a single vehicle:");
+            writer.printParameter("cv", vehicleCosts);
+            writer.println();
+            writer.printParameter("NumberOfTrips", trips.size());
+            printSolverParameters(writer);
         }
-        pstream.println("]");
-        pstream.println("! Costs of a single vehicle:");
-        pstream.println("cv: " + vehicleCosts);
-        pstream.println();
-        pstream.println("NumberOfTrips: " + trips.size());
-        pstream.println("timelimit: " + timelimit);
-        pstream.println("threads: " + threadLimit);
-        pstream.println("outputMessages: " + outputSolverMessages);
-        pstream.println("mipGap: " + mipGap);
-        pstream.println("writeLpFile: " + writeLpFile);
     }
 
     /**
      * calculate the mosel-input for the model NM.
      * Output-File: data_tm in the folder src/vehicle-scheduling/canal-model
      * format:
-     * A: [ .... ], where the "...." represents the compatibility matrix (line by line)
+     * A: [ .... ], where the "...." represents the compatibility matrix (line by line, or only the entries A(i,j) = 1
+     * if vs_mosel_sparse_input is set, see {@link #printSparseCompatibilityMatrix})
      * U: [ .... ], where the "...." represents the matrix with the transfer costs (line by line)
      * cv: vehicleCosts
      * NumberOfTrips: trips.size()
@@ -980,86 +1173,87 @@ public class IO {
      * vehicleCosts = costs of a single vehicle
      *
      * @param trips      an ArrayList of the trips, each trip is represented like in the function {@link #readTrips}
-     * @param CompMatrix Compatibility Matrix, calculated in the function {@link VS#calculateCompatibilityMatrix}
+     * @param compatibility the compatible trips, calculated in the function {@link VS#calculateCompatibility}
      */
-    public static void calculateMoselInputForNM(ArrayList<Trip> trips, int[][] CompMatrix) throws FileNotFoundException {
+    public static void calculateMoselInputForNM(ArrayList<Trip> trips, TripCompatibility compatibility) throws IOException {
         String moselInputFileName = "../../src/vehicle-scheduling/canal-model/data_nm";
-        File file = new File(moselInputFileName);
-
-        PrintStream pstream = new PrintStream(file);
-
-        pstream.println("! Compatibility-Matrix (A(i,j) = 1 <=> i \\bar{\\alpha} j; 0 else):");
-        pstream.println("! (remark: the last row and the last column stands for the depot; this is compatible with all trips, therefore A(i,j) = 0");
+        try (MoselFileWriter writer = new MoselFileWriter(moselInputFileName)) {
 
-        pstream.print("A: [ ");
+            writer.println("! Compatibility-Matrix (A(i,j) = 1 <=> i \\bar{\\alpha} j; 0 else):");
+            writer.println("! (remark: the last row and the last column stands for the depot; this is compatible with all trips, therefore A(i,j) = 0");
 
-        for (int i = 0; i <= trips.size(); i++) {
-            if (i != trips.size()) {
-                for (int j = 0; j <= trips.size(); j++) {
-                    if (j != trips.size()) {
-                        pstream.print(CompMatrix[i][j] + ", ");
+            if (sparseInput) {
+                printSparseCompatibilityMatrix(writer, compatibility);
+            } else {
+                writer.print("A: [ ");
+
+                int[] row = new int[trips.size()];
+                for (int i = 0; i <= trips.size(); i++) {
+                    if (i != trips.size()) {
+                        compatibilityRow(compatibility, i, row);
+                        for (int j = 0; j <= trips.size(); j++) {
+                            if (j != trips.size()) {
+                                writer.print(row[j]).print(", ");
+                            } else {
+                                writer.print("0");
+                            }
+                        }
                     } else {
-                        pstream.print("0");
+                        for (int j = 0; j <= trips.size(); j++) {
+                            if (j != trips.size()) {
+                                writer.print("0 ");
+                            } else {
+                                writer.print("0");
+                            }
+                        }
                     }
-                }
-            } else {
-                for (int j = 0; j <= trips.size(); j++) {
-                    if (j != trips.size()) {
-                        pstream.print("0 ");
+
+                    if (i != trips.size()) {
+                        writer.println();
                     } else {
-                        pstream.print("0");
+                        writer.println(" ]");
                     }
                 }
             }
 
-            if (i != trips.size()) {
-                pstream.println();
-            } else {
-                pstream.println(" ]");
-            }
-        }
-
-        pstream.println();
-        pstream.println("! Pure transfer costs (driving costs), also to and from the Depot (the depot has the last row/column):");
+            writer.println();
+            writer.println("! Pure transfer costs (driving costs), also to and from the Depot (the depot has the last row/column):");
 
-        pstream.print("U: [ ");
+            writer.print("U: [ ");
 
-        for (int i = 0; i <= trips.size(); i++) {
-            if (i != trips.size()) {
-                for (int j = 0; j <= trips.size(); j++) {
-                    if (j != trips.size()) {
-                        pstream.print(distances[trips.get(i).getEndStation() - 1][trips.get(j).getStartStation() - 1] + " ");
-                    } else {
-                        pstream.print(distances[trips.get(i).getEndStation() - 1][depot]);
+            for (int i = 0; i <= trips.size(); i++) {
+                if (i != trips.size()) {
+                    for (int j = 0; j <= trips.size(); j++) {
+                        if (j != trips.size()) {
+                            writer.print(distances.getDistance(trips.get(i).getEndStation(), trips.get(j).getStartStation())).print(' ');
+                        } else {
+                            writer.print(distances.getDistance(trips.get(i).getEndStation(), depot + 1));
+                        }
                     }
-                }
-            } else {
-                for (int j = 0; j <= trips.size(); j++) {
-                    if (j != trips.size()) {
-                        pstream.print(distances[depot][trips.get(j).getStartStation() - 1] + " ");
-                    } else {
-                        pstream.print(vehicleCosts); // the transfer within the depot gets the costs of a single vehicle
+                } else {
+                    for (int j = 0; j <= trips.size(); j++) {
+                        if (j != trips.size()) {
+                            writer.print(distances.getDistance(depot + 1, trips.get(j).getStartStation())).print(' ');
+                        } else {
+                            writer.print(vehicleCosts); // the transfer within the depot gets the costs of a single vehicle
+                        }
                     }
                 }
-            }
 
-            if (i != trips.size()) {
-                pstream.println();
-            } else {
-                pstream.println(" ]");
+                if (i != trips.size()) {
+                    writer.println();
+                } else {
+                    writer.println(" ]");
+                }
             }
-        }
 
-        pstream.println();
-        pstream.println("! Costs of a single vehicle:");
-        pstream.println("cv: " + vehicleCosts);
-        pstream.println();
-        pstream.println("NumberOfTrips: " + trips.size());
-        pstream.println("timelimit: " + timelimit);
-        pstream.println("threads: " + threadLimit);
-        pstream.println("outputMessages: " + outputSolverMessages);
-        pstream.println("mipGap: " + mipGap);
-        pstream.println("writeLpFile: " + writeLpFile);
+            writer.println();
+            writer.println("! Costs of a single vehicle:");
+            writer.printParameter("cv", vehicleCosts);
+            writer.println();
+            writer.printParameter("NumberOfTrips", trips.size());
+            printSolverParameters(writer);
+        }
     }
 
     public static void calculateVSFile(ArrayList<Trip> trips, ArrayList<Transfer> transfers) throws IOException {
@@ -2103,11 +2297,18 @@ public class IO {
         modelName = config.getStringValue("vs_model").toUpperCase();
         vehicleCosts = (int) config.getDoubleValue("vs_vehicle_costs");
         boolean ptnIsUndirected = config.getBooleanValue("ptn_is_undirected");
+        String shortestPathsMethod = config.getStringValue("vs_shortest_paths_method").toUpperCase();
         penCosts = config.getIntegerValue("vs_penalty_costs");
         depot = config.getIntegerValue("vs_depot_index");
         timeUnitsPerMinute = config.getIntegerValue("time_units_per_minute");
         // convert turnover time from time units to seconds
         turnOverTime = config.getIntegerValue("vs_turn_over_time") * 60 / timeUnitsPerMinute;
+        // convert the connection time window from time units to seconds
+        maxConnectionTime = config.getIntegerValue("vs_max_connection_time");
+        if (maxConnectionTime >= 0) {
+            maxConnectionTime = maxConnectionTime * 60 / timeUnitsPerMinute;
+        }
+        maxDeadheadsPerStop = config.getIntegerValue("vs_max_deadheads_per_stop");
         stopsFileName = config.getStringValue("default_stops_file");
         edgesFileName = config.getStringValue("default_edges_file");
         tripsFileName = config.getStringValue("default_trips_file");
@@ -2120,20 +2321,43 @@ public class IO {
         mipGap = config.getDoubleValue("vs_mip_gap");
         outputSolverMessages = config.getLogLevel("console_log_level") == LogLevel.DEBUG;
         writeLpFile = config.getBooleanValue("vs_write_lp_file");
+        sparseInput = config.getBooleanValue("vs_mosel_sparse_input");
 
         logger.debug("modelName= " + modelName);
 
         readStops();
         readEdges();
-        distances = VS.calculateShortestPathsFloyd(stops, edges, ptnIsUndirected);
+        if (shortestPathsMethod.equals("FLOYD")) {
+            int[][] allDistances = VS.calculateShortestPathsFloyd(stops, edges, ptnIsUndirected);
+            int[] stopIDs = new int[stops.size()];
+            for (int i = 0; i < stopIDs.length; i++) {
+                stopIDs[i] = i + 1;
+            }
+            distances = new StopDistances(stopIDs, allDistances);
+        } else if (shortestPathsMethod.equals("DIJKSTRA")) {
+            // only the stops where trips start or end and the depot are needed
+            TreeSet<Integer> terminals = new TreeSet<>();
+            for (Trip trip : readTrips()) {
+                terminals.add(trip.getStartStation());
+                terminals.add(trip.getEndStation());
+            }
+            if (depot >= 0 && depot < stops.size()) {
+                terminals.add(depot + 1);
+            }
+            distances = VS.calculateShortestPathsDijkstra(stops, edges, ptnIsUndirected,
+                terminals.stream().mapToInt(Integer::intValue).toArray(), threadLimit);
+        } else {
+            throw new IllegalArgumentException("The value of the parameter vs_shortest_paths_method has to be FLOYD"
+                + " or DIJKSTRA, but is " + shortestPathsMethod);
+        }
 
         // dump shortest paths
         PrintStream pstream = new PrintStream(new File(stationDistancesFileName));
         pstream.println("# from-station-id; to-station-id; distance");
 
-        for (int i = 0; i < distances.length; i++) {
-            for (int j = 0; j < distances[i].length; j++) {
-                pstream.println((i + 1) + ";" + (j + 1) + ";" + distances[i][j]);
+        for (int from : distances.getStopIDs()) {
+            for (int to : distances.getStopIDs()) {
+                pstream.println(from + ";" + to + ";" + distances.getDistance(from, to));
             }
         }
 
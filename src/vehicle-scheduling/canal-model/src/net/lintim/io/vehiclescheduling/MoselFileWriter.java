@@ -0,0 +1,99 @@
+package net.lintim.io.vehiclescheduling;
+
+import java.io.*;
+
+/**
+ * Streaming writer for the files in the format of the mosel models of the canal-model, i.e., the data files read by
+ * the models and the result files written by them. The data is written through a buffer of fixed size, i.e., no
+ * matrix or vector of a model needs to be stored as a whole, the values can be written directly while iterating over
+ * the trips, transfers or canals. Integers are written without creating intermediate strings.
+ * <p>
+ * Besides the dense format of mosel, where all entries of an array are listed in order, arrays can be written in the
+ * sparse format "[(i j) value ...]" by {@link #printSparseEntry(int, int, int)}. All entries not listed in the sparse
+ * format are 0 in mosel.
+ */
+public class MoselFileWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer writer;
+    private final char[] digits = new char[11];
+
+    /**
+     * Create a new writer for the given file. An existing file will be overwritten.
+     *
+     * @param fileName the file to write to
+     * @throws IOException if the file cannot be opened
+     */
+    public MoselFileWriter(String fileName) throws IOException {
+        this.writer = new BufferedWriter(new FileWriter(fileName), BUFFER_SIZE);
+    }
+
+    public MoselFileWriter print(String value) throws IOException {
+        writer.write(value);
+        return this;
+    }
+
+    public MoselFileWriter print(char value) throws IOException {
+        writer.write(value);
+        return this;
+    }
+
+    public MoselFileWriter print(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            writer.write(Integer.toString(value));
+            return this;
+        }
+        int position = digits.length;
+        boolean negative = value < 0;
+        int rest = negative ? -value : value;
+        do {
+            digits[--position] = (char) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        writer.write(digits, position, digits.length - position);
+        return this;
+    }
+
+    public MoselFileWriter println() throws IOException {
+        writer.write(LINE_SEPARATOR);
+        return this;
+    }
+
+    public MoselFileWriter println(String value) throws IOException {
+        return print(value).println();
+    }
+
+    /**
+     * Write a scalar parameter of the model, i.e., a line "name: value".
+     *
+     * @param name  the name of the parameter in the mosel model
+     * @param value the value of the parameter
+     * @throws IOException if the value cannot be written
+     */
+    public MoselFileWriter printParameter(String name, Object value) throws IOException {
+        return print(name).print(": ").print(String.valueOf(value)).println();
+    }
+
+    /**
+     * Write an entry of a two dimensional array in the sparse format, i.e., "(row column) value ". The indices are the
+     * indices of mosel, i.e., starting at 1.
+     *
+     * @param row    the row of the entry
+     * @param column the column of the entry
+     * @param value  the value of the entry
+     * @throws IOException if the entry cannot be written
+     */
+    public MoselFileWriter printSparseEntry(int row, int column, int value) throws IOException {
+        return print('(').print(row).print(' ').print(column).print(") ").print(value).print(' ');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -3,6 +3,7 @@ package net.lintim.main.vehiclescheduling;
 import net.lintim.exception.ConfigNoFileNameGivenException;
 import net.lintim.io.ConfigReader;
 import net.lintim.io.vehiclescheduling.IO;
+import net.lintim.solver.SolverParameters;
 import net.lintim.util.Config;
 import net.lintim.util.Logger;
 
@@ -20,9 +21,15 @@ public class FlowsAndTransfers {
         Config config = new ConfigReader.Builder(args[0]).build().read();
         IO.initialize(config);
         logger.info("Finished reading configuration and input data");
-        logger.info("Begin preparing mosel input for vehicle scheduling computation");
-        IO.calculateMoselInput();
-        logger.info("Finished preparing mosel input, calling mosel");
+        if (config.getBooleanValue("vs_canal_use_solver_interface")) {
+            logger.info("Begin vehicle scheduling computation");
+            IO.solveModel(new SolverParameters(config, "vs_"));
+            logger.info("Finished vehicle scheduling computation");
+        } else {
+            logger.info("Begin preparing mosel input for vehicle scheduling computation");
+            IO.calculateMoselInput();
+            logger.info("Finished preparing mosel input, calling mosel");
+        }
 
 
     }
@@ -0,0 +1,64 @@
+package net.lintim.model.vehiclescheduling;
+
+import java.util.Arrays;
+
+public class StopDistances {
+    /**
+     * The stops for which distances are stored, stop stopIDs[i] belongs to
+     * row and column i of {@link #distances}.
+     */
+    private final int[] stopIDs;
+    /**
+     * The row of every stop ID, -1 if no distances are stored for the stop.
+     */
+    private final int[] index;
+    private final int[][] distances;
+
+    /*************************************************************************
+     * constructor                                                            *
+     **************************************************************************/
+
+    public StopDistances(int[] stopIDs, int[][] distances) {
+        this.stopIDs = stopIDs;
+        this.distances = distances;
+        int maxID = 0;
+        for (int stopID : stopIDs) {
+            maxID = Math.max(maxID, stopID);
+        }
+        index = new int[maxID + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < stopIDs.length; i++) {
+            index[stopIDs[i]] = i;
+        }
+    }
+
+
+    /************************************************************************
+     *  getter/setter                                                        *
+     *************************************************************************/
+
+    public int[] getStopIDs() {
+        return this.stopIDs;
+    }
+
+    public boolean contains(int stopID) {
+        return stopID >= 0 && stopID < index.length && index[stopID] != -1;
+    }
+
+    /**
+     * Get the length of a shortest path from one stop to another.
+     *
+     * @param fromStopID the ID of the first stop
+     * @param toStopID   the ID of the second stop
+     * @return the distance, Integer.MAX_VALUE / 2 if there is no path
+     * @throws IllegalArgumentException if no distances are stored for one of the stops
+     */
+    public int getDistance(int fromStopID, int toStopID) throws IllegalArgumentException {
+        if (!contains(fromStopID) || !contains(toStopID)) {
+            throw new IllegalArgumentException("No distance from stop " + fromStopID + " to stop " + toStopID
+                + " was computed");
+        }
+        return distances[index[fromStopID]][index[toStopID]];
+    }
+
+}
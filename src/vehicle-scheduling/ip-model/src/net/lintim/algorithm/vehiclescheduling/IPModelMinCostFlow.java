@@ -0,0 +1,394 @@
+package net.lintim.algorithm.vehiclescheduling;
+
+import net.lintim.exception.LinTimException;
+import net.lintim.model.Graph;
+import net.lintim.model.VehicleSchedule;
+import net.lintim.model.vehiclescheduling.TripConnection;
+import net.lintim.model.vehiclescheduling.TripNode;
+import net.lintim.util.Logger;
+import net.lintim.util.vehiclescheduling.Parameters;
+
+import java.util.*;
+
+/**
+ * Solves the vehicle scheduling ip model as a min cost flow problem without an external solver.
+ * <p>
+ * Every trip i is split into a node out_i with a supply of 1 (the vehicle after serving i) and a node in_i with a
+ * demand of 1 (the vehicle needed for i). A connection from trip i to trip j becomes an arc out_i -> in_j, a
+ * connection from trip i to the depot an arc out_i -> depot and a connection from the depot to trip j an arc
+ * depot -> in_j. Every trip node then has exactly one incoming and one outgoing connection in an integral flow, as
+ * in the ip model of {@link IPModelGurobi}, and the flow through the depot is the number of vehicles.
+ * <p>
+ * The flow is computed by the successive shortest path algorithm with node potentials: in every phase, Dijkstra
+ * computes a shortest path w.r.t. the reduced costs from a node with supply to the nearest node with demand and
+ * stops there, so a phase only touches the part of the network around the path. To compute exactly, the costs of the connections are rounded to multiples of {@link #COST_PRECISION}.
+ * <p>
+ * The solver has no state, so one instance can be used for many trip graphs in parallel.
+ */
+public class IPModelMinCostFlow extends IPModelSolver {
+
+    private static final Logger logger = new Logger(IPModelMinCostFlow.class.getCanonicalName());
+
+    /**
+     * The precision of the costs used in the computation.
+     */
+    public static final double COST_PRECISION = 1e-3;
+
+    private static final long INFINITY = Long.MAX_VALUE / 4;
+
+    @Override
+    public VehicleSchedule solveVehicleSchedulingIPModel(Graph<TripNode, TripConnection> tripGraph,
+                                                         Parameters parameters) {
+        HashMap<TripNode, Integer> tripIndex = new HashMap<>();
+        for (TripNode node : tripGraph.getNodes()) {
+            if (!node.isDepot()) {
+                tripIndex.put(node, tripIndex.size());
+            }
+        }
+        int trips = tripIndex.size();
+        FlowNetwork network = new FlowNetwork(2 * trips + 1, tripGraph.getEdges().size());
+        int depot = 2 * trips;
+        for (int i = 0; i < trips; i++) {
+            network.excess[i] = 1;
+            network.excess[trips + i] = -1;
+        }
+        for (TripConnection connection : tripGraph.getEdges()) {
+            TripNode source = connection.getLeftNode();
+            TripNode target = connection.getRightNode();
+            if (source.isDepot() && target.isDepot()) {
+                continue;
+            }
+            if (connection.getCost() < 0) {
+                throw new LinTimException("Connection " + connection.getId() + " has negative cost, this is not " +
+                    "supported by the min cost flow solver");
+            }
+            int from = source.isDepot() ? depot : tripIndex.get(source);
+            int to = target.isDepot() ? depot : trips + tripIndex.get(target);
+            network.addArc(from, to, source.isDepot() || target.isDepot() ? trips : 1,
+                Math.round(connection.getCost() / COST_PRECISION), connection);
+        }
+
+        logger.debug("Computing min cost flow for " + trips + " trips and " + tripGraph.getEdges().size()
+            + " connections");
+        int phases = network.computeMinCostFlow();
+        logger.debug("Found optimal flow after " + phases + " phases");
+
+        List<TripConnection> usedTripConnections = new ArrayList<>();
+        for (int arc = 0; arc < network.arcCount; arc += 2) {
+            for (int unit = 0; unit < network.capacity[arc + 1]; unit++) {
+                usedTripConnections.add(network.connection[arc / 2]);
+            }
+        }
+        logger.debug("Number of vehicles: " + usedTripConnections.stream().filter(connection ->
+            connection.getLeftNode().isDepot()).count());
+        return computeSchedule(usedTripConnections);
+    }
+
+    /**
+     * A residual network in arrays, arc 2k is the k-th arc and arc 2k+1 its reverse arc.
+     */
+    private static class FlowNetwork {
+        final int nodeCount;
+        final long[] excess;
+        final long[] potential;
+        final int[] firstArc;
+        int[] nextArc;
+        int[] head;
+        long[] capacity;
+        long[] cost;
+        TripConnection[] connection;
+        int arcCount = 0;
+
+        // the data of Dijkstra, reused in every phase. Only the touched nodes are reset after a phase
+        private long[] distance;
+        private int[] predecessorArc;
+        private boolean[] settled;
+        private int[] touched;
+        private int[] settledNodes;
+        // a binary heap with lazy deletion
+        private long[] heapKey;
+        private int[] heapNode;
+
+        FlowNetwork(int nodeCount, int expectedArcs) {
+            this.nodeCount = nodeCount;
+            excess = new long[nodeCount];
+            potential = new long[nodeCount];
+            firstArc = new int[nodeCount];
+            Arrays.fill(firstArc, -1);
+            nextArc = new int[2 * expectedArcs];
+            head = new int[2 * expectedArcs];
+            capacity = new long[2 * expectedArcs];
+            cost = new long[2 * expectedArcs];
+            connection = new TripConnection[expectedArcs];
+        }
+
+        void addArc(int from, int to, long arcCapacity, long arcCost, TripConnection tripConnection) {
+            if (arcCount + 2 > head.length) {
+                int length = Math.max(2, 2 * head.length);
+                nextArc = Arrays.copyOf(nextArc, length);
+                head = Arrays.copyOf(head, length);
+                capacity = Arrays.copyOf(capacity, length);
+                cost = Arrays.copyOf(cost, length);
+                connection = Arrays.copyOf(connection, length / 2);
+            }
+            connection[arcCount / 2] = tripConnection;
+            addHalfArc(from, to, arcCapacity, arcCost);
+            addHalfArc(to, from, 0, -arcCost);
+        }
+
+        private void addHalfArc(int from, int to, long arcCapacity, long arcCost) {
+            head[arcCount] = to;
+            capacity[arcCount] = arcCapacity;
+            cost[arcCount] = arcCost;
+            nextArc[arcCount] = firstArc[from];
+            firstArc[from] = arcCount;
+            arcCount++;
+        }
+
+        private long reducedCost(int from, int arc) {
+            return cost[arc] + potential[from] - potential[head[arc]];
+        }
+
+        /**
+         * Compute a min cost flow satisfying all supplies and demands. All costs have to be non-negative.
+         * <p>
+         * The first phases are complete: they compute the distances from all nodes with supply to all nodes and
+         * afterwards send flow along all arcs with reduced cost 0, this serves most of the demand at once. Every
+         * further phase starts Dijkstra at a single node with supply and only touches the nodes found before the
+         * nearest node with demand is settled.
+         *
+         * @return the number of phases
+         */
+        int computeMinCostFlow() {
+            distance = new long[nodeCount];
+            Arrays.fill(distance, INFINITY);
+            predecessorArc = new int[nodeCount];
+            Arrays.fill(predecessorArc, -1);
+            settled = new boolean[nodeCount];
+            touched = new int[nodeCount];
+            settledNodes = new int[nodeCount];
+            heapKey = new long[Math.max(16, nodeCount)];
+            heapNode = new int[Math.max(16, nodeCount)];
+
+            long remaining = 0;
+            for (int v = 0; v < nodeCount; v++) {
+                remaining += Math.max(0, excess[v]);
+            }
+            if (remaining == 0) {
+                return 0;
+            }
+            // complete phases are repeated as long as they serve at least 1% of the total demand
+            long total = remaining;
+            int[] sources = new int[nodeCount];
+            int sourceCount;
+            int phases = 0;
+            long sent;
+            do {
+                sourceCount = 0;
+                for (int v = 0; v < nodeCount; v++) {
+                    if (excess[v] > 0) {
+                        sources[sourceCount++] = v;
+                    }
+                }
+                sent = augmentShortestPath(sources, sourceCount, true);
+                sent += augmentZeroReducedCostPaths();
+                remaining -= sent;
+                phases++;
+            } while (remaining > 0 && 100 * sent >= total);
+            int source = 0;
+            while (remaining > 0) {
+                while (excess[source] <= 0) {
+                    source++;
+                }
+                sources[0] = source;
+                remaining -= augmentShortestPath(sources, 1, false);
+                phases++;
+            }
+            return phases;
+        }
+
+        /**
+         * Find a shortest path w.r.t. the reduced costs from the given sources to the nearest node with demand by
+         * Dijkstra, update the potentials such that the reduced costs stay non-negative and are 0 on the path and
+         * send as much flow as possible along the path. If complete is set, Dijkstra does not stop at the nearest node
+         * with demand but computes the distances to all nodes, then every reachable node gets an incoming arc with
+         * reduced cost 0.
+         *
+         * @return the amount of flow sent
+         */
+        private long augmentShortestPath(int[] sources, int sourceCount, boolean complete) {
+            int touchedCount = 0;
+            int settledCount = 0;
+            int heapSize = 0;
+            for (int k = 0; k < sourceCount; k++) {
+                distance[sources[k]] = 0;
+                touched[touchedCount++] = sources[k];
+                heapKey[heapSize] = 0;
+                heapNode[heapSize++] = sources[k];
+            }
+            int sink = -1;
+            while (heapSize > 0) {
+                long key = heapKey[0];
+                int v = heapNode[0];
+                heapSize--;
+                siftDown(heapKey, heapNode, heapSize, heapKey[heapSize], heapNode[heapSize]);
+                if (settled[v] || key > distance[v]) {
+                    continue;
+                }
+                settled[v] = true;
+                settledNodes[settledCount++] = v;
+                if (excess[v] < 0 && sink == -1) {
+                    sink = v;
+                    if (!complete) {
+                        break;
+                    }
+                }
+                for (int arc = firstArc[v]; arc != -1; arc = nextArc[arc]) {
+                    int w = head[arc];
+                    if (capacity[arc] <= 0 || settled[w]) {
+                        continue;
+                    }
+                    long newDistance = key + reducedCost(v, arc);
+                    if (newDistance < distance[w]) {
+                        if (distance[w] == INFINITY) {
+                            touched[touchedCount++] = w;
+                        }
+                        distance[w] = newDistance;
+                        predecessorArc[w] = arc;
+                        if (heapSize == heapKey.length) {
+                            heapKey = Arrays.copyOf(heapKey, 2 * heapKey.length);
+                            heapNode = Arrays.copyOf(heapNode, 2 * heapNode.length);
+                        }
+                        heapSize++;
+                        siftUp(heapKey, heapNode, heapSize - 1, newDistance, w);
+                    }
+                }
+            }
+            if (sink == -1) {
+                throw new LinTimException("The min cost flow problem is infeasible, not all trips can be served");
+            }
+
+            // Adding min(distance, sinkDistance) to all potentials keeps the reduced costs non-negative. Up to a
+            // shift of all potentials by sinkDistance, which does not change the reduced costs, only the potentials
+            // of the settled nodes change.
+            long sinkDistance = distance[sink];
+            for (int k = 0; k < settledCount; k++) {
+                potential[settledNodes[k]] += distance[settledNodes[k]] - sinkDistance;
+            }
+
+            long amount = -excess[sink];
+            int source = sink;
+            while (predecessorArc[source] != -1) {
+                amount = Math.min(amount, capacity[predecessorArc[source]]);
+                source = head[predecessorArc[source] ^ 1];
+            }
+            amount = Math.min(amount, excess[source]);
+            for (int v = sink; v != source; v = head[predecessorArc[v] ^ 1]) {
+                capacity[predecessorArc[v]] -= amount;
+                capacity[predecessorArc[v] ^ 1] += amount;
+            }
+            excess[source] -= amount;
+            excess[sink] += amount;
+
+            for (int k = 0; k < touchedCount; k++) {
+                distance[touched[k]] = INFINITY;
+                predecessorArc[touched[k]] = -1;
+                settled[touched[k]] = false;
+            }
+            return amount;
+        }
+
+        /**
+         * Send as much flow as possible from the nodes with supply to the nodes with demand along arcs with reduced
+         * cost 0 by depth first search. This keeps the flow optimal w.r.t. the potentials.
+         *
+         * @return the amount of flow sent
+         */
+        private long augmentZeroReducedCostPaths() {
+            int[] currentArc = Arrays.copyOf(firstArc, nodeCount);
+            boolean[] blocked = new boolean[nodeCount];
+            boolean[] onPath = new boolean[nodeCount];
+            int[] pathArc = new int[nodeCount + 1];
+            long sent = 0;
+            for (int start = 0; start < nodeCount; start++) {
+                while (excess[start] > 0 && !blocked[start]) {
+                    // depth first search for a node with demand, the path is stored in pathArc
+                    int depth = 0;
+                    int v = start;
+                    onPath[start] = true;
+                    while (depth >= 0 && excess[v] >= 0) {
+                        int arc = currentArc[v];
+                        while (arc != -1 && (capacity[arc] <= 0 || blocked[head[arc]] || onPath[head[arc]]
+                            || reducedCost(v, arc) != 0)) {
+                            arc = nextArc[arc];
+                        }
+                        currentArc[v] = arc;
+                        if (arc == -1) {
+                            blocked[v] = true;
+                            onPath[v] = false;
+                            depth--;
+                            if (depth >= 0) {
+                                v = head[pathArc[depth] ^ 1];
+                            }
+                        } else {
+                            pathArc[depth++] = arc;
+                            v = head[arc];
+                            onPath[v] = true;
+                        }
+                    }
+                    if (depth < 0) {
+                        break;
+                    }
+                    long amount = Math.min(excess[start], -excess[v]);
+                    for (int k = 0; k < depth; k++) {
+                        amount = Math.min(amount, capacity[pathArc[k]]);
+                    }
+                    for (int k = 0; k < depth; k++) {
+                        capacity[pathArc[k]] -= amount;
+                        capacity[pathArc[k] ^ 1] += amount;
+                        onPath[head[pathArc[k]]] = false;
+                    }
+                    onPath[start] = false;
+                    excess[start] -= amount;
+                    excess[v] += amount;
+                    sent += amount;
+                }
+            }
+            return sent;
+        }
+
+        private static void siftUp(long[] heapKey, int[] heapNode, int position, long key, int node) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (heapKey[parent] <= key) {
+                    break;
+                }
+                heapKey[position] = heapKey[parent];
+                heapNode[position] = heapNode[parent];
+                position = parent;
+            }
+            heapKey[position] = key;
+            heapNode[position] = node;
+        }
+
+        private static void siftDown(long[] heapKey, int[] heapNode, int size, long key, int node) {
+            int position = 0;
+            while (2 * position + 1 < size) {
+                int child = 2 * position + 1;
+                if (child + 1 < size && heapKey[child + 1] < heapKey[child]) {
+                    child++;
+                }
+                if (heapKey[child] >= key) {
+                    break;
+                }
+                heapKey[position] = heapKey[child];
+                heapNode[position] = heapNode[child];
+                position = child;
+            }
+            if (size > 0) {
+                heapKey[position] = key;
+                heapNode[position] = node;
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package net.lintim.algorithm.vehiclescheduling;
 
 import net.lintim.algorithm.Dijkstra;
+import net.lintim.algorithm.TripCompatibility;
 import net.lintim.exception.LinTimException;
 import net.lintim.exception.SolverNotSupportedException;
 import net.lintim.model.*;
@@ -14,6 +15,7 @@ import net.lintim.util.vehiclescheduling.Parameters;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -108,26 +110,40 @@ public abstract class IPModelSolver {
             tripGraph.addEdge(fromDepot);
             tripGraph.addEdge(toDepot);
         }
-        // Now determine the compatibilities and add the respective edges
-        for (TripNode origin : tripGraph.getNodes()) {
-            if (origin.isDepot()) {
-                continue;
+        // Now determine the compatibilities and add the respective edges. The trip nodes have the ids 1, ..., n
+        TripNode[] tripNodes = new TripNode[tripIndex - 1];
+        for (TripNode node : tripGraph.getNodes()) {
+            if (!node.isDepot()) {
+                tripNodes[node.getId() - 1] = node;
             }
-            Map<Integer, Pair<Double, Double>> originDistanceTimeMap = distanceTimeMap.get(origin.getTrip().getEndStopId());
-            for (TripNode destination : tripGraph.getNodes()) {
-                if (origin.equals(destination) || destination.isDepot()) {
-                    continue;
-                }
-                double timeDistanceBetweenTrips = destination.getTrip().getStartTime() - origin.getTrip().getEndTime
-                    ();
-                double timeToDrive = originDistanceTimeMap.get(destination.getTrip().getStartStopId()).getSecondElement();
-                if (timeDistanceBetweenTrips >= timeToDrive + parameters.getTurnoverTime()) {
-                    double distanceBetweenTrips = originDistanceTimeMap.get(destination.getTrip().getStartStopId())
-                        .getFirstElement();
-                    tripGraph.addEdge(new TripConnection(connectionIndex, origin, destination, connectionObjective
-                        .apply(new Pair<>(distanceBetweenTrips, timeDistanceBetweenTrips))));
-                    connectionIndex += 1;
-                }
+        }
+        int[] startStop = new int[tripNodes.length];
+        double[] startTime = new double[tripNodes.length];
+        int[] endStop = new int[tripNodes.length];
+        double[] endTime = new double[tripNodes.length];
+        for (int i = 0; i < tripNodes.length; i++) {
+            Trip trip = tripNodes[i].getTrip();
+            startStop[i] = trip.getStartStopId();
+            startTime[i] = trip.getStartTime();
+            endStop[i] = trip.getEndStopId();
+            endTime[i] = trip.getEndTime();
+        }
+        TripCompatibility compatibility = new TripCompatibility(startStop, startTime, endStop, endTime,
+            (fromStopId, toStopId) -> distanceTimeMap.get(fromStopId).get(toStopId).getSecondElement(),
+            parameters.getTurnoverTime(), parameters.getMaxConnectionTime(), parameters.getMaxDeadheadsPerStop());
+        logger.debug("Found " + compatibility.getNumberOfConnections() + " connections between " + tripNodes.length
+            + " trips");
+        for (int i = 0; i < tripNodes.length; i++) {
+            TripNode origin = tripNodes[i];
+            Map<Integer, Pair<Double, Double>> originDistanceTimeMap = distanceTimeMap.get(endStop[i]);
+            for (int k = compatibility.successorStart(i); k < compatibility.successorEnd(i); k++) {
+                TripNode destination = tripNodes[compatibility.getSuccessor(k)];
+                double timeDistanceBetweenTrips = destination.getTrip().getStartTime() - origin.getTrip().getEndTime();
+                double distanceBetweenTrips = originDistanceTimeMap.get(destination.getTrip().getStartStopId())
+                    .getFirstElement();
+                tripGraph.addEdge(new TripConnection(connectionIndex, origin, destination, connectionObjective
+                    .apply(new Pair<>(distanceBetweenTrips, timeDistanceBetweenTrips))));
+                connectionIndex += 1;
             }
         }
         return tripGraph;
@@ -139,14 +155,20 @@ public abstract class IPModelSolver {
         int tripId = 1;
         // Look for all connections starting in the depot. These are the start of all vehicle tours
         List<TripConnection> outgoingDepotConnections = usedConnections.stream().filter(tripConnection ->
-            tripConnection.getLeftNode().isDepot()).collect(Collectors.toList());
+            tripConnection.getLeftNode().isDepot()).collect(Collectors.toCollection(LinkedList::new));
+        // Every trip has exactly one used outgoing connection
+        Map<TripNode, TripConnection> nextConnection = new HashMap<>();
+        for (TripConnection connection : usedConnections) {
+            if (!connection.getLeftNode().isDepot()) {
+                nextConnection.put(connection.getLeftNode(), connection);
+            }
+        }
         while (!outgoingDepotConnections.isEmpty()) {
             Circulation circulation = new Circulation(vehicleId);
             VehicleTour tour = new VehicleTour(vehicleId);
             circulation.addVehicle(tour);
             vehicleId += 1;
-            TripConnection currentEdge = outgoingDepotConnections.get(0);
-            outgoingDepotConnections.remove(currentEdge);
+            TripConnection currentEdge = outgoingDepotConnections.remove(0);
             while (!currentEdge.getRightNode().isDepot()) {
                 Trip sourceTrip = currentEdge.getLeftNode().getTrip();
                 Trip targetTrip = currentEdge.getRightNode().getTrip();
@@ -161,9 +183,7 @@ public abstract class IPModelSolver {
                 }
                 tour.addTrip(tripId, targetTrip);
                 tripId += 1;
-                TripNode lastTripNode = currentEdge.getRightNode();
-                currentEdge = usedConnections.stream().filter(tripConnection -> tripConnection.getLeftNode().equals
-                    (lastTripNode)).findAny().orElse(null);
+                currentEdge = nextConnection.get(currentEdge.getRightNode());
                 if (currentEdge == null) {
                     logger.error("Could not find next trip!");
                     throw new LinTimException("Could not find next trip!");
@@ -1,5 +1,6 @@
 package net.lintim.main.vehiclescheduling;
 
+import net.lintim.algorithm.vehiclescheduling.IPModelMinCostFlow;
 import net.lintim.algorithm.vehiclescheduling.IPModelSolver;
 import net.lintim.exception.ConfigNoFileNameGivenException;
 import net.lintim.io.ConfigReader;
@@ -33,7 +34,8 @@ public class IPModelMain {
         Collection<Trip> trips = new TripReader.Builder().build().read();
         logger.info("Finished reading input data");
         logger.info("Begin ip vehicle schedule computation");
-        IPModelSolver solver = IPModelSolver.getVehicleSchedulingIpSolver(parameters.getSolverType());
+        IPModelSolver solver = parameters.useMinCostFlow() ? new IPModelMinCostFlow() :
+            IPModelSolver.getVehicleSchedulingIpSolver(parameters.getSolverType());
         VehicleSchedule vehicleSchedule = solver.solveVehicleSchedulingIPModel(ptn, trips, parameters);
         logger.info("Finished ip vehicle schedule computation");
         if (vehicleSchedule != null) {
@@ -15,6 +15,9 @@ public class Parameters extends SolverParameters {
     private final int timeUnitsPerMinute;
     private final int turnoverTime;
     private final boolean useDepot;
+    private final int maxConnectionTime;
+    private final int maxDeadheadsPerStop;
+    private final boolean useMinCostFlow;
 
     /**
      * Create a new parameter class that reads all necessary info from the config
@@ -31,6 +34,12 @@ public class Parameters extends SolverParameters {
         // Convert turnoverTime from time units to minutes
         turnoverTime = config.getIntegerValue("vs_turn_over_time") * SECONDS_PER_MINUTE / timeUnitsPerMinute;
         useDepot = depotIndex != -1;
+        // Convert the connection time window from time units to seconds, -1 means no restriction
+        int maxConnectionTimeInTimeUnits = config.getIntegerValue("vs_max_connection_time");
+        maxConnectionTime = maxConnectionTimeInTimeUnits < 0 ? -1 :
+            maxConnectionTimeInTimeUnits * SECONDS_PER_MINUTE / timeUnitsPerMinute;
+        maxDeadheadsPerStop = config.getIntegerValue("vs_max_deadheads_per_stop");
+        useMinCostFlow = config.getStringValue("vs_model").equalsIgnoreCase("MIN_COST_FLOW");
     }
 
     public boolean useDepot() {
@@ -57,6 +66,33 @@ public class Parameters extends SolverParameters {
         return turnoverTime;
     }
 
+    /**
+     * Get the maximal time between the end of a trip and the start of a directly following trip, in seconds.
+     *
+     * @return the maximal connection time, -1 if there is no restriction
+     */
+    public int getMaxConnectionTime() {
+        return maxConnectionTime;
+    }
+
+    /**
+     * Get the maximal number of connections with an empty trip from a trip to the trips starting at any other stop.
+     *
+     * @return the maximal number of connections per stop, -1 if there is no restriction
+     */
+    public int getMaxDeadheadsPerStop() {
+        return maxDeadheadsPerStop;
+    }
+
+    /**
+     * Whether the model should be solved by the min cost flow algorithm instead of an ip solver.
+     *
+     * @return whether to use the min cost flow algorithm
+     */
+    public boolean useMinCostFlow() {
+        return useMinCostFlow;
+    }
+
     public int getTimeUnitsPerMinute() {
         return timeUnitsPerMinute;
     }
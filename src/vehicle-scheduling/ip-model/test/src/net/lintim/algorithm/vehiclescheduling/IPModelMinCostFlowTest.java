@@ -0,0 +1,218 @@
+package net.lintim.algorithm.vehiclescheduling;
+
+import net.lintim.model.*;
+import net.lintim.model.impl.ArrayListGraph;
+import net.lintim.model.vehiclescheduling.TripConnection;
+import net.lintim.model.vehiclescheduling.TripNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link IPModelMinCostFlow}. The cost of the computed schedules is compared with a Bellman-Ford based
+ * successive shortest path computation on the same network.
+ */
+public class IPModelMinCostFlowTest {
+
+    private static final double DELTA = 1e-6;
+
+    /**
+     * The trips 1 and 2 can be served by one vehicle, trip 3 overlaps with trip 2. Serving 1 and 2 by one vehicle
+     * and 3 by a second one costs 10 + 1 + 2 + 10 + 2 = 25, serving 1 and 3 by one vehicle would cost 10 + 5 + 2 + 10
+     * + 2 = 29.
+     */
+    @Test
+    public void canComputeOptimalSchedule() {
+        Graph<TripNode, TripConnection> tripGraph = new ArrayListGraph<>();
+        TripNode depot = new TripNode(0, null, true);
+        tripGraph.addNode(depot);
+        TripNode trip1 = addTrip(tripGraph, 1, 0, 10);
+        TripNode trip2 = addTrip(tripGraph, 2, 15, 25);
+        TripNode trip3 = addTrip(tripGraph, 3, 20, 30);
+        int id = 1;
+        for (TripNode trip : Arrays.asList(trip1, trip2, trip3)) {
+            tripGraph.addEdge(new TripConnection(id++, depot, trip, 10));
+            tripGraph.addEdge(new TripConnection(id++, trip, depot, 2));
+        }
+        tripGraph.addEdge(new TripConnection(id++, trip1, trip2, 1));
+        tripGraph.addEdge(new TripConnection(id, trip1, trip3, 5));
+
+        VehicleSchedule schedule = new IPModelMinCostFlow().solveVehicleSchedulingIPModel(tripGraph, null);
+        Assert.assertEquals(2, countVehicles(schedule));
+        Assert.assertEquals(25, computeCost(tripGraph, schedule), DELTA);
+        Assert.assertEquals(25, computeReferenceCost(tripGraph), DELTA);
+    }
+
+    @Test
+    public void computesSameCostAsBellmanFord() {
+        Random random = new Random(42);
+        for (int instance = 0; instance < 30; instance++) {
+            Graph<TripNode, TripConnection> tripGraph = createRandomTripGraph(random, 5 + random.nextInt(40));
+            VehicleSchedule schedule = new IPModelMinCostFlow().solveVehicleSchedulingIPModel(tripGraph, null);
+            Assert.assertEquals("instance " + instance, computeReferenceCost(tripGraph),
+                computeCost(tripGraph, schedule), DELTA);
+        }
+    }
+
+    private static TripNode addTrip(Graph<TripNode, TripConnection> tripGraph, int id, int startTime, int endTime) {
+        Trip trip = new Trip(2 * id - 1, 2 * id - 1, 1, startTime, 2 * id, 2 * id, 2, endTime, 1, TripType.TRIP);
+        TripNode node = new TripNode(id, trip, false);
+        tripGraph.addNode(node);
+        return node;
+    }
+
+    /**
+     * Trips with random times. A trip can be followed by every trip starting at least 5 after its end, every trip
+     * can start and end in the depot, the vehicle costs are part of the cost of the depot connections.
+     */
+    private static Graph<TripNode, TripConnection> createRandomTripGraph(Random random, int numberOfTrips) {
+        Graph<TripNode, TripConnection> tripGraph = new ArrayListGraph<>();
+        TripNode depot = new TripNode(0, null, true);
+        tripGraph.addNode(depot);
+        List<TripNode> trips = new ArrayList<>();
+        for (int i = 1; i <= numberOfTrips; i++) {
+            int startTime = random.nextInt(200);
+            trips.add(addTrip(tripGraph, i, startTime, startTime + 5 + random.nextInt(30)));
+        }
+        int vehicleCost = 20 + random.nextInt(40);
+        int id = 1;
+        for (TripNode source : trips) {
+            tripGraph.addEdge(new TripConnection(id++, depot, source, vehicleCost + random.nextInt(10)));
+            tripGraph.addEdge(new TripConnection(id++, source, depot, random.nextInt(10)));
+            for (TripNode target : trips) {
+                if (source.getTrip().getEndTime() + 5 <= target.getTrip().getStartTime()) {
+                    tripGraph.addEdge(new TripConnection(id++, source, target, random.nextInt(30)));
+                }
+            }
+        }
+        return tripGraph;
+    }
+
+    private static int countVehicles(VehicleSchedule schedule) {
+        int vehicles = 0;
+        for (Circulation circulation : schedule) {
+            vehicles += circulation.getVehicleTourList().size();
+        }
+        return vehicles;
+    }
+
+    /**
+     * Compute the cost of the schedule from the connections between its consecutive trips and check that every trip
+     * is served exactly once.
+     */
+    private static double computeCost(Graph<TripNode, TripConnection> tripGraph, VehicleSchedule schedule) {
+        TripNode depot = null;
+        Map<Trip, TripNode> nodeOfTrip = new IdentityHashMap<>();
+        for (TripNode node : tripGraph.getNodes()) {
+            if (node.isDepot()) {
+                depot = node;
+            } else {
+                nodeOfTrip.put(node.getTrip(), node);
+            }
+        }
+        Map<TripNode, Map<TripNode, Double>> cost = new HashMap<>();
+        for (TripConnection connection : tripGraph.getEdges()) {
+            cost.computeIfAbsent(connection.getLeftNode(), node -> new HashMap<>())
+                .put(connection.getRightNode(), connection.getCost());
+        }
+        Set<TripNode> served = new HashSet<>();
+        double totalCost = 0;
+        for (Circulation circulation : schedule) {
+            for (VehicleTour tour : circulation) {
+                TripNode last = depot;
+                for (Trip trip : tour.getTripList()) {
+                    if (trip.getTripType() == TripType.EMPTY) {
+                        continue;
+                    }
+                    TripNode node = nodeOfTrip.get(trip);
+                    Assert.assertNotNull(node);
+                    Assert.assertTrue("trip " + node.getId() + " is served twice", served.add(node));
+                    Assert.assertTrue(cost.get(last).containsKey(node));
+                    totalCost += cost.get(last).get(node);
+                    last = node;
+                }
+                Assert.assertTrue(cost.get(last).containsKey(depot));
+                totalCost += cost.get(last).get(depot);
+            }
+        }
+        Assert.assertEquals(nodeOfTrip.size(), served.size());
+        return totalCost;
+    }
+
+    /**
+     * The optimal cost by successive shortest paths with Bellman-Ford. A source is connected to all nodes out_i and
+     * all nodes in_i to a sink, every shortest path serves one more trip.
+     */
+    private static double computeReferenceCost(Graph<TripNode, TripConnection> tripGraph) {
+        Map<TripNode, Integer> index = new HashMap<>();
+        for (TripNode node : tripGraph.getNodes()) {
+            if (!node.isDepot()) {
+                index.put(node, index.size());
+            }
+        }
+        int trips = index.size();
+        int depot = 2 * trips;
+        int source = depot + 1;
+        int sink = depot + 2;
+        List<int[]> arcs = new ArrayList<>();
+        List<Double> costs = new ArrayList<>();
+        for (int i = 0; i < trips; i++) {
+            addReferenceArc(arcs, costs, source, i, 1, 0);
+            addReferenceArc(arcs, costs, trips + i, sink, 1, 0);
+        }
+        for (TripConnection connection : tripGraph.getEdges()) {
+            TripNode left = connection.getLeftNode();
+            TripNode right = connection.getRightNode();
+            if (left.isDepot() && right.isDepot()) {
+                continue;
+            }
+            int from = left.isDepot() ? depot : index.get(left);
+            int to = right.isDepot() ? depot : trips + index.get(right);
+            addReferenceArc(arcs, costs, from, to, left.isDepot() || right.isDepot() ? trips : 1,
+                connection.getCost());
+        }
+        int nodes = depot + 3;
+        double totalCost = 0;
+        for (int unit = 0; unit < trips; unit++) {
+            double[] distance = new double[nodes];
+            int[] predecessor = new int[nodes];
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            Arrays.fill(predecessor, -1);
+            distance[source] = 0;
+            for (int round = 0; round < nodes; round++) {
+                boolean changed = false;
+                for (int arc = 0; arc < arcs.size(); arc++) {
+                    int[] data = arcs.get(arc);
+                    if (data[2] > 0 && distance[data[0]] + costs.get(arc) < distance[data[1]] - DELTA) {
+                        distance[data[1]] = distance[data[0]] + costs.get(arc);
+                        predecessor[data[1]] = arc;
+                        changed = true;
+                    }
+                }
+                if (!changed) {
+                    break;
+                }
+            }
+            Assert.assertTrue("no feasible schedule", distance[sink] < Double.POSITIVE_INFINITY);
+            for (int node = sink; node != source; node = arcs.get(predecessor[node])[0]) {
+                int arc = predecessor[node];
+                arcs.get(arc)[2] -= 1;
+                arcs.get(arc ^ 1)[2] += 1;
+            }
+            totalCost += distance[sink];
+        }
+        return totalCost;
+    }
+
+    /**
+     * Add an arc with its reverse arc, arc 2k is the k-th arc and arc 2k+1 its reverse arc.
+     */
+    private static void addReferenceArc(List<int[]> arcs, List<Double> costs, int from, int to, int capacity,
+                                        double cost) {
+        arcs.add(new int[]{from, to, capacity});
+        costs.add(cost);
+        arcs.add(new int[]{to, from, 0});
+        costs.add(-cost);
+    }
+}
@@ -0,0 +1,199 @@
+package net.lintim.algorithms.vehiclescheduling;
+
+import net.lintim.algorithm.Dijkstra;
+import net.lintim.model.*;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Class for computing a greedy vehicle schedule for large sets of trips.
+ * <p>
+ * The trips are swept once in the order of their start time. Every stop has a priority queue of the vehicles that
+ * finished their last trip there, keyed by the time they are available again (end time plus turn over time). A
+ * trip is served by the earliest available vehicle waiting at its first stop. If there is none, the stops are
+ * checked in the order of their deadhead time to the first stop of the trip, and the first vehicle that can reach
+ * the trip in time by an empty trip is used. Only if no vehicle can serve the trip, a new vehicle is added.
+ * <p>
+ * The deadhead times are computed once between all stops where trips start or end. Afterwards, every trip needs
+ * O(log n) time plus one look at the queue of every stop within the maximal deadhead time.
+ */
+public class GreedyVehicleSchedule {
+
+	private static final int SECONDS_PER_MINUTE = 60;
+
+	/**
+	 * Create a new greedy vehicle schedule. Every vehicle gets its own circulation.
+	 * @param trips the trips to cover
+	 * @param ptn the ptn, the deadhead time of a link is its lower bound
+	 * @param timeUnitsPerMinute the number of time units per minute of the lower bounds in the ptn
+	 * @param turnOverTime the minimal time (in seconds) between two trips of a vehicle
+	 * @param maxDeadheadTime the maximal time (in seconds) of an empty trip between two trips, -1 for no
+	 *                           restriction
+	 * @return the resulting vehicle schedule
+	 */
+	public static VehicleSchedule createGreedyVehicleSchedule(Collection<Trip> trips, Graph<Stop, Link> ptn,
+	                                                          int timeUnitsPerMinute, int turnOverTime,
+	                                                          int maxDeadheadTime) {
+		// Index the stops where trips start or end
+		HashMap<Integer, Integer> stopIndex = new HashMap<>();
+		for (Trip trip : trips) {
+			stopIndex.putIfAbsent(trip.getStartStopId(), stopIndex.size());
+			stopIndex.putIfAbsent(trip.getEndStopId(), stopIndex.size());
+		}
+		int stopCount = stopIndex.size();
+		int[][] deadheadTime = computeDeadheadTimes(ptn, stopIndex, timeUnitsPerMinute);
+
+		// For every stop, the other stops from which it can be reached by an empty trip, by increasing deadhead time
+		int[][] nearbyStops = new int[stopCount][];
+		for (int target = 0; target < stopCount; target++) {
+			final int targetStop = target;
+			nearbyStops[target] = IntStream.range(0, stopCount)
+				.filter(source -> source != targetStop && deadheadTime[source][targetStop] != Integer.MAX_VALUE)
+				.filter(source -> maxDeadheadTime < 0 || deadheadTime[source][targetStop] <= maxDeadheadTime)
+				.boxed()
+				.sorted(Comparator.comparingInt(source -> deadheadTime[source][targetStop]))
+				.mapToInt(Integer::intValue)
+				.toArray();
+		}
+
+		Trip[] sortedTrips = trips.toArray(new Trip[0]);
+		Arrays.sort(sortedTrips, Comparator.comparingInt(Trip::getStartTime).thenComparingInt(Trip::getEndTime));
+
+		VehicleQueue[] waitingVehicles = new VehicleQueue[stopCount];
+		for (int stop = 0; stop < stopCount; stop++) {
+			waitingVehicles[stop] = new VehicleQueue();
+		}
+		ArrayList<VehicleTour> tours = new ArrayList<>();
+		ArrayList<Trip> lastTrips = new ArrayList<>();
+		int[] tripCount = new int[16];
+		for (Trip trip : sortedTrips) {
+			int startStop = stopIndex.get(trip.getStartStopId());
+			int vehicle = -1;
+			VehicleQueue queue = waitingVehicles[startStop];
+			if (!queue.isEmpty() && queue.minAvailability() <= trip.getStartTime()) {
+				vehicle = queue.poll();
+			} else {
+				for (int otherStop : nearbyStops[startStop]) {
+					queue = waitingVehicles[otherStop];
+					if (!queue.isEmpty() && queue.minAvailability() + deadheadTime[otherStop][startStop] <=
+						trip.getStartTime()) {
+						vehicle = queue.poll();
+						break;
+					}
+				}
+			}
+			if (vehicle == -1) {
+				vehicle = tours.size();
+				tours.add(new VehicleTour(vehicle + 1));
+				lastTrips.add(null);
+				if (vehicle == tripCount.length) {
+					tripCount = Arrays.copyOf(tripCount, 2 * vehicle);
+				}
+			}
+			VehicleTour tour = tours.get(vehicle);
+			Trip lastTrip = lastTrips.get(vehicle);
+			if (lastTrip != null) {
+				Trip emptyTrip = new Trip(lastTrip.getEndAperiodicEventId(), lastTrip.getEndPeriodicEventId(),
+					lastTrip.getEndStopId(), lastTrip.getEndTime(), trip.getStartAperiodicEventId(),
+					trip.getStartPeriodicEventId(), trip.getStartStopId(), trip.getStartTime(), -1, TripType.EMPTY);
+				tour.addTrip(++tripCount[vehicle], emptyTrip);
+			}
+			tour.addTrip(++tripCount[vehicle], trip);
+			lastTrips.set(vehicle, trip);
+			waitingVehicles[stopIndex.get(trip.getEndStopId())].add(trip.getEndTime() + turnOverTime, vehicle);
+		}
+
+		VehicleSchedule vehicleSchedule = new VehicleSchedule();
+		for (VehicleTour tour : tours) {
+			Circulation circulation = new Circulation(tour.getVehicleId());
+			circulation.addVehicle(tour);
+			vehicleSchedule.addCirculation(circulation);
+		}
+		return vehicleSchedule;
+	}
+
+	/**
+	 * Compute the deadhead times (in seconds) between the given stops by Dijkstra in the ptn.
+	 * @param ptn the ptn
+	 * @param stopIndex the index of every stop id to compute the times for
+	 * @param timeUnitsPerMinute the number of time units per minute of the lower bounds in the ptn
+	 * @return the deadhead times by stop index, Integer.MAX_VALUE if a stop cannot be reached
+	 */
+	private static int[][] computeDeadheadTimes(Graph<Stop, Link> ptn, Map<Integer, Integer> stopIndex,
+	                                            int timeUnitsPerMinute) {
+		Function<Link, Double> lengthFunction = link -> (double) link.getLowerBound() * SECONDS_PER_MINUTE /
+			timeUnitsPerMinute;
+		int[][] deadheadTime = new int[stopIndex.size()][stopIndex.size()];
+		for (Map.Entry<Integer, Integer> origin : stopIndex.entrySet()) {
+			Arrays.fill(deadheadTime[origin.getValue()], Integer.MAX_VALUE);
+			deadheadTime[origin.getValue()][origin.getValue()] = 0;
+			Stop originStop = ptn.getNode(origin.getKey());
+			if (originStop == null) {
+				continue;
+			}
+			Dijkstra<Stop, Link, Graph<Stop, Link>> dijkstra = new Dijkstra<>(ptn, originStop, lengthFunction);
+			dijkstra.computeShortestPaths();
+			for (Map.Entry<Integer, Integer> destination : stopIndex.entrySet()) {
+				Stop destinationStop = ptn.getNode(destination.getKey());
+				if (destinationStop == null) {
+					continue;
+				}
+				double distance = dijkstra.getDistance(destinationStop);
+				if (!Double.isInfinite(distance)) {
+					deadheadTime[origin.getValue()][destination.getValue()] = (int) Math.ceil(distance);
+				}
+			}
+		}
+		return deadheadTime;
+	}
+
+	/**
+	 * A binary heap of vehicles, keyed by the time they are available. Vehicle and time are stored in one long.
+	 */
+	private static class VehicleQueue {
+		private long[] heap = new long[4];
+		private int size = 0;
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		int minAvailability() {
+			return (int) (heap[0] >> 32);
+		}
+
+		void add(int availability, int vehicle) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, 2 * size);
+			}
+			long entry = ((long) availability << 32) | vehicle;
+			int position = size++;
+			while (position > 0 && heap[(position - 1) / 2] > entry) {
+				heap[position] = heap[(position - 1) / 2];
+				position = (position - 1) / 2;
+			}
+			heap[position] = entry;
+		}
+
+		int poll() {
+			int vehicle = (int) heap[0];
+			long entry = heap[--size];
+			int position = 0;
+			while (2 * position + 1 < size) {
+				int child = 2 * position + 1;
+				if (child + 1 < size && heap[child + 1] < heap[child]) {
+					child++;
+				}
+				if (heap[child] >= entry) {
+					break;
+				}
+				heap[position] = heap[child];
+				position = child;
+			}
+			heap[position] = entry;
+			return vehicle;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package net.lintim.main.vehiclescheduling;
+
+import net.lintim.algorithms.vehiclescheduling.GreedyVehicleSchedule;
+import net.lintim.exception.ConfigNoFileNameGivenException;
+import net.lintim.io.ConfigReader;
+import net.lintim.io.PTNReader;
+import net.lintim.io.TripReader;
+import net.lintim.io.VehicleScheduleWriter;
+import net.lintim.model.*;
+import net.lintim.util.Config;
+import net.lintim.util.Logger;
+
+import java.util.Collection;
+
+/**
+ * Create a greedy vehicle schedule, i.e., a vehicle schedule where the trips are assigned by increasing start time
+ * to the first vehicle that can serve them, possibly after an empty trip.
+ */
+public class GreedyVehicleScheduleMain {
+
+    private static final Logger logger = new Logger(GreedyVehicleScheduleMain.class.getCanonicalName());
+
+	public static void main(String[] args) {
+		logger.info("Begin reading configuration");
+		if(args.length < 1){
+			throw new ConfigNoFileNameGivenException();
+		}
+		Config config = new ConfigReader.Builder(args[0]).build().read();
+		int timeUnitsPerMinute = config.getIntegerValue("time_units_per_minute");
+		// Convert turn over time and maximal deadhead time from time units to seconds
+		int turnOverTime = config.getIntegerValue("vs_turn_over_time") * 60 / timeUnitsPerMinute;
+		int maxDeadheadTime = config.getIntegerValue("vs_greedy_max_deadhead_time");
+		if (maxDeadheadTime >= 0) {
+			maxDeadheadTime = maxDeadheadTime * 60 / timeUnitsPerMinute;
+		}
+		logger.info("Finished reading configuration");
+		logger.info("Begin reading input data");
+		Graph<Stop, Link> ptn = new PTNReader.Builder().build().read();
+		Collection<Trip> trips = new TripReader.Builder().build().read();
+		logger.info("Finished reading input data");
+		logger.info("Begin greedy vehicle schedule computation");
+		VehicleSchedule vehicleSchedule = GreedyVehicleSchedule.createGreedyVehicleSchedule(trips, ptn,
+			timeUnitsPerMinute, turnOverTime, maxDeadheadTime);
+		logger.debug("Number of vehicles: " + vehicleSchedule.getCirculations().size());
+		logger.info("Finished greedy vehicle schedule computation");
+		logger.info("Writing output data");
+		new VehicleScheduleWriter.Builder(vehicleSchedule).build().write();
+		logger.info("Finished writing output data");
+	}
+}